@@ -0,0 +1,397 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KafkaPoller.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, NZ
+ */
+
+package moa.streams;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.util.InstanceCodec;
+import moa.util.KafkaStatistics;
+import moa.util.KafkaUtils;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumes a Kafka topic on a background thread for {@link KafkaStream}.
+ *
+ * The polling thread owns the consumer and polls continuously. The
+ * records of each partition are decoded by a single worker thread, so
+ * they stay in the order of their partition, and a worker is started
+ * for each assigned partition up to a maximum. The decoded instances
+ * are handed over in a buffer. The number of records polled but not yet
+ * taken from the buffer is bounded by permits, and the partitions are
+ * paused while there are not enough permits for another poll.
+ *
+ * A partition ends with its end-of-stream record, and the records after
+ * it are skipped. The stream ends once every other partition has been
+ * read up to its end at the time the first end-of-stream record was
+ * found, as the writer sends it to one partition only, after all others.
+ *
+ * The methods returning instances must be called from a single thread.
+ */
+public class KafkaPoller implements Runnable, Closeable {
+
+  // How long a single poll waits for records
+  protected static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+
+  // How often the lag of the consumer is updated
+  protected static final long LAG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  // The consumer, only used by the polling thread
+  protected final Consumer<Long, byte[]> m_Consumer;
+
+  // The topic to consume
+  protected final String m_Topic;
+
+  // The decoder of the records
+  protected final InstanceCodec m_Codec;
+
+  // The maximum number of records returned by a poll
+  protected final int m_MaxPollRecords;
+
+  // The maximum number of decoding threads
+  protected final int m_MaxDecoders;
+
+  // The measurements of consuming the topic
+  protected final KafkaStatistics m_Statistics;
+
+  // The decoded instances waiting to be returned
+  protected final BlockingQueue<Instance> m_Buffer = new LinkedBlockingQueue<>();
+
+  // One permit for each record which may still be polled
+  protected final Semaphore m_Permits;
+
+  // The decoding threads
+  protected final List<ExecutorService> m_Decoders = new ArrayList<>();
+
+  // The decoding thread of each partition
+  protected final Map<TopicPartition, ExecutorService> m_PartitionDecoders = new HashMap<>();
+
+  // The partitions which have been moved to their beginning
+  protected final Set<TopicPartition> m_Rewound = new HashSet<>();
+
+  // The partitions whose end-of-stream record has been decoded
+  protected final Set<TopicPartition> m_EndedPartitions = ConcurrentHashMap.newKeySet();
+
+  // The end offsets of the partitions once one has ended, used by the polling thread only
+  protected final Map<TopicPartition, Long> m_EndOffsets = new HashMap<>();
+
+  // The polling thread
+  protected final Thread m_Thread;
+
+  // Whether the polling should stop
+  protected volatile boolean m_Stopped = false;
+
+  // Whether all partitions have been read to their end
+  protected volatile boolean m_EndOfStreamReached = false;
+
+  // Whether all instances have been put in the buffer
+  protected volatile boolean m_Finished = false;
+
+  // The error which stopped polling or decoding, if any
+  protected volatile Throwable m_Failure = null;
+
+  // The instance to return next, taken from the buffer
+  protected Instance m_Next = null;
+
+  /**
+   * Starts consuming a topic.
+   *
+   * @param consumer The consumer to poll, used by the polling thread only.
+   * @param topic The topic to consume.
+   * @param codec The decoder of the records.
+   * @param bufferSize The maximum number of records polled but not returned.
+   * @param maxPollRecords The maximum number of records returned by a poll,
+   *                       at most the buffer size.
+   * @param maxDecoders The maximum number of decoding threads.
+   * @param statistics The measurements to update.
+   */
+  public KafkaPoller(Consumer<Long, byte[]> consumer, String topic, InstanceCodec codec,
+                     int bufferSize, int maxPollRecords, int maxDecoders,
+                     KafkaStatistics statistics) {
+    m_Consumer = consumer;
+    m_Topic = topic;
+    m_Codec = codec;
+    m_MaxPollRecords = Math.min(maxPollRecords, bufferSize);
+    m_MaxDecoders = maxDecoders;
+    m_Statistics = statistics;
+    m_Permits = new Semaphore(bufferSize);
+    m_Thread = new Thread(this, "KafkaStream-poller");
+    m_Thread.setDaemon(true);
+    m_Thread.start();
+  }
+
+  @Override
+  public void run() {
+    try {
+      // Start each partition from its beginning when it is first assigned
+      m_Consumer.subscribe(Collections.singletonList(m_Topic), new ConsumerRebalanceListener() {
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+          List<TopicPartition> rewind = new ArrayList<>();
+          for (TopicPartition partition : partitions) {
+            if (m_Rewound.add(partition))
+              rewind.add(partition);
+          }
+          m_Consumer.seekToBeginning(rewind);
+        }
+      });
+
+      long nextLagUpdate = System.nanoTime();
+      while (!m_Stopped && !m_EndOfStreamReached) {
+        // Keep the group membership alive without fetching while the buffer is full
+        if (!m_Permits.tryAcquire(m_MaxPollRecords, POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+          m_Consumer.pause(m_Consumer.assignment());
+          m_Consumer.poll(Duration.ZERO);
+          continue;
+        }
+        if (!m_Consumer.paused().isEmpty())
+          m_Consumer.resume(m_Consumer.paused());
+
+        long start = System.nanoTime();
+        ConsumerRecords<Long, byte[]> records = m_Consumer.poll(POLL_TIMEOUT);
+        m_Statistics.addPoll(System.nanoTime() - start);
+        m_Permits.release(m_MaxPollRecords - records.count());
+
+        // Hand the records of each partition to its decoder
+        for (TopicPartition partition : records.partitions()) {
+          List<ConsumerRecord<Long, byte[]>> partitionRecords = records.records(partition);
+          decoderFor(partition).execute(() -> decode(partition, partitionRecords));
+        }
+
+        // Stop once the other partitions have been read to their end
+        if (!m_EndedPartitions.isEmpty()
+              && KafkaUtils.consumedToEnd(m_Consumer, m_EndOffsets, m_EndedPartitions))
+          m_EndOfStreamReached = true;
+
+        if (System.nanoTime() - nextLagUpdate >= 0) {
+          m_Statistics.updateLag(m_Consumer);
+          nextLagUpdate = System.nanoTime() + LAG_INTERVAL_NANOS;
+        }
+      }
+      m_Statistics.updateLag(m_Consumer);
+    }
+    catch (WakeupException e) {
+      // Woken up to stop
+      if (!m_Stopped)
+        m_Failure = e;
+    }
+    catch (Throwable t) {
+      m_Failure = t;
+    }
+    finally {
+      finish();
+    }
+  }
+
+  /**
+   * Gets the decoding thread of a partition, starting a new one if the
+   * maximum hasn't been reached.
+   */
+  protected ExecutorService decoderFor(TopicPartition partition) {
+    ExecutorService decoder = m_PartitionDecoders.get(partition);
+    if (decoder == null) {
+      if (m_Decoders.size() < m_MaxDecoders) {
+        decoder = Executors.newSingleThreadExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "KafkaStream-decoder");
+          thread.setDaemon(true);
+          return thread;
+        });
+        m_Decoders.add(decoder);
+      }
+      else {
+        decoder = m_Decoders.get(m_PartitionDecoders.size() % m_MaxDecoders);
+      }
+      m_PartitionDecoders.put(partition, decoder);
+    }
+    return decoder;
+  }
+
+  /**
+   * Decodes the records of a partition into the buffer, on a decoding
+   * thread.
+   */
+  protected void decode(TopicPartition partition, List<ConsumerRecord<Long, byte[]>> records) {
+    int i = 0;
+    try {
+      // Skip the records after the end of the partition
+      if (m_EndedPartitions.contains(partition))
+        return;
+
+      long start = System.nanoTime();
+      int numDecoded = 0;
+      for (; i < records.size() && !m_Stopped; i++) {
+        byte[] value = records.get(i).value();
+
+        // A null value marks the end of the partition
+        if (value == null) {
+          m_EndedPartitions.add(partition);
+          break;
+        }
+
+        m_Buffer.add(m_Codec.decode(value));
+        numDecoded++;
+      }
+      m_Statistics.addDecoded(numDecoded, System.nanoTime() - start);
+    }
+    catch (Throwable t) {
+      m_Failure = t;
+      m_Stopped = true;
+    }
+    finally {
+      // The records which weren't buffered don't hold their permits
+      m_Permits.release(records.size() - i);
+    }
+  }
+
+  /**
+   * Waits for the decoders once polling has stopped, and closes the
+   * consumer.
+   */
+  protected void finish() {
+    try {
+      for (ExecutorService decoder : m_Decoders) {
+        if (m_Stopped)
+          decoder.shutdownNow();
+        else
+          decoder.shutdown();
+      }
+      for (ExecutorService decoder : m_Decoders) {
+        while (!decoder.awaitTermination(1, TimeUnit.SECONDS))
+          ;
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      try {
+        m_Consumer.close();
+      }
+      finally {
+        m_Finished = true;
+      }
+    }
+  }
+
+  /**
+   * Whether there is another instance, waiting for it if necessary.
+   */
+  public boolean hasNext() {
+    try {
+      while (m_Next == null) {
+        // Check the flag first, so the buffer is complete when it's empty
+        boolean finished = m_Finished;
+        m_Next = m_Buffer.poll(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        if (m_Next == null && finished) {
+          checkFailure();
+          return false;
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Gets the next instance, or null if there are no more.
+   */
+  public Instance next() {
+    if (!hasNext())
+      return null;
+
+    Instance instance = m_Next;
+    m_Next = null;
+    m_Permits.release();
+    return instance;
+  }
+
+  /**
+   * Whether all instances have been decoded, so that the number
+   * buffered is the number remaining.
+   */
+  public boolean isFinished() {
+    return m_Finished;
+  }
+
+  /**
+   * Gets the number of decoded instances not yet returned.
+   */
+  public int numBuffered() {
+    return m_Buffer.size() + (m_Next == null ? 0 : 1);
+  }
+
+  /**
+   * Rethrows the error which stopped polling or decoding, if any.
+   */
+  protected void checkFailure() {
+    Throwable failure = m_Failure;
+    if (failure != null)
+      throw new IllegalStateException("Failed to consume topic '" + m_Topic + "'", failure);
+  }
+
+  /**
+   * Stops polling and waits for the polling thread to close the consumer.
+   */
+  @Override
+  public void close() {
+    m_Stopped = true;
+    m_Consumer.wakeup();
+    boolean interrupted = false;
+    while (m_Thread.isAlive()) {
+      try {
+        m_Thread.join();
+      }
+      catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted)
+      Thread.currentThread().interrupt();
+  }
+}
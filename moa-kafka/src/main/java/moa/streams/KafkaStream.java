@@ -20,37 +20,43 @@
 
 package moa.streams;
 
+import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.IntOption;
 import com.github.javacliparser.StringOption;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.core.Example;
 import moa.core.InstanceExample;
+import moa.core.Measurement;
 import moa.core.ObjectRepository;
 import moa.options.AbstractOptionHandler;
 import moa.tasks.TaskMonitor;
+import moa.util.InstanceCodec;
+import moa.util.KafkaStatistics;
 import moa.util.KafkaUtils;
-import moa.util.ObjectDeserializer;
-import moa.util.ObjectSerializer;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.LongDeserializer;
 
 import java.io.Closeable;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
+import java.util.Set;
 
 /**
  * Instance stream which consumes instances from a Kafka topic.
@@ -59,10 +65,22 @@ import java.util.Queue;
  *   - The ordering of the instances in the topic is unimportant,
  *     or if it is important, it is ensured by a topic with only one
  *     partition.
- *   - The stream is considered ended when a record with a null
- *     value is found.
- *   - The serialised form of the instances is using Java's own
- *     serialisation tools (i.e. {@link ObjectSerializer}).
+ *   - A partition is considered ended when a record with a null
+ *     value is found, and the stream once the other partitions have
+ *     been read up to their end at that time.
+ *   - The instances are encoded by {@link InstanceCodec}, and their
+ *     header is published on the header topic (by default the
+ *     topic's name followed by "-header") before any instance is
+ *     consumed. The latest header of the topic is used, so a topic
+ *     written again must be emptied (or recreated) first.
+ *
+ * By default, records are polled and decoded by the thread reading
+ * the stream when it runs out of instances. With the background
+ * option, a thread polls continuously and the records of each
+ * partition are decoded by a worker thread into a bounded buffer (see
+ * {@link KafkaPoller}). The instances of a partition stay in order in
+ * both modes. Measurements of consuming the topic are available from
+ * {@link #getConsumerMeasurements()}.
  *
  * @author Corey Sterling (csterlin at waikato dot ac dot nz)
  */
@@ -78,6 +96,10 @@ public class KafkaStream extends AbstractOptionHandler implements
   public StringOption topicOption = new StringOption("topic", 't',
     "Kafka topic to consume", "");
 
+  // The topic holding the header of the instances
+  public StringOption headerTopicOption = new StringOption("headerTopic", 'e',
+    "Kafka topic holding the header of the instances (topic followed by -header if empty)", "");
+
   // The broker host to connect to
   public StringOption hostOption = new StringOption("host", 'h',
     "The Kafka broker host", "localhost");
@@ -86,10 +108,23 @@ public class KafkaStream extends AbstractOptionHandler implements
   public StringOption portOption = new StringOption("port", 'p',
     "The Kafka broker port", "9092");
 
+  // Whether to poll and decode on background threads
+  public FlagOption backgroundOption = new FlagOption("background", 'b',
+    "Poll and decode records on background threads");
+
+  // The maximum number of records polled ahead in the background
+  public IntOption bufferSizeOption = new IntOption("bufferSize", 'u',
+    "Maximum number of records polled ahead of the reader in the background", 10000, 1, Integer.MAX_VALUE);
+
+  // The maximum number of background decoding threads
+  public IntOption decodeThreadsOption = new IntOption("decodeThreads", 'd',
+    "Maximum number of background threads decoding records, one per assigned partition",
+    4, 1, Integer.MAX_VALUE);
+
   // -- TRANSIENTS -- //
 
   // The consumer which will retrieve records from the Kafka stream
-  protected transient KafkaConsumer<Long, Instance> m_Consumer = null;
+  protected transient Consumer<Long, byte[]> m_Consumer = null;
 
   // A buffer of instances retrieved from the Kafka stream
   protected transient Queue<Instance> m_InstanceBuffer = null;
@@ -97,9 +132,24 @@ public class KafkaStream extends AbstractOptionHandler implements
   // Whether we have reached the end of the stream
   protected transient boolean m_EndOfStreamReached = false;
 
+  // The partitions whose end-of-stream record has been found
+  protected transient Set<TopicPartition> m_EndedPartitions = null;
+
+  // The end offsets of the partitions once one has ended
+  protected transient Map<TopicPartition, Long> m_EndOffsets = null;
+
   // The header for the instances
   protected transient InstancesHeader m_Header = null;
 
+  // The decoder of the instances, created from the header
+  protected transient InstanceCodec m_Codec = null;
+
+  // The background consumer, if polling in the background
+  protected transient KafkaPoller m_Poller = null;
+
+  // The measurements of consuming the topic
+  protected transient KafkaStatistics m_Statistics = null;
+
   @Override
   public String getPurposeString() {
     return "A stream consumed from a Kafka topic.";
@@ -112,13 +162,16 @@ public class KafkaStream extends AbstractOptionHandler implements
 
   @Override
   public InstancesHeader getHeader() {
-    fillBufferIfNecessary();
+    establishCodec();
 
     return m_Header;
   }
 
   @Override
   public long estimatedRemainingInstances() {
+    if (backgroundOption.isSet())
+      return establishPoller().isFinished() ? m_Poller.numBuffered() : -1;
+
     fillBufferIfNecessary();
 
     // If we've reached the end of the stream, what's in the buffer is all
@@ -132,6 +185,9 @@ public class KafkaStream extends AbstractOptionHandler implements
 
   @Override
   public boolean hasMoreInstances() {
+    if (backgroundOption.isSet())
+      return establishPoller().hasNext();
+
     fillBufferIfNecessary();
 
     return !m_EndOfStreamReached || !bufferIsEmpty();
@@ -139,6 +195,12 @@ public class KafkaStream extends AbstractOptionHandler implements
 
   @Override
   public Example<Instance> nextInstance() {
+    // Take the next instance decoded in the background
+    if (backgroundOption.isSet()) {
+      Instance instance = establishPoller().next();
+      return instance == null ? null : new InstanceExample(instance);
+    }
+
     // Retrieve more instances from Kafka if the buffer is empty
     fillBufferIfNecessary();
 
@@ -157,6 +219,9 @@ public class KafkaStream extends AbstractOptionHandler implements
 
   @Override
   public void restart() {
+    // Stop consuming in the background, it restarts on the next read
+    closePoller();
+
     // Get the consumer in a usable state and restart it
     restartConsumer();
 
@@ -165,6 +230,8 @@ public class KafkaStream extends AbstractOptionHandler implements
 
     // Mark the stream as not complete
     m_EndOfStreamReached = false;
+    m_EndedPartitions = new HashSet<>();
+    m_EndOffsets = new HashMap<>();
   }
 
   @Override
@@ -189,6 +256,8 @@ public class KafkaStream extends AbstractOptionHandler implements
 
   @Override
   public void close() {
+    closePoller();
+
     if (m_Consumer != null) {
       m_Consumer.unsubscribe();
       m_Consumer.close();
@@ -206,8 +275,11 @@ public class KafkaStream extends AbstractOptionHandler implements
     if (m_Consumer != null)
       return;
 
+    // The header is needed to decode the instances
+    establishCodec();
+
     // Create the consumer
-    m_Consumer = new KafkaConsumer<>(createConsumerConfiguration());
+    m_Consumer = createConsumer(topicOption.getValue(), createConsumerConfiguration());
 
     // Subscribe to the given topic
     m_Consumer.subscribe(Collections.singletonList(topicOption.getValue()));
@@ -216,6 +288,154 @@ public class KafkaStream extends AbstractOptionHandler implements
     restartConsumer();
   }
 
+  /**
+   * Makes sure the header has been read and the decoder created.
+   */
+  protected void establishCodec() {
+    if (m_Codec != null)
+      return;
+
+    m_Header = readHeader();
+    m_Codec = new InstanceCodec(m_Header);
+  }
+
+  /**
+   * Makes sure the background consumer is polling.
+   *
+   * @return The background consumer.
+   */
+  protected KafkaPoller establishPoller() {
+    if (m_Poller != null)
+      return m_Poller;
+
+    establishCodec();
+    int bufferSize = bufferSizeOption.getValue();
+    Map<String, Object> config = createConsumerConfiguration();
+    int maxPollRecords = Math.min(bufferSize, 500);
+    config.put("max.poll.records", maxPollRecords);
+    m_Poller = new KafkaPoller(
+      createConsumer(topicOption.getValue(), config),
+      topicOption.getValue(),
+      m_Codec,
+      bufferSize,
+      maxPollRecords,
+      decodeThreadsOption.getValue(),
+      statistics()
+    );
+
+    return m_Poller;
+  }
+
+  /**
+   * Stops the background consumer, if any.
+   */
+  protected void closePoller() {
+    if (m_Poller != null)
+      m_Poller.close();
+
+    m_Poller = null;
+  }
+
+  /**
+   * Gets the measurements of consuming the topic.
+   */
+  protected KafkaStatistics statistics() {
+    if (m_Statistics == null)
+      m_Statistics = new KafkaStatistics();
+
+    return m_Statistics;
+  }
+
+  /**
+   * Gets measurements of consuming the topic: the number of records
+   * not yet fetched, the number of decoded instances not yet read, and
+   * the mean latency of polls and decoding time of records.
+   *
+   * @return The measurements.
+   */
+  public Measurement[] getConsumerMeasurements() {
+    // The lag of a background consumer is updated by its own thread
+    if (m_Poller == null && m_Consumer != null)
+      statistics().updateLag(m_Consumer);
+
+    long numBuffered;
+    if (m_Poller != null)
+      numBuffered = m_Poller.numBuffered();
+    else
+      numBuffered = m_InstanceBuffer == null ? 0 : m_InstanceBuffer.size();
+
+    return statistics().getMeasurements(numBuffered);
+  }
+
+  /**
+   * Creates a Kafka consumer. Can be overridden to consume from
+   * another source, such as Kafka's MockConsumer.
+   *
+   * @param topic The topic the consumer is for.
+   * @param config The configuration of the consumer.
+   * @return The consumer.
+   */
+  protected Consumer<Long, byte[]> createConsumer(String topic, Map<String, Object> config) {
+    return new KafkaConsumer<>(config);
+  }
+
+  /**
+   * Gets the topic holding the header of the instances.
+   */
+  protected String headerTopic() {
+    return KafkaUtils.headerTopic(topicOption.getValue(), headerTopicOption.getValue());
+  }
+
+  /**
+   * Reads the header of the instances from the header topic, waiting
+   * for it to be published if necessary. A header is published each time
+   * a topic is written, so the header is the latest record of the header
+   * topic: the header of the last stream written.
+   */
+  protected InstancesHeader readHeader() {
+    String topic = headerTopic();
+    Consumer<Long, byte[]> consumer = createConsumer(topic, createConsumerConfiguration());
+    try {
+      // Read the header topic without a group
+      List<PartitionInfo> infos = consumer.partitionsFor(topic);
+      if (infos == null || infos.isEmpty())
+        throw new IllegalStateException("Header topic '" + topic + "' not found");
+      List<TopicPartition> partitions = new LinkedList<>();
+      for (PartitionInfo info : infos)
+        partitions.add(new TopicPartition(topic, info.partition()));
+      consumer.assign(partitions);
+
+      // Start from the last record of each partition, if it has any
+      Map<TopicPartition, Long> beginnings = consumer.beginningOffsets(partitions);
+      Map<TopicPartition, Long> ends = consumer.endOffsets(partitions);
+      Set<TopicPartition> remaining = new HashSet<>();
+      for (TopicPartition partition : partitions) {
+        long end = ends.get(partition);
+        if (end > beginnings.get(partition)) {
+          consumer.seek(partition, end - 1);
+          remaining.add(partition);
+        }
+        else {
+          consumer.seek(partition, end);
+        }
+      }
+
+      // Take the newest of the last records, or the first one published
+      ConsumerRecord<Long, byte[]> latest = null;
+      while (latest == null || !remaining.isEmpty()) {
+        for (ConsumerRecord<Long, byte[]> record : consumer.poll(KafkaUtils.WAIT_AS_LONG_AS_POSSIBLE)) {
+          remaining.remove(new TopicPartition(record.topic(), record.partition()));
+          if (record.value() != null && (latest == null || record.timestamp() >= latest.timestamp()))
+            latest = record;
+        }
+      }
+      return InstanceCodec.decodeHeader(latest.value());
+    }
+    finally {
+      consumer.close();
+    }
+  }
+
   /**
    * Creates the configuration for the Kafka consumer.
    */
@@ -223,7 +443,7 @@ public class KafkaStream extends AbstractOptionHandler implements
     Map<String, Object> config = new HashMap<>();
 
     config.put("key.deserializer", LongDeserializer.class);
-    config.put("value.deserializer", ObjectDeserializer.class);
+    config.put("value.deserializer", ByteArrayDeserializer.class);
     config.put("bootstrap.servers", broker());
     config.put("fetch.min.bytes", 1);
     config.put("group.id", KafkaUtils.uniqueGroupIDString(this));
@@ -300,52 +520,42 @@ public class KafkaStream extends AbstractOptionHandler implements
     if (m_InstanceBuffer == null)
       m_InstanceBuffer = new LinkedList<>();
 
-    // Get some records from Kafka
-    ConsumerRecords<Long, Instance> records = m_Consumer.poll(KafkaUtils.WAIT_AS_LONG_AS_POSSIBLE);
-
-    // Add each instance to the buffer
-    for (ConsumerRecord<Long, Instance> record : records) {
-      // Extract the instance from the record
-      Instance instance = record.value();
+    // Poll until there is an instance, or the stream has ended
+    while (bufferIsEmpty() && !m_EndOfStreamReached) {
+      // Get some records from Kafka
+      long start = System.nanoTime();
+      ConsumerRecords<Long, byte[]> records = m_Consumer.poll(KafkaUtils.WAIT_AS_LONG_AS_POSSIBLE);
+      statistics().addPoll(System.nanoTime() - start);
+
+      // Add each instance to the buffer
+      start = System.nanoTime();
+      int numDecoded = 0;
+      for (ConsumerRecord<Long, byte[]> record : records) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+
+        // Skip the records after the end of their partition
+        if (m_EndedPartitions.contains(partition))
+          continue;
+
+        // If it's null, this is the sentinel that the partition has ended
+        if (record.value() == null) {
+          m_EndedPartitions.add(partition);
+          continue;
+        }
+
+        // Decode the instance and add it to the buffer
+        m_InstanceBuffer.add(m_Codec.decode(record.value()));
+        numDecoded++;
+      }
+      statistics().addDecoded(numDecoded, System.nanoTime() - start);
 
-      // If it's null, this is the sentinel that the end of stream has been reached
-      if (instance == null) {
+      // The stream ends once the other partitions have been read to their end
+      if (!m_EndedPartitions.isEmpty()
+            && KafkaUtils.consumedToEnd(m_Consumer, m_EndOffsets, m_EndedPartitions)) {
         m_EndOfStreamReached = true;
         close();
-        break;
       }
-
-      // Add the instance to the buffer
-      m_InstanceBuffer.add(record.value());
     }
-
-    // Save the header if we can and need to
-    cacheHeaderIfNecessary();
-  }
-
-  /**
-   * Caches the header for these instances if it hasn't already.
-   */
-  protected void cacheHeaderIfNecessary() {
-    // Skip if we've already cached a header
-    if (m_Header != null)
-      return;
-
-    // Get one of the instances
-    Instance instance = m_InstanceBuffer.peek();
-
-    // If there isn't one (should always be at this point), abort
-    if (instance == null)
-      return;
-
-    // Get it's dataset
-    Instances dataset = instance.dataset();
-
-    // Save it for future reference
-    if (dataset instanceof InstancesHeader)
-      m_Header = (InstancesHeader) dataset;
-    else
-      m_Header = new InstancesHeader(dataset);
   }
 
   /**
@@ -21,6 +21,7 @@
 package moa.tasks;
 
 import com.github.javacliparser.IntOption;
+import com.github.javacliparser.MultiChoiceOption;
 import com.github.javacliparser.StringOption;
 import com.yahoo.labs.samoa.instances.Instance;
 import moa.capabilities.CapabilitiesHandler;
@@ -30,18 +31,45 @@ import moa.core.Example;
 import moa.core.ObjectRepository;
 import moa.options.ClassOption;
 import moa.streams.InstanceStream;
+import moa.util.InstanceCodec;
 import moa.util.KafkaUtils;
-import moa.util.ObjectSerializer;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.LongSerializer;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Task to write instances from a stream to a Kafka topic.
  *
+ * The instances are encoded by {@link InstanceCodec}, on several threads
+ * if requested, and sent asynchronously. The producer groups them into
+ * batches according to the linger and batch size options, and the number
+ * of records sent but not yet acknowledged by the broker is bounded, so
+ * that a fast stream waits for the broker instead of filling the memory.
+ * The stream itself is read by a single thread, as streams are stateful.
+ * The header of the instances is acknowledged before any instance is sent,
+ * and the producer is flushed before the task finishes, and closed even
+ * if it fails or is cancelled.
+ *
  * @author Corey Sterling (csterlin at waikato dot ac dot nz)
  */
 public class WriteToTopicTask extends AuxiliarMainTask implements CapabilitiesHandler {
@@ -73,6 +101,14 @@ public class WriteToTopicTask extends AuxiliarMainTask implements CapabilitiesHa
         ""
   );
 
+  // The topic to write the header of the instances to
+  public StringOption headerTopicOption = new StringOption(
+        "headerTopic",
+        'e',
+        "Kafka topic to write the header of the instances to (topic followed by -header if empty)",
+        ""
+  );
+
   // The broker host to connect to
   public StringOption hostOption = new StringOption(
         "host",
@@ -89,6 +125,62 @@ public class WriteToTopicTask extends AuxiliarMainTask implements CapabilitiesHa
         ""
   );
 
+  // The time the producer waits for more records to fill a batch
+  public IntOption lingerOption = new IntOption(
+        "linger",
+        'l',
+        "Time in milliseconds the producer waits for more records to fill a batch",
+        5,
+        0,
+        Integer.MAX_VALUE
+  );
+
+  // The maximum size of a batch of records
+  public IntOption batchSizeOption = new IntOption(
+        "batchSize",
+        'b',
+        "Maximum size in bytes of a batch of records sent to a partition",
+        1 << 16,
+        0,
+        Integer.MAX_VALUE
+  );
+
+  // The compression of the batches
+  public MultiChoiceOption compressionOption = new MultiChoiceOption(
+        "compression",
+        'c',
+        "Compression of the batches of records",
+        new String[]{"none", "gzip", "snappy", "lz4", "zstd"},
+        new String[]{"No compression", "gzip", "Snappy", "LZ4", "Zstandard"},
+        0
+  );
+
+  // The maximum number of records waiting for acknowledgement
+  public IntOption maxInFlightOption = new IntOption(
+        "maxInFlight",
+        'w',
+        "Maximum number of records sent but not yet acknowledged by the broker",
+        10_000,
+        1,
+        Integer.MAX_VALUE
+  );
+
+  // The number of threads encoding instances
+  public IntOption encodeThreadsOption = new IntOption(
+        "encodeThreads",
+        'n',
+        "Number of threads encoding instances (1 encodes on the task's thread)",
+        1,
+        1,
+        Integer.MAX_VALUE
+  );
+
+  // The number of instances encoded together by a thread
+  protected static final int CHUNK_SIZE = 256;
+
+  // How often the progress is reported to the task monitor
+  protected static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
   /**
    * Creates the configuration for the Kakfa producer.
    *
@@ -100,21 +192,27 @@ public class WriteToTopicTask extends AuxiliarMainTask implements CapabilitiesHa
     Map<String, Object> config = new HashMap<>();
 
     config.put("key.serializer", LongSerializer.class);
-    config.put("value.serializer", ObjectSerializer.class);
+    config.put("value.serializer", ByteArraySerializer.class);
     config.put("bootstrap.servers", KafkaUtils.broker(host, port));
-    config.put("fetch.min.bytes", 1);
-    config.put("group.id", KafkaUtils.uniqueGroupIDString(this));
-    config.put("max.partition.fetch.bytes", 1 << 20); // 1MB
-    config.put("allow.auto.create.topics", false);
-    config.put("auto.offset.reset", "earliest");
-    config.put("enable.auto.commit", true);
-    config.put("fetch.max.bytes", 1 << 24); // 16MB
-    config.put("isolation.level", "read_committed");
+    config.put("linger.ms", lingerOption.getValue());
+    config.put("batch.size", batchSizeOption.getValue());
+    config.put("compression.type", compressionOption.getChosenLabel());
     config.put("client.id", this.getClass().getName());
 
     return config;
   }
 
+  /**
+   * Creates the Kafka producer. Can be overridden to write to another
+   * destination, such as Kafka's MockProducer.
+   *
+   * @param config The producer's configuration.
+   * @return The producer.
+   */
+  protected Producer<Long, byte[]> createProducer(Map<String, Object> config) {
+    return new KafkaProducer<>(config);
+  }
+
   @Override
   protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
     // Prepare all option values
@@ -123,56 +221,274 @@ public class WriteToTopicTask extends AuxiliarMainTask implements CapabilitiesHa
     String topic = topicOption.getValue();
     String host = hostOption.getValue();
     String port = portOption.getValue();
+    int encodeThreads = encodeThreadsOption.getValue();
 
     // Create the Kakfa producer
-    KafkaProducer<Long, Instance> producer = new KafkaProducer<>(
-          getProducerConfig(host, port)
-    );
+    Producer<Long, byte[]> producer = createProducer(getProducerConfig(host, port));
+    Sender sender = new Sender(producer, topic, maxInFlightOption.getValue());
+    ExecutorService encoders = encodeThreads > 1
+          ? Executors.newFixedThreadPool(encodeThreads)
+          : null;
 
-    int i = 0;
-    while (i < maxInstances) {
-      // If the stream is depleted, finalise the topic
-      if (!stream.hasMoreInstances()) break;
+    try {
+      // Publish the header once, so the instances only carry their values,
+      // and wait for it, as the instances can't be decoded without it
+      InstanceCodec codec = new InstanceCodec(stream.getHeader());
+      if (!sendHeader(
+            producer,
+            KafkaUtils.headerTopic(topic, headerTopicOption.getValue()),
+            InstanceCodec.encodeHeader(codec.getHeader()),
+            monitor
+      )) return null;
 
-      // Get the next instance from the stream
-      Example<Instance> inst = stream.nextInstance();
+      // Chunks being encoded, in the order of the stream
+      Deque<Future<byte[][]>> pending = new ArrayDeque<>();
 
-      // Create a record of the instance for the topic
-      ProducerRecord<Long, Instance> record = new ProducerRecord<>(
-            topic, (long) i++, inst.getData()
-      );
+      long start = System.nanoTime();
+      long nextReport = start + REPORT_INTERVAL_NANOS;
+      int i = 0;
+      while (i < maxInstances) {
+        // If the stream is depleted, finalise the topic
+        if (!stream.hasMoreInstances()) break;
+
+        // Read a chunk of instances from the stream
+        List<Instance> chunk = new ArrayList<>(Math.min(CHUNK_SIZE, maxInstances - i));
+        while (chunk.size() < CHUNK_SIZE && i + chunk.size() < maxInstances && stream.hasMoreInstances())
+          chunk.add(stream.nextInstance().getData());
+
+        // Encode it here, or on the encoding threads while the stream is read
+        if (encoders == null) {
+          for (Instance inst : chunk) {
+            if (!sender.send(codec.encode(inst), monitor)) return null;
+          }
+        }
+        else {
+          pending.add(encoders.submit(() -> encode(codec, chunk)));
+          if (pending.size() >= 2 * encodeThreads) {
+            if (!sendChunk(sender, pending.remove(), monitor)) return null;
+          }
+        }
+        i += chunk.size();
+
+        // Abort if the task is cancelled (leaves the topic unfinished)
+        if (monitor.isCancelled()) return null;
+
+        // Report the progress
+        if (System.nanoTime() - nextReport >= 0) {
+          nextReport = System.nanoTime() + REPORT_INTERVAL_NANOS;
+          monitor.setCurrentActivityDescription(sender.progress(start));
+
+          // Estimate the number of instances left in the source stream
+          long remainingInstances = stream.estimatedRemainingInstances();
+
+          // Estimate the total number of instances that will be written
+          long totalInstances = remainingInstances >= 0
+                ? i + remainingInstances
+                : maxInstances;
+
+          // Update the task monitor on our progress
+          monitor.setCurrentActivityFractionComplete(((double) i) / totalInstances);
+        }
+      }
+
+      // Send the chunks still being encoded
+      while (!pending.isEmpty()) {
+        if (!sendChunk(sender, pending.remove(), monitor)) return null;
+      }
+
+      // Send the null-terminator instance to the topic
+      if (!sender.send(null, monitor)) return null;
+
+      // Wait for all records to be acknowledged
+      producer.flush();
+      sender.checkFailure();
+
+      return sender.progress(start);
+    }
+    finally {
+      if (encoders != null)
+        encoders.shutdownNow();
+      producer.close();
+    }
+  }
+
+  /**
+   * Sends the header of the instances and waits for its acknowledgement.
+   *
+   * @return Whether the header was written, false if cancelled.
+   */
+  protected static boolean sendHeader(Producer<Long, byte[]> producer, String topic, byte[] header, TaskMonitor monitor) {
+    Future<RecordMetadata> sent = producer.send(new ProducerRecord<>(topic, 0L, header));
+    while (true) {
+      try {
+        sent.get(100, TimeUnit.MILLISECONDS);
+        return true;
+      }
+      catch (TimeoutException e) {
+        if (monitor.isCancelled()) return false;
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      catch (ExecutionException e) {
+        throw new RuntimeException("Failed writing the header to topic " + topic, e.getCause());
+      }
+    }
+  }
 
-      // Send the record to the Kafka instance
-      producer.send(record);
+  /**
+   * Encodes a chunk of instances, on an encoding thread.
+   */
+  protected static byte[][] encode(InstanceCodec codec, List<Instance> chunk) {
+    byte[][] result = new byte[chunk.size()][];
+    for (int i = 0; i < result.length; i++)
+      result[i] = codec.encode(chunk.get(i));
+    return result;
+  }
 
-      // Abort if the task is cancelled (leaves the topic unfinished)
-      if (monitor.isCancelled()) return null;
+  /**
+   * Sends a chunk of encoded instances once it is encoded.
+   *
+   * @return Whether all of the chunk was sent, false if cancelled.
+   */
+  protected static boolean sendChunk(Sender sender, Future<byte[][]> chunk, TaskMonitor monitor) {
+    byte[][] values;
+    try {
+      values = chunk.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    catch (ExecutionException e) {
+      throw new RuntimeException("Failed encoding instances", e.getCause());
+    }
 
-      // Estimate the number of instances left in the source stream
-      long remainingInstances = stream.estimatedRemainingInstances();
+    for (byte[] value : values) {
+      if (!sender.send(value, monitor)) return false;
+    }
 
-      // Estimate the total number of instances that will be written
-      long totalInstances = remainingInstances >= 0
-            ? i + remainingInstances
-            : maxInstances;
+    return true;
+  }
 
-      // Update the task monitor on our progress
-      monitor.setCurrentActivityFractionComplete(((double) i) / totalInstances);
+  /**
+   * Sends records asynchronously, keyed by their position in the stream,
+   * with at most a given number waiting for acknowledgement, and
+   * measures their latency.
+   */
+  protected static class Sender {
+
+    // The producer to send the records with
+    protected final Producer<Long, byte[]> m_Producer;
+
+    // The topic to send the records to
+    protected final String m_Topic;
+
+    // One permit for each record which may still be sent
+    protected final Semaphore m_InFlight;
+
+    // The number of records sent, which is also the key of the next
+    protected long m_NumSent = 0;
+
+    // The number of records acknowledged
+    protected final AtomicLong m_NumAcknowledged = new AtomicLong();
+
+    // The total time from sending to acknowledgement
+    protected final AtomicLong m_LatencyNanos = new AtomicLong();
+
+    // The first error reported by the producer
+    protected final AtomicReference<Exception> m_Failure = new AtomicReference<>();
+
+    /**
+     * Creates a sender.
+     *
+     * @param producer The producer to send the records with.
+     * @param topic The topic to send the records to.
+     * @param maxInFlight The maximum number of records waiting for
+     *                    acknowledgement.
+     */
+    public Sender(Producer<Long, byte[]> producer, String topic, int maxInFlight) {
+      m_Producer = producer;
+      m_Topic = topic;
+      m_InFlight = new Semaphore(maxInFlight);
     }
 
-    // Send the null-terminator instance to the topic
-    producer.send(
-          new ProducerRecord<>(
-                topic, (long) i, null
-          )
-    );
+    /**
+     * Sends the next record, waiting while too many records are in flight.
+     *
+     * @param value The value of the record.
+     * @param monitor The monitor of the task, to stop waiting when
+     *                cancelled.
+     * @return Whether the record was sent, false if cancelled.
+     */
+    public boolean send(byte[] value, TaskMonitor monitor) {
+      try {
+        while (!m_InFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+          checkFailure();
+          if (monitor.isCancelled()) return false;
+        }
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      checkFailure();
 
-    return null;
+      m_Producer.send(new ProducerRecord<>(m_Topic, m_NumSent, value), acknowledgement());
+      m_NumSent++;
+
+      return true;
+    }
+
+    /**
+     * Creates the callback of a record being sent now.
+     */
+    protected Callback acknowledgement() {
+      long sent = System.nanoTime();
+      return (RecordMetadata metadata, Exception exception) -> {
+        if (exception != null) {
+          m_Failure.compareAndSet(null, exception);
+        }
+        else {
+          m_LatencyNanos.addAndGet(System.nanoTime() - sent);
+          m_NumAcknowledged.incrementAndGet();
+        }
+        m_InFlight.release();
+      };
+    }
+
+    /**
+     * Rethrows the first error reported by the producer, if any.
+     */
+    public void checkFailure() {
+      Exception failure = m_Failure.get();
+      if (failure != null)
+        throw new RuntimeException("Failed writing to topic " + m_Topic, failure);
+    }
+
+    /**
+     * Describes the throughput and latency so far.
+     *
+     * @param start When sending started, in nanoseconds.
+     */
+    public String progress(long start) {
+      long acknowledged = m_NumAcknowledged.get();
+      double seconds = (System.nanoTime() - start) / 1e9;
+      return String.format(
+            "Written to topic %s: %d sent, %d acknowledged, %.0f instances/s, mean latency %.2f ms",
+            m_Topic,
+            m_NumSent,
+            acknowledged,
+            seconds > 0 ? acknowledged / seconds : 0.0,
+            acknowledged > 0 ? m_LatencyNanos.get() / 1e6 / acknowledged : 0.0
+      );
+    }
   }
 
   @Override
   public Class<?> getTaskResultType() {
-    return null;
+    return String.class;
   }
 
   @Override
@@ -0,0 +1,224 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstanceCodec.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, NZ
+ */
+
+package moa.util;
+
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+import moa.streams.BinaryFileStream;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of instances for Kafka records. The header of
+ * the instances is encoded once, on its own, and each instance is then
+ * encoded as its packed values only: numeric values as doubles and nominal
+ * values as the index of their label in 1, 2 or 4 bytes, as in
+ * {@link BinaryFileStream}. Instances with few non-zero values are encoded
+ * as (index, value) pairs, and weights of 1 are left out.
+ *
+ * Instances of this class are immutable and can be shared between threads.
+ */
+public class InstanceCodec {
+
+  // Flag set for instances encoded as (index, value) pairs
+  public static final byte SPARSE = 1;
+
+  // Flag set for instances whose weight is not 1
+  public static final byte WEIGHTED = 2;
+
+  // The header of the instances
+  protected final InstancesHeader m_Header;
+
+  // The column type of each attribute
+  protected final byte[] m_ColumnTypes;
+
+  // The number of bytes of the values of a dense instance
+  protected final int m_DenseWidth;
+
+  /**
+   * Creates a codec for instances with the given header.
+   *
+   * @param header The header of the instances.
+   */
+  public InstanceCodec(InstancesHeader header) {
+    m_Header = header;
+    m_ColumnTypes = new byte[header.numAttributes()];
+    int width = 0;
+    for (int i = 0; i < m_ColumnTypes.length; i++) {
+      m_ColumnTypes[i] = BinaryFileStream.columnType(header.attribute(i), false);
+      width += BinaryFileStream.columnWidth(m_ColumnTypes[i]);
+    }
+    m_DenseWidth = width;
+  }
+
+  /**
+   * Gets the header of the instances.
+   */
+  public InstancesHeader getHeader() {
+    return m_Header;
+  }
+
+  /**
+   * Encodes a header as its class index followed by its ARFF text.
+   *
+   * @param header The header to encode.
+   * @return The encoded header.
+   */
+  public static byte[] encodeHeader(InstancesHeader header) {
+    byte[] arff = header.toString().getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(4 + arff.length);
+    buffer.putInt(header.classIndex());
+    buffer.put(arff);
+    return buffer.array();
+  }
+
+  /**
+   * Decodes a header encoded by {@link #encodeHeader(InstancesHeader)}.
+   *
+   * @param bytes The encoded header.
+   * @return The header.
+   */
+  public static InstancesHeader decodeHeader(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    int classIndex = buffer.getInt();
+    String arff = new String(bytes, 4, bytes.length - 4, StandardCharsets.UTF_8);
+    Instances instances = new Instances(new StringReader(arff), 0, 0);
+    instances.setClassIndex(classIndex);
+    return new InstancesHeader(instances);
+  }
+
+  /**
+   * Encodes an instance.
+   *
+   * @param instance The instance to encode.
+   * @return The packed values of the instance.
+   */
+  public byte[] encode(Instance instance) {
+    boolean weighted = instance.weight() != 1.0;
+    int size = 1 + (weighted ? 8 : 0);
+    int numValues = instance.numValues();
+
+    // Use pairs when they are smaller than all the values
+    int sparseWidth = 4;
+    if (numValues < m_ColumnTypes.length) {
+      for (int p = 0; p < numValues; p++)
+        sparseWidth += 4 + BinaryFileStream.columnWidth(m_ColumnTypes[instance.index(p)]);
+    }
+    boolean sparse = numValues < m_ColumnTypes.length && sparseWidth < m_DenseWidth;
+
+    ByteBuffer buffer = ByteBuffer.allocate(size + (sparse ? sparseWidth : m_DenseWidth));
+    buffer.put((byte) ((sparse ? SPARSE : 0) | (weighted ? WEIGHTED : 0)));
+    if (weighted)
+      buffer.putDouble(instance.weight());
+
+    if (sparse) {
+      buffer.putInt(numValues);
+      for (int p = 0; p < numValues; p++) {
+        int index = instance.index(p);
+        buffer.putInt(index);
+        putValue(buffer, m_ColumnTypes[index], instance.valueSparse(p));
+      }
+    }
+    else {
+      for (int i = 0; i < m_ColumnTypes.length; i++)
+        putValue(buffer, m_ColumnTypes[i], instance.value(i));
+    }
+
+    return buffer.array();
+  }
+
+  /**
+   * Decodes an instance encoded by {@link #encode(Instance)}.
+   *
+   * @param bytes The packed values of the instance.
+   * @return The instance, with the header as its dataset.
+   */
+  public Instance decode(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    byte flags = buffer.get();
+    double weight = (flags & WEIGHTED) != 0 ? buffer.getDouble() : 1.0;
+
+    Instance instance;
+    if ((flags & SPARSE) != 0) {
+      int numValues = buffer.getInt();
+      int[] indices = new int[numValues];
+      double[] values = new double[numValues];
+      for (int p = 0; p < numValues; p++) {
+        indices[p] = buffer.getInt();
+        values[p] = getValue(buffer, m_ColumnTypes[indices[p]]);
+      }
+      instance = new SparseInstance(weight, values, indices, m_ColumnTypes.length);
+    }
+    else {
+      double[] values = new double[m_ColumnTypes.length];
+      for (int i = 0; i < values.length; i++)
+        values[i] = getValue(buffer, m_ColumnTypes[i]);
+      instance = new DenseInstance(weight, values);
+    }
+
+    instance.setDataset(m_Header);
+    return instance;
+  }
+
+  /**
+   * Writes a value with the width of its column.
+   */
+  protected static void putValue(ByteBuffer buffer, byte columnType, double value) {
+    switch (columnType) {
+      case BinaryFileStream.NOMINAL8:
+        buffer.put((byte) (Double.isNaN(value) ? 0xFF : (int) value));
+        break;
+      case BinaryFileStream.NOMINAL16:
+        buffer.putShort((short) (Double.isNaN(value) ? 0xFFFF : (int) value));
+        break;
+      case BinaryFileStream.NOMINAL32:
+        buffer.putInt(Double.isNaN(value) ? -1 : (int) value);
+        break;
+      default:
+        buffer.putDouble(value);
+    }
+  }
+
+  /**
+   * Reads a value with the width of its column.
+   */
+  protected static double getValue(ByteBuffer buffer, byte columnType) {
+    int value;
+    switch (columnType) {
+      case BinaryFileStream.NOMINAL8:
+        value = buffer.get() & 0xFF;
+        return value == 0xFF ? Double.NaN : value;
+      case BinaryFileStream.NOMINAL16:
+        value = buffer.getShort() & 0xFFFF;
+        return value == 0xFFFF ? Double.NaN : value;
+      case BinaryFileStream.NOMINAL32:
+        value = buffer.getInt();
+        return value == -1 ? Double.NaN : value;
+      default:
+        return buffer.getDouble();
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KafkaStatistics.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, NZ
+ */
+
+package moa.util;
+
+import moa.core.Measurement;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running measurements of consuming a Kafka topic: how long polls take,
+ * how long records take to decode, and how far the consumer is behind
+ * the end of the topic. Can be updated from several threads.
+ */
+public class KafkaStatistics {
+
+  // The number of polls of the consumer
+  protected final AtomicLong m_NumPolls = new AtomicLong();
+
+  // The total time spent in polls
+  protected final AtomicLong m_PollNanos = new AtomicLong();
+
+  // The number of records decoded
+  protected final AtomicLong m_NumDecoded = new AtomicLong();
+
+  // The total time spent decoding records
+  protected final AtomicLong m_DecodeNanos = new AtomicLong();
+
+  // The number of records not yet fetched, or -1 if unknown
+  protected volatile long m_Lag = -1;
+
+  /**
+   * Records a poll of the consumer.
+   *
+   * @param nanos How long the poll took.
+   */
+  public void addPoll(long nanos) {
+    m_NumPolls.incrementAndGet();
+    m_PollNanos.addAndGet(nanos);
+  }
+
+  /**
+   * Records the decoding of records.
+   *
+   * @param numRecords The number of records decoded.
+   * @param nanos How long decoding them took.
+   */
+  public void addDecoded(long numRecords, long nanos) {
+    m_NumDecoded.addAndGet(numRecords);
+    m_DecodeNanos.addAndGet(nanos);
+  }
+
+  /**
+   * Updates the lag from the positions of a consumer in its assigned
+   * partitions. Must be called from the thread using the consumer.
+   *
+   * @param consumer The consumer.
+   */
+  public void updateLag(Consumer<?, ?> consumer) {
+    Set<TopicPartition> partitions = consumer.assignment();
+    if (partitions.isEmpty())
+      return;
+
+    long lag = 0;
+    for (Map.Entry<TopicPartition, Long> end : consumer.endOffsets(partitions).entrySet())
+      lag += Math.max(0, end.getValue() - consumer.position(end.getKey()));
+    m_Lag = lag;
+  }
+
+  /**
+   * Gets the measurements.
+   *
+   * @param numBuffered The number of decoded instances waiting to be
+   *                    returned by the stream.
+   */
+  public Measurement[] getMeasurements(long numBuffered) {
+    long numPolls = m_NumPolls.get();
+    long numDecoded = m_NumDecoded.get();
+    return new Measurement[]{
+      new Measurement("consumer lag (records)", m_Lag),
+      new Measurement("buffered instances", numBuffered),
+      new Measurement("polls", numPolls),
+      new Measurement("mean poll latency (ms)",
+        numPolls == 0 ? 0 : m_PollNanos.get() / 1e6 / numPolls),
+      new Measurement("records decoded", numDecoded),
+      new Measurement("mean decode time (us per record)",
+        numDecoded == 0 ? 0 : m_DecodeNanos.get() / 1e3 / numDecoded)
+    };
+  }
+}
@@ -20,7 +20,14 @@
 
 package moa.util;
 
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Static utilities for working with Kafka.
@@ -40,10 +47,50 @@ public class KafkaUtils {
     return Long.toHexString(System.currentTimeMillis()) + "-" + Integer.toHexString(obj.hashCode());
   }
 
+  /**
+   * Gets the topic holding the header of the instances of a topic.
+   *
+   * @param topic The topic of the instances.
+   * @param headerTopic The header topic, or empty for the default.
+   */
+  public static String headerTopic(String topic, String headerTopic) {
+    return headerTopic.isEmpty() ? topic + "-header" : headerTopic;
+  }
+
   /**
    * Gets the Kafka broker to connect to.
    */
   public static String broker(String host, String port) {
     return host + ":" + port;
   }
+
+  /**
+   * Whether a consumer has read its assigned partitions up to their end
+   * offsets, apart from the partitions whose end-of-stream record it has
+   * found. The end offset of a partition is taken the first time it is
+   * checked, and kept in the given map. Checking from when the first
+   * end-of-stream record is found reads the records written to the other
+   * partitions before it, but not the ones written after it.
+   *
+   * @param consumer The consumer.
+   * @param endOffsets The end offsets taken so far.
+   * @param ended The partitions whose end-of-stream record was found.
+   */
+  public static boolean consumedToEnd(Consumer<?, ?> consumer,
+                                      Map<TopicPartition, Long> endOffsets,
+                                      Set<TopicPartition> ended) {
+    List<TopicPartition> unknown = new ArrayList<>();
+    for (TopicPartition partition : consumer.assignment()) {
+      if (!ended.contains(partition) && !endOffsets.containsKey(partition))
+        unknown.add(partition);
+    }
+    if (!unknown.isEmpty())
+      endOffsets.putAll(consumer.endOffsets(unknown));
+
+    for (TopicPartition partition : consumer.assignment()) {
+      if (!ended.contains(partition) && consumer.position(partition) < endOffsets.get(partition))
+        return false;
+    }
+    return true;
+  }
 }
@@ -0,0 +1,233 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KafkaPollerTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, NZ
+ */
+
+package moa.streams;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import moa.core.Measurement;
+import moa.util.InstanceCodec;
+import moa.util.KafkaStatistics;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that KafkaPoller consumes the partitions of a topic in order and
+ * to their end, with Kafka's MockConsumer.
+ */
+public class KafkaPollerTest {
+
+  // The codec of instances holding their index in the stream
+  protected static final InstanceCodec CODEC = indexCodec();
+
+  protected static InstanceCodec indexCodec() {
+    List<Attribute> attributes = new ArrayList<>();
+    attributes.add(new Attribute("index"));
+    attributes.add(new Attribute("class", Arrays.asList("even", "odd")));
+    Instances instances = new Instances("indexes", attributes, 0);
+    instances.setClassIndex(1);
+    return new InstanceCodec(new InstancesHeader(instances));
+  }
+
+  protected static byte[] encode(int index) {
+    Instance instance = new DenseInstance(1.0, new double[]{index, index % 2});
+    instance.setDataset(CODEC.getHeader());
+    return CODEC.encode(instance);
+  }
+
+  protected static KafkaPoller poller(MockConsumer<Long, byte[]> consumer, KafkaStatistics statistics) {
+    return new KafkaPoller(consumer, "instances", CODEC, 100000, 500, 2, statistics);
+  }
+
+  /**
+   * Reads the indexes of all instances of a poller.
+   */
+  protected static List<Integer> readAll(KafkaPoller poller) {
+    List<Integer> indexes = new ArrayList<>();
+    while (poller.hasNext())
+      indexes.add((int) poller.next().value(0));
+    return indexes;
+  }
+
+  @Test(timeout = 60000)
+  public void testOrderWithinPartitions() {
+    int numPartitions = 3;
+    int numInstances = 3000;
+    MockTopic topic = new MockTopic("instances", numPartitions);
+    for (int i = 0; i < numInstances; i++)
+      topic.add(i % numPartitions, encode(i));
+    topic.add(0, null);
+
+    KafkaStatistics statistics = new KafkaStatistics();
+    KafkaPoller poller = poller(topic.consumer(50), statistics);
+    List<Integer> indexes = readAll(poller);
+    assertTrue(poller.isFinished());
+    poller.close();
+
+    // All instances, each partition in order (with 3 partitions on 2 decoders)
+    assertEquals(numInstances, indexes.size());
+    int[] last = new int[numPartitions];
+    Arrays.fill(last, -1);
+    for (int index : indexes) {
+      assertTrue("index " + index + " after " + last[index % numPartitions], index > last[index % numPartitions]);
+      last[index % numPartitions] = index;
+    }
+    assertEquals(numInstances, (long) value(statistics.getMeasurements(0), "records decoded"));
+  }
+
+  @Test(timeout = 60000)
+  public void testEndOfStreamOnOnePartition() {
+    // The end of the stream on partition 0 is polled before partition 1
+    MockTopic topic = new MockTopic("instances", 2);
+    for (int i = 0; i < 10; i++)
+      topic.add(0, encode(i));
+    topic.add(0, null);
+    for (int i = 10; i < 510; i++)
+      topic.add(1, encode(i));
+    // Another run after the end of partition 0 isn't read
+    for (int i = 0; i < 5; i++)
+      topic.add(0, encode(-1));
+
+    KafkaPoller poller = poller(topic.consumer(20), new KafkaStatistics());
+    List<Integer> indexes = readAll(poller);
+    poller.close();
+
+    Collections.sort(indexes);
+    assertEquals(510, indexes.size());
+    for (int i = 0; i < indexes.size(); i++)
+      assertEquals(i, (int) indexes.get(i));
+  }
+
+  @Test(timeout = 60000)
+  public void testStreamEndingOnOnePartition() {
+    // The foreground stream reads the other partitions to their end too
+    MockTopic topic = new MockTopic("instances", 2);
+    MockTopic headerTopic = new MockTopic("instances-header", 1);
+    headerTopic.add(0, InstanceCodec.encodeHeader(CODEC.getHeader()));
+    topic.add(0, encode(0));
+    topic.add(0, null);
+    for (int i = 1; i < 300; i++)
+      topic.add(1, encode(i));
+
+    KafkaStream stream = new KafkaStreamTest.MockKafkaStream(topic, headerTopic);
+    stream.prepareForUse();
+    List<Integer> indexes = new ArrayList<>();
+    while (stream.hasMoreInstances())
+      indexes.add((int) stream.nextInstance().getData().value(0));
+    stream.close();
+
+    Collections.sort(indexes);
+    assertEquals(300, indexes.size());
+    for (int i = 0; i < indexes.size(); i++)
+      assertEquals(i, (int) indexes.get(i));
+  }
+
+  @Test
+  public void testLag() {
+    TopicPartition partition0 = new TopicPartition("instances", 0);
+    TopicPartition partition1 = new TopicPartition("instances", 1);
+    MockConsumer<Long, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaStatistics statistics = new KafkaStatistics();
+
+    // Unknown until partitions are assigned
+    statistics.updateLag(consumer);
+    assertEquals(-1, value(statistics.getMeasurements(0), "consumer lag (records)"), 0.0);
+
+    consumer.assign(Arrays.asList(partition0, partition1));
+    Map<TopicPartition, Long> ends = new HashMap<>();
+    ends.put(partition0, 10L);
+    ends.put(partition1, 5L);
+    consumer.updateEndOffsets(ends);
+    consumer.seek(partition0, 4);
+    consumer.seek(partition1, 5);
+    statistics.updateLag(consumer);
+    assertEquals(6, value(statistics.getMeasurements(0), "consumer lag (records)"), 0.0);
+
+    ends.put(partition0, 20L);
+    consumer.updateEndOffsets(ends);
+    statistics.updateLag(consumer);
+    assertEquals(16, value(statistics.getMeasurements(3), "consumer lag (records)"), 0.0);
+    assertEquals(3, value(statistics.getMeasurements(3), "buffered instances"), 0.0);
+  }
+
+  @Test(timeout = 60000)
+  public void testCloseDuringPoll() throws InterruptedException {
+    // A topic still being written, whose poll blocks once it is read
+    MockTopic topic = new MockTopic("instances", 1);
+    for (int i = 0; i < 100; i++)
+      topic.add(0, encode(i));
+    MockConsumer<Long, byte[]> consumer = topic.consumer(10);
+    CountDownLatch polling = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    consumer.schedulePollTask(() -> {
+      polling.countDown();
+      try {
+        release.await(10, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+
+    KafkaPoller poller = poller(consumer, new KafkaStatistics());
+    assertTrue(polling.await(10, TimeUnit.SECONDS));
+    Thread closing = new Thread(poller::close);
+    closing.start();
+
+    // Closing waits for the poll in progress
+    closing.join(200);
+    assertTrue(closing.isAlive());
+    release.countDown();
+    closing.join(10000);
+    assertFalse(closing.isAlive());
+
+    // Stopped without an error, and the consumer closed
+    assertTrue(poller.isFinished());
+    assertTrue(consumer.closed());
+    while (poller.hasNext())
+      poller.next();
+  }
+
+  protected static double value(Measurement[] measurements, String name) {
+    for (Measurement measurement : measurements) {
+      if (measurement.getName().equals(name))
+        return measurement.getValue();
+    }
+    throw new IllegalArgumentException(name);
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KafkaStreamTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, NZ
+ */
+
+package moa.streams;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import moa.streams.generators.RandomRBFGenerator;
+import moa.streams.generators.RandomTreeGenerator;
+import moa.util.InstanceCodec;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that KafkaStream reads back the instances of a topic, consumed
+ * with Kafka's MockConsumer.
+ */
+public class KafkaStreamTest {
+
+  protected static final int NUM_INSTANCES = 1000;
+
+  /**
+   * A stream consuming mock topics.
+   */
+  protected static class MockKafkaStream extends KafkaStream {
+
+    private static final long serialVersionUID = 1L;
+
+    // The topic of the instances
+    protected final MockTopic m_Topic;
+
+    // The topic of the header
+    protected final MockTopic m_HeaderTopic;
+
+    public MockKafkaStream(MockTopic topic, MockTopic headerTopic) {
+      m_Topic = topic;
+      m_HeaderTopic = headerTopic;
+      topicOption.setValue(topic.name());
+    }
+
+    @Override
+    protected Consumer<Long, byte[]> createConsumer(String topic, Map<String, Object> config) {
+      return topic.equals(m_HeaderTopic.name()) ? m_HeaderTopic.consumer() : m_Topic.consumer(100);
+    }
+  }
+
+  protected static InstanceStream randomTree() {
+    RandomTreeGenerator stream = new RandomTreeGenerator();
+    stream.prepareForUse();
+    return stream;
+  }
+
+  /**
+   * Publishes the instances of a RandomTreeGenerator and their header.
+   */
+  protected static KafkaStream mockStream(int numPartitions, boolean background) {
+    MockTopic topic = new MockTopic("instances", numPartitions);
+    MockTopic headerTopic = new MockTopic("instances-header", 1);
+    InstanceCodec codec = topic.addStream(randomTree(), NUM_INSTANCES);
+    headerTopic.add(0, InstanceCodec.encodeHeader(codec.getHeader()));
+
+    KafkaStream stream = new MockKafkaStream(topic, headerTopic);
+    if (background)
+      stream.backgroundOption.set();
+    stream.prepareForUse();
+    return stream;
+  }
+
+  protected static void checkSameInstances(InstanceStream expected, KafkaStream actual) {
+    assertEquals(expected.getHeader().numAttributes(), actual.getHeader().numAttributes());
+    assertEquals(expected.getHeader().classIndex(), actual.getHeader().classIndex());
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      assertTrue(actual.hasMoreInstances());
+      Instance expectedInstance = expected.nextInstance().getData();
+      Instance actualInstance = actual.nextInstance().getData();
+      for (int j = 0; j < expectedInstance.numAttributes(); j++)
+        assertEquals("instance " + i, expectedInstance.value(j), actualInstance.value(j), 0.0);
+    }
+    assertFalse(actual.hasMoreInstances());
+    assertEquals(0, actual.estimatedRemainingInstances());
+  }
+
+  @Test
+  public void testForeground() {
+    KafkaStream stream = mockStream(1, false);
+    checkSameInstances(randomTree(), stream);
+
+    stream.restart();
+    checkSameInstances(randomTree(), stream);
+    stream.close();
+  }
+
+  @Test
+  public void testBackground() {
+    KafkaStream stream = mockStream(1, true);
+    checkSameInstances(randomTree(), stream);
+
+    stream.restart();
+    checkSameInstances(randomTree(), stream);
+    stream.close();
+  }
+
+  @Test
+  public void testLatestHeader() {
+    // A header topic shared with another stream, written before this one
+    MockTopic headerTopic = new MockTopic("headers", 2);
+    RandomRBFGenerator other = new RandomRBFGenerator();
+    other.prepareForUse();
+    headerTopic.add(0, InstanceCodec.encodeHeader(other.getHeader()));
+    headerTopic.add(1, InstanceCodec.encodeHeader(other.getHeader()));
+    headerTopic.add(0, InstanceCodec.encodeHeader(other.getHeader()));
+    MockTopic topic = new MockTopic("instances", 1);
+    InstanceCodec codec = topic.addStream(randomTree(), NUM_INSTANCES);
+    headerTopic.add(1, InstanceCodec.encodeHeader(codec.getHeader()));
+
+    KafkaStream stream = new MockKafkaStream(topic, headerTopic);
+    stream.headerTopicOption.setValue("headers");
+    stream.prepareForUse();
+    InstancesHeader header = stream.getHeader();
+    assertEquals(codec.getHeader().numAttributes(), header.numAttributes());
+    assertEquals(codec.getHeader().attribute(0).name(), header.attribute(0).name());
+    checkSameInstances(randomTree(), stream);
+    stream.close();
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MockTopic.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, NZ
+ */
+
+package moa.streams;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.util.InstanceCodec;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The records of a Kafka topic, which Kafka's MockConsumer is fed with.
+ */
+public class MockTopic {
+
+  // The name of the topic
+  protected final String m_Name;
+
+  // The offset of the next record of each partition
+  protected final long[] m_Ends;
+
+  // The records, in the order they were published
+  protected final List<ConsumerRecord<Long, byte[]>> m_Records = new ArrayList<>();
+
+  /**
+   * Creates an empty topic.
+   *
+   * @param name The name of the topic.
+   * @param numPartitions The number of partitions of the topic.
+   */
+  public MockTopic(String name, int numPartitions) {
+    m_Name = name;
+    m_Ends = new long[numPartitions];
+  }
+
+  /**
+   * Gets the name of the topic.
+   */
+  public String name() {
+    return m_Name;
+  }
+
+  /**
+   * Gets the partitions of the topic.
+   */
+  public List<TopicPartition> partitions() {
+    List<TopicPartition> partitions = new ArrayList<>();
+    for (int i = 0; i < m_Ends.length; i++)
+      partitions.add(new TopicPartition(m_Name, i));
+    return partitions;
+  }
+
+  /**
+   * Publishes a record, keyed and timestamped by its position in the topic.
+   *
+   * @param partition The partition of the record.
+   * @param value The value of the record, null to end the stream.
+   */
+  public void add(int partition, byte[] value) {
+    long position = m_Records.size();
+    m_Records.add(new ConsumerRecord<>(m_Name, partition, m_Ends[partition]++, position,
+      TimestampType.CREATE_TIME, (long) ConsumerRecord.NULL_CHECKSUM,
+      ConsumerRecord.NULL_SIZE, ConsumerRecord.NULL_SIZE, position, value));
+  }
+
+  /**
+   * Publishes the instances of a stream on the partitions in turn, followed
+   * by the end of the stream, as WriteToTopicTask does.
+   *
+   * @param stream The stream to publish.
+   * @param numInstances The number of instances to publish.
+   * @return The codec of the instances.
+   */
+  public InstanceCodec addStream(InstanceStream stream, int numInstances) {
+    InstanceCodec codec = new InstanceCodec(stream.getHeader());
+    for (int i = 0; i < numInstances; i++) {
+      Instance instance = stream.nextInstance().getData();
+      add(i % m_Ends.length, codec.encode(instance));
+    }
+    add(numInstances % m_Ends.length, null);
+    return codec;
+  }
+
+  /**
+   * Creates a consumer of the topic. A subscribed consumer is assigned all
+   * partitions on its first poll, and the records are delivered in the
+   * order they were published, in polls of at most the given number.
+   *
+   * @param recordsPerPoll The maximum number of records of a poll.
+   * @return The consumer.
+   */
+  public MockConsumer<Long, byte[]> consumer(int recordsPerPoll) {
+    MockConsumer<Long, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    List<PartitionInfo> infos = new ArrayList<>();
+    Map<TopicPartition, Long> beginnings = new HashMap<>();
+    Map<TopicPartition, Long> ends = new HashMap<>();
+    for (TopicPartition partition : partitions()) {
+      infos.add(new PartitionInfo(m_Name, partition.partition(), null, null, null));
+      beginnings.put(partition, 0L);
+      ends.put(partition, m_Ends[partition.partition()]);
+    }
+    consumer.updatePartitions(m_Name, infos);
+    consumer.updateBeginningOffsets(beginnings);
+    consumer.updateEndOffsets(ends);
+
+    // Records can only be added once their partition is assigned
+    consumer.schedulePollTask(() -> {
+      if (consumer.assignment().isEmpty())
+        consumer.rebalance(partitions());
+    });
+    for (int start = 0; start < m_Records.size(); start += recordsPerPoll) {
+      List<ConsumerRecord<Long, byte[]>> records =
+        m_Records.subList(start, Math.min(start + recordsPerPoll, m_Records.size()));
+      consumer.schedulePollTask(() -> {
+        for (ConsumerRecord<Long, byte[]> record : records)
+          consumer.addRecord(record);
+      });
+    }
+    return consumer;
+  }
+
+  /**
+   * Creates a consumer of the topic which gets all records on its
+   * second poll.
+   */
+  public MockConsumer<Long, byte[]> consumer() {
+    return consumer(Math.max(1, m_Records.size()));
+  }
+}
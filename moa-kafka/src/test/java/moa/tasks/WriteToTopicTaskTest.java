@@ -0,0 +1,264 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WriteToTopicTaskTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, NZ
+ */
+
+package moa.tasks;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.streams.generators.RandomTreeGenerator;
+import moa.util.InstanceCodec;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the records WriteToTopicTask sends to Kafka's MockProducer.
+ */
+public class WriteToTopicTaskTest {
+
+  protected static final int NUM_INSTANCES = 1000;
+
+  /**
+   * A task writing to a MockProducer.
+   */
+  protected static class MockWriteToTopicTask extends WriteToTopicTask {
+
+    private static final long serialVersionUID = 1L;
+
+    // The producer the task writes to
+    protected final MockProducer<Long, byte[]> m_Producer;
+
+    public MockWriteToTopicTask(MockProducer<Long, byte[]> producer) {
+      m_Producer = producer;
+      topicOption.setValue("instances");
+      maxInstancesOption.setValue(NUM_INSTANCES);
+    }
+
+    @Override
+    protected Producer<Long, byte[]> createProducer(Map<String, Object> config) {
+      return m_Producer;
+    }
+  }
+
+  /**
+   * Runs a task on its own thread, while the test acknowledges its records.
+   */
+  protected static class TaskThread extends Thread {
+
+    // The task to run
+    protected final WriteToTopicTask m_Task;
+
+    // The monitor of the task
+    protected final StandardTaskMonitor m_Monitor = new StandardTaskMonitor();
+
+    // The result of the task
+    protected volatile Object m_Result;
+
+    // The error the task failed with, if any
+    protected volatile Throwable m_Failure;
+
+    public TaskThread(WriteToTopicTask task) {
+      m_Task = task;
+      start();
+    }
+
+    @Override
+    public void run() {
+      try {
+        m_Result = m_Task.doTask(m_Monitor, null);
+      }
+      catch (Throwable t) {
+        m_Failure = t;
+      }
+    }
+  }
+
+  /**
+   * Waits for a number of records to be sent, and checks that no more are
+   * sent for a while.
+   */
+  protected static void awaitSent(MockProducer<Long, byte[]> producer, int numRecords) throws InterruptedException {
+    while (producer.history().size() < numRecords)
+      Thread.sleep(1);
+    Thread.sleep(100);
+    assertEquals(numRecords, producer.history().size());
+  }
+
+  /**
+   * Creates a task writing to a producer which doesn't acknowledge records
+   * until told to, with a window of 4 records.
+   */
+  protected static WriteToTopicTask windowedTask(MockProducer<Long, byte[]> producer) {
+    WriteToTopicTask task = new MockWriteToTopicTask(producer);
+    task.maxInFlightOption.setValue(4);
+    task.prepareForUse();
+    return task;
+  }
+
+  protected static MockProducer<Long, byte[]> mockProducer(boolean autoComplete) {
+    return new MockProducer<>(autoComplete, new LongSerializer(), new ByteArraySerializer());
+  }
+
+  /**
+   * Gets the records sent to a topic, in the order they were sent.
+   */
+  protected static List<ProducerRecord<Long, byte[]>> records(MockProducer<Long, byte[]> producer, String topic) {
+    List<ProducerRecord<Long, byte[]>> records = new ArrayList<>();
+    for (ProducerRecord<Long, byte[]> record : producer.history()) {
+      if (record.topic().equals(topic))
+        records.add(record);
+    }
+    return records;
+  }
+
+  /**
+   * Checks that the header is sent once, before the instances, and that
+   * the records decode back to the instances of the stream.
+   */
+  protected static void checkRecords(MockProducer<Long, byte[]> producer) {
+    assertEquals("instances-header", producer.history().get(0).topic());
+    List<ProducerRecord<Long, byte[]>> headers = records(producer, "instances-header");
+    assertEquals(1, headers.size());
+    InstanceCodec codec = new InstanceCodec(InstanceCodec.decodeHeader(headers.get(0).value()));
+
+    RandomTreeGenerator expected = new RandomTreeGenerator();
+    expected.prepareForUse();
+    assertEquals(expected.getHeader().numAttributes(), codec.getHeader().numAttributes());
+    assertEquals(expected.getHeader().classIndex(), codec.getHeader().classIndex());
+
+    List<ProducerRecord<Long, byte[]>> records = records(producer, "instances");
+    assertEquals(NUM_INSTANCES + 1, records.size());
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      assertEquals(i, (long) records.get(i).key());
+      Instance expectedInstance = expected.nextInstance().getData();
+      Instance actualInstance = codec.decode(records.get(i).value());
+      for (int j = 0; j < expectedInstance.numAttributes(); j++)
+        assertEquals("instance " + i, expectedInstance.value(j), actualInstance.value(j), 0.0);
+    }
+    assertNull(records.get(NUM_INSTANCES).value());
+  }
+
+  @Test
+  public void testRecords() {
+    MockProducer<Long, byte[]> producer = mockProducer(true);
+    WriteToTopicTask task = new MockWriteToTopicTask(producer);
+    task.prepareForUse();
+    assertNotNull(task.doTask());
+    checkRecords(producer);
+    assertTrue(producer.closed());
+  }
+
+  @Test
+  public void testEncodeThreads() {
+    MockProducer<Long, byte[]> producer = mockProducer(true);
+    WriteToTopicTask task = new MockWriteToTopicTask(producer);
+    task.encodeThreadsOption.setValue(3);
+    task.prepareForUse();
+    assertNotNull(task.doTask());
+    checkRecords(producer);
+  }
+
+  @Test(timeout = 60000)
+  public void testWindow() throws InterruptedException {
+    MockProducer<Long, byte[]> producer = mockProducer(false);
+    TaskThread thread = new TaskThread(windowedTask(producer));
+
+    // No instance is sent before the header is acknowledged
+    awaitSent(producer, 1);
+    assertTrue(producer.completeNext());
+
+    // At most 4 instances wait for their acknowledgement
+    awaitSent(producer, 5);
+    assertTrue(producer.completeNext());
+    awaitSent(producer, 6);
+
+    // The records still in flight at the end are flushed
+    while (thread.isAlive()) {
+      producer.completeNext();
+      Thread.yield();
+    }
+    assertNull(thread.m_Failure);
+    assertNotNull(thread.m_Result);
+    assertTrue(producer.flushed());
+    assertTrue(producer.closed());
+    checkRecords(producer);
+  }
+
+  @Test(timeout = 60000)
+  public void testCancelled() throws InterruptedException {
+    MockProducer<Long, byte[]> producer = mockProducer(false);
+    TaskThread thread = new TaskThread(windowedTask(producer));
+    awaitSent(producer, 1);
+    assertTrue(producer.completeNext());
+    awaitSent(producer, 5);
+
+    // Cancelling stops waiting for the window, and closes the producer
+    thread.m_Monitor.requestCancel();
+    thread.join();
+    assertNull(thread.m_Failure);
+    assertNull(thread.m_Result);
+    assertTrue(producer.closed());
+    assertEquals(5, producer.history().size());
+  }
+
+  @Test(timeout = 60000)
+  public void testHeaderFailure() throws InterruptedException {
+    MockProducer<Long, byte[]> producer = mockProducer(false);
+    TaskThread thread = new TaskThread(windowedTask(producer));
+    awaitSent(producer, 1);
+    assertTrue(producer.errorNext(new KafkaException("header not written")));
+    thread.join();
+
+    // The task fails without sending instances that couldn't be decoded
+    assertTrue(thread.m_Failure instanceof RuntimeException);
+    assertTrue(thread.m_Failure.getMessage(), thread.m_Failure.getMessage().contains("header"));
+    assertEquals(1, producer.history().size());
+    assertTrue(producer.closed());
+  }
+
+  @Test(timeout = 60000)
+  public void testDeliveryFailure() throws InterruptedException {
+    MockProducer<Long, byte[]> producer = mockProducer(false);
+    TaskThread thread = new TaskThread(windowedTask(producer));
+    awaitSent(producer, 1);
+    assertTrue(producer.completeNext());
+    awaitSent(producer, 5);
+    assertTrue(producer.errorNext(new KafkaException("instance not written")));
+    thread.join();
+
+    assertTrue(thread.m_Failure instanceof RuntimeException);
+    assertFalse(thread.m_Failure.getMessage().contains("header"));
+    assertEquals(5, producer.history().size());
+    assertTrue(producer.closed());
+  }
+}
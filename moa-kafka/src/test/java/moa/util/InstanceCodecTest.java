@@ -0,0 +1,178 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstanceCodecTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, NZ
+ */
+
+package moa.util;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that headers and instances encoded by InstanceCodec decode back
+ * to the same values.
+ */
+public class InstanceCodecTest {
+
+  // The number of labels of the wide nominal attribute, more than fit in a byte
+  protected static final int NUM_WIDE_LABELS = 300;
+
+  /**
+   * A header with numeric attributes, nominal attributes of 1 and 2 bytes
+   * (one with labels holding spaces) and the class in the middle.
+   */
+  protected static InstancesHeader header() {
+    List<String> wideLabels = new ArrayList<>();
+    for (int i = 0; i < NUM_WIDE_LABELS; i++)
+      wideLabels.add("v" + i);
+    List<Attribute> attributes = new ArrayList<>();
+    attributes.add(new Attribute("x"));
+    attributes.add(new Attribute("colour", Arrays.asList("red", "dark blue", "green")));
+    attributes.add(new Attribute("wide", wideLabels));
+    attributes.add(new Attribute("y"));
+    Instances instances = new Instances("codec test", attributes, 0);
+    instances.setClassIndex(1);
+    return new InstancesHeader(instances);
+  }
+
+  protected static void assertSameValues(Instance expected, Instance actual) {
+    assertEquals(expected.numAttributes(), actual.numAttributes());
+    for (int i = 0; i < expected.numAttributes(); i++)
+      assertEquals("attribute " + i, expected.value(i), actual.value(i), 0.0);
+    assertEquals(expected.weight(), actual.weight(), 0.0);
+  }
+
+  @Test
+  public void testHeader() {
+    InstancesHeader expected = header();
+    InstancesHeader actual = InstanceCodec.decodeHeader(InstanceCodec.encodeHeader(expected));
+    assertEquals(expected.numAttributes(), actual.numAttributes());
+    assertEquals(expected.classIndex(), actual.classIndex());
+    for (int i = 0; i < expected.numAttributes(); i++) {
+      Attribute attribute = expected.attribute(i);
+      assertEquals(attribute.name(), actual.attribute(i).name());
+      assertEquals(attribute.isNominal(), actual.attribute(i).isNominal());
+      assertEquals(attribute.numValues(), actual.attribute(i).numValues());
+      for (int j = 0; j < attribute.numValues(); j++)
+        assertEquals(attribute.value(j), actual.attribute(i).value(j));
+    }
+  }
+
+  @Test
+  public void testStringAttribute() {
+    // String attributes are read as numeric ones
+    Instances instances = new Instances(new StringReader(
+      "@relation strings\n@attribute s string\n@attribute c {a,b}\n@data\n"), 0, 0);
+    instances.setClassIndex(1);
+    InstancesHeader header = new InstancesHeader(instances);
+    InstancesHeader decoded = InstanceCodec.decodeHeader(InstanceCodec.encodeHeader(header));
+    assertEquals("s", decoded.attribute(0).name());
+    assertTrue(decoded.attribute(0).isNumeric());
+    assertEquals(1, decoded.classIndex());
+
+    InstanceCodec codec = new InstanceCodec(decoded);
+    Instance instance = new DenseInstance(1.0, new double[]{3.0, 1.0});
+    instance.setDataset(decoded);
+    assertSameValues(instance, codec.decode(codec.encode(instance)));
+  }
+
+  @Test
+  public void testDense() {
+    InstanceCodec codec = new InstanceCodec(header());
+    Instance instance = new DenseInstance(1.0, new double[]{-1.5, 1.0, NUM_WIDE_LABELS - 1, 1e300});
+    instance.setDataset(codec.getHeader());
+
+    // 8 bytes per number, 1 and 2 bytes per nominal value, no weight
+    byte[] bytes = codec.encode(instance);
+    assertEquals(1 + 8 + 1 + 2 + 8, bytes.length);
+    assertEquals(0, bytes[0]);
+    Instance decoded = codec.decode(bytes);
+    assertSameValues(instance, decoded);
+    assertEquals("dark blue", decoded.classAttribute().value((int) decoded.classValue()));
+  }
+
+  @Test
+  public void testMissingValuesAndWeight() {
+    InstanceCodec codec = new InstanceCodec(header());
+    Instance instance = new DenseInstance(2.5, new double[]{Double.NaN, Double.NaN, Double.NaN, 4.0});
+    instance.setDataset(codec.getHeader());
+
+    byte[] bytes = codec.encode(instance);
+    assertEquals(InstanceCodec.WEIGHTED, bytes[0]);
+    Instance decoded = codec.decode(bytes);
+    for (int i = 0; i < 3; i++)
+      assertTrue("attribute " + i, decoded.isMissing(i));
+    assertSameValues(instance, decoded);
+  }
+
+  @Test
+  public void testSparse() {
+    int numAttributes = 100;
+    List<Attribute> attributes = new ArrayList<>();
+    for (int i = 0; i < numAttributes - 1; i++)
+      attributes.add(new Attribute("x" + i));
+    attributes.add(new Attribute("class", Arrays.asList("a", "b")));
+    Instances instances = new Instances("sparse", attributes, 0);
+    instances.setClassIndex(numAttributes - 1);
+    InstanceCodec codec = new InstanceCodec(new InstancesHeader(instances));
+
+    Instance instance = new SparseInstance(0.5, new double[]{7.0, Double.NaN, 1.0},
+      new int[]{3, 42, numAttributes - 1}, numAttributes);
+    instance.setDataset(codec.getHeader());
+
+    byte[] bytes = codec.encode(instance);
+    assertEquals(InstanceCodec.SPARSE | InstanceCodec.WEIGHTED, bytes[0]);
+    assertTrue(bytes.length < 8 * numAttributes);
+    Instance decoded = codec.decode(bytes);
+    assertEquals(3, decoded.numValues());
+    assertTrue(decoded.isMissing(42));
+    assertSameValues(instance, decoded);
+  }
+
+  @Test
+  public void testDenseWhenSmaller() {
+    // Pairs of a single nominal attribute are larger than its value
+    List<Attribute> attributes = new ArrayList<>();
+    attributes.add(new Attribute("c", Arrays.asList("a", "b")));
+    attributes.add(new Attribute("d", Arrays.asList("a", "b")));
+    Instances instances = new Instances("small", attributes, 0);
+    instances.setClassIndex(1);
+    InstanceCodec codec = new InstanceCodec(new InstancesHeader(instances));
+
+    Instance instance = new SparseInstance(1.0, new double[]{1.0}, new int[]{1}, 2);
+    instance.setDataset(codec.getHeader());
+    byte[] bytes = codec.encode(instance);
+    assertFalse((bytes[0] & InstanceCodec.SPARSE) != 0);
+    assertEquals(3, bytes.length);
+    assertSameValues(instance, codec.decode(bytes));
+  }
+}
@@ -0,0 +1,599 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads an Arff file with sparse or dense format by parsing the bytes of the
+ * data section directly. The header is parsed by ArffLoader, but the data
+ * lines are read into a large byte buffer and tokenized in place, following
+ * the syntax of the StreamTokenizer used by ArffLoader. Numbers are parsed
+ * from the bytes and nominal values are looked up in a hash of the encoded
+ * labels, so no String is allocated for the values of an instance. The file
+ * must be encoded in UTF-8.
+ */
+public class ByteArffLoader extends ArffLoader {
+
+    /** The initial size of the buffer, which grows to hold the longest line. */
+    protected static final int BUFFER_SIZE = 1 << 20;
+
+    /** Numeric attribute */
+    protected static final int NUMERIC = 0;
+
+    /** Nominal attribute */
+    protected static final int NOMINAL = 1;
+
+    /** Any other attribute, whose values are stored as -1 like in ArffLoader */
+    protected static final int OTHER = 2;
+
+    /** The powers of ten that are exactly represented by a double. */
+    protected static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /** Lines of bytes read from an input stream. */
+    protected static class LineBuffer {
+
+        protected InputStream input;
+
+        protected byte[] buffer = new byte[BUFFER_SIZE];
+
+        /** The start of the unread bytes */
+        protected int position;
+
+        /** The end of the bytes read */
+        protected int limit;
+
+        protected boolean endOfInput;
+
+        /** The start of the current line */
+        protected int lineStart;
+
+        /** The end of the current line, excluding the line terminator */
+        protected int lineEnd;
+
+        protected LineBuffer(InputStream input) {
+            this.input = input;
+        }
+
+        /**
+         * Moves to the next line, reading more bytes when the line is not
+         * complete in the buffer.
+         *
+         * @return false at the end of the input
+         */
+        protected boolean nextLine() throws IOException {
+            int scan = this.position;
+            while (true) {
+                byte[] b = this.buffer;
+                for (int i = scan; i < this.limit; i++) {
+                    if (b[i] == '\n' || b[i] == '\r') {
+                        this.lineStart = this.position;
+                        this.lineEnd = i;
+                        this.position = i + 1;
+                        return true;
+                    }
+                }
+                if (this.endOfInput) {
+                    if (this.position < this.limit) {
+                        this.lineStart = this.position;
+                        this.lineEnd = this.limit;
+                        this.position = this.limit;
+                        return true;
+                    }
+                    return false;
+                }
+                int scanned = this.limit - this.position;
+                if (this.position > 0) {
+                    System.arraycopy(b, this.position, b, 0, scanned);
+                    this.limit = scanned;
+                    this.position = 0;
+                } else if (this.limit == b.length) {
+                    this.buffer = Arrays.copyOf(b, 2 * b.length);
+                }
+                int numRead = this.input.read(this.buffer, this.limit, this.buffer.length - this.limit);
+                if (numRead < 0) {
+                    this.endOfInput = true;
+                } else {
+                    this.limit += numRead;
+                }
+                scan = scanned;
+            }
+        }
+
+        /**
+         * Reads the lines up to the one starting with @data.
+         *
+         * @return the header
+         */
+        protected String readHeader() {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            try {
+                while (nextLine()) {
+                    header.write(this.buffer, this.lineStart, this.position - this.lineStart);
+                    int p = this.lineStart;
+                    while (p < this.lineEnd && (this.buffer[p] & 0xFF) <= ' ') {
+                        p++;
+                    }
+                    if (this.lineEnd - p >= 5 && this.buffer[p] == '@'
+                            && (this.buffer[p + 1] | 0x20) == 'd' && (this.buffer[p + 2] | 0x20) == 'a'
+                            && (this.buffer[p + 3] | 0x20) == 't' && (this.buffer[p + 4] | 0x20) == 'a') {
+                        break;
+                    }
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(ByteArffLoader.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            return new String(header.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** The nominal values of an attribute, indexed by their encoded bytes. */
+    protected static class LabelIndex {
+
+        protected byte[][] labels = new byte[8][];
+
+        protected int[] values = new int[8];
+
+        /** The entry of each slot plus one, 0 for empty slots */
+        protected int[] slots = new int[16];
+
+        protected int size;
+
+        protected LabelIndex(Attribute attribute) {
+            for (int i = 0; i < attribute.numValues(); i++) {
+                put(attribute.value(i).getBytes(StandardCharsets.UTF_8), i);
+            }
+        }
+
+        protected static int hash(byte[] b, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + b[i];
+            }
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * Gets the value of a label.
+         *
+         * @return the value, or -1 if the label is not indexed
+         */
+        protected int get(byte[] b, int start, int end) {
+            int mask = this.slots.length - 1;
+            int length = end - start;
+            for (int slot = hash(b, start, end) & mask; this.slots[slot] != 0; slot = (slot + 1) & mask) {
+                int entry = this.slots[slot] - 1;
+                byte[] label = this.labels[entry];
+                if (label.length == length) {
+                    int i = 0;
+                    while (i < length && label[i] == b[start + i]) {
+                        i++;
+                    }
+                    if (i == length) {
+                        return this.values[entry];
+                    }
+                }
+            }
+            return -1;
+        }
+
+        protected void put(byte[] label, int value) {
+            if (get(label, 0, label.length) >= 0) {
+                return;
+            }
+            if (this.size == this.labels.length) {
+                this.labels = Arrays.copyOf(this.labels, 2 * this.size);
+                this.values = Arrays.copyOf(this.values, 2 * this.size);
+            }
+            this.labels[this.size] = label;
+            this.values[this.size] = value;
+            this.size++;
+            if (2 * this.size > this.slots.length) {
+                this.slots = new int[2 * this.slots.length];
+                for (int entry = 0; entry < this.size; entry++) {
+                    insert(entry);
+                }
+            } else {
+                insert(this.size - 1);
+            }
+        }
+
+        protected void insert(int entry) {
+            int mask = this.slots.length - 1;
+            byte[] label = this.labels[entry];
+            int slot = hash(label, 0, label.length) & mask;
+            while (this.slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.slots[slot] = entry + 1;
+        }
+    }
+
+    protected LineBuffer lines;
+
+    protected Attribute[] attributes;
+
+    protected int[] attributeTypes;
+
+    protected LabelIndex[] labelIndices;
+
+    /** The bounds of the last token read */
+    protected int tokenStart;
+
+    protected int tokenEnd;
+
+    /** Whether the last token was quoted, and whether it contains escapes */
+    protected boolean tokenQuoted;
+
+    protected boolean tokenEscaped;
+
+    /** The values of the sparse instance being read */
+    protected int[] sparseIndices = new int[16];
+
+    protected double[] sparseValues = new double[16];
+
+    /**
+     * Instantiates a new loader.
+     *
+     * @param input the input stream
+     * @param classAttribute the class attribute, as in ArffLoader
+     */
+    public ByteArffLoader(InputStream input, int classAttribute) {
+        this(new LineBuffer(input), null);
+        if (classAttribute < 0) {
+            this.instanceInformation.setClassIndex(this.instanceInformation.numAttributes() - 1);
+        } else if (classAttribute > 0) {
+            this.instanceInformation.setClassIndex(classAttribute - 1);
+        }
+    }
+
+    /**
+     * Instantiates a new loader of multi-target instances.
+     *
+     * @param input the input stream
+     * @param range the range of the output attributes
+     */
+    public ByteArffLoader(InputStream input, Range range) {
+        this(new LineBuffer(input), range);
+    }
+
+    protected ByteArffLoader(LineBuffer lines, Range range) {
+        super(new StringReader(lines.readHeader()), range);
+        this.lines = lines;
+        int numAttributes = this.instanceInformation.numAttributes();
+        this.attributes = new Attribute[numAttributes];
+        this.attributeTypes = new int[numAttributes];
+        this.labelIndices = new LabelIndex[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            this.attributes[i] = this.instanceInformation.attribute(i);
+            this.attributeTypes[i] = this.attributes[i].isNumeric() ? NUMERIC
+                    : this.attributes[i].isNominal() ? NOMINAL : OTHER;
+        }
+    }
+
+    /**
+     * Reads instance. It detects if it is dense or sparse.
+     *
+     * @return the instance, or null at the end of the file
+     */
+    @Override
+    public Instance readInstance() {
+        try {
+            while (this.lines.nextLine()) {
+                byte[] b = this.lines.buffer;
+                int end = this.lines.lineEnd;
+                int p = nextToken(b, this.lines.lineStart, end);
+                if (p < 0) {
+                    continue;
+                }
+                Instance instance = this.tokenEnd - this.tokenStart == 1 && !this.tokenQuoted && b[this.tokenStart] == '{'
+                        ? readSparse(b, p, end) : readDense(b, this.lines.lineStart, end);
+                if (instance != null) {
+                    return instance;
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(ByteArffLoader.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    protected Instance readDense(byte[] b, int p, int end) {
+        Instance instance = null;
+        int numAttribute = 0;
+        while ((p = nextToken(b, p, end)) >= 0) {
+            if (isBrace(b)) {
+                continue;
+            }
+            if (numAttribute < this.attributes.length) {
+                if (instance == null) {
+                    instance = newDenseInstance(this.attributes.length);
+                }
+                instance.setValue(numAttribute, parseValue(b, numAttribute));
+            }
+            numAttribute++;
+        }
+        return instance;
+    }
+
+    protected Instance readSparse(byte[] b, int p, int end) {
+        int numValues = 0;
+        while ((p = nextToken(b, p, end)) >= 0) {
+            if (isBrace(b)) {
+                if (b[this.tokenStart] == '}') {
+                    break;
+                }
+                continue;
+            }
+            int numAttribute = parseIndex(b);
+            if ((p = nextToken(b, p, end)) < 0 || isBrace(b)) {
+                break;
+            }
+            if (numValues == this.sparseIndices.length) {
+                this.sparseIndices = Arrays.copyOf(this.sparseIndices, 2 * numValues);
+                this.sparseValues = Arrays.copyOf(this.sparseValues, 2 * numValues);
+            }
+            this.sparseIndices[numValues] = numAttribute;
+            this.sparseValues[numValues] = parseValue(b, numAttribute);
+            numValues++;
+        }
+        Instance instance = newSparseInstance(1.0);
+        instance.addSparseValues(Arrays.copyOf(this.sparseIndices, numValues),
+                Arrays.copyOf(this.sparseValues, numValues), this.attributes.length);
+        return instance;
+    }
+
+    protected boolean isBrace(byte[] b) {
+        return !this.tokenQuoted && this.tokenEnd - this.tokenStart == 1
+                && (b[this.tokenStart] == '{' || b[this.tokenStart] == '}');
+    }
+
+    /**
+     * Reads the next token of the line, with the syntax of the
+     * StreamTokenizer of ArffLoader: words are separated by control
+     * characters, spaces and commas, quotes delimit strings, braces are
+     * tokens on their own and % starts a comment.
+     *
+     * @return the position after the token, or -1 if there are no more tokens
+     */
+    protected int nextToken(byte[] b, int p, int end) {
+        while (p < end && ((b[p] & 0xFF) <= ' ' || b[p] == ',')) {
+            p++;
+        }
+        if (p == end || b[p] == '%') {
+            return -1;
+        }
+        byte c = b[p];
+        this.tokenQuoted = false;
+        this.tokenEscaped = false;
+        if (c == '{' || c == '}') {
+            this.tokenStart = p;
+            this.tokenEnd = p + 1;
+            return p + 1;
+        }
+        if (c == '"' || c == '\'') {
+            this.tokenQuoted = true;
+            this.tokenStart = ++p;
+            while (p < end && b[p] != c) {
+                if (b[p] == '\\' && p + 1 < end) {
+                    this.tokenEscaped = true;
+                    p++;
+                }
+                p++;
+            }
+            this.tokenEnd = p;
+            return p < end ? p + 1 : p;
+        }
+        this.tokenStart = p;
+        while (p < end && (b[p] & 0xFF) > ' ' && b[p] != ',' && b[p] != '%'
+                && b[p] != '"' && b[p] != '\'' && b[p] != '{' && b[p] != '}') {
+            p++;
+        }
+        this.tokenEnd = p;
+        return p;
+    }
+
+    protected double parseValue(byte[] b, int numAttribute) {
+        if (this.tokenEnd - this.tokenStart == 1 && b[this.tokenStart] == '?') {
+            return Double.NaN;
+        }
+        switch (this.attributeTypes[numAttribute]) {
+            case NUMERIC:
+                if (this.tokenEscaped) {
+                    return Double.valueOf(tokenString(b));
+                }
+                return parseDouble(b, this.tokenStart, this.tokenEnd);
+            case NOMINAL:
+                if (this.tokenEscaped) {
+                    return this.attributes[numAttribute].indexOfValue(tokenString(b));
+                }
+                LabelIndex labelIndex = this.labelIndices[numAttribute];
+                if (labelIndex == null) {
+                    labelIndex = new LabelIndex(this.attributes[numAttribute]);
+                    this.labelIndices[numAttribute] = labelIndex;
+                }
+                int value = labelIndex.get(b, this.tokenStart, this.tokenEnd);
+                if (value < 0) {
+                    // a new value, which the attribute adds to its values
+                    value = this.attributes[numAttribute].indexOfValue(tokenString(b));
+                    labelIndex.put(Arrays.copyOfRange(b, this.tokenStart, this.tokenEnd), value);
+                }
+                return value;
+            default:
+                return -1;
+        }
+    }
+
+    protected int parseIndex(byte[] b) {
+        int value = 0;
+        int p = this.tokenStart;
+        if (p == this.tokenEnd || this.tokenEnd - p > 9) {
+            return Integer.parseInt(tokenString(b));
+        }
+        for (; p < this.tokenEnd; p++) {
+            int digit = b[p] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(tokenString(b));
+            }
+            value = 10 * value + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a number in the same way as Double.valueOf. Numbers with at most
+     * 15 significant digits and a small exponent are computed with a single
+     * rounding from their exact mantissa and power of ten, which gives the
+     * closest double; any other text is passed to Double.valueOf.
+     *
+     * @param b the bytes
+     * @param start the start of the number
+     * @param end the end of the number
+     * @return the number
+     */
+    public static double parseDouble(byte[] b, int start, int end) {
+        int p = start;
+        boolean negative = false;
+        if (p < end && (b[p] == '-' || b[p] == '+')) {
+            negative = b[p] == '-';
+            p++;
+        }
+        long mantissa = 0;
+        int numDigits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        int digit;
+        while (p < end && (digit = b[p] - '0') >= 0 && digit <= 9) {
+            if (mantissa != 0 || digit != 0) {
+                if (++numDigits > 15) {
+                    return parseDoubleString(b, start, end);
+                }
+                mantissa = 10 * mantissa + digit;
+            }
+            hasDigits = true;
+            p++;
+        }
+        if (p < end && b[p] == '.') {
+            p++;
+            while (p < end && (digit = b[p] - '0') >= 0 && digit <= 9) {
+                if (mantissa != 0 || digit != 0) {
+                    if (++numDigits > 15) {
+                        return parseDoubleString(b, start, end);
+                    }
+                    mantissa = 10 * mantissa + digit;
+                }
+                exponent--;
+                hasDigits = true;
+                p++;
+            }
+        }
+        if (!hasDigits) {
+            return parseDoubleString(b, start, end);
+        }
+        if (p < end && (b[p] == 'e' || b[p] == 'E')) {
+            p++;
+            boolean negativeExponent = false;
+            if (p < end && (b[p] == '-' || b[p] == '+')) {
+                negativeExponent = b[p] == '-';
+                p++;
+            }
+            int explicitExponent = 0;
+            int numExponentDigits = 0;
+            while (p < end && (digit = b[p] - '0') >= 0 && digit <= 9) {
+                if (++numExponentDigits > 4) {
+                    return parseDoubleString(b, start, end);
+                }
+                explicitExponent = 10 * explicitExponent + digit;
+                p++;
+            }
+            if (numExponentDigits == 0) {
+                return parseDoubleString(b, start, end);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (p != end) {
+            return parseDoubleString(b, start, end);
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return parseDoubleString(b, start, end);
+        }
+        return negative ? -value : value;
+    }
+
+    protected static double parseDoubleString(byte[] b, int start, int end) {
+        return Double.valueOf(new String(b, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets the text of the last token, with the escapes of quoted strings
+     * replaced as StreamTokenizer does.
+     *
+     * @return the text
+     */
+    protected String tokenString(byte[] b) {
+        String text = new String(b, this.tokenStart, this.tokenEnd - this.tokenStart, StandardCharsets.UTF_8);
+        if (!this.tokenEscaped) {
+            return text;
+        }
+        StringBuilder unescaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                unescaped.append(c);
+                continue;
+            }
+            c = text.charAt(++i);
+            if (c >= '0' && c <= '7') {
+                int code = c - '0';
+                int maxDigits = c <= '3' ? 2 : 1;
+                while (maxDigits-- > 0 && i + 1 < text.length()
+                        && text.charAt(i + 1) >= '0' && text.charAt(i + 1) <= '7') {
+                    code = 8 * code + text.charAt(++i) - '0';
+                }
+                unescaped.append((char) code);
+                continue;
+            }
+            switch (c) {
+                case 'a': c = 0x7; break;
+                case 'b': c = '\b'; break;
+                case 'f': c = 0xC; break;
+                case 'n': c = '\n'; break;
+                case 'r': c = '\r'; break;
+                case 't': c = '\t'; break;
+                case 'v': c = 0xB; break;
+                default: break;
+            }
+            unescaped.append(c);
+        }
+        return unescaped.toString();
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A batch of instances stored by columns: one array of values per attribute,
+ * the class attribute included, plus an array of weights. Missing values are
+ * stored as NaN, as in DenseInstanceData.
+ */
+public class InstanceBatch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The header of the instances. */
+    protected Instances dataset;
+
+    /** The values, indexed by attribute and then by row. */
+    protected double[][] columns;
+
+    /** The weights of the rows. */
+    protected double[] weights;
+
+    /** The number of rows. */
+    protected int numInstances;
+
+    /** The instance returned by row, reused between calls. */
+    protected transient Instance rowInstance;
+
+    /** The values of rowInstance. */
+    protected transient double[] rowValues;
+
+    /**
+     * Instantiates a new empty batch.
+     *
+     * @param dataset the header of the instances
+     * @param capacity the initial number of rows
+     */
+    public InstanceBatch(Instances dataset, int capacity) {
+        this.dataset = dataset;
+        this.columns = new double[dataset.numAttributes()][Math.max(capacity, 1)];
+        this.weights = new double[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Instantiates a new batch with the given instances.
+     *
+     * @param dataset the header of the instances
+     * @param instances the instances
+     */
+    public InstanceBatch(Instances dataset, List<? extends Instance> instances) {
+        this(dataset, instances.size());
+        for (Instance inst : instances) {
+            add(inst);
+        }
+    }
+
+    /**
+     * Instantiates a new batch sharing the values of another batch.
+     *
+     * @param batch the batch whose values are shared
+     * @param weights the weights of the rows
+     */
+    protected InstanceBatch(InstanceBatch batch, double[] weights) {
+        this.dataset = batch.dataset;
+        this.columns = batch.columns;
+        this.weights = weights;
+        this.numInstances = batch.numInstances;
+    }
+
+    /**
+     * Adds a copy of the values of an instance as the last row.
+     *
+     * @param inst the instance
+     */
+    public void add(Instance inst) {
+        if (this.numInstances == this.weights.length) {
+            int capacity = 2 * this.weights.length;
+            for (int j = 0; j < this.columns.length; j++) {
+                this.columns[j] = Arrays.copyOf(this.columns[j], capacity);
+            }
+            this.weights = Arrays.copyOf(this.weights, capacity);
+        }
+        int row = this.numInstances;
+        int numValues = inst.numValues();
+        if (numValues == this.columns.length) {
+            for (int j = 0; j < numValues; j++) {
+                this.columns[j][row] = inst.value(j);
+            }
+        } else {
+            for (int j = 0; j < this.columns.length; j++) {
+                this.columns[j][row] = 0.0;
+            }
+            for (int p = 0; p < numValues; p++) {
+                this.columns[inst.index(p)][row] = inst.valueSparse(p);
+            }
+        }
+        this.weights[row] = inst.weight();
+        this.numInstances++;
+    }
+
+    /**
+     * Removes all the rows, keeping the allocated columns.
+     */
+    public void clear() {
+        this.numInstances = 0;
+    }
+
+    /**
+     * Gets a batch with the same values and different weights. The values are
+     * shared, not copied.
+     *
+     * @param weights the weights of the rows
+     * @return the batch
+     */
+    public InstanceBatch withWeights(double[] weights) {
+        if (weights.length < this.numInstances) {
+            throw new IllegalArgumentException("Expected " + this.numInstances
+                    + " weights, got " + weights.length);
+        }
+        return new InstanceBatch(this, weights);
+    }
+
+    /**
+     * Gets a new batch with a copy of some of the rows.
+     *
+     * @param rows the indices of the rows, in the order they are copied
+     * @param numRows the number of indices used
+     * @return the batch
+     */
+    public InstanceBatch subset(int[] rows, int numRows) {
+        InstanceBatch batch = new InstanceBatch(this.dataset, numRows);
+        for (int j = 0; j < this.columns.length; j++) {
+            for (int i = 0; i < numRows; i++) {
+                batch.columns[j][i] = this.columns[j][rows[i]];
+            }
+        }
+        for (int i = 0; i < numRows; i++) {
+            batch.weights[i] = this.weights[rows[i]];
+        }
+        batch.numInstances = numRows;
+        return batch;
+    }
+
+    /**
+     * Gets the header of the instances.
+     *
+     * @return the header
+     */
+    public Instances dataset() {
+        return this.dataset;
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return the number of rows
+     */
+    public int numInstances() {
+        return this.numInstances;
+    }
+
+    /**
+     * Gets the number of attributes, the class included.
+     *
+     * @return the number of attributes
+     */
+    public int numAttributes() {
+        return this.columns.length;
+    }
+
+    /**
+     * Gets the index of the class attribute.
+     *
+     * @return the class index
+     */
+    public int classIndex() {
+        return this.dataset.classIndex();
+    }
+
+    /**
+     * Gets the number of classes.
+     *
+     * @return the number of classes
+     */
+    public int numClasses() {
+        return this.dataset.numClasses();
+    }
+
+    /**
+     * Gets the values of an attribute. The array is not copied and may be
+     * longer than the number of rows.
+     *
+     * @param attIndex the index of the attribute
+     * @return the values of the attribute
+     */
+    public double[] column(int attIndex) {
+        return this.columns[attIndex];
+    }
+
+    /**
+     * Gets the class values. The array is not copied and may be longer than
+     * the number of rows.
+     *
+     * @return the class values
+     */
+    public double[] classValues() {
+        return this.columns[classIndex()];
+    }
+
+    /**
+     * Gets the weights. The array is not copied and may be longer than the
+     * number of rows.
+     *
+     * @return the weights
+     */
+    public double[] weights() {
+        return this.weights;
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param row the row
+     * @param attIndex the index of the attribute
+     * @return the value
+     */
+    public double value(int row, int attIndex) {
+        return this.columns[attIndex][row];
+    }
+
+    /**
+     * Checks if a value is missing.
+     *
+     * @param row the row
+     * @param attIndex the index of the attribute
+     * @return true if the value is missing
+     */
+    public boolean isMissing(int row, int attIndex) {
+        return Double.isNaN(this.columns[attIndex][row]);
+    }
+
+    /**
+     * Gets the class value of a row.
+     *
+     * @param row the row
+     * @return the class value
+     */
+    public double classValue(int row) {
+        return this.columns[classIndex()][row];
+    }
+
+    /**
+     * Gets the weight of a row.
+     *
+     * @param row the row
+     * @return the weight
+     */
+    public double weight(int row) {
+        return this.weights[row];
+    }
+
+    /**
+     * Gets a new instance with the values of a row.
+     *
+     * @param row the row
+     * @return the instance
+     */
+    public Instance instance(int row) {
+        double[] values = new double[this.columns.length];
+        for (int j = 0; j < values.length; j++) {
+            values[j] = this.columns[j][row];
+        }
+        Instance inst = new DenseInstance(this.weights[row], values);
+        inst.setDataset(this.dataset);
+        return inst;
+    }
+
+    /**
+     * Gets an instance with the values of a row without allocating it. The
+     * same instance is returned by every call and is only valid until the
+     * next one, so it must not be modified or kept.
+     *
+     * @param row the row
+     * @return the instance
+     */
+    public Instance row(int row) {
+        if (this.rowInstance == null) {
+            this.rowValues = new double[this.columns.length];
+            this.rowInstance = new DenseInstance(1.0, this.rowValues);
+            this.rowInstance.setDataset(this.dataset);
+        }
+        for (int j = 0; j < this.rowValues.length; j++) {
+            this.rowValues[j] = this.columns[j][row];
+        }
+        this.rowInstance.setWeight(this.weights[row]);
+        return this.rowInstance;
+    }
+}
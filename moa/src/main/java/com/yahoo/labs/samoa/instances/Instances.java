@@ -15,6 +15,7 @@
  */
 package com.yahoo.labs.samoa.instances;
 
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.StringReader;
@@ -119,6 +120,35 @@ public class Instances implements Serializable {
         this.computeAttributesIndices();
     }
 
+    /**
+     * Instantiates a new instances read from the bytes of an Arff file.
+     *
+     * @param input the input stream
+     * @param classAttribute the class attribute
+     * @see ByteArffLoader
+     */
+    public Instances(InputStream input, int classAttribute) {
+        this.arff = new ByteArffLoader(input, classAttribute);
+        this.instanceInformation = arff.getStructure();
+        this.instances = new ArrayList<Instance>();
+        this.computeAttributesIndices();
+    }
+
+    /**
+     * Instantiates a new instances read from the bytes of a multi-target
+     * Arff file.
+     *
+     * @param input the input stream
+     * @param range the range of the output attributes
+     * @see ByteArffLoader
+     */
+    public Instances(InputStream input, Range range) {
+        this.arff = new ByteArffLoader(input, range);
+        this.instanceInformation = arff.getStructure();
+        this.instances = new ArrayList<Instance>();
+        this.computeAttributesIndices();
+    }
+
     /**
      * Instantiates a new instances.
      *
@@ -472,6 +502,15 @@ public class Instances implements Serializable {
      * @return true, if successful
      */
     public boolean readInstance(Reader fileReader) {
+        return readInstance();
+    }
+
+    /**
+     * Reads the next instance of the Arff file this was created from.
+     *
+     * @return true, if successful
+     */
+    public boolean readInstance() {
 
         //ArffReader arff = new ArffReader(reader, this, m_Lines, 1);
         Instance inst = arff.readInstance();
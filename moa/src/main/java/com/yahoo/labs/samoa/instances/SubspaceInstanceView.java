@@ -0,0 +1,209 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+/**
+ * An instance with a subset of the attributes of another instance, read
+ * through without copying its values. Attribute i of the view is attribute
+ * featureIndexes[i] of the source instance, and the header of the view
+ * describes the selected attributes. Missing values are NaN, as in
+ * DenseInstanceData.
+ *
+ * <p>An index of -1 selects the target of the view instead, a value held by
+ * the view itself, such as the pseudo-residual a boosted model learns. Nominal
+ * attributes can also be one-hot encoded: the view then has one attribute per
+ * value, which is 1 when the source attribute has that value and 0
+ * otherwise.</p>
+ *
+ * <p>The same view is moved from instance to instance with
+ * {@link #setSource}, so, like the rows of an InstanceBatch, it is only valid
+ * until the next move and learners that keep instances must copy them. The
+ * copy is a DenseInstance with the values of the view. Setting a value of the
+ * view doesn't change the source instance: the values are copied into the
+ * view first, until the next move. The target is set without copying.</p>
+ */
+public class SubspaceInstanceView extends InstanceImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Instantiates a new view, without a source instance.
+     *
+     * @param featureIndexes the indexes in the source instance of the
+     * attributes of the view, it is not copied
+     * @param header the header of the view
+     */
+    public SubspaceInstanceView(int[] featureIndexes, Instances header) {
+        this(featureIndexes, null, header);
+    }
+
+    /**
+     * Instantiates a new view with one-hot encoded attributes, without a
+     * source instance.
+     *
+     * @param featureIndexes the indexes in the source instance of the
+     * attributes of the view, -1 for the target, it is not copied
+     * @param oneHotValues for each attribute of the view, the value of the
+     * nominal source attribute it indicates, or -1 to read the value as it
+     * is; null if no attribute is one-hot encoded
+     * @param header the header of the view
+     */
+    public SubspaceInstanceView(int[] featureIndexes, int[] oneHotValues, Instances header) {
+        super(1.0, new SubspaceInstanceData(featureIndexes, oneHotValues));
+        setDataset(header);
+    }
+
+    /**
+     * Moves the view to another instance.
+     *
+     * @param source the instance to read the values from
+     * @param weight the weight of the view
+     * @return this view
+     */
+    public SubspaceInstanceView setSource(Instance source, double weight) {
+        ((SubspaceInstanceData) this.instanceData).setSource(source);
+        this.weight = weight;
+        return this;
+    }
+
+    /**
+     * Gets the indexes in the source instance of the attributes of the view.
+     */
+    public int[] featureIndexes() {
+        return ((SubspaceInstanceData) this.instanceData).featureIndexes;
+    }
+
+    @Override
+    public Instance copy() {
+        DenseInstance inst = new DenseInstance(this.weight, toDoubleArray());
+        inst.instanceHeader = this.instanceHeader;
+        return inst;
+    }
+
+    /**
+     * The values of a view, read from the source instance until one is set.
+     */
+    protected static class SubspaceInstanceData implements InstanceData {
+
+        private static final long serialVersionUID = 1L;
+
+        protected int[] featureIndexes;
+
+        protected int[] oneHotValues;
+
+        protected transient Instance source;
+
+        /** The value of the attributes with index -1. */
+        protected double target;
+
+        /** The values once one has been set, null until then. */
+        protected double[] values;
+
+        public SubspaceInstanceData(int[] featureIndexes, int[] oneHotValues) {
+            this.featureIndexes = featureIndexes;
+            this.oneHotValues = oneHotValues;
+        }
+
+        public void setSource(Instance source) {
+            this.source = source;
+            this.values = null;
+        }
+
+        @Override
+        public int numAttributes() {
+            return this.featureIndexes.length;
+        }
+
+        @Override
+        public double value(int instAttIndex) {
+            if (this.values != null) {
+                return this.values[instAttIndex];
+            }
+            int index = this.featureIndexes[instAttIndex];
+            if (index < 0) {
+                return this.target;
+            }
+            double value = this.source.value(index);
+            if (this.oneHotValues != null && this.oneHotValues[instAttIndex] >= 0) {
+                return (int) value == this.oneHotValues[instAttIndex] ? 1.0 : 0.0;
+            }
+            return value;
+        }
+
+        @Override
+        public boolean isMissing(int instAttIndex) {
+            return Double.isNaN(value(instAttIndex));
+        }
+
+        @Override
+        public int numValues() {
+            return numAttributes();
+        }
+
+        @Override
+        public int index(int i) {
+            return i;
+        }
+
+        @Override
+        public double valueSparse(int i) {
+            return value(i);
+        }
+
+        @Override
+        public boolean isMissingSparse(int p1) {
+            return isMissing(p1);
+        }
+
+        @Override
+        public double[] toDoubleArray() {
+            double[] array = new double[this.featureIndexes.length];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = value(i);
+            }
+            return array;
+        }
+
+        @Override
+        public void setValue(int attribute, double d) {
+            if (this.featureIndexes[attribute] < 0) {
+                this.target = d;
+                if (this.values == null) {
+                    return;
+                }
+            }
+            if (this.values == null) {
+                this.values = toDoubleArray();
+            }
+            this.values[attribute] = d;
+        }
+
+        @Override
+        public void deleteAttributeAt(int index) {
+            throw new UnsupportedOperationException("The attributes of a subspace view can't be changed");
+        }
+
+        @Override
+        public void insertAttributeAt(int index) {
+            throw new UnsupportedOperationException("The attributes of a subspace view can't be changed");
+        }
+
+        @Override
+        public InstanceData copy() {
+            return new DenseInstanceData(toDoubleArray());
+        }
+    }
+}
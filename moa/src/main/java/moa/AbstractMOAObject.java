@@ -19,8 +19,11 @@
  */
 package moa;
 
+import moa.core.FastCopyable;
+import moa.core.MemoryAccountable;
 import moa.core.SerializeUtils;
 import moa.core.SizeOf;
+import moa.core.StructuralCopier;
 
 /**
  * Abstract MOA Object. All classes that are serializable, copiable,
@@ -54,13 +57,18 @@ public abstract class AbstractMOAObject implements MOAObject {
     }
 
     /**
-     * This method produces a copy of an object.
+     * This method produces a copy of an object. Objects that are
+     * {@link FastCopyable} are copied field by field, others are
+     * serialized and read back.
      *
      * @param obj object to copy
      * @return a copy of the object
      */
     public static MOAObject copy(MOAObject obj) {
         try {
+            if (obj instanceof FastCopyable) {
+                return (MOAObject) StructuralCopier.copy(obj);
+            }
             return (MOAObject) SerializeUtils.copyObject(obj);
         } catch (Exception e) {
             throw new RuntimeException("Object copy failed.", e);
@@ -68,12 +76,17 @@ public abstract class AbstractMOAObject implements MOAObject {
     }
 
     /**
-     * Gets the memory size of an object.
+     * Gets the memory size of an object. Objects that are
+     * {@link MemoryAccountable} estimate their own size, the object graph of
+     * others is walked with {@link SizeOf}.
      *
      * @param obj object to measure the memory size
      * @return the memory size of this object
      */
     public static long measureByteSize(MOAObject obj) {
+        if (obj instanceof MemoryAccountable) {
+            return ((MemoryAccountable) obj).estimateByteSize();
+        }
         return SizeOf.fullSizeOf(obj);
     }
 }
@@ -74,6 +74,9 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     /** Random Generator used in randomizable learners  */
     public Random classifierRandom;
 
+    /** Whether predictAndTrainImpl is used, resolved on first use */
+    private transient Boolean fusedPredictAndTrain;
+
     /**
      * Creates an classifier and setups the random seed option
      * if the classifier is randomizable.
@@ -160,6 +163,7 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     @Override
     public void resetLearning() {
         this.trainingWeightSeenByModel = 0.0;
+        this.fusedPredictAndTrain = null;
         if (isRandomizable()) {
             this.classifierRandom = new Random(this.randomSeed);
         }
@@ -168,15 +172,94 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
 
     @Override
     public void trainOnInstance(Instance inst) {
+        if (isTrainingInstance(inst)) {
+            this.trainingWeightSeenByModel += inst.weight();
+            trainOnInstanceImpl(inst);
+        }
+    }
+
+    /**
+     * Gets whether an instance is used for training: it must have a positive
+     * weight and, unless this is a semi-supervised learner, a class value.
+     *
+     * @param inst the instance to check
+     * @return true if trainOnInstance passes the instance to trainOnInstanceImpl
+     */
+    protected boolean isTrainingInstance(Instance inst) {
         boolean isTraining = (inst.weight() > 0.0);
         if (this instanceof SemiSupervisedLearner == false &&
                 inst.classIsMissing() == true){
             isTraining = false;
         }
-        if (isTraining) {
+        return isTraining;
+    }
+
+    /**
+     * Uses predictAndTrainImpl when this classifier supports it, and the
+     * default of Classifier otherwise.
+     */
+    @Override
+    public double[] predictAndTrain(Instance inst) {
+        if (this.fusedPredictAndTrain == null) {
+            this.fusedPredictAndTrain = supportsPredictAndTrainImpl();
+        }
+        if (this.fusedPredictAndTrain && isTrainingInstance(inst)) {
             this.trainingWeightSeenByModel += inst.weight();
-            trainOnInstanceImpl(inst);
+            return predictAndTrainImpl(inst);
+        }
+        return Classifier.super.predictAndTrain(inst);
+    }
+
+    /**
+     * Gets whether this classifier implements predictAndTrainImpl. Classifiers
+     * returning true should check with isInheritedFrom that subclasses have
+     * not changed trainOnInstanceImpl or getVotesForInstance.
+     *
+     * @return true if predictAndTrainImpl can be used
+     */
+    protected boolean supportsPredictAndTrainImpl() {
+        return false;
+    }
+
+    /**
+     * Predicts the class memberships for an instance and trains this
+     * classifier with it in a single pass. Only called for training instances
+     * when supportsPredictAndTrainImpl returns true; the training weight has
+     * already been accounted for. The default predicts and then trains
+     * separately, classifiers override it to share the work.
+     *
+     * @param inst the instance to be classified and used for training
+     * @return the votes that getVotesForInstance would return before training
+     */
+    protected double[] predictAndTrainImpl(Instance inst) {
+        double[] votes = getVotesForInstance(inst);
+        if (votes != null) {
+            // training must not change the prediction already made
+            votes = votes.clone();
         }
+        trainOnInstanceImpl(inst);
+        return votes;
+    }
+
+    /**
+     * Gets whether the given methods taking an instance are inherited by the
+     * runtime class of this classifier from the given class.
+     *
+     * @param owner the class that must declare the methods
+     * @param methodNames the names of the methods
+     * @return true if none of the methods is overridden below owner
+     */
+    protected boolean isInheritedFrom(Class<?> owner, String... methodNames) {
+        try {
+            for (String methodName : methodNames) {
+                if (getClass().getMethod(methodName, Instance.class).getDeclaringClass() != owner) {
+                    return false;
+                }
+            }
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+        return true;
     }
 
     @Override
@@ -249,6 +332,11 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
 		trainOnInstance(example.getData());
 	}
 
+    @Override
+    public double[] predictAndTrain(Example<Instance> example){
+		return predictAndTrain(example.getData());
+	}
+
     @Override
     public boolean correctlyClassifies(Instance inst) {
         return Utils.maxIndex(getVotesForInstance(inst)) == (int) inst.classValue();
@@ -20,12 +20,21 @@
 
 package moa.classifiers;
 
+import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.*;
 import moa.capabilities.CapabilitiesHandler;
+import moa.core.Measurement;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public abstract class AbstractClassifierMiniBatch extends AbstractClassifier
         implements Classifier, CapabilitiesHandler { //Learner<Example<Instance>> {
@@ -43,13 +52,31 @@ public abstract class AbstractClassifierMiniBatch extends AbstractClassifier
             "The amount of instances the classifier should buffer before training.",
             1, 1, Integer.MAX_VALUE);
 
+    public FloatOption targetLatencyOption = new FloatOption("targetLatency", 'T',
+            "The time in milliseconds the training on a batch should take, the batch size adapting to it (0 for a fixed batch size).",
+            0.0, 0.0, Double.MAX_VALUE);
+
+    public FloatOption stalenessDeadlineOption = new FloatOption("stalenessDeadline", 'D',
+            "The time in milliseconds after which the buffered instances are trained on, checked when an instance arrives or before a prediction, the batch size adapting to it (0 for no deadline).",
+            0.0, 0.0, Double.MAX_VALUE);
+
+    public IntOption maxBatchSizeOption = new IntOption("maxBatchSize", 'M',
+            "The largest batch size when it adapts to a target latency or a staleness deadline.",
+            1000, 1, Integer.MAX_VALUE);
+
+    // The thread pools shared by the mini batch learners of the JVM, by number of threads
+    private static final Map<Integer, ExecutorService> sharedThreadPools = new HashMap<>();
+
     // The amount of CPU cores to be run in parallel
     public int numOfCores;
 
-    // The threadpool to be used, based on the number of cores
-    protected ExecutorService threadpool;
+    // The shared threadpool to be used, based on the number of cores
+    protected transient ExecutorService threadpool;
     protected ArrayList<Instance> myBatch;
 
+    // Decides when myBatch is trained on
+    protected MiniBatchScheduler scheduler;
+
     public AbstractClassifierMiniBatch() {
         if (isRandomizable()) {
             this.randomSeedOption = new IntOption("randomSeed", 'r',
@@ -69,33 +96,135 @@ public abstract class AbstractClassifierMiniBatch extends AbstractClassifier
     public void trainOnInstanceImpl(Instance inst) {
         if (myBatch != null) {
             this.myBatch.add(inst);
-            if (this.myBatch.size() == this.batchSizeOption.getValue()){
-                this.trainOnInstances(this.myBatch);
-                this.myBatch.clear();
+            if (this.scheduler.instanceBuffered(this.myBatch.size(), System.nanoTime())) {
+                trainOnBufferedInstances();
             }
         }
     }
 
+    /**
+     * Trains on the buffered instances if the first one has waited for the
+     * staleness deadline. The mini batch learners call it before predicting, as
+     * no instance may arrive to trigger the deadline.
+     */
+    protected void trainOnStaleInstances() {
+        if (this.myBatch != null && !this.myBatch.isEmpty() && this.scheduler.deadlinePassed(System.nanoTime())) {
+            trainOnBufferedInstances();
+        }
+    }
+
+    protected void trainOnBufferedInstances() {
+        int size = this.myBatch.size();
+        long start = System.nanoTime();
+        this.trainOnInstances(this.myBatch);
+        this.myBatch.clear();
+        this.scheduler.batchTrained(size, start, System.nanoTime());
+    }
+
     public abstract void trainOnInstances(ArrayList<Instance> instances);
 
 
+    /**
+     * Stops buffering instances. The thread pool is shared with the other mini
+     * batch learners, so it is left running: its threads are daemon threads,
+     * which don't keep the JVM alive.
+     */
     public void trainingHasEnded() {
-        if (this.threadpool != null)
-            this.threadpool.shutdown();
         this.myBatch = null;
     }
 
+    /**
+     * Gets the thread pool of the given number of threads shared by the mini
+     * batch learners of the JVM, creating it the first time.
+     *
+     * @param numThreads the number of threads of the pool
+     * @return the shared thread pool
+     */
+    public static synchronized ExecutorService getSharedThreadPool(int numThreads) {
+        ExecutorService pool = sharedThreadPools.get(numThreads);
+        if (pool == null) {
+            pool = new SharedThreadPool(numThreads);
+            sharedThreadPools.put(numThreads, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Gets the number of threads of the shared pool used for a number of
+     * cores, all of them if it is negative or too large.
+     */
+    protected static int numberOfThreads(int numOfCores) {
+        int maxCores = Runtime.getRuntime().availableProcessors();
+        if (numOfCores == 1 || numOfCores == 0) {
+            return 1;
+        } else if (numOfCores < 0 || numOfCores > maxCores) {
+            return maxCores;
+        }
+        return numOfCores;
+    }
+
+    /**
+     * A fixed pool of daemon threads. The tasks that a thread of a shared pool
+     * submits with invokeAll run on that thread: a mini batch learner nested in
+     * another one trains its members inline, rather than waiting for the
+     * threads its caller may be holding.
+     */
+    protected static class SharedThreadPool extends ThreadPoolExecutor {
+
+        public SharedThreadPool(int numThreads) {
+            super(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), SharedPoolThread::new);
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+            if (!(Thread.currentThread() instanceof SharedPoolThread)) {
+                return super.invokeAll(tasks);
+            }
+            List<Future<T>> futures = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                FutureTask<T> future = new FutureTask<>(task);
+                future.run();
+                futures.add(future);
+            }
+            return futures;
+        }
+    }
+
+    protected static class SharedPoolThread extends Thread {
+
+        public SharedPoolThread(Runnable runnable) {
+            super(runnable, "MiniBatch-" + runnable.hashCode());
+            setDaemon(true);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // the pool is shared by the learners of the JVM, copies use it too
+        if (this.scheduler != null) {
+            this.threadpool = getSharedThreadPool(numberOfThreads(this.numOfCores));
+        }
+    }
+
+    @Override
+    public Measurement[] getModelMeasurements() {
+        Measurement[] measurements = super.getModelMeasurements();
+        if (this.scheduler == null) {
+            return measurements;
+        }
+        List<Measurement> measurementList = new ArrayList<>(Arrays.asList(measurements));
+        measurementList.addAll(Arrays.asList(this.scheduler.getMeasurements()));
+        return measurementList.toArray(new Measurement[measurementList.size()]);
+    }
+
     @Override
     public void resetLearning() {
         this.numOfCores = this.numberOfCoresOption.getValue();
-        int maxCores = Runtime.getRuntime().availableProcessors();
-        if (this.numOfCores == 1 || this.numOfCores == 0) {
-            this.threadpool = Executors.newFixedThreadPool(1);
-        } else if (this.numOfCores < 0 || this.numOfCores > maxCores) {
-            this.threadpool = Executors.newFixedThreadPool(maxCores);
-        } else {
-            this.threadpool = Executors.newFixedThreadPool(this.numOfCores);
-        }
+        this.threadpool = getSharedThreadPool(numberOfThreads(this.numOfCores));
+        this.scheduler = new MiniBatchScheduler(this.batchSizeOption.getValue(),
+                this.maxBatchSizeOption.getValue(), this.targetLatencyOption.getValue(),
+                this.stalenessDeadlineOption.getValue());
         this.trainingWeightSeenByModel = 0.0;
         if (isRandomizable()) {
             this.classifierRandom = new Random(this.randomSeed);
@@ -23,6 +23,7 @@ import moa.core.Example;
 import moa.learners.Learner;
 
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 import com.yahoo.labs.samoa.instances.InstanceData;
 import com.yahoo.labs.samoa.instances.Prediction;
 
@@ -76,6 +77,53 @@ public interface Classifier extends Learner<Example<Instance>> {
      * test instance in each class
      */
     public double[] getVotesForInstance(Instance inst);
+
+    /**
+     * Predicts the class memberships for a given instance and then trains
+     * this learner with it. Equivalent to calling getVotesForInstance
+     * followed by trainOnInstance.
+     *
+     * @param inst the instance to be classified and used for training
+     * @return an array containing the estimated membership probabilities of the
+     * instance in each class before training
+     */
+    public default double[] predictAndTrain(Instance inst) {
+        double[] votes = getVotesForInstance(inst);
+        if (votes != null) {
+            // training must not change the prediction already made
+            votes = votes.clone();
+        }
+        trainOnInstance(inst);
+        return votes;
+    }
+
+    /**
+     * Trains this classifier incrementally using the rows of a batch, in
+     * order. Equivalent to calling trainOnInstance with each row.
+     *
+     * @param batch the instances to be used for training
+     */
+    public default void trainOnBatch(InstanceBatch batch) {
+        for (int row = 0; row < batch.numInstances(); row++) {
+            trainOnInstance(batch.instance(row));
+        }
+    }
+
+    /**
+     * Predicts the class memberships for each row of a batch with the current
+     * model.
+     *
+     * @param batch the instances to be classified
+     * @return an array containing, for each row, the estimated membership
+     * probabilities of the instance in each class
+     */
+    public default double[][] getVotesForBatch(InstanceBatch batch) {
+        double[][] votes = new double[batch.numInstances()][];
+        for (int row = 0; row < votes.length; row++) {
+            votes[row] = getVotesForInstance(batch.instance(row));
+        }
+        return votes;
+    }
     
     /**
      * Sets the reference to the header of the data stream. The header of the
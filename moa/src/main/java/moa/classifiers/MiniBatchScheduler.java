@@ -0,0 +1,289 @@
+/*
+ *    MiniBatchScheduler.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers;
+
+import java.io.Serializable;
+
+import moa.core.Measurement;
+
+/**
+ * Decides when the instances buffered by a mini batch learner are trained on.
+ * The buffer is trained on when it holds batchSize instances, or when its
+ * first instance has waited for the staleness deadline.
+ *
+ * <p>The deadline is only checked when an instance arrives and before a
+ * prediction, by the thread using the learner: a learner that receives
+ * neither keeps its buffer untrained until it does. Checking it from a timer
+ * would train from another thread, concurrently with the learner.</p>
+ *
+ * <p>Without a target latency or a staleness deadline, the batch size is fixed.
+ * Otherwise it adapts after every batch, from moving averages of the training
+ * time per instance and of the time between instances: it is the largest size
+ * whose training takes at most the target latency, and whose first instance
+ * is trained on within the staleness deadline, up to maxBatchSize.</p>
+ *
+ * <p>The batch sizes and the numbers of buffered instances (the queue depth)
+ * are reported as measurements, averaged over the instances seen since the
+ * scheduler was created. Reporting them doesn't change the scheduler: a
+ * caller keeps a snapshot of the counts to report them over a window. The
+ * last, smallest and largest of the last HISTORY_SIZE batch sizes and queue
+ * depths are reported too, from rings holding them.</p>
+ *
+ * @version $Revision: 1 $
+ */
+public class MiniBatchScheduler implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The weight of the last value in the moving averages. */
+    protected static final double SMOOTHING = 0.2;
+
+    /** The number of recent batch sizes and queue depths kept. */
+    public static final int HISTORY_SIZE = 100;
+
+    protected int batchSize;
+
+    protected final int maxBatchSize;
+
+    protected final double targetLatencyNanos;
+
+    protected final double stalenessDeadlineNanos;
+
+    /** The moving average of the training time per instance, -1 until a batch is trained. */
+    protected double trainingNanosPerInstance = -1.0;
+
+    /** The moving average of the time between instances, -1 until two instances arrive. */
+    protected double nanosBetweenInstances = -1.0;
+
+    protected long lastArrivalNanos = -1;
+
+    protected long firstBufferedNanos = -1;
+
+    protected final Counts counts = new Counts();
+
+    protected int maxQueueDepth = 0;
+
+    /** The sizes of the last batches, indexed by number of batches modulo HISTORY_SIZE */
+    protected final int[] recentBatchSizes = new int[HISTORY_SIZE];
+
+    /** The queue depths at the last arrivals, indexed by number of arrivals modulo HISTORY_SIZE */
+    protected final int[] recentQueueDepths = new int[HISTORY_SIZE];
+
+    /**
+     * The counts of the batches and of the buffered instances of a scheduler,
+     * since it was created.
+     */
+    public static class Counts implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        public long numBatches = 0;
+
+        public long numBatchInstances = 0;
+
+        public long numDeadlineFlushes = 0;
+
+        public long numArrivals = 0;
+
+        public double sumOfQueueDepths = 0.0;
+
+        public Counts copy() {
+            Counts copy = new Counts();
+            copy.numBatches = this.numBatches;
+            copy.numBatchInstances = this.numBatchInstances;
+            copy.numDeadlineFlushes = this.numDeadlineFlushes;
+            copy.numArrivals = this.numArrivals;
+            copy.sumOfQueueDepths = this.sumOfQueueDepths;
+            return copy;
+        }
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param batchSize the batch size, the initial one if it adapts
+     * @param maxBatchSize the largest batch size when it adapts
+     * @param targetLatencyMillis the training time of a batch to adapt to, 0 for none
+     * @param stalenessDeadlineMillis the time after which the buffered instances are
+     * trained on, checked on arrivals and predictions, 0 for no deadline
+     */
+    public MiniBatchScheduler(int batchSize, int maxBatchSize, double targetLatencyMillis, double stalenessDeadlineMillis) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.targetLatencyNanos = targetLatencyMillis * 1.0e6;
+        this.stalenessDeadlineNanos = stalenessDeadlineMillis * 1.0e6;
+    }
+
+    public int batchSize() {
+        return this.batchSize;
+    }
+
+    public boolean isAdaptive() {
+        return this.targetLatencyNanos > 0.0 || this.stalenessDeadlineNanos > 0.0;
+    }
+
+    /**
+     * Records the arrival of an instance in the buffer.
+     *
+     * @param queueDepth the number of buffered instances, this one included
+     * @param nowNanos the time of arrival, from System.nanoTime()
+     * @return whether the buffer must be trained on now
+     */
+    public boolean instanceBuffered(int queueDepth, long nowNanos) {
+        if (this.lastArrivalNanos >= 0) {
+            this.nanosBetweenInstances = average(this.nanosBetweenInstances, nowNanos - this.lastArrivalNanos);
+        }
+        this.lastArrivalNanos = nowNanos;
+        if (queueDepth == 1) {
+            this.firstBufferedNanos = nowNanos;
+        }
+        this.recentQueueDepths[(int) (this.counts.numArrivals % HISTORY_SIZE)] = queueDepth;
+        this.counts.numArrivals++;
+        this.counts.sumOfQueueDepths += queueDepth;
+        this.maxQueueDepth = Math.max(this.maxQueueDepth, queueDepth);
+        if (queueDepth >= this.batchSize) {
+            return true;
+        }
+        return deadlinePassed(nowNanos);
+    }
+
+    /**
+     * Checks whether the first buffered instance has waited for the staleness
+     * deadline, when the buffer isn't empty.
+     *
+     * @param nowNanos the time, from System.nanoTime()
+     * @return whether the buffer must be trained on now
+     */
+    public boolean deadlinePassed(long nowNanos) {
+        if (this.stalenessDeadlineNanos > 0.0 && nowNanos - this.firstBufferedNanos >= this.stalenessDeadlineNanos) {
+            this.counts.numDeadlineFlushes++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records the training on a batch, and adapts the batch size.
+     *
+     * @param size the number of instances of the batch
+     * @param startNanos the time the training started, from System.nanoTime()
+     * @param endNanos the time the training ended, from System.nanoTime()
+     */
+    public void batchTrained(int size, long startNanos, long endNanos) {
+        this.recentBatchSizes[(int) (this.counts.numBatches % HISTORY_SIZE)] = size;
+        this.counts.numBatches++;
+        this.counts.numBatchInstances += size;
+        // the training time doesn't count as time between instances
+        if (this.lastArrivalNanos >= 0) {
+            this.lastArrivalNanos += endNanos - startNanos;
+        }
+        if (size == 0 || !isAdaptive()) {
+            return;
+        }
+        this.trainingNanosPerInstance = average(this.trainingNanosPerInstance, (endNanos - startNanos) / (double) size);
+        if (this.stalenessDeadlineNanos > 0.0 && this.nanosBetweenInstances < 0.0) {
+            // wait for the time between instances to be known
+            return;
+        }
+        double size1 = this.maxBatchSize;
+        if (this.targetLatencyNanos > 0.0 && this.trainingNanosPerInstance > 0.0) {
+            size1 = Math.min(size1, this.targetLatencyNanos / this.trainingNanosPerInstance);
+        }
+        if (this.stalenessDeadlineNanos > 0.0) {
+            // the first instance waits for the others to arrive, then for the training
+            double nanosPerInstance = this.nanosBetweenInstances + Math.max(0.0, this.trainingNanosPerInstance);
+            if (nanosPerInstance > 0.0) {
+                size1 = Math.min(size1, this.stalenessDeadlineNanos / nanosPerInstance);
+            }
+        }
+        this.batchSize = (int) Math.max(1.0, Math.min(this.maxBatchSize, size1));
+    }
+
+    /**
+     * Gets a copy of the counts, the start of a window to report the
+     * measurements over.
+     */
+    public Counts snapshot() {
+        return this.counts.copy();
+    }
+
+    /**
+     * Gets the measurements of the batches and of the queue depth since the
+     * scheduler was created.
+     */
+    public Measurement[] getMeasurements() {
+        return getMeasurements(new Counts());
+    }
+
+    /**
+     * Gets the measurements of the batches and of the queue depth since a
+     * snapshot. The max queue depth is the one since the scheduler was created,
+     * the recent values are those of the last HISTORY_SIZE batches and arrivals.
+     *
+     * @param since the snapshot the window starts at
+     */
+    public Measurement[] getMeasurements(Counts since) {
+        long numBatches = this.counts.numBatches - since.numBatches;
+        long numArrivals = this.counts.numArrivals - since.numArrivals;
+        return new Measurement[]{
+            new Measurement("mini batch size", this.batchSize),
+            new Measurement("mean trained batch size", numBatches > 0
+                    ? (this.counts.numBatchInstances - since.numBatchInstances) / (double) numBatches : 0.0),
+            new Measurement("mini batches trained", numBatches),
+            new Measurement("deadline flushes", this.counts.numDeadlineFlushes - since.numDeadlineFlushes),
+            new Measurement("mean queue depth", numArrivals > 0
+                    ? (this.counts.sumOfQueueDepths - since.sumOfQueueDepths) / numArrivals : 0.0),
+            new Measurement("max queue depth", this.maxQueueDepth),
+            new Measurement("last trained batch size", last(this.recentBatchSizes, this.counts.numBatches)),
+            new Measurement("recent min trained batch size", min(this.recentBatchSizes, this.counts.numBatches)),
+            new Measurement("recent max trained batch size", max(this.recentBatchSizes, this.counts.numBatches)),
+            new Measurement("last queue depth", last(this.recentQueueDepths, this.counts.numArrivals)),
+            new Measurement("recent min queue depth", min(this.recentQueueDepths, this.counts.numArrivals)),
+            new Measurement("recent max queue depth", max(this.recentQueueDepths, this.counts.numArrivals))};
+    }
+
+    // The last value of a ring holding count values, 0 if empty
+    protected static int last(int[] ring, long count) {
+        return count > 0 ? ring[(int) ((count - 1) % ring.length)] : 0;
+    }
+
+    // The smallest value of a ring holding count values, 0 if empty
+    protected static int min(int[] ring, long count) {
+        int n = (int) Math.min(count, ring.length);
+        int min = n > 0 ? Integer.MAX_VALUE : 0;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, ring[i]);
+        }
+        return min;
+    }
+
+    // The largest value of a ring holding count values, 0 if empty
+    protected static int max(int[] ring, long count) {
+        int n = (int) Math.min(count, ring.length);
+        int max = 0;
+        for (int i = 0; i < n; i++) {
+            max = Math.max(max, ring[i]);
+        }
+        return max;
+    }
+
+    protected static double average(double average, double value) {
+        return average < 0.0 ? value : (1.0 - SMOOTHING) * average + SMOOTHING * value;
+    }
+}
@@ -29,9 +29,11 @@ import moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClas
 import moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
+import moa.core.FastCopyable;
 import moa.core.Measurement;
 import moa.core.StringUtils;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 
 /**
  * Naive Bayes incremental learner.
@@ -49,7 +51,7 @@ import com.yahoo.labs.samoa.instances.Instance;
  * @version $Revision: 7 $
  */
 public class NaiveBayes extends AbstractClassifier  implements MultiClassClassifier,
-                                                               CapabilitiesHandler {
+                                                               CapabilitiesHandler, FastCopyable {
 
     private static final long serialVersionUID = 1L;
 
@@ -88,6 +90,50 @@ public class NaiveBayes extends AbstractClassifier  implements MultiClassClassif
                 this.attributeObservers);
     }
 
+    @Override
+    public void trainOnBatch(InstanceBatch batch) {
+        if (!isInheritedFrom(NaiveBayes.class, "trainOnInstanceImpl")
+                || !isInheritedFrom(AbstractClassifier.class, "trainOnInstance")) {
+            super.trainOnBatch(batch);
+            return;
+        }
+        // the observers are independent, so they are updated one column at a time
+        int[] rows = new int[batch.numInstances()];
+        int numRows = 0;
+        double[] classValues = batch.classValues();
+        double[] weights = batch.weights();
+        for (int row = 0; row < batch.numInstances(); row++) {
+            if (weights[row] > 0.0 && !Double.isNaN(classValues[row])) {
+                rows[numRows++] = row;
+                this.trainingWeightSeenByModel += weights[row];
+                this.observedClassDistribution.addToValue((int) classValues[row], weights[row]);
+            }
+        }
+        for (int i = 0; i < batch.numAttributes() - 1; i++) {
+            int instAttIndex = modelAttIndexToInstanceAttIndex(i, batch.dataset());
+            AttributeClassObserver obs = this.attributeObservers.get(i);
+            if (obs == null) {
+                obs = batch.dataset().attribute(instAttIndex).isNominal() ? newNominalClassObserver()
+                        : newNumericClassObserver();
+                this.attributeObservers.set(i, obs);
+            }
+            double[] column = batch.column(instAttIndex);
+            for (int r = 0; r < numRows; r++) {
+                int row = rows[r];
+                obs.observeAttributeClass(column[row], (int) classValues[row], weights[row]);
+            }
+        }
+    }
+
+    @Override
+    public double[][] getVotesForBatch(InstanceBatch batch) {
+        if (!isInheritedFrom(NaiveBayes.class, "getVotesForInstance")) {
+            return super.getVotesForBatch(batch);
+        }
+        return doNaiveBayesPrediction(batch, this.observedClassDistribution,
+                this.attributeObservers);
+    }
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return null;
@@ -153,6 +199,40 @@ public class NaiveBayes extends AbstractClassifier  implements MultiClassClassif
         return votes;
     }
 
+    /**
+     * Computes doNaiveBayesPrediction for every row of a batch, one attribute
+     * at a time. The products are taken in the same order, so the votes are
+     * the same as for the individual instances.
+     */
+    public static double[][] doNaiveBayesPrediction(InstanceBatch batch,
+            DoubleVector observedClassDistribution,
+            AutoExpandVector<AttributeClassObserver> attributeObservers) {
+        int numClasses = observedClassDistribution.numValues();
+        double observedClassSum = observedClassDistribution.sumOfValues();
+        double[][] votes = new double[batch.numInstances()][numClasses];
+        for (int row = 0; row < votes.length; row++) {
+            for (int classIndex = 0; classIndex < numClasses; classIndex++) {
+                votes[row][classIndex] = observedClassDistribution.getValue(classIndex)
+                        / observedClassSum;
+            }
+        }
+        for (int attIndex = 0; attIndex < batch.numAttributes() - 1; attIndex++) {
+            AttributeClassObserver obs = attributeObservers.get(attIndex);
+            if (obs == null) {
+                continue;
+            }
+            double[] column = batch.column(modelAttIndexToInstanceAttIndex(attIndex, batch.dataset()));
+            for (int row = 0; row < votes.length; row++) {
+                if (!Double.isNaN(column[row])) {
+                    for (int classIndex = 0; classIndex < numClasses; classIndex++) {
+                        votes[row][classIndex] *= obs.probabilityOfAttributeValueGivenClass(column[row], classIndex);
+                    }
+                }
+            }
+        }
+        return votes;
+    }
+
     // Naive Bayes Prediction using log10 for VFDR rules 
     public static double[] doNaiveBayesPredictionLog(Instance inst,
             DoubleVector observedClassDistribution,
@@ -0,0 +1,94 @@
+/*
+ *    SplitEvaluation.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+
+/**
+ * Evaluates the split suggestions of the attribute observers of a leaf.
+ * With many attributes, the observers can be evaluated in parallel, as tasks
+ * of the common fork-join pool shared by all the trees of the process. The
+ * suggestions are the same, in the same order, as when evaluated one after
+ * the other.
+ *
+ * @version $Revision: 7 $
+ */
+public final class SplitEvaluation {
+
+    private SplitEvaluation() {
+    }
+
+    /**
+     * Adds the best split suggestion of each observer to a list, in the
+     * order of the observers. Observers that are null or that have no
+     * suggestion are skipped.
+     *
+     * @param suggestions the list to add the suggestions to
+     * @param observers the observers, indexed by attribute
+     * @param criterion the split criterion, it must be safe to use from
+     * several threads if parallel is set
+     * @param preSplitDist the class distribution of the leaf
+     * @param binaryOnly whether only binary splits are allowed
+     * @param parallel whether to evaluate the observers in parallel
+     */
+    public static void addBestSplitSuggestions(List<AttributeSplitSuggestion> suggestions,
+            List<? extends AttributeClassObserver> observers, SplitCriterion criterion,
+            double[] preSplitDist, boolean binaryOnly, boolean parallel) {
+        for (AttributeSplitSuggestion bestSuggestion : getBestSplitSuggestions(observers,
+                criterion, preSplitDist, binaryOnly, parallel)) {
+            if (bestSuggestion != null) {
+                suggestions.add(bestSuggestion);
+            }
+        }
+    }
+
+    /**
+     * Gets the best split suggestion of each observer.
+     *
+     * @return the suggestions indexed by attribute, null for the observers
+     * that are null or that have no suggestion
+     * @see #addBestSplitSuggestions
+     */
+    public static AttributeSplitSuggestion[] getBestSplitSuggestions(
+            List<? extends AttributeClassObserver> observers, SplitCriterion criterion,
+            double[] preSplitDist, boolean binaryOnly, boolean parallel) {
+        AttributeSplitSuggestion[] bestSuggestions = new AttributeSplitSuggestion[observers.size()];
+        if (parallel) {
+            IntStream.range(0, bestSuggestions.length).parallel().forEach(i ->
+                    bestSuggestions[i] = getBestSplitSuggestion(observers.get(i),
+                            criterion, preSplitDist, i, binaryOnly));
+        } else {
+            for (int i = 0; i < bestSuggestions.length; i++) {
+                bestSuggestions[i] = getBestSplitSuggestion(observers.get(i),
+                        criterion, preSplitDist, i, binaryOnly);
+            }
+        }
+        return bestSuggestions;
+    }
+
+    protected static AttributeSplitSuggestion getBestSplitSuggestion(AttributeClassObserver obs,
+            SplitCriterion criterion, double[] preSplitDist, int attIndex, boolean binaryOnly) {
+        return obs == null ? null
+                : obs.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, attIndex, binaryOnly);
+    }
+}
@@ -21,6 +21,7 @@ package moa.classifiers.core.attributeclassobservers;
 
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.FastCopyable;
 import moa.options.OptionHandler;
 
 /**
@@ -31,7 +32,7 @@ import moa.options.OptionHandler;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $ 
  */
-public interface AttributeClassObserver extends OptionHandler {
+public interface AttributeClassObserver extends OptionHandler, FastCopyable {
 
     /**
      * Updates statistics of this observer given an attribute value, a class
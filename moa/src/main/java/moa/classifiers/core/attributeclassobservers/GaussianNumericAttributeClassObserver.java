@@ -32,6 +32,8 @@ import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
 import moa.core.GaussianEstimator;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 import moa.options.AbstractOptionHandler;
 import com.github.javacliparser.IntOption;
 
@@ -44,7 +46,7 @@ import com.github.javacliparser.IntOption;
  * @version $Revision: 7 $
  */
 public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
-        implements NumericAttributeClassObserver {
+        implements NumericAttributeClassObserver, MemoryAccountable {
 
     private static final long serialVersionUID = 1L;
 
@@ -159,6 +161,20 @@ public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
         return new double[][]{lhsDist.getArrayRef(), rhsDist.getArrayRef()};
     }
 
+    @Override
+    public long estimateByteSize() {
+        long size = MemoryEstimates.object(5, 0)
+                + this.minValueObservedPerClass.estimateByteSize()
+                + this.maxValueObservedPerClass.estimateByteSize()
+                + MemoryEstimates.list(this.attValDistPerClass);
+        for (GaussianEstimator estimator : this.attValDistPerClass) {
+            if (estimator != null) {
+                size += estimator.estimateByteSize();
+            }
+        }
+        return size;
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -29,6 +29,8 @@ import moa.core.Utils;
 
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 import moa.options.AbstractOptionHandler;
 
 /**
@@ -40,7 +42,7 @@ import moa.options.AbstractOptionHandler;
  * @version $Revision: 7 $
  */
 public class NominalAttributeClassObserver extends AbstractOptionHandler implements
-        DiscreteAttributeClassObserver {
+        DiscreteAttributeClassObserver, MemoryAccountable {
 
     private static final long serialVersionUID = 1L;
 
@@ -160,6 +162,18 @@ public class NominalAttributeClassObserver extends AbstractOptionHandler impleme
                     notEqualDist.getArrayRef()};
     }
 
+    @Override
+    public long estimateByteSize() {
+        long size = MemoryEstimates.object(2, 16)
+                + MemoryEstimates.list(this.attValDistPerClass);
+        for (DoubleVector valDist : this.attValDistPerClass) {
+            if (valDist != null) {
+                size += valDist.estimateByteSize();
+            }
+        }
+        return size;
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -21,6 +21,8 @@ package moa.classifiers.core.attributeclassobservers;
 
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 import moa.core.ObjectRepository;
 import moa.options.AbstractOptionHandler;
 import moa.tasks.TaskMonitor;
@@ -34,7 +36,7 @@ import moa.tasks.TaskMonitor;
  * @version $Revision: 7 $
  */
 public class NullAttributeClassObserver extends AbstractOptionHandler implements
-        AttributeClassObserver {
+        AttributeClassObserver, MemoryAccountable {
 
     private static final long serialVersionUID = 1L;
 
@@ -56,6 +58,11 @@ public class NullAttributeClassObserver extends AbstractOptionHandler implements
         return 0.0;
     }
 
+    @Override
+    public long estimateByteSize() {
+        return MemoryEstimates.object(1, 0);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -0,0 +1,277 @@
+/*
+ *    PackedGaussianNumericAttributeClassObserver.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import java.util.Arrays;
+
+import com.github.javacliparser.IntOption;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.GaussianEstimator;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
+import moa.core.ObjectRepository;
+import moa.core.Statistics;
+import moa.core.Utils;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Gaussian observer for a numeric attribute that keeps the statistics of all
+ * classes in a single array, instead of an estimator and two vectors of
+ * bounds. It behaves the same as {@link GaussianNumericAttributeClassObserver}:
+ * densities, split points and the resulting class distributions are computed
+ * the same way, with far fewer objects per leaf.
+ *
+ * @version $Revision: 7 $
+ */
+public class PackedGaussianNumericAttributeClassObserver extends AbstractOptionHandler
+        implements NumericAttributeClassObserver, MemoryAccountable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int WEIGHT = 0;
+
+    protected static final int MEAN = 1;
+
+    protected static final int VARIANCE_SUM = 2;
+
+    protected static final int MIN = 3;
+
+    protected static final int MAX = 4;
+
+    /** The number of statistics stored per class */
+    protected static final int STRIDE = 5;
+
+    /** The statistics of each class, the bounds are NaN for unseen classes */
+    protected double[] stats = new double[0];
+
+    public IntOption numBinsOption = new IntOption("numBins", 'n',
+            "The number of bins.", 10, 1, Integer.MAX_VALUE);
+
+    protected boolean isObserved(int classVal) {
+        return classVal * STRIDE < this.stats.length
+                && !Double.isNaN(this.stats[classVal * STRIDE + MIN]);
+    }
+
+    protected int numClasses() {
+        return this.stats.length / STRIDE;
+    }
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal)) {
+            return;
+        }
+        int base = classVal * STRIDE;
+        if (base >= this.stats.length) {
+            int oldLength = this.stats.length;
+            this.stats = Arrays.copyOf(this.stats, base + STRIDE);
+            for (int i = oldLength; i < this.stats.length; i += STRIDE) {
+                this.stats[i + MIN] = Double.NaN;
+                this.stats[i + MAX] = Double.NaN;
+            }
+        }
+        double[] s = this.stats;
+        if (Double.isNaN(s[base + MIN])) {
+            s[base + MIN] = attVal;
+            s[base + MAX] = attVal;
+        } else {
+            if (attVal < s[base + MIN]) {
+                s[base + MIN] = attVal;
+            }
+            if (attVal > s[base + MAX]) {
+                s[base + MAX] = attVal;
+            }
+        }
+        // same as GaussianEstimator.addObservation
+        if (Double.isInfinite(attVal)) {
+            return;
+        }
+        if (s[base + WEIGHT] > 0.0) {
+            s[base + WEIGHT] += weight;
+            double lastMean = s[base + MEAN];
+            s[base + MEAN] += weight * (attVal - lastMean) / s[base + WEIGHT];
+            s[base + VARIANCE_SUM] += weight * (attVal - lastMean) * (attVal - s[base + MEAN]);
+        } else {
+            s[base + MEAN] = attVal;
+            s[base + WEIGHT] = weight;
+        }
+    }
+
+    protected double stdDev(int base) {
+        double weightSum = this.stats[base + WEIGHT];
+        return Math.sqrt(weightSum > 1.0 ? this.stats[base + VARIANCE_SUM] / (weightSum - 1.0) : 0.0);
+    }
+
+    protected double probabilityDensity(int base, double value) {
+        if (this.stats[base + WEIGHT] > 0.0) {
+            double stdDev = stdDev(base);
+            double mean = this.stats[base + MEAN];
+            if (stdDev > 0.0) {
+                double diff = value - mean;
+                return (1.0 / (GaussianEstimator.NORMAL_CONSTANT * stdDev))
+                        * Math.exp(-(diff * diff / (2.0 * stdDev * stdDev)));
+            }
+            return value == mean ? 1.0 : 0.0;
+        }
+        return 0.0;
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        return isObserved(classVal) ? probabilityDensity(classVal * STRIDE, attVal) : 0.0;
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        double[] suggestedSplitValues = getSplitPointSuggestions();
+        int numSplits = suggestedSplitValues.length;
+        if (numSplits == 0) {
+            return null;
+        }
+        // score all the split points in one call
+        int numClasses = numClasses();
+        double[] lhsDists = new double[numSplits * numClasses];
+        double[] rhsDists = new double[numSplits * numClasses];
+        for (int i = 0; i < numSplits; i++) {
+            addClassDistsResultingFromBinarySplit(suggestedSplitValues[i],
+                    lhsDists, rhsDists, i * numClasses);
+        }
+        double[] merits = new double[numSplits];
+        criterion.getMeritsOfBinarySplits(preSplitDist, lhsDists, rhsDists,
+                numClasses, numSplits, merits);
+        int best = 0;
+        for (int i = 1; i < numSplits; i++) {
+            if (merits[i] > merits[best]) {
+                best = i;
+            }
+        }
+        return new AttributeSplitSuggestion(
+                new NumericAttributeBinaryTest(attIndex, suggestedSplitValues[best], true),
+                getClassDistsResultingFromBinarySplit(suggestedSplitValues[best]), merits[best]);
+    }
+
+    public double[] getSplitPointSuggestions() {
+        double minValue = Double.POSITIVE_INFINITY;
+        double maxValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numClasses(); i++) {
+            if (isObserved(i)) {
+                minValue = Math.min(minValue, this.stats[i * STRIDE + MIN]);
+                maxValue = Math.max(maxValue, this.stats[i * STRIDE + MAX]);
+            }
+        }
+        if (!(minValue < Double.POSITIVE_INFINITY)) {
+            return new double[0];
+        }
+        int numBins = this.numBinsOption.getValue();
+        double range = maxValue - minValue;
+        double[] suggestions = new double[numBins];
+        int numSuggestions = 0;
+        // the values increase with i, so duplicates are adjacent
+        for (int i = 0; i < numBins; i++) {
+            double splitValue = range / (numBins + 1.0) * (i + 1) + minValue;
+            if ((splitValue > minValue) && (splitValue < maxValue)
+                    && (numSuggestions == 0 || splitValue != suggestions[numSuggestions - 1])) {
+                suggestions[numSuggestions++] = splitValue;
+            }
+        }
+        return Arrays.copyOf(suggestions, numSuggestions);
+    }
+
+    // assume all values equal to splitValue go to lhs
+    public double[][] getClassDistsResultingFromBinarySplit(double splitValue) {
+        int numClasses = numClasses();
+        double[] lhsDist = new double[numClasses];
+        double[] rhsDist = new double[numClasses];
+        addClassDistsResultingFromBinarySplit(splitValue, lhsDist, rhsDist, 0);
+        // as DoubleVector, end each side at the last class added to it
+        int lhsLength = 0;
+        int rhsLength = 0;
+        for (int i = 0; i < numClasses; i++) {
+            if (isObserved(i)) {
+                if (splitValue >= this.stats[i * STRIDE + MIN]) {
+                    lhsLength = i + 1;
+                }
+                if (splitValue < this.stats[i * STRIDE + MAX]) {
+                    rhsLength = i + 1;
+                }
+            }
+        }
+        return new double[][]{Arrays.copyOf(lhsDist, lhsLength),
+                    Arrays.copyOf(rhsDist, rhsLength)};
+    }
+
+    /**
+     * Adds the class distributions resulting from a binary split to two
+     * arrays, starting at the given offset.
+     */
+    protected void addClassDistsResultingFromBinarySplit(double splitValue,
+            double[] lhsDists, double[] rhsDists, int offset) {
+        for (int i = 0; i < numClasses(); i++) {
+            if (!isObserved(i)) {
+                continue;
+            }
+            int base = i * STRIDE;
+            double weightSum = this.stats[base + WEIGHT];
+            if (splitValue < this.stats[base + MIN]) {
+                rhsDists[offset + i] += weightSum;
+            } else if (splitValue >= this.stats[base + MAX]) {
+                lhsDists[offset + i] += weightSum;
+            } else {
+                // same as GaussianEstimator.estimatedWeight_LessThan_EqualTo_GreaterThan_Value
+                double mean = this.stats[base + MEAN];
+                double equalToWeight = probabilityDensity(base, splitValue) * weightSum;
+                double stdDev = stdDev(base);
+                double lessThanWeight = stdDev > 0.0
+                        ? Statistics.normalProbability((splitValue - mean) / stdDev) * weightSum - equalToWeight
+                        : (splitValue < mean ? weightSum - equalToWeight : 0.0);
+                double greaterThanWeight = weightSum - equalToWeight - lessThanWeight;
+                if (greaterThanWeight < 0.0) {
+                    greaterThanWeight = 0.0;
+                }
+                lhsDists[offset + i] += lessThanWeight + equalToWeight;
+                rhsDists[offset + i] += greaterThanWeight;
+            }
+        }
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return MemoryEstimates.object(3, 0) + MemoryEstimates.doubleArray(this.stats.length);
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+    }
+
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ *    SortedNumericAttributeClassObserver.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import java.util.Arrays;
+
+import com.github.javacliparser.IntOption;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Class for observing the class data distribution for a numeric attribute
+ * using sorted arrays of the distinct values seen and of their class counts.
+ * Every distinct value is a candidate split point, as in
+ * {@link BinaryTreeNumericAttributeClassObserver}, but the values are kept
+ * ordered regardless of the order in which they arrive, and the search for
+ * the best split is a single pass over the arrays.
+ *
+ * <p>The number of distinct values can be bounded. Once the bound is
+ * reached, runs of adjacent values are merged into the largest of each run,
+ * so that the distributions resulting from the remaining split points stay
+ * exact.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class SortedNumericAttributeClassObserver extends AbstractOptionHandler
+        implements NumericAttributeClassObserver, MemoryAccountable {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption maxValuesOption = new IntOption("maxValues", 'm',
+            "The maximum number of distinct values kept as split points, 0 for no limit.",
+            1000, 0, Integer.MAX_VALUE);
+
+    /** The distinct values observed, in ascending order */
+    protected double[] values = new double[0];
+
+    /** The statistics of each value, stride entries per value */
+    protected double[] counts = new double[0];
+
+    protected int stride;
+
+    protected int numValues;
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Double.isNaN(attVal)) {
+            return;
+        }
+        if (classVal >= this.stride) {
+            setStride(classVal + 1);
+        }
+        int base = insertValue(attVal) * this.stride;
+        this.counts[base + classVal] += weight;
+    }
+
+    /**
+     * Changes the number of statistics kept per value, e.g. when a new class
+     * is seen.
+     */
+    protected void setStride(int newStride) {
+        double[] newCounts = new double[this.values.length * newStride];
+        for (int i = 0; i < this.numValues; i++) {
+            System.arraycopy(this.counts, i * this.stride, newCounts, i * newStride, this.stride);
+        }
+        this.counts = newCounts;
+        this.stride = newStride;
+    }
+
+    /**
+     * Finds the position of a value, inserting it if it has not been seen
+     * before. If the maximum number of values is reached, the values are
+     * compressed first.
+     *
+     * @return the position of the statistics of the value
+     */
+    protected int insertValue(double val) {
+        int low = 0;
+        int high = this.numValues - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (this.values[mid] < val) {
+                low = mid + 1;
+            } else if (this.values[mid] > val) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        // compressing to half of fewer than three values may not remove any
+        int maxValues = this.maxValuesOption.getValue() > 0
+                ? Math.max(3, this.maxValuesOption.getValue()) : 0;
+        if (maxValues > 0 && this.numValues >= maxValues) {
+            compressValues(maxValues / 2);
+            return insertValue(val);
+        }
+        if (this.numValues == this.values.length) {
+            int capacity = Math.max(8, this.values.length * 2);
+            if (maxValues > 0) {
+                capacity = Math.min(capacity, maxValues);
+            }
+            this.values = Arrays.copyOf(this.values, capacity);
+            this.counts = Arrays.copyOf(this.counts, capacity * this.stride);
+        }
+        System.arraycopy(this.values, low, this.values, low + 1, this.numValues - low);
+        System.arraycopy(this.counts, low * this.stride, this.counts, (low + 1) * this.stride,
+                (this.numValues - low) * this.stride);
+        this.values[low] = val;
+        Arrays.fill(this.counts, low * this.stride, (low + 1) * this.stride, 0.0);
+        this.numValues++;
+        return low;
+    }
+
+    /**
+     * Merges runs of adjacent values into the largest value of each run, so
+     * that at most the given number of values remain, of roughly equal
+     * weight. Merging a value into a larger one keeps the distributions
+     * resulting from the larger one exact, only the smaller split point is
+     * lost. Compressing to half the bound keeps the cost per insertion
+     * constant.
+     */
+    protected void compressValues(int maxRemaining) {
+        double totalWeight = 0.0;
+        for (int i = 0; i < this.numValues; i++) {
+            totalWeight += getValueWeight(i);
+        }
+        // any two consecutive runs weigh more than the target
+        double targetWeight = 2.0 * totalWeight / Math.max(1, maxRemaining);
+        int numRuns = 0;
+        double runWeight = 0.0;
+        for (int i = 0; i < this.numValues; i++) {
+            double weight = getValueWeight(i);
+            if (numRuns > 0 && runWeight + weight <= targetWeight) {
+                int to = (numRuns - 1) * this.stride;
+                for (int j = 0; j < this.stride; j++) {
+                    this.counts[to + j] += this.counts[i * this.stride + j];
+                }
+                this.values[numRuns - 1] = this.values[i];
+                runWeight += weight;
+            } else {
+                this.values[numRuns] = this.values[i];
+                System.arraycopy(this.counts, i * this.stride, this.counts, numRuns * this.stride, this.stride);
+                numRuns++;
+                runWeight = weight;
+            }
+        }
+        this.numValues = numRuns;
+    }
+
+    /**
+     * Gets the total weight observed for the value at a position.
+     */
+    protected double getValueWeight(int index) {
+        double weight = 0.0;
+        for (int j = 0; j < this.stride; j++) {
+            weight += this.counts[index * this.stride + j];
+        }
+        return weight;
+    }
+
+    public int getNumValues() {
+        return this.numValues;
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        // as BinaryTreeNumericAttributeClassObserver, no density is estimated
+        return 0.0;
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        if (this.numValues == 0) {
+            return null;
+        }
+        double[] total = new double[this.stride];
+        for (int i = 0; i < this.numValues; i++) {
+            for (int j = 0; j < this.stride; j++) {
+                total[j] += this.counts[i * this.stride + j];
+            }
+        }
+        // score all the split points in one call
+        double[] lhsDists = new double[this.numValues * this.stride];
+        double[] rhsDists = new double[this.numValues * this.stride];
+        double[] lhsDist = new double[this.stride];
+        for (int i = 0; i < this.numValues; i++) {
+            for (int j = 0; j < this.stride; j++) {
+                lhsDist[j] += this.counts[i * this.stride + j];
+                lhsDists[i * this.stride + j] = lhsDist[j];
+                rhsDists[i * this.stride + j] = total[j] - lhsDist[j];
+            }
+        }
+        double[] merits = new double[this.numValues];
+        criterion.getMeritsOfBinarySplits(preSplitDist, lhsDists, rhsDists,
+                this.stride, this.numValues, merits);
+        int best = 0;
+        for (int i = 1; i < this.numValues; i++) {
+            if (merits[i] > merits[best]) {
+                best = i;
+            }
+        }
+        int from = best * this.stride;
+        return new AttributeSplitSuggestion(
+                new NumericAttributeBinaryTest(attIndex, this.values[best], true),
+                new double[][]{Arrays.copyOfRange(lhsDists, from, from + this.stride),
+                    Arrays.copyOfRange(rhsDists, from, from + this.stride)}, merits[best]);
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return MemoryEstimates.object(3, 8) + MemoryEstimates.doubleArray(this.values.length)
+                + MemoryEstimates.doubleArray(this.counts.length);
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+    }
+
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *    SortedNumericAttributeClassObserverRegression.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+
+/**
+ * Class for observing the target distribution for a numeric attribute using
+ * sorted arrays, the regression counterpart of
+ * {@link SortedNumericAttributeClassObserver}. For every distinct value it
+ * keeps the number of instances and the sum and sum of squares of their
+ * targets, in the order used by
+ * {@link moa.classifiers.core.splitcriteria.VarianceReductionSplitCriterion}.
+ *
+ * @version $Revision: 7 $
+ */
+public class SortedNumericAttributeClassObserverRegression extends SortedNumericAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    public SortedNumericAttributeClassObserverRegression() {
+        this.stride = 3;
+    }
+
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        if (Double.isNaN(attVal)) {
+            return;
+        }
+        int base = insertValue(attVal) * this.stride;
+        this.counts[base] += 1.0;
+        this.counts[base + 1] += target;
+        this.counts[base + 2] += target * target;
+    }
+
+    @Override
+    protected double getValueWeight(int index) {
+        return this.counts[index * this.stride];
+    }
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        double[] total = new double[3];
+        for (int i = 0; i < this.numValues; i++) {
+            for (int j = 0; j < 3; j++) {
+                total[j] += this.counts[i * 3 + j];
+            }
+        }
+        double[] lhsDist = new double[3];
+        double[] rhsDist = new double[3];
+        double[][] postSplitDists = new double[][]{lhsDist, rhsDist};
+        AttributeSplitSuggestion bestSuggestion = null;
+        // the largest value leaves nothing on the right
+        for (int i = 0; i < this.numValues - 1; i++) {
+            for (int j = 0; j < 3; j++) {
+                lhsDist[j] += this.counts[i * 3 + j];
+                rhsDist[j] = total[j] - lhsDist[j];
+            }
+            double merit = criterion.getMeritOfSplit(total, postSplitDists);
+            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NumericAttributeBinaryTest(attIndex, this.values[i], true),
+                        new double[][]{lhsDist.clone(), rhsDist.clone()}, merit);
+            }
+        }
+        return bestSuggestion;
+    }
+}
@@ -21,6 +21,8 @@ package moa.classifiers.core.conditionaltests;
 
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import com.yahoo.labs.samoa.instances.Instance;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 
 /**
  * Nominal binary conditional test for instances to use to split nodes in Hoeffding trees.
@@ -28,7 +30,7 @@ import com.yahoo.labs.samoa.instances.Instance;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class NominalAttributeBinaryTest extends InstanceConditionalBinaryTest {
+public class NominalAttributeBinaryTest extends InstanceConditionalBinaryTest implements MemoryAccountable {
 
     private static final long serialVersionUID = 1L;
 
@@ -60,6 +62,11 @@ public class NominalAttributeBinaryTest extends InstanceConditionalBinaryTest {
         throw new IndexOutOfBoundsException();
     }
 
+    @Override
+    public long estimateByteSize() {
+        return MemoryEstimates.object(0, 8);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -69,4 +76,8 @@ public class NominalAttributeBinaryTest extends InstanceConditionalBinaryTest {
     public int[] getAttsTestDependsOn() {
         return new int[]{this.attIndex};
     }
+
+    public int getValue() {
+        return this.attValue;
+    }
 }
@@ -21,6 +21,8 @@ package moa.classifiers.core.conditionaltests;
 
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import com.yahoo.labs.samoa.instances.Instance;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 
 /**
  * Nominal multi way conditional test for instances to use to split nodes in Hoeffding trees.
@@ -28,7 +30,7 @@ import com.yahoo.labs.samoa.instances.Instance;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class NominalAttributeMultiwayTest extends InstanceConditionalTest {
+public class NominalAttributeMultiwayTest extends InstanceConditionalTest implements MemoryAccountable {
 
     private static final long serialVersionUID = 1L;
 
@@ -58,6 +60,11 @@ public class NominalAttributeMultiwayTest extends InstanceConditionalTest {
         return -1;
     }
 
+    @Override
+    public long estimateByteSize() {
+        return MemoryEstimates.object(0, 4);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
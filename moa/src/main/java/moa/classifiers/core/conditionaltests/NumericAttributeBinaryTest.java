@@ -21,6 +21,8 @@ package moa.classifiers.core.conditionaltests;
 
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import com.yahoo.labs.samoa.instances.Instance;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 
 /**
  * Numeric binary conditional test for instances to use to split nodes in Hoeffding trees.
@@ -28,7 +30,7 @@ import com.yahoo.labs.samoa.instances.Instance;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class NumericAttributeBinaryTest extends InstanceConditionalBinaryTest {
+public class NumericAttributeBinaryTest extends InstanceConditionalBinaryTest implements MemoryAccountable {
 
     private static final long serialVersionUID = 1L;
 
@@ -75,6 +77,11 @@ public class NumericAttributeBinaryTest extends InstanceConditionalBinaryTest {
         throw new IndexOutOfBoundsException();
     }
 
+    @Override
+    public long estimateByteSize() {
+        return MemoryEstimates.object(0, 13);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -88,4 +95,8 @@ public class NumericAttributeBinaryTest extends InstanceConditionalBinaryTest {
     public double getSplitValue() {
         return this.attValue;
     }
+
+    public boolean isEqualsPassesTest() {
+        return this.equalsPassesTest;
+    }
 }
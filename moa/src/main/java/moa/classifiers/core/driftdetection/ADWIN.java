@@ -19,7 +19,12 @@
  */
 package moa.classifiers.core.driftdetection;
 
+import java.util.Arrays;
+
 import moa.AbstractMOAObject;
+import moa.core.FastCopyable;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 
 /**
  * ADaptive sliding WINdow method. This method is a change detector and estimator.
@@ -28,258 +33,15 @@ import moa.AbstractMOAObject;
  * consistent with the hypothesis "there has been no change in the average value
  * inside the window".
  *
+ * <p>The buckets are stored in rows of at most MAXBUCKETS + 1 buckets, the
+ * buckets of row i summarizing 2^i items each. The totals and variances of
+ * all the rows are kept in two arrays, row after row, so that adding items
+ * allocates nothing once the window has stopped growing.</p>
  *
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
  */
-public class ADWIN extends AbstractMOAObject {
-
-    private class List extends AbstractMOAObject {
-
-        protected int count;
-
-        protected ListItem head;
-
-        protected ListItem tail;
-
-        public List() {
-//			post: initializes the list to be empty.
-            clear();
-            addToHead();
-        }
-
-        /* Interface Store Methods */
-        public int size() {
-            //	post: returns the number of elements in the list.
-            return this.count;
-        }
-
-        public ListItem head() {
-            //	post: returns the number of elements in the list.
-            return this.head;
-        }
-
-        public ListItem tail() {
-            //	post: returns the number of elements in the list.
-            return this.tail;
-        }
-
-        public boolean isEmpty() {
-            //	 post: returns the true iff store is empty.
-            return (this.size() == 0);
-        }
-
-        public void clear() {
-            //	 post: clears the list so that it contains no elements.
-            this.head = null;
-            this.tail = null;
-            this.count = 0;
-        }
-
-        /* Interface List Methods */
-        public void addToHead() {
-            //	 pre: anObject is non-null
-            //	 post: the object is added to the beginning of the list
-            this.head = new ListItem(this.head, null);
-            if (this.tail == null) {
-                this.tail = this.head;
-            }
-            this.count++;
-        }
-
-        public void removeFromHead() {
-            //		 pre: list is not empty
-            //		 post: removes and returns first object from the list
-//			ListItem temp;
-//			temp = this.head;
-            this.head = this.head.next();
-            if (this.head != null) {
-                this.head.setPrevious(null);
-            } else {
-                this.tail = null;
-            }
-            this.count--;
-            //temp=null;
-            return;
-        }
-
-        public void addToTail() {
-//			pre: anObject is non-null
-//			post: the object is added at the end of the list
-            this.tail = new ListItem(null, this.tail);
-            if (this.head == null) {
-                this.head = this.tail;
-            }
-            this.count++;
-        }
-
-        public void removeFromTail() {
-//			pre: list is not empty
-//			post: the last object in the list is removed and returned
-//			ListItem temp;
-//			temp = this.tail;
-            this.tail = this.tail.previous();
-            if (this.tail == null) {
-                this.head = null;
-            } else {
-                this.tail.setNext(null);
-            }
-            this.count--;
-            //temp=null;
-            return;
-        }
-
-        @Override
-        public void getDescription(StringBuilder sb, int indent) {
-        }
-    }
-
-    private class ListItem extends AbstractMOAObject {
-//		protected Object data;
-
-        protected ListItem next;
-
-        protected ListItem previous;
-
-        protected int bucketSizeRow = 0;
-
-        protected int MAXBUCKETS = ADWIN.MAXBUCKETS;
-
-        protected double bucketTotal[] = new double[MAXBUCKETS + 1];
-
-        protected double bucketVariance[] = new double[MAXBUCKETS + 1];
-
-        public ListItem() {
-//			post: initializes the node to be a tail node
-//			containing the given value.
-            this(null, null);
-        }
-
-        public void clear() {
-            bucketSizeRow = 0;
-            for (int k = 0; k <= MAXBUCKETS; k++) {
-                clearBucket(k);
-            }
-        }
-
-        private void clearBucket(int k) {
-            setTotal(0, k);
-            setVariance(0, k);
-        }
-
-        public ListItem(ListItem nextNode, ListItem previousNode) {
-//			post: initializes the node to contain the given
-//			object and link to the given next node.
-            //this.data = element;
-            this.next = nextNode;
-            this.previous = previousNode;
-            if (nextNode != null) {
-                nextNode.previous = this;
-            }
-            if (previousNode != null) {
-                previousNode.next = this;
-            }
-            clear();
-        }
-
-        public void insertBucket(double Value, double Variance) {
-//			insert a Bucket at the end
-            int k = bucketSizeRow;
-            bucketSizeRow++;
-            //Insert new bucket
-            setTotal(Value, k);
-            setVariance(Variance, k);
-        }
-
-        public void RemoveBucket() {
-//			Removes the first Buvket
-            compressBucketsRow(1);
-        }
-
-        public void compressBucketsRow(int NumberItemsDeleted) {
-            //Delete first elements
-            for (int k = NumberItemsDeleted; k <= MAXBUCKETS; k++) {
-                bucketTotal[k - NumberItemsDeleted] = bucketTotal[k];
-                bucketVariance[k - NumberItemsDeleted] = bucketVariance[k];
-            }
-            for (int k = 1; k <= NumberItemsDeleted; k++) {
-                clearBucket(MAXBUCKETS - k + 1);
-            }
-            bucketSizeRow -= NumberItemsDeleted;
-            //BucketNumber-=NumberItemsDeleted;
-        }
-
-        public ListItem previous() {
-//			post: returns the previous node.
-            return this.previous;
-        }
-
-        public void setPrevious(ListItem previous) {
-//			post: sets the previous node to be the given node
-            this.previous = previous;
-        }
-
-        public ListItem next() {
-//			post: returns the next node.
-            return this.next;
-        }
-
-        public void setNext(ListItem next) {
-//			post: sets the next node to be the given node
-            this.next = next;
-        }
-
-        public double Total(int k) {
-//			post: returns the element in this node
-            return bucketTotal[k];
-        }
-
-        public double Variance(int k) {
-//			post: returns the element in this node
-            return bucketVariance[k];
-        }
-
-        public void setTotal(double value, int k) {
-//			post: sets the element in this node to the given
-//			object.
-            bucketTotal[k] = value;
-        }
-
-        public void setVariance(double value, int k) {
-//			post: sets the element in this node to the given
-//			object.
-            bucketVariance[k] = value;
-        }
-        /*
-        public ListItem(Object element,
-        ListItem nextNode){
-        //		post: initializes the node to contain the given
-        //		 object and link to the given next node.
-        this.data = element;
-        this.next = nextNode;
-        }
-        public ListItem(Object element) {
-        //		post: initializes the node to be a tail node
-        //		 containing the given value.
-        this(element, null);
-        }
-
-
-        public Object value() {
-        //			 post: returns the element in this node
-        return this.data;
-        }
-        public void setValue(Object anObject) {
-        //			 post: sets the element in this node to the given
-        //			 object.
-        this.data = anObject;
-        }
-         */
-
-        @Override
-        public void getDescription(StringBuilder sb, int indent) {
-        }
-    }
+public class ADWIN extends AbstractMOAObject implements FastCopyable, MemoryAccountable {
 
     public static final double DELTA = .002; //.1;
 
@@ -318,7 +80,14 @@ public class ADWIN extends AbstractMOAObject {
 
     private int mintMinWinLength = 5;
 
-    private List listRowBuckets;
+    /** The number of buckets of each row, row 0 holding the newest items */
+    private int[] bucketSizeRow;
+
+    /** The totals of the buckets, MAXBUCKETS + 1 per row, oldest first */
+    private double[] bucketTotal;
+
+    /** The variances of the buckets, laid out as the totals */
+    private double[] bucketVariance;
 
     public boolean getChange() {
         return blnBucketDeleted;
@@ -374,7 +143,9 @@ public class ADWIN extends AbstractMOAObject {
 
     private void initBuckets() {
         //Init buckets
-        listRowBuckets = new List();
+        bucketSizeRow = new int[8];
+        bucketTotal = new double[bucketSizeRow.length * (MAXBUCKETS + 1)];
+        bucketVariance = new double[bucketTotal.length];
         lastBucketRow = 0;
         TOTAL = 0;
         VARIANCE = 0;
@@ -384,7 +155,7 @@ public class ADWIN extends AbstractMOAObject {
 
     private void insertElement(double Value) {
         WIDTH++;
-        insertElementBucket(0, Value, listRowBuckets.head());
+        insertElementBucket(0, Value, 0);
         double incVariance = 0;
         if (WIDTH > 1) {
             incVariance = (WIDTH - 1) * (Value - TOTAL / (WIDTH - 1)) * (Value - TOTAL / (WIDTH - 1)) / WIDTH;
@@ -394,9 +165,9 @@ public class ADWIN extends AbstractMOAObject {
         compressBuckets();
     }
 
-    private void insertElementBucket(double Variance, double Value, ListItem Node) {
+    private void insertElementBucket(double Variance, double Value, int Row) {
         //Insert new bucket
-        Node.insertBucket(Value, Variance);
+        insertBucket(Row, Value, Variance);
         BucketNumber++;
         if (BucketNumber > BucketNumberMAX) {
             BucketNumberMAX = BucketNumber;
@@ -407,23 +178,56 @@ public class ADWIN extends AbstractMOAObject {
         return (int) Math.pow(2, Row);
     }
 
+    private double total(int Row, int k) {
+        return bucketTotal[Row * (MAXBUCKETS + 1) + k];
+    }
+
+    private double variance(int Row, int k) {
+        return bucketVariance[Row * (MAXBUCKETS + 1) + k];
+    }
+
+    private void insertBucket(int Row, double Value, double Variance) {
+        //insert a bucket at the end of the row
+        int index = Row * (MAXBUCKETS + 1) + bucketSizeRow[Row];
+        bucketSizeRow[Row]++;
+        bucketTotal[index] = Value;
+        bucketVariance[index] = Variance;
+    }
+
+    private void compressBucketsRow(int Row, int NumberItemsDeleted) {
+        //Delete first elements
+        int start = Row * (MAXBUCKETS + 1);
+        int length = MAXBUCKETS + 1 - NumberItemsDeleted;
+        System.arraycopy(bucketTotal, start + NumberItemsDeleted, bucketTotal, start, length);
+        System.arraycopy(bucketVariance, start + NumberItemsDeleted, bucketVariance, start, length);
+        Arrays.fill(bucketTotal, start + length, start + MAXBUCKETS + 1, 0.0);
+        Arrays.fill(bucketVariance, start + length, start + MAXBUCKETS + 1, 0.0);
+        bucketSizeRow[Row] -= NumberItemsDeleted;
+    }
+
+    private void addRow() {
+        lastBucketRow++;
+        if (lastBucketRow == bucketSizeRow.length) {
+            bucketSizeRow = Arrays.copyOf(bucketSizeRow, 2 * bucketSizeRow.length);
+            bucketTotal = Arrays.copyOf(bucketTotal, bucketSizeRow.length * (MAXBUCKETS + 1));
+            bucketVariance = Arrays.copyOf(bucketVariance, bucketTotal.length);
+        }
+    }
+
     public int deleteElement() {
-        //LIST
         //Update statistics
-        ListItem Node;
-        Node = listRowBuckets.tail();
-        int n1 = bucketSize(lastBucketRow);
+        int Row = lastBucketRow;
+        int n1 = bucketSize(Row);
         WIDTH -= n1;
-        TOTAL -= Node.Total(0);
-        double u1 = Node.Total(0) / n1;
-        double incVariance = Node.Variance(0) + n1 * WIDTH * (u1 - TOTAL / WIDTH) * (u1 - TOTAL / WIDTH) / (n1 + WIDTH);
+        TOTAL -= total(Row, 0);
+        double u1 = total(Row, 0) / n1;
+        double incVariance = variance(Row, 0) + n1 * WIDTH * (u1 - TOTAL / WIDTH) * (u1 - TOTAL / WIDTH) / (n1 + WIDTH);
         VARIANCE -= incVariance;
 
         //Delete Bucket
-        Node.RemoveBucket();
+        compressBucketsRow(Row, 1);
         BucketNumber--;
-        if (Node.bucketSizeRow == 0) {
-            listRowBuckets.removeFromTail();
+        if (bucketSizeRow[Row] == 0) {
             lastBucketRow--;
         }
         return n1;
@@ -433,49 +237,55 @@ public class ADWIN extends AbstractMOAObject {
         //Traverse the list of buckets in increasing order
         int n1, n2;
         double u2, u1, incVariance;
-        ListItem cursor;
-        ListItem nextNode;
-        cursor = listRowBuckets.head();
         int i = 0;
         do {
             //Find the number of buckets in a row
-            int k = cursor.bucketSizeRow;
+            int k = bucketSizeRow[i];
             //If the row is full, merge buckets
             if (k == MAXBUCKETS + 1) {
-                nextNode = cursor.next();
-                if (nextNode == null) {
-                    listRowBuckets.addToTail();
-                    nextNode = cursor.next();
-                    lastBucketRow++;
+                if (i == lastBucketRow) {
+                    addRow();
                 }
                 n1 = bucketSize(i);
                 n2 = bucketSize(i);
-                u1 = cursor.Total(0) / n1;
-                u2 = cursor.Total(1) / n2;
+                u1 = total(i, 0) / n1;
+                u2 = total(i, 1) / n2;
                 incVariance = n1 * n2 * (u1 - u2) * (u1 - u2) / (n1 + n2);
 
-                nextNode.insertBucket(cursor.Total(0) + cursor.Total(1), cursor.Variance(0) + cursor.Variance(1) + incVariance);
+                insertBucket(i + 1, total(i, 0) + total(i, 1), variance(i, 0) + variance(i, 1) + incVariance);
                 BucketNumber++;
-                cursor.compressBucketsRow(2);
-                if (nextNode.bucketSizeRow <= MAXBUCKETS) {
+                compressBucketsRow(i, 2);
+                if (bucketSizeRow[i + 1] <= MAXBUCKETS) {
                     break;
                 }
             } else {
                 break;
             }
-            cursor = cursor.next();
             i++;
-        } while (cursor != null);
+        } while (i <= lastBucketRow);
     }
 
     public boolean setInput(double intEntrada) {
         return setInput(intEntrada, mdbldelta);
     }
 
+    /**
+     * Adds several items to the window, in order.
+     *
+     * @param values the items to add
+     * @return whether a change was detected while adding any of them
+     */
+    public boolean setInput(double[] values) {
+        boolean blnChange = false;
+        for (double value : values) {
+            blnChange |= setInput(value, mdbldelta);
+        }
+        return blnChange;
+    }
+
     public boolean setInput(double intEntrada, double delta) {
         boolean blnChange = false;
         boolean blnExit = false;
-        ListItem cursor;
         mintTime++;
 
         //1,2)Increment window in one element
@@ -498,25 +308,24 @@ public class ADWIN extends AbstractMOAObject {
                 double n2 = 0;
                 double u2 = 0;
 
-                cursor = listRowBuckets.tail();
                 int i = lastBucketRow;
                 do {
-                    for (int k = 0; k <= (cursor.bucketSizeRow - 1); k++) {
+                    for (int k = 0; k <= (bucketSizeRow[i] - 1); k++) {
                         n2 = bucketSize(i);
-                        u2 = cursor.Total(k);
+                        u2 = total(i, k);
                         if (n0 > 0) {
-                            v0 += cursor.Variance(k) + (double) n0 * n2 * (u0 / n0 - u2 / n2) * (u0 / n0 - u2 / n2) / (n0 + n2);
+                            v0 += variance(i, k) + (double) n0 * n2 * (u0 / n0 - u2 / n2) * (u0 / n0 - u2 / n2) / (n0 + n2);
                         }
                         if (n1 > 0) {
-                            v1 -= cursor.Variance(k) + (double) n1 * n2 * (u1 / n1 - u2 / n2) * (u1 / n1 - u2 / n2) / (n1 + n2);
+                            v1 -= variance(i, k) + (double) n1 * n2 * (u1 / n1 - u2 / n2) * (u1 / n1 - u2 / n2) / (n1 + n2);
                         }
 
                         n0 += bucketSize(i);
                         n1 -= bucketSize(i);
-                        u0 += cursor.Total(k);
-                        u1 -= cursor.Total(k);
+                        u0 += total(i, k);
+                        u1 -= total(i, k);
 
-                        if (i == 0 && k == cursor.bucketSizeRow - 1) {
+                        if (i == 0 && k == bucketSizeRow[i] - 1) {
                             blnExit = true;
                             break;
                         }
@@ -545,9 +354,8 @@ public class ADWIN extends AbstractMOAObject {
                             }
                         } //End if
                     }//Next k
-                    cursor = cursor.previous();
                     i--;
-                } while (((!blnExit && cursor != null)));
+                } while (((!blnExit && i >= 0)));
             }//End While // Diference
         }//End if
 
@@ -602,6 +410,13 @@ public class ADWIN extends AbstractMOAObject {
     public void setW(int W0) {
     }
 
+    @Override
+    public long estimateByteSize() {
+        return MemoryEstimates.object(3, 73)
+                + MemoryEstimates.intArray(this.bucketSizeRow.length)
+                + 2 * MemoryEstimates.doubleArray(this.bucketTotal.length);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
     }
@@ -19,6 +19,8 @@
 package moa.classifiers.core.driftdetection;
 
 import com.github.javacliparser.FloatOption;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 import moa.core.ObjectRepository;
 import moa.tasks.TaskMonitor;
 
@@ -33,7 +35,7 @@ import moa.tasks.TaskMonitor;
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
  */
-public class ADWINChangeDetector extends AbstractChangeDetector {
+public class ADWINChangeDetector extends AbstractChangeDetector implements MemoryAccountable {
 
     protected ADWIN adwin;
 
@@ -63,6 +65,11 @@ public class ADWINChangeDetector extends AbstractChangeDetector {
         super.resetLearning();
     }
 
+    @Override
+    public long estimateByteSize() {
+        return MemoryEstimates.object(3, 19) + MemoryEstimates.measureByteSize(this.adwin);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -18,6 +18,7 @@
  */
 package moa.classifiers.core.driftdetection;
 
+import moa.core.FastCopyable;
 import moa.options.AbstractOptionHandler;
 
 /**
@@ -27,7 +28,7 @@ import moa.options.AbstractOptionHandler;
  * @version $Revision: 7 $
  */
 public abstract class AbstractChangeDetector extends AbstractOptionHandler
-        implements ChangeDetector {
+        implements ChangeDetector, FastCopyable {
 
 
 
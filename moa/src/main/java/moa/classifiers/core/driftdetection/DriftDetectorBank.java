@@ -0,0 +1,839 @@
+/*
+ *    DriftDetectorBank.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.driftdetection;
+
+import moa.AbstractMOAObject;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
+
+/**
+ * The change detectors of the members of an ensemble, one per member, with
+ * the state of all the members kept in arrays. Each member behaves as a copy
+ * of the change detector the bank was created from, and is updated either on
+ * its own or together with all the others from an array of inputs.
+ *
+ * <p>ADWIN, DDM, EDDM, Page-Hinkley, HDDM_A and HDDM_W have their own banks.
+ * Any other change detector is kept as one copy per member.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public abstract class DriftDetectorBank extends AbstractMOAObject implements MemoryAccountable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Whether each member detected a change on its last input */
+    protected boolean[] isChangeDetected;
+
+    /** Whether each member is in the warning zone */
+    protected boolean[] isWarningZone;
+
+    /** The estimation of each member */
+    protected double[] estimation;
+
+    protected DriftDetectorBank(int size) {
+        this.isChangeDetected = new boolean[size];
+        this.isWarningZone = new boolean[size];
+        this.estimation = new double[size];
+    }
+
+    /**
+     * Creates a bank of change detectors behaving as copies of a change
+     * detector, usually the one chosen in the class option of an ensemble.
+     *
+     * @param prototype the prepared change detector to copy
+     * @param size the number of members
+     * @return the bank
+     */
+    public static DriftDetectorBank create(ChangeDetector prototype, int size) {
+        // subclasses may change the behaviour, they are copied
+        Class<?> type = prototype.getClass();
+        if (type == ADWINChangeDetector.class) {
+            return new ADWINBank(size, ((ADWINChangeDetector) prototype).deltaAdwinOption.getValue());
+        } else if (type == DDM.class) {
+            return new DDMBank(size, (DDM) prototype);
+        } else if (type == EDDM.class) {
+            return new EDDMBank(size);
+        } else if (type == PageHinkleyDM.class) {
+            return new PageHinkleyBank(size, (PageHinkleyDM) prototype);
+        } else if (type == HDDM_A_Test.class) {
+            return new HDDMABank(size, (HDDM_A_Test) prototype);
+        } else if (type == HDDM_W_Test.class) {
+            return new HDDMWBank(size, (HDDM_W_Test) prototype);
+        }
+        return new CopiesBank(size, prototype);
+    }
+
+    public int size() {
+        return this.estimation.length;
+    }
+
+    /**
+     * Adds a value to the change detector of a member.
+     *
+     * @param member the index of the member
+     * @param inputValue the value
+     */
+    public abstract void input(int member, double inputValue);
+
+    /**
+     * Adds a value to the change detector of every member.
+     *
+     * @param inputValues the values, indexed by member
+     * @return the number of members that detected a change
+     */
+    public int input(double[] inputValues) {
+        int numChanges = 0;
+        for (int i = 0; i < inputValues.length; i++) {
+            input(i, inputValues[i]);
+            if (this.isChangeDetected[i]) {
+                numChanges++;
+            }
+        }
+        return numChanges;
+    }
+
+    /**
+     * Resets the change detector of a member, as if it was a new copy.
+     *
+     * @param member the index of the member
+     */
+    public void resetLearning(int member) {
+        this.isChangeDetected[member] = false;
+        this.isWarningZone[member] = false;
+        this.estimation[member] = 0.0;
+    }
+
+    public void resetLearning() {
+        for (int i = 0; i < size(); i++) {
+            resetLearning(i);
+        }
+    }
+
+    public boolean getChange(int member) {
+        return this.isChangeDetected[member];
+    }
+
+    public boolean getWarningZone(int member) {
+        return this.isWarningZone[member];
+    }
+
+    public double getEstimation(int member) {
+        return this.estimation[member];
+    }
+
+    protected long flagsByteSize() {
+        return 2 * MemoryEstimates.booleanArray(size()) + MemoryEstimates.doubleArray(size());
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    /**
+     * Bank of {@link ADWINChangeDetector}s. A change is only reported when
+     * the estimation increases.
+     *
+     * <p>Unlike the other banks, ADWIN stays one object per member: the bank
+     * only loops over them. The window of each member grows and shrinks on
+     * its own, so rows of all the members in shared arrays would need their
+     * own capacity management, and each ADWIN already keeps its buckets in
+     * contiguous arrays. The ensembles also expose their detectors as an
+     * ADWIN[], which {@link #getADWINs()} provides.</p>
+     */
+    public static class ADWINBank extends DriftDetectorBank {
+
+        private static final long serialVersionUID = 1L;
+
+        protected ADWIN[] adwins;
+
+        protected double delta;
+
+        public ADWINBank(int size, double delta) {
+            super(size);
+            this.adwins = new ADWIN[size];
+            this.delta = delta;
+            resetLearning();
+        }
+
+        @Override
+        public void input(int member, double inputValue) {
+            ADWIN adwin = this.adwins[member];
+            this.isChangeDetected[member] = false;
+            double ErrEstim = adwin.getEstimation();
+            if (adwin.setInput(inputValue)) {
+                if (adwin.getEstimation() > ErrEstim) {
+                    this.isChangeDetected[member] = true;
+                }
+            }
+            this.isWarningZone[member] = false;
+            this.estimation[member] = adwin.getEstimation();
+        }
+
+        @Override
+        public void resetLearning(int member) {
+            super.resetLearning(member);
+            this.adwins[member] = new ADWIN(this.delta);
+        }
+
+        /**
+         * Gets the ADWIN of each member. The array is the one used by the
+         * bank: resetting a member replaces its element, and ADWINs set in
+         * it are used by the bank from the next input of the member.
+         *
+         * @return the ADWINs, indexed by member
+         */
+        public ADWIN[] getADWINs() {
+            return this.adwins;
+        }
+
+        @Override
+        public long estimateByteSize() {
+            long size = MemoryEstimates.object(4, 8) + flagsByteSize()
+                    + MemoryEstimates.referenceArray(size());
+            for (ADWIN adwin : this.adwins) {
+                size += adwin.estimateByteSize();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Bank of {@link DDM}s.
+     */
+    public static class DDMBank extends DriftDetectorBank {
+
+        private static final long serialVersionUID = 1L;
+
+        protected boolean[] isInitialized;
+
+        protected int[] m_n;
+
+        protected double[] m_p;
+
+        protected double[] m_s;
+
+        protected double[] m_psmin;
+
+        protected double[] m_pmin;
+
+        protected double[] m_smin;
+
+        protected int minNumInstances;
+
+        protected double warningLevel;
+
+        protected double outcontrolLevel;
+
+        public DDMBank(int size, DDM prototype) {
+            super(size);
+            this.isInitialized = new boolean[size];
+            this.m_n = new int[size];
+            this.m_p = new double[size];
+            this.m_s = new double[size];
+            this.m_psmin = new double[size];
+            this.m_pmin = new double[size];
+            this.m_smin = new double[size];
+            this.minNumInstances = prototype.minNumInstancesOption.getValue();
+            this.warningLevel = prototype.warningLevelOption.getValue();
+            this.outcontrolLevel = prototype.outcontrolLevelOption.getValue();
+        }
+
+        @Override
+        public void input(int i, double prediction) {
+            if (this.isChangeDetected[i] || !this.isInitialized[i]) {
+                this.m_n[i] = 1;
+                this.m_p[i] = 1;
+                this.m_s[i] = 0;
+                this.m_psmin[i] = Double.MAX_VALUE;
+                this.m_pmin[i] = Double.MAX_VALUE;
+                this.m_smin[i] = Double.MAX_VALUE;
+                this.isInitialized[i] = true;
+            }
+            double p = this.m_p[i] + (prediction - this.m_p[i]) / (double) this.m_n[i];
+            double s = Math.sqrt(p * (1 - p) / (double) this.m_n[i]);
+            int n = ++this.m_n[i];
+            this.m_p[i] = p;
+            this.m_s[i] = s;
+
+            this.estimation[i] = p;
+            this.isChangeDetected[i] = false;
+            this.isWarningZone[i] = false;
+
+            if (n < this.minNumInstances) {
+                return;
+            }
+
+            if (p + s <= this.m_psmin[i]) {
+                this.m_pmin[i] = p;
+                this.m_smin[i] = s;
+                this.m_psmin[i] = p + s;
+            }
+
+            if (n > this.minNumInstances && p + s > this.m_pmin[i] + this.outcontrolLevel * this.m_smin[i]) {
+                this.isChangeDetected[i] = true;
+            } else if (p + s > this.m_pmin[i] + this.warningLevel * this.m_smin[i]) {
+                this.isWarningZone[i] = true;
+            }
+        }
+
+        @Override
+        public void resetLearning(int member) {
+            super.resetLearning(member);
+            this.isInitialized[member] = false;
+        }
+
+        @Override
+        public long estimateByteSize() {
+            return MemoryEstimates.object(10, 20) + flagsByteSize()
+                    + MemoryEstimates.booleanArray(size()) + MemoryEstimates.intArray(size())
+                    + 5 * MemoryEstimates.doubleArray(size());
+        }
+    }
+
+    /**
+     * Bank of {@link EDDM}s.
+     */
+    public static class EDDMBank extends DriftDetectorBank {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final double FDDM_OUTCONTROL = 0.9;
+
+        private static final double FDDM_WARNING = 0.95;
+
+        private static final double FDDM_MINNUMINSTANCES = 30;
+
+        private static final int m_minNumErrors = 30;
+
+        protected boolean[] isInitialized;
+
+        protected double[] m_numErrors;
+
+        protected int[] m_n;
+
+        protected int[] m_d;
+
+        protected int[] m_lastd;
+
+        protected double[] m_mean;
+
+        protected double[] m_stdTemp;
+
+        protected double[] m_m2smax;
+
+        public EDDMBank(int size) {
+            super(size);
+            this.isInitialized = new boolean[size];
+            this.m_numErrors = new double[size];
+            this.m_n = new int[size];
+            this.m_d = new int[size];
+            this.m_lastd = new int[size];
+            this.m_mean = new double[size];
+            this.m_stdTemp = new double[size];
+            this.m_m2smax = new double[size];
+        }
+
+        @Override
+        public void input(int i, double prediction) {
+            if (this.isChangeDetected[i] || !this.isInitialized[i]) {
+                this.m_n[i] = 1;
+                this.m_numErrors[i] = 0;
+                this.m_d[i] = 0;
+                this.m_lastd[i] = 0;
+                this.m_mean[i] = 0.0;
+                this.m_stdTemp[i] = 0.0;
+                this.m_m2smax[i] = 0.0;
+                this.estimation[i] = 0.0;
+                this.isInitialized[i] = true;
+            }
+
+            this.isChangeDetected[i] = false;
+
+            int n = ++this.m_n[i];
+            if (prediction == 1.0) {
+                this.isWarningZone[i] = false;
+                double numErrors = this.m_numErrors[i] += 1;
+                this.m_lastd[i] = this.m_d[i];
+                this.m_d[i] = n - 1;
+                int distance = this.m_d[i] - this.m_lastd[i];
+                double oldmean = this.m_mean[i];
+                double mean = oldmean + ((double) distance - oldmean) / numErrors;
+                this.m_mean[i] = mean;
+                this.estimation[i] = mean;
+                double stdTemp = this.m_stdTemp[i] + (distance - mean) * (distance - oldmean);
+                this.m_stdTemp[i] = stdTemp;
+                double std = Math.sqrt(stdTemp / numErrors);
+                double m2s = mean + 2 * std;
+
+                if (m2s > this.m_m2smax[i]) {
+                    if (n > FDDM_MINNUMINSTANCES) {
+                        this.m_m2smax[i] = m2s;
+                    }
+                } else {
+                    double p = m2s / this.m_m2smax[i];
+                    if (n > FDDM_MINNUMINSTANCES && numErrors > m_minNumErrors
+                            && p < FDDM_OUTCONTROL) {
+                        this.isChangeDetected[i] = true;
+                    } else if (n > FDDM_MINNUMINSTANCES
+                            && numErrors > m_minNumErrors && p < FDDM_WARNING) {
+                        this.isWarningZone[i] = true;
+                    } else {
+                        this.isWarningZone[i] = false;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void resetLearning(int member) {
+            super.resetLearning(member);
+            this.isInitialized[member] = false;
+        }
+
+        @Override
+        public long estimateByteSize() {
+            return MemoryEstimates.object(11, 0) + flagsByteSize()
+                    + MemoryEstimates.booleanArray(size()) + 3 * MemoryEstimates.intArray(size())
+                    + 4 * MemoryEstimates.doubleArray(size());
+        }
+    }
+
+    /**
+     * Bank of {@link PageHinkleyDM}s.
+     */
+    public static class PageHinkleyBank extends DriftDetectorBank {
+
+        private static final long serialVersionUID = 1L;
+
+        protected boolean[] isInitialized;
+
+        protected int[] m_n;
+
+        protected double[] sum;
+
+        protected double[] x_mean;
+
+        protected int minNumInstances;
+
+        protected double alpha;
+
+        protected double delta;
+
+        protected double lambda;
+
+        public PageHinkleyBank(int size, PageHinkleyDM prototype) {
+            super(size);
+            this.isInitialized = new boolean[size];
+            this.m_n = new int[size];
+            this.sum = new double[size];
+            this.x_mean = new double[size];
+            this.minNumInstances = prototype.minNumInstancesOption.getValue();
+            this.alpha = prototype.alphaOption.getValue();
+            this.delta = prototype.deltaOption.getValue();
+            this.lambda = prototype.lambdaOption.getValue();
+        }
+
+        @Override
+        public void input(int i, double x) {
+            if (this.isChangeDetected[i] || !this.isInitialized[i]) {
+                this.m_n[i] = 1;
+                this.x_mean[i] = 0.0;
+                this.sum[i] = 0.0;
+                this.isInitialized[i] = true;
+            }
+
+            double mean = this.x_mean[i] + (x - this.x_mean[i]) / (double) this.m_n[i];
+            double s = this.alpha * this.sum[i] + (x - mean - this.delta);
+            this.x_mean[i] = mean;
+            this.sum[i] = s;
+
+            int n = ++this.m_n[i];
+
+            this.estimation[i] = mean;
+            this.isChangeDetected[i] = false;
+            this.isWarningZone[i] = false;
+
+            if (n < this.minNumInstances) {
+                return;
+            }
+
+            if (s > this.lambda) {
+                this.isChangeDetected[i] = true;
+            }
+        }
+
+        @Override
+        public void resetLearning(int member) {
+            super.resetLearning(member);
+            this.isInitialized[member] = false;
+        }
+
+        @Override
+        public long estimateByteSize() {
+            return MemoryEstimates.object(7, 28) + flagsByteSize()
+                    + MemoryEstimates.booleanArray(size()) + MemoryEstimates.intArray(size())
+                    + 2 * MemoryEstimates.doubleArray(size());
+        }
+    }
+
+    /**
+     * Bank of {@link HDDM_A_Test}s.
+     */
+    public static class HDDMABank extends DriftDetectorBank {
+
+        private static final long serialVersionUID = 1L;
+
+        protected int[] n_min;
+
+        protected double[] c_min;
+
+        protected int[] total_n;
+
+        protected double[] total_c;
+
+        protected int[] n_max;
+
+        protected double[] c_max;
+
+        protected double[] cEstimacion;
+
+        protected int[] nEstimacion;
+
+        protected double driftConfidence;
+
+        protected double warningConfidence;
+
+        protected boolean twoSidedTest;
+
+        public HDDMABank(int size, HDDM_A_Test prototype) {
+            super(size);
+            this.n_min = new int[size];
+            this.c_min = new double[size];
+            this.total_n = new int[size];
+            this.total_c = new double[size];
+            this.n_max = new int[size];
+            this.c_max = new double[size];
+            this.cEstimacion = new double[size];
+            this.nEstimacion = new int[size];
+            this.driftConfidence = prototype.driftConfidenceOption.getValue();
+            this.warningConfidence = prototype.warningConfidenceOption.getValue();
+            this.twoSidedTest = prototype.oneSidedTestOption.getChosenIndex() == 1;
+        }
+
+        @Override
+        public void input(int i, double value) {
+            int total_n = ++this.total_n[i];
+            double total_c = this.total_c[i] += value;
+            if (this.n_min[i] == 0) {
+                this.n_min[i] = total_n;
+                this.c_min[i] = total_c;
+            }
+            if (this.n_max[i] == 0) {
+                this.n_max[i] = total_n;
+                this.c_max[i] = total_c;
+            }
+
+            double cota = Math.sqrt(1.0 / (2 * this.n_min[i]) * Math.log(1.0 / this.driftConfidence)),
+                    cota1 = Math.sqrt(1.0 / (2 * total_n) * Math.log(1.0 / this.driftConfidence));
+            if (this.c_min[i] / this.n_min[i] + cota >= total_c / total_n + cota1) {
+                this.c_min[i] = total_c;
+                this.n_min[i] = total_n;
+            }
+
+            cota = Math.sqrt(1.0 / (2 * this.n_max[i]) * Math.log(1.0 / this.driftConfidence));
+            if (this.c_max[i] / this.n_max[i] - cota <= total_c / total_n - cota1) {
+                this.c_max[i] = total_c;
+                this.n_max[i] = total_n;
+            }
+            if (meanIncr(this.c_min[i], this.n_min[i], total_c, total_n, this.driftConfidence)) {
+                this.nEstimacion[i] = total_n - this.n_min[i];
+                this.cEstimacion[i] = total_c - this.c_min[i];
+                clearSamples(i);
+                this.isChangeDetected[i] = true;
+                this.isWarningZone[i] = false;
+            } else if (meanIncr(this.c_min[i], this.n_min[i], total_c, total_n, this.warningConfidence)) {
+                this.isChangeDetected[i] = false;
+                this.isWarningZone[i] = true;
+            } else {
+                this.isChangeDetected[i] = false;
+                this.isWarningZone[i] = false;
+            }
+            if (this.twoSidedTest
+                    && meanDecr(this.c_max[i], this.n_max[i], this.total_c[i], this.total_n[i])) {
+                this.nEstimacion[i] = this.total_n[i] - this.n_max[i];
+                this.cEstimacion[i] = this.total_c[i] - this.c_max[i];
+                clearSamples(i);
+            }
+            // same as HDDM_A_Test.updateEstimations
+            if (this.total_n[i] >= this.nEstimacion[i]) {
+                this.cEstimacion[i] = this.nEstimacion[i] = 0;
+                this.estimation[i] = this.total_c[i] / this.total_n[i];
+            } else {
+                this.estimation[i] = this.cEstimacion[i] / this.nEstimacion[i];
+            }
+        }
+
+        private static boolean meanIncr(double c_min, int n_min, double total_c, int total_n, double confianzaCambio) {
+            if (n_min == total_n) {
+                return false;
+            }
+            double m = (double) (total_n - n_min) / n_min * (1.0 / total_n);
+            double cota = Math.sqrt(m / 2 * Math.log(2.0 / confianzaCambio));
+            return total_c / total_n - c_min / n_min >= cota;
+        }
+
+        private boolean meanDecr(double c_max, int n_max, double total_c, int total_n) {
+            if (n_max == total_n) {
+                return false;
+            }
+            double m = (double) (total_n - n_max) / n_max * (1.0 / total_n);
+            double cota = Math.sqrt(m / 2 * Math.log(2.0 / this.driftConfidence));
+            return c_max / n_max - total_c / total_n >= cota;
+        }
+
+        private void clearSamples(int i) {
+            this.n_min[i] = this.n_max[i] = this.total_n[i] = 0;
+            this.c_min[i] = this.c_max[i] = this.total_c[i] = 0;
+        }
+
+        @Override
+        public void resetLearning(int member) {
+            super.resetLearning(member);
+            clearSamples(member);
+            this.cEstimacion[member] = 0;
+            this.nEstimacion[member] = 0;
+        }
+
+        @Override
+        public long estimateByteSize() {
+            return MemoryEstimates.object(11, 17) + flagsByteSize()
+                    + 4 * MemoryEstimates.intArray(size()) + 4 * MemoryEstimates.doubleArray(size());
+        }
+    }
+
+    /**
+     * Bank of {@link HDDM_W_Test}s. Every member keeps its own samples, while
+     * the samples of HDDM_W_Test are static and thus shared by all its
+     * copies.
+     */
+    public static class HDDMWBank extends DriftDetectorBank {
+
+        private static final long serialVersionUID = 1L;
+
+        // EWMA estimators and independent bounded condition sums of the samples
+        protected double[] totalEstimator;
+
+        protected double[] totalSum;
+
+        protected double[] sample1IncrEstimator;
+
+        protected double[] sample1IncrSum;
+
+        protected double[] sample2IncrEstimator;
+
+        protected double[] sample2IncrSum;
+
+        protected double[] sample1DecrEstimator;
+
+        protected double[] sample1DecrSum;
+
+        protected double[] sample2DecrEstimator;
+
+        protected double[] sample2DecrSum;
+
+        protected double[] incrCutPoint;
+
+        protected double[] decrCutPoint;
+
+        protected double lambda;
+
+        protected double driftConfidence;
+
+        protected double warningConfidence;
+
+        protected boolean oneSidedTest;
+
+        public HDDMWBank(int size, HDDM_W_Test prototype) {
+            super(size);
+            this.totalEstimator = new double[size];
+            this.totalSum = new double[size];
+            this.sample1IncrEstimator = new double[size];
+            this.sample1IncrSum = new double[size];
+            this.sample2IncrEstimator = new double[size];
+            this.sample2IncrSum = new double[size];
+            this.sample1DecrEstimator = new double[size];
+            this.sample1DecrSum = new double[size];
+            this.sample2DecrEstimator = new double[size];
+            this.sample2DecrSum = new double[size];
+            this.incrCutPoint = new double[size];
+            this.decrCutPoint = new double[size];
+            this.lambda = prototype.lambdaOption.getValue();
+            this.driftConfidence = prototype.driftConfidenceOption.getValue();
+            this.warningConfidence = prototype.warningConfidenceOption.getValue();
+            this.oneSidedTest = prototype.oneSidedTestOption.getChosenIndex() == 0;
+            resetLearning();
+        }
+
+        @Override
+        public void input(int i, double value) {
+            double auxDecayRate = 1.0 - this.lambda;
+            if (this.totalEstimator[i] < 0) {
+                this.totalEstimator[i] = value;
+                this.totalSum[i] = 1;
+            } else {
+                this.totalEstimator[i] = this.lambda * value + auxDecayRate * this.totalEstimator[i];
+                this.totalSum[i] = this.lambda * this.lambda + auxDecayRate * auxDecayRate * this.totalSum[i];
+            }
+            updateIncrStatistics(i, value);
+            if (detectMeanIncrement(this.sample1IncrEstimator[i], this.sample1IncrSum[i],
+                    this.sample2IncrEstimator[i], this.sample2IncrSum[i], this.driftConfidence)) {
+                resetLearning(i);
+                this.isChangeDetected[i] = true;
+                this.isWarningZone[i] = false;
+            } else if (detectMeanIncrement(this.sample1IncrEstimator[i], this.sample1IncrSum[i],
+                    this.sample2IncrEstimator[i], this.sample2IncrSum[i], this.warningConfidence)) {
+                this.isChangeDetected[i] = false;
+                this.isWarningZone[i] = true;
+            } else {
+                this.isChangeDetected[i] = false;
+                this.isWarningZone[i] = false;
+            }
+            updateDecrStatistics(i, value);
+            if (!this.oneSidedTest && detectMeanIncrement(this.sample2DecrEstimator[i], this.sample2DecrSum[i],
+                    this.sample1DecrEstimator[i], this.sample1DecrSum[i], this.driftConfidence)) {
+                resetLearning(i);
+            }
+            this.estimation[i] = this.totalEstimator[i];
+        }
+
+        private static boolean detectMeanIncrement(double estimator1, double sum1,
+                double estimator2, double sum2, double confidence) {
+            if (estimator1 < 0 || estimator2 < 0) {
+                return false;
+            }
+            double bound = Math.sqrt((sum1 + sum2) * Math.log(1 / confidence) / 2);
+            return estimator2 - estimator1 > bound;
+        }
+
+        private void updateIncrStatistics(int i, double valor) {
+            double auxDecay = 1.0 - this.lambda;
+            double bound = Math.sqrt(this.totalSum[i] * Math.log(1.0 / this.driftConfidence) / 2);
+
+            if (this.totalEstimator[i] + bound < this.incrCutPoint[i]) {
+                this.incrCutPoint[i] = this.totalEstimator[i] + bound;
+                this.sample1IncrEstimator[i] = this.totalEstimator[i];
+                this.sample1IncrSum[i] = this.totalSum[i];
+                this.sample2IncrEstimator[i] = -1.0;
+                this.sample2IncrSum[i] = 0.0;
+            } else if (this.sample2IncrEstimator[i] < 0) {
+                this.sample2IncrEstimator[i] = valor;
+                this.sample2IncrSum[i] = 1;
+            } else {
+                this.sample2IncrEstimator[i] = this.lambda * valor + auxDecay * this.sample2IncrEstimator[i];
+                this.sample2IncrSum[i] = this.lambda * this.lambda + auxDecay * auxDecay * this.sample2IncrSum[i];
+            }
+        }
+
+        private void updateDecrStatistics(int i, double valor) {
+            double auxDecay = 1.0 - this.lambda;
+            double epsilon = Math.sqrt(this.totalSum[i] * Math.log(1.0 / this.driftConfidence) / 2);
+
+            if (this.totalEstimator[i] - epsilon > this.decrCutPoint[i]) {
+                this.decrCutPoint[i] = this.totalEstimator[i] - epsilon;
+                this.sample1DecrEstimator[i] = this.totalEstimator[i];
+                this.sample1DecrSum[i] = this.totalSum[i];
+                this.sample2DecrEstimator[i] = -1.0;
+                this.sample2DecrSum[i] = 0.0;
+            } else if (this.sample2DecrEstimator[i] < 0) {
+                this.sample2DecrEstimator[i] = valor;
+                this.sample2DecrSum[i] = 1;
+            } else {
+                this.sample2DecrEstimator[i] = this.lambda * valor + auxDecay * this.sample2DecrEstimator[i];
+                this.sample2DecrSum[i] = this.lambda * this.lambda + auxDecay * auxDecay * this.sample2DecrSum[i];
+            }
+        }
+
+        @Override
+        public void resetLearning(int member) {
+            super.resetLearning(member);
+            this.totalEstimator[member] = -1.0;
+            this.totalSum[member] = 0.0;
+            this.sample1IncrEstimator[member] = -1.0;
+            this.sample1IncrSum[member] = 0.0;
+            this.sample2IncrEstimator[member] = -1.0;
+            this.sample2IncrSum[member] = 0.0;
+            this.sample1DecrEstimator[member] = -1.0;
+            this.sample1DecrSum[member] = 0.0;
+            this.sample2DecrEstimator[member] = -1.0;
+            this.sample2DecrSum[member] = 0.0;
+            this.incrCutPoint[member] = Double.MAX_VALUE;
+            this.decrCutPoint[member] = Double.MIN_VALUE;
+        }
+
+        @Override
+        public long estimateByteSize() {
+            return MemoryEstimates.object(15, 25) + flagsByteSize()
+                    + 12 * MemoryEstimates.doubleArray(size());
+        }
+    }
+
+    /**
+     * Bank of copies of any other change detector.
+     */
+    public static class CopiesBank extends DriftDetectorBank {
+
+        private static final long serialVersionUID = 1L;
+
+        protected ChangeDetector prototype;
+
+        protected ChangeDetector[] detectors;
+
+        public CopiesBank(int size, ChangeDetector prototype) {
+            super(size);
+            this.prototype = prototype;
+            this.detectors = new ChangeDetector[size];
+            resetLearning();
+        }
+
+        @Override
+        public void input(int member, double inputValue) {
+            ChangeDetector detector = this.detectors[member];
+            detector.input(inputValue);
+            this.isChangeDetected[member] = detector.getChange();
+            this.isWarningZone[member] = detector.getWarningZone();
+            this.estimation[member] = detector.getEstimation();
+        }
+
+        @Override
+        public void resetLearning(int member) {
+            super.resetLearning(member);
+            this.detectors[member] = this.prototype.copy();
+        }
+
+        @Override
+        public long estimateByteSize() {
+            long size = MemoryEstimates.object(5, 0) + flagsByteSize()
+                    + MemoryEstimates.referenceArray(size());
+            for (ChangeDetector detector : this.detectors) {
+                size += MemoryEstimates.measureByteSize(detector);
+            }
+            return size;
+        }
+    }
+}
@@ -55,11 +55,41 @@ public class GiniSplitCriterion extends AbstractOptionHandler implements
         return 1.0 - gini;
     }
 
+    @Override
+    public void getMeritsOfBinarySplits(double[] preSplitDist,
+            double[] lhsDists, double[] rhsDists, int numClasses, int numSplits,
+            double[] merits) {
+        for (int i = 0; i < numSplits; i++) {
+            int offset = i * numClasses;
+            double lhsWeight = 0.0;
+            double rhsWeight = 0.0;
+            for (int j = offset; j < offset + numClasses; j++) {
+                lhsWeight += lhsDists[j];
+                rhsWeight += rhsDists[j];
+            }
+            double totalWeight = lhsWeight + rhsWeight;
+            merits[i] = 1.0 - ((lhsWeight / totalWeight)
+                    * computeGini(lhsDists, offset, numClasses, lhsWeight)
+                    + (rhsWeight / totalWeight)
+                    * computeGini(rhsDists, offset, numClasses, rhsWeight));
+        }
+    }
+
     @Override
     public double getRangeOfMerit(double[] preSplitDist) {
         return 1.0;
     }
 
+    protected static double computeGini(double[] dists, int offset, int length,
+            double distSumOfWeights) {
+        double gini = 1.0;
+        for (int i = offset; i < offset + length; i++) {
+            double relFreq = dists[i] / distSumOfWeights;
+            gini -= relFreq * relFreq;
+        }
+        return gini;
+    }
+
     public static double computeGini(double[] dist, double distSumOfWeights) {
         double gini = 1.0;
         for (int i = 0; i < dist.length; i++) {
@@ -53,6 +53,28 @@ public class InfoGainSplitCriterion extends AbstractOptionHandler implements
         return computeEntropy(preSplitDist) - computeEntropy(postSplitDists);
     }
 
+    @Override
+    public void getMeritsOfBinarySplits(double[] preSplitDist,
+            double[] lhsDists, double[] rhsDists, int numClasses, int numSplits,
+            double[] merits) {
+        double preSplitEntropy = computeEntropy(preSplitDist);
+        double minBranchFrac = this.minBranchFracOption.getValue();
+        for (int i = 0; i < numSplits; i++) {
+            int offset = i * numClasses;
+            double lhsWeight = sum(lhsDists, offset, numClasses);
+            double rhsWeight = sum(rhsDists, offset, numClasses);
+            double totalWeight = lhsWeight + rhsWeight;
+            if (lhsWeight / totalWeight > minBranchFrac
+                    && rhsWeight / totalWeight > minBranchFrac) {
+                merits[i] = preSplitEntropy
+                        - (lhsWeight * computeEntropy(lhsDists, offset, numClasses)
+                        + rhsWeight * computeEntropy(rhsDists, offset, numClasses)) / totalWeight;
+            } else {
+                merits[i] = Double.NEGATIVE_INFINITY;
+            }
+        }
+    }
+
     @Override
     public double getRangeOfMerit(double[] preSplitDist) {
         int numClasses = preSplitDist.length > 2 ? preSplitDist.length : 2;
@@ -71,6 +93,27 @@ public class InfoGainSplitCriterion extends AbstractOptionHandler implements
         return sum > 0.0 ? (entropy + sum * Utils.log2(sum)) / sum : 0.0;
     }
 
+    protected static double computeEntropy(double[] dists, int offset, int length) {
+        double entropy = 0.0;
+        double sum = 0.0;
+        for (int i = offset; i < offset + length; i++) {
+            double d = dists[i];
+            if (d > 0.0) {
+                entropy -= d * Utils.log2(d);
+                sum += d;
+            }
+        }
+        return sum > 0.0 ? (entropy + sum * Utils.log2(sum)) / sum : 0.0;
+    }
+
+    protected static double sum(double[] dists, int offset, int length) {
+        double sum = 0.0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += dists[i];
+        }
+        return sum;
+    }
+
     public static double computeEntropy(double[][] dists) {
         double totalWeight = 0.0;
         double[] distWeights = new double[dists.length];
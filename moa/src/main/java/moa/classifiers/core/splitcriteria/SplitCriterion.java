@@ -52,4 +52,30 @@ public interface SplitCriterion extends OptionHandler {
      * @return value of the range of splitting merit
      */
     public double getRangeOfMerit(double[] preSplitDist);
+
+    /**
+     * Computes the merits of several binary splits of the same distribution
+     * at once. The distributions of each side are stored split after split,
+     * numClasses values for each split. The merits are the same as the ones
+     * computed by {@link #getMeritOfSplit(double[], double[][])}.
+     *
+     * @param preSplitDist the class distribution before the splits
+     * @param lhsDists the class distributions on the left of the splits
+     * @param rhsDists the class distributions on the right of the splits
+     * @param numClasses the number of values of each distribution
+     * @param numSplits the number of splits
+     * @param merits the array that receives the merit of each split
+     */
+    public default void getMeritsOfBinarySplits(double[] preSplitDist,
+            double[] lhsDists, double[] rhsDists, int numClasses, int numSplits,
+            double[] merits) {
+        double[] lhsDist = new double[numClasses];
+        double[] rhsDist = new double[numClasses];
+        double[][] postSplitDists = new double[][]{lhsDist, rhsDist};
+        for (int i = 0; i < numSplits; i++) {
+            System.arraycopy(lhsDists, i * numClasses, lhsDist, 0, numClasses);
+            System.arraycopy(rhsDists, i * numClasses, rhsDist, 0, numClasses);
+            merits[i] = getMeritOfSplit(preSplitDist, postSplitDists);
+        }
+    }
 }
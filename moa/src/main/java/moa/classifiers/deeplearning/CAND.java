@@ -67,6 +67,8 @@ import java.util.concurrent.*;
  * <li>-b : Skip back propagation loss threshold.</li>
  * <li>-d : Choose device to run the model(For GPU, needs CUDA installed on the system. Use CPU if GPUs are not available)</li>
  * <li>-t : Do NOT train each MLP using a separate thread.</li>
+ * <li>-c : On the CPU, train the MLPs with the same number of neurons together, as one batched computation in pure
+ * Java, using threads only across different numbers of neurons.</li>
  * <li>-f : Votes dump file name.</li>
  * <li>-F : Stats dump file name.</li>
  * </ul>
@@ -94,6 +96,9 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
     private long lastGetModelMeasurementsImplCalledAt=0;
 
     private MiniBatch miniBatch = null;
+    /** The MLPs grouped by number of neurons when batching them on the CPU, null otherwise. */
+    protected StackedMLP[] stacks = null;
+    private StackedMLP.InputBatch inputBatch = null;
 
     private ADWIN accEstimator = new ADWIN(1.0E-3);
 
@@ -153,6 +158,8 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
 
     public FlagOption doNotTrainEachMLPUsingASeparateThread = new FlagOption("doNotTrainEachMLPUsingASeparateThread", 't',
             "Do NOT train each MLP using a separate thread");
+    public FlagOption batchMLPsOnCPU = new FlagOption("batchMLPsOnCPU", 'c',
+            "On the CPU, train the MLPs with the same number of neurons together, as one batched computation in pure Java");
     public StringOption votesDumpFileName = new StringOption("votesDumpFileName", 'f',
             "Votes dump file name",
             "" );
@@ -175,6 +182,8 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
                 nn[i] = null;
             }
             nn = null;
+            stacks = null;
+            inputBatch = null;
             featureValuesArraySize = 0;
             samplesSeen = 0;
             normalizeInfo = null;
@@ -191,13 +200,20 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
 
         class_value[0] = instance.classValue();
 
-        if (miniBatch == null){
-            miniBatch = new MiniBatch(this.nn[0].nnmodel.getNDManager().getDevice(), miniBatchSize.getValue());
-//            System.out.println("For training mini batch using device: " + trainingNDManager.getDevice());
-        }
+        boolean miniBatchFull;
+        if (this.stacks != null){
+            inputBatch.add(featureValues, class_value[0]);
+            miniBatchFull = inputBatch.isFull();
+        }else {
+            if (miniBatch == null){
+                miniBatch = new MiniBatch(this.nn[0].nnmodel.getNDManager().getDevice(), miniBatchSize.getValue());
+//                System.out.println("For training mini batch using device: " + trainingNDManager.getDevice());
+            }
 
-        miniBatch.addToMiniBatch(featureValues, class_value);
-        if (miniBatch.miniBatchFull() ){
+            miniBatch.addToMiniBatch(featureValues, class_value);
+            miniBatchFull = miniBatch.miniBatchFull();
+        }
+        if (miniBatchFull){
             int numberOfMLPsToTrain = numberOfMLPsToTrainOption.getValue();
             int numberOfTopMLPsToTrain = numberOfMLPsToTrain /2;
             if (samplesSeen < numberOfInstancesToTrainAllMLPsAtStartOption.getValue()){
@@ -227,6 +243,12 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
                 trainNetwork[nnIndex] = true;
             }
 
+            if (this.stacks != null){
+                trainStacks(trainNetwork);
+                inputBatch.clear();
+                return;
+            }
+
             class TrainThread implements Callable<Boolean> {
                 private final MLP mlp;
                 private final MiniBatch miniBatch;
@@ -284,6 +306,50 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
         }
     }
 
+    /**
+     * Trains the stacks on the mini batch, each one in its own thread, and records the loss of each MLP.
+     *
+     * @param trainNetwork whether to back propagate the loss of each MLP
+     */
+    protected void trainStacks(boolean [] trainNetwork){
+        boolean [][] trainStackNetwork = new boolean[this.stacks.length][];
+        for (int s = 0; s < this.stacks.length; s++) {
+            trainStackNetwork[s] = new boolean[this.stacks[s].numNetworks()];
+            for (int i = 0; i < this.nn.length; i++) {
+                if (this.nn[i].stack == this.stacks[s]){
+                    trainStackNetwork[s][this.nn[i].stackIndex] = trainNetwork[i];
+                }
+            }
+        }
+
+        double lossThreshold = backPropLossThreshold.getValue();
+        if (! this.doNotTrainEachMLPUsingASeparateThread.isSet() && this.stacks.length > 1){
+            final Future<double []> [] runFuture = new Future[this.stacks.length];
+            for (int s = 0; s < this.stacks.length; s++) {
+                final StackedMLP stack = this.stacks[s];
+                final boolean [] trainStack = trainStackNetwork[s];
+                runFuture[s] = exService.submit(() -> stack.train(inputBatch, trainStack, lossThreshold));
+            }
+            // wait for threads to complete
+            for (int s = 0; s < this.stacks.length; s++) {
+                try {
+                    runFuture[s].get();
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        }else {
+            for (int s = 0; s < this.stacks.length; s++) {
+                this.stacks[s].train(inputBatch, trainStackNetwork[s], lossThreshold);
+            }
+        }
+
+        for (int i = 0; i < this.nn.length; i++) {
+            MLP mlp = this.nn[i];
+            mlp.addStackedTrainingLoss(mlp.stack.getLoss(mlp.stackIndex), mlp.stack.wasTrained(mlp.stackIndex));
+        }
+    }
+
     private void printStats(){
         long sampleFrequency = samplesSeen - lastGetModelMeasurementsImplCalledAt;
         if (statsDumpFile != null) {
@@ -422,6 +488,7 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
             }
         }
         nnConfigs = nnConfigsArrayList.toArray(nnConfigs);
+        boolean stacked = batchMLPsOnCPU.isSet() && (deviceTypeOption.getChosenIndex() == MLP.deviceTypeOptionCPU);
 
         this.nn = new MLP[nnConfigs.length];
         for(int i=0; i < nnConfigs.length; i++){
@@ -435,7 +502,12 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
             this.nn[i].deltaForADWIN = nnConfigs[i].deltaForADWIN;
             this.nn[i].backPropLossThreshold.setValue(backPropLossThreshold.getValue());
             this.nn[i].djlRandomSeed.setValue(djlRandomSeed.getValue());
-            this.nn[i].initializeNetwork(instance);
+            if (!stacked) {
+                this.nn[i].initializeNetwork(instance);
+            }
+        }
+        if (stacked) {
+            initStacks(instance);
         }
 
         try {
@@ -470,7 +542,7 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
             e.printStackTrace();
         }
 
-        exService = Executors.newFixedThreadPool(nnConfigs.length);
+        exService = Executors.newFixedThreadPool(stacked ? this.stacks.length : nnConfigs.length);
 
         class_value = new double[1];
         featureValuesArraySize = MLP.getFeatureValuesArraySize(instance, useOneHotEncode.isSet());
@@ -484,6 +556,47 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
         }
     }
 
+    /**
+     * Groups the MLPs by number of neurons, which only differ in their optimizer and learning rate, into stacks
+     * computed in pure Java.
+     *
+     * @param instance an instance with the header of the stream
+     */
+    protected void initStacks(Instance instance) {
+        int numInputs = MLP.getFeatureValuesArraySize(instance, useOneHotEncode.isSet());
+        List<StackedMLP> stackList = new ArrayList<StackedMLP>();
+        boolean [] inStack = new boolean[this.nn.length];
+        for (int i = 0; i < this.nn.length; i++) {
+            if (inStack[i]){
+                continue;
+            }
+            int numberOfNeuronsInLog2 = this.nn[i].numberOfNeuronsInEachLayerInLog2.getValue();
+            List<MLP> members = new ArrayList<MLP>();
+            for (int j = i; j < this.nn.length; j++) {
+                if (!inStack[j] && (this.nn[j].numberOfNeuronsInEachLayerInLog2.getValue() == numberOfNeuronsInLog2)){
+                    members.add(this.nn[j]);
+                    inStack[j] = true;
+                }
+            }
+            int [] hiddenLayerSizes = new int[numberOfLayersInEachMLP.getValue()];
+            Arrays.fill(hiddenLayerSizes, 1 << numberOfNeuronsInLog2);
+            int [] optimizerTypes = new int[members.size()];
+            double [] learningRates = new double[members.size()];
+            for (int k = 0; k < members.size(); k++) {
+                optimizerTypes[k] = members.get(k).optimizerTypeOption.getChosenIndex();
+                learningRates[k] = members.get(k).learningRateOption.getValue();
+            }
+            StackedMLP stack = new StackedMLP(numInputs, hiddenLayerSizes, instance.numClasses(),
+                    optimizerTypes, learningRates, djlRandomSeed.getValue());
+            for (int k = 0; k < members.size(); k++) {
+                members.get(k).initializeNetwork(instance, stack, k);
+            }
+            stackList.add(stack);
+        }
+        this.stacks = stackList.toArray(new StackedMLP[stackList.size()]);
+        this.inputBatch = new StackedMLP.InputBatch(numInputs, miniBatchSize.getValue());
+    }
+
     @Override
     public ImmutableCapabilities defineImmutableCapabilities() {
         return new ImmutableCapabilities(Capability.VIEW_STANDARD, Capability.VIEW_LITE);
@@ -219,6 +219,14 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
 			new String[]{"GPU (use CPU if not available)", "CPU"},
 			deviceTypeOptionCPU);
 
+	public static final int backendOptionDJL = 0;
+	public static final int backendOptionJava = 1;
+	public MultiChoiceOption backendOption = new MultiChoiceOption("backend", 'E',
+			"Choose the backend computing the network (the Java backend runs on the CPU without loading the DJL engine)",
+			new String[]{"DJL","Java"},
+			new String[]{"DJL engine, on the chosen device", "Pure Java on the CPU"},
+			backendOptionDJL);
+
 	public IntOption djlRandomSeed = new IntOption(
 			"djlRandomSeed",
 			'S',
@@ -242,6 +250,12 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
 	private int numberOfClasses;
 	private double [] votes;
 	private int gpuCount;
+	/** The stack computing the network, null for a DJL network. */
+	protected StackedMLP stack = null;
+	protected int stackIndex = 0;
+	/** The mini batch of the Java backend. */
+	private StackedMLP.InputBatch inputBatch = null;
+	private boolean [] trainNetwork = null;
 	private final static DecimalFormat decimalFormat = new DecimalFormat("0.00000");
 
 
@@ -285,6 +299,19 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
     public void trainOnInstanceImpl(Instance inst) {
 		initializeNetwork(inst);
 
+		if (inputBatch != null){
+			if (!(useNormalization.isSet() || useOneHotEncode.isSet())){
+				setInputValues(inst);
+			}
+			inputBatch.add(pFeatureValues, inst.classValue());
+			if (inputBatch.isFull()){
+				stack.train(inputBatch, trainNetwork, backPropLossThreshold.getValue());
+				addStackedTrainingLoss(stack.getLoss(stackIndex), stack.wasTrained(stackIndex));
+				inputBatch.clear();
+			}
+			return;
+		}
+
 
 		if (miniBatch == null){
 			miniBatch = new MiniBatch(nnmodel.getNDManager().getDevice(), miniBatchSize.getValue());
@@ -307,6 +334,10 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
 	public double[] getVotesForFeatureValues(Instance inst, double[] featureValues) {
 		initializeNetwork(inst);
 
+		if (stack != null) {
+			stack.getVotes(stackIndex, featureValues, votes);
+			return votes;
+		}
 		try {
 			NDManager testingNDManager = NDManager.newBaseManager(nnmodel.getNDManager().getDevice());
 			NDList d = new NDList(testingNDManager.create(featureValues).toType(FLOAT32, false));
@@ -331,6 +362,11 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
 	public double[] getVotesForFeatureValues(Instance inst) {
 		initializeNetwork(inst);
 
+		if (stack != null) {
+			setInputValues(inst);
+			stack.getVotes(stackIndex, pFeatureValues, votes);
+			return votes;
+		}
 		try {
 			NDManager testingNDManager = NDManager.newBaseManager(nnmodel.getNDManager().getDevice());
 			double [] instDoubleA = inst.toDoubleArray();
@@ -443,15 +479,59 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
 		}
 	}
 
+	/**
+	 * Initializes the network as a network of a stack, which is trained along with the other networks of the stack
+	 * by the owner of the stack, without the DJL engine.
+	 *
+	 * @param inst an instance with the header of the stream
+	 * @param stack the stack computing the network
+	 * @param stackIndex the index of the network in the stack
+	 */
+	public void initializeNetwork(Instance inst, StackedMLP stack, int stackIndex) {
+		this.stack = stack;
+		this.stackIndex = stackIndex;
+		votes = new double [inst.numClasses()];
+		numberOfClasses = inst.numClasses();
+		lossEstimator = new ADWIN(deltaForADWIN);
+		setModelName();
+	}
+
+	/**
+	 * Records the training of the network on a mini batch by its stack.
+	 *
+	 * @param loss the loss of the network on the mini batch
+	 * @param trained whether the network was updated
+	 */
+	public void addStackedTrainingLoss(double loss, boolean trained) {
+		samplesSeen ++;
+		if (trained) {
+			trainedCount++;
+		}
+		this.lossEstimator.setInput(loss);
+	}
+
+	/**
+	 * Sets the values of the input attributes of the instance, the class being the last attribute, as the feature
+	 * values of the Java backend.
+	 */
+	protected void setInputValues(Instance inst){
+		for (int i = 0; i < featureValuesArraySize; i++) {
+			pFeatureValues[i] = inst.value(i);
+		}
+	}
+
 	public void initializeNetwork(Instance inst) {
-		if (nnmodel != null){
+		if (nnmodel != null || stack != null){
 			return;
 		}
 
-		Set<String> engines = Engine.getAllEngines();
-		Iterator<String> engineIterator = engines.iterator();
-		while (engineIterator.hasNext()){
-			Engine.getEngine(engineIterator.next()).setRandomSeed(djlRandomSeed.getValue());
+		boolean javaBackend = backendOption.getChosenIndex() == backendOptionJava;
+		if (!javaBackend){
+			Set<String> engines = Engine.getAllEngines();
+			Iterator<String> engineIterator = engines.iterator();
+			while (engineIterator.hasNext()){
+				Engine.getEngine(engineIterator.next()).setRandomSeed(djlRandomSeed.getValue());
+			}
 		}
 
 		votes = new double [inst.numClasses()];
@@ -470,6 +550,21 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
 			featureValuesArraySize = inst.numInputAttributes();
 		}
 
+		if (javaBackend){
+			if (pFeatureValues == null){
+				pFeatureValues = new double[featureValuesArraySize];
+			}
+			int [] hiddenLayerSizes = new int[numberOfLayers.getValue()];
+			Arrays.fill(hiddenLayerSizes, 1 << numberOfNeuronsInEachLayerInLog2.getValue());
+			StackedMLP javaNetwork = new StackedMLP(featureValuesArraySize, hiddenLayerSizes, inst.numClasses(),
+					new int[]{optimizerTypeOption.getChosenIndex()}, new double[]{learningRateOption.getValue()},
+					djlRandomSeed.getValue());
+			initializeNetwork(inst, javaNetwork, 0);
+			inputBatch = new StackedMLP.InputBatch(featureValuesArraySize, miniBatchSize.getValue());
+			trainNetwork = new boolean[]{true};
+			return;
+		}
+
 		try {
 			gpuCount = Device.getGpuCount();
 
@@ -491,6 +586,10 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
 			System.err.println(e);
 			e.printStackTrace();
 		}
+		setModelName();
+	}
+
+	protected void setModelName(){
 		modelName = "L" + numberOfLayers.getValue() + "_N" + numberOfNeuronsInEachLayerInLog2.getValue() +"_" + optimizerTypeOption.getChosenLabel() +"_" + decimalFormat.format(learningRateOption.getValue());
 	}
 
@@ -0,0 +1,505 @@
+/*
+ *    StackedMLP.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.deeplearning;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Multilayer perceptrons with the same layer sizes, computed together in pure
+ * Java on the CPU. The weights of the networks are stacked layer by layer, and
+ * a mini batch is run through all the networks at once, each input row being
+ * read once for all of them, so that a pool of candidates only differing in
+ * their optimizer and learning rate costs about one pass over the data.
+ *
+ * <p>The networks are the ones of the DJL Mlp block: fully connected layers
+ * with ReLU activations between them, whose outputs are the logits, trained
+ * with the softmax cross entropy loss averaged over the mini batch. Each
+ * network has its own learning rate and optimizer, one of the MLP.OPTIMIZER_*
+ * types with the DJL default hyperparameters. Like DJL networks created after
+ * setting the engine seed, all the networks start from the same weights,
+ * drawn with the seed.</p>
+ *
+ * <p>The layers are computed by blocks of outputs whose weights fit in the
+ * first level cache, each block being applied to all the rows of the mini
+ * batch before moving to the next one. The buffers are allocated once, for
+ * the largest mini batch, and a stack is trained or queried by one thread at
+ * a time.</p>
+ *
+ * @version $Revision: 1 $
+ */
+public class StackedMLP implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final float ADAM_BETA1 = 0.9f;
+
+    protected static final float ADAM_BETA2 = 0.999f;
+
+    protected static final float RMSPROP_RHO = 0.9f;
+
+    protected static final float EPSILON = 1e-8f;
+
+    /** The number of weights of a block of outputs, 32KB. */
+    protected static final int BLOCK_FLOATS = 8192;
+
+    /**
+     * A mini batch of instances, kept as the float feature values and class
+     * indexes read by the networks. The arrays are allocated once.
+     */
+    public static class InputBatch implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final int numInputs;
+
+        protected final float[] features;
+
+        protected final int[] labels;
+
+        protected int size = 0;
+
+        public InputBatch(int numInputs, int capacity) {
+            this.numInputs = numInputs;
+            this.features = new float[numInputs * capacity];
+            this.labels = new int[capacity];
+        }
+
+        public void add(double[] featureValues, double classValue) {
+            int offset = this.size * this.numInputs;
+            for (int i = 0; i < this.numInputs; i++) {
+                this.features[offset + i] = (float) featureValues[i];
+            }
+            this.labels[this.size] = (int) classValue;
+            this.size++;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public int capacity() {
+            return this.labels.length;
+        }
+
+        public boolean isFull() {
+            return this.size == this.labels.length;
+        }
+
+        public void clear() {
+            this.size = 0;
+        }
+    }
+
+    protected final int numNetworks;
+
+    /** The number of units of each layer, from the inputs to the outputs. */
+    protected final int[] units;
+
+    protected final int[] optimizerTypes;
+
+    protected final float[] learningRates;
+
+    /** The weights of each layer, indexed by network, output and input. */
+    protected final float[][] weights;
+
+    /** The biases of each layer, indexed by network and output. */
+    protected final float[][] biases;
+
+    protected final float[][] weightGradients;
+
+    protected final float[][] biasGradients;
+
+    /** The first moments of Adam, null if no network uses it. */
+    protected float[][] weightMoments;
+
+    protected float[][] biasMoments;
+
+    /** The second moments of Adam, RMSProp and AdaGrad, null if every network uses SGD. */
+    protected float[][] weightSquares;
+
+    protected float[][] biasSquares;
+
+    /** The optimizer steps of each network. */
+    protected final long[] steps;
+
+    protected final double[] losses;
+
+    protected final boolean[] trained;
+
+    /** The outputs of each layer after the inputs, indexed by network, row and unit. */
+    protected transient float[][] outputs;
+
+    /** The gradients of the loss for the outputs of each layer after the inputs. */
+    protected transient float[][] deltas;
+
+    protected transient int bufferCapacity = 0;
+
+    /** The outputs of each layer for a single instance. */
+    protected transient float[][] predictionOutputs;
+
+    /**
+     * Creates the stack and draws the initial weights.
+     *
+     * @param numInputs the number of inputs
+     * @param hiddenLayerSizes the number of units of each hidden layer
+     * @param numOutputs the number of outputs, one per class
+     * @param optimizerTypes the optimizer of each network
+     * @param learningRates the learning rate of each network
+     * @param seed the seed of the initial weights
+     */
+    public StackedMLP(int numInputs, int[] hiddenLayerSizes, int numOutputs,
+            int[] optimizerTypes, double[] learningRates, long seed) {
+        this.numNetworks = optimizerTypes.length;
+        this.units = new int[hiddenLayerSizes.length + 2];
+        this.units[0] = numInputs;
+        System.arraycopy(hiddenLayerSizes, 0, this.units, 1, hiddenLayerSizes.length);
+        this.units[this.units.length - 1] = numOutputs;
+        this.optimizerTypes = optimizerTypes.clone();
+        this.learningRates = new float[this.numNetworks];
+        for (int g = 0; g < this.numNetworks; g++) {
+            this.learningRates[g] = (float) learningRates[g];
+        }
+
+        int numLayers = this.units.length - 1;
+        this.weights = new float[numLayers][];
+        this.biases = new float[numLayers][];
+        this.weightGradients = new float[numLayers][];
+        this.biasGradients = new float[numLayers][];
+        boolean adam = false;
+        boolean squares = false;
+        for (int optimizerType : optimizerTypes) {
+            adam |= optimizerType == MLP.OPTIMIZER_ADAM || optimizerType == MLP.OPTIMIZER_ADAM_RESET;
+            squares |= optimizerType != MLP.OPTIMIZER_SGD;
+        }
+        if (adam) {
+            this.weightMoments = new float[numLayers][];
+            this.biasMoments = new float[numLayers][];
+        }
+        if (squares) {
+            this.weightSquares = new float[numLayers][];
+            this.biasSquares = new float[numLayers][];
+        }
+        for (int l = 0; l < numLayers; l++) {
+            int size = this.units[l + 1] * this.units[l];
+            this.weights[l] = new float[this.numNetworks * size];
+            this.biases[l] = new float[this.numNetworks * this.units[l + 1]];
+            this.weightGradients[l] = new float[this.weights[l].length];
+            this.biasGradients[l] = new float[this.biases[l].length];
+            if (adam) {
+                this.weightMoments[l] = new float[this.weights[l].length];
+                this.biasMoments[l] = new float[this.biases[l].length];
+            }
+            if (squares) {
+                this.weightSquares[l] = new float[this.weights[l].length];
+                this.biasSquares[l] = new float[this.biases[l].length];
+            }
+        }
+        for (int g = 0; g < this.numNetworks; g++) {
+            // Xavier uniform initialization, the biases start at 0
+            Random random = new Random(seed);
+            for (int l = 0; l < numLayers; l++) {
+                int size = this.units[l + 1] * this.units[l];
+                float limit = (float) Math.sqrt(6.0 / (this.units[l] + this.units[l + 1]));
+                for (int w = g * size; w < (g + 1) * size; w++) {
+                    this.weights[l][w] = (2.0f * random.nextFloat() - 1.0f) * limit;
+                }
+            }
+        }
+        this.steps = new long[this.numNetworks];
+        this.losses = new double[this.numNetworks];
+        this.trained = new boolean[this.numNetworks];
+    }
+
+    public int numNetworks() {
+        return this.numNetworks;
+    }
+
+    /**
+     * Trains the networks on a mini batch: the loss of every network is
+     * computed, and the selected networks whose loss is above the threshold
+     * are updated by back propagation.
+     *
+     * @param batch the mini batch
+     * @param trainNetwork whether to update each network
+     * @param lossThreshold the loss up to which networks are not updated
+     * @return the loss of each network, valid until the next call
+     */
+    public double[] train(InputBatch batch, boolean[] trainNetwork, double lossThreshold) {
+        int numRows = batch.size();
+        ensureBuffers(batch.capacity());
+        forward(batch, numRows);
+        int numLayers = this.units.length - 1;
+        for (int g = 0; g < this.numNetworks; g++) {
+            this.losses[g] = computeOutputDeltas(g, batch, numRows);
+            this.trained[g] = trainNetwork[g] && this.losses[g] > lossThreshold;
+            if (this.trained[g]) {
+                for (int l = numLayers - 1; l >= 0; l--) {
+                    backward(g, l, batch, numRows);
+                }
+                step(g);
+            }
+        }
+        return this.losses;
+    }
+
+    /**
+     * Gets the loss of a network on the last mini batch trained on.
+     */
+    public double getLoss(int network) {
+        return this.losses[network];
+    }
+
+    /**
+     * Whether a network was updated by the last call to train.
+     */
+    public boolean wasTrained(int network) {
+        return this.trained[network];
+    }
+
+    /**
+     * Gets the logits of a network for an instance.
+     *
+     * @param network the network
+     * @param featureValues the feature values of the instance
+     * @param votes the array to set the logits in, up to its length
+     */
+    public void getVotes(int network, double[] featureValues, double[] votes) {
+        int numLayers = this.units.length - 1;
+        if (this.predictionOutputs == null) {
+            this.predictionOutputs = new float[numLayers + 1][];
+            for (int l = 0; l <= numLayers; l++) {
+                this.predictionOutputs[l] = new float[this.units[l]];
+            }
+        }
+        float[] input = this.predictionOutputs[0];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (float) featureValues[i];
+        }
+        for (int l = 0; l < numLayers; l++) {
+            layer(network, l, this.predictionOutputs[l], 0, this.predictionOutputs[l + 1], 0, 0, this.units[l + 1]);
+        }
+        float[] logits = this.predictionOutputs[numLayers];
+        for (int c = 0; c < votes.length && c < logits.length; c++) {
+            votes[c] = logits[c];
+        }
+    }
+
+    protected void ensureBuffers(int capacity) {
+        if (this.bufferCapacity >= capacity) {
+            return;
+        }
+        int numLayers = this.units.length - 1;
+        this.outputs = new float[numLayers + 1][];
+        this.deltas = new float[numLayers + 1][];
+        for (int l = 1; l <= numLayers; l++) {
+            this.outputs[l] = new float[this.numNetworks * capacity * this.units[l]];
+            this.deltas[l] = new float[this.outputs[l].length];
+        }
+        this.bufferCapacity = capacity;
+    }
+
+    /**
+     * Runs the rows through all the networks. Within a block of outputs, the
+     * rows are the outer loop, so that each input row is read from the cache
+     * by every network.
+     */
+    protected void forward(InputBatch batch, int numRows) {
+        int numLayers = this.units.length - 1;
+        for (int l = 0; l < numLayers; l++) {
+            int in = this.units[l];
+            int out = this.units[l + 1];
+            int blockSize = Math.max(1, BLOCK_FLOATS / (in * this.numNetworks));
+            for (int start = 0; start < out; start += blockSize) {
+                int end = Math.min(out, start + blockSize);
+                for (int b = 0; b < numRows; b++) {
+                    for (int g = 0; g < this.numNetworks; g++) {
+                        if (l == 0) {
+                            layer(g, l, batch.features, b * in,
+                                    this.outputs[1], (g * this.bufferCapacity + b) * out, start, end);
+                        } else {
+                            layer(g, l, this.outputs[l], (g * this.bufferCapacity + b) * in,
+                                    this.outputs[l + 1], (g * this.bufferCapacity + b) * out, start, end);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes outputs start to end of a layer of a network for a row, with a
+     * ReLU activation unless it is the last layer.
+     */
+    protected void layer(int g, int l, float[] x, int xOffset, float[] y, int yOffset, int start, int end) {
+        int in = this.units[l];
+        int out = this.units[l + 1];
+        boolean hidden = l < this.units.length - 2;
+        float[] w = this.weights[l];
+        float[] bias = this.biases[l];
+        int wOffset = g * out * in;
+        for (int o = start; o < end; o++) {
+            float sum = bias[g * out + o];
+            int wo = wOffset + o * in;
+            for (int i = 0; i < in; i++) {
+                sum += w[wo + i] * x[xOffset + i];
+            }
+            y[yOffset + o] = hidden && sum < 0.0f ? 0.0f : sum;
+        }
+    }
+
+    /**
+     * Computes the softmax cross entropy loss of a network, and the gradients
+     * of its mean for the logits.
+     */
+    protected double computeOutputDeltas(int g, InputBatch batch, int numRows) {
+        int numLayers = this.units.length - 1;
+        int numOutputs = this.units[numLayers];
+        float[] logits = this.outputs[numLayers];
+        float[] delta = this.deltas[numLayers];
+        double loss = 0.0;
+        for (int b = 0; b < numRows; b++) {
+            int offset = (g * this.bufferCapacity + b) * numOutputs;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int c = 0; c < numOutputs; c++) {
+                max = Math.max(max, logits[offset + c]);
+            }
+            double sum = 0.0;
+            for (int c = 0; c < numOutputs; c++) {
+                sum += Math.exp(logits[offset + c] - max);
+            }
+            int label = batch.labels[b];
+            loss += max + Math.log(sum) - logits[offset + label];
+            for (int c = 0; c < numOutputs; c++) {
+                double p = Math.exp(logits[offset + c] - max) / sum;
+                delta[offset + c] = (float) ((p - (c == label ? 1.0 : 0.0)) / numRows);
+            }
+        }
+        return loss / numRows;
+    }
+
+    /**
+     * Computes the gradients of the weights of a layer of a network and,
+     * below the first layer, the gradients for its inputs.
+     */
+    protected void backward(int g, int l, InputBatch batch, int numRows) {
+        int in = this.units[l];
+        int out = this.units[l + 1];
+        float[] w = this.weights[l];
+        float[] wGrad = this.weightGradients[l];
+        float[] bGrad = this.biasGradients[l];
+        int wOffset = g * out * in;
+        float[] x = l == 0 ? batch.features : this.outputs[l];
+        float[] delta = this.deltas[l + 1];
+        float[] inputDelta = l == 0 ? null : this.deltas[l];
+        Arrays.fill(wGrad, wOffset, wOffset + out * in, 0.0f);
+        Arrays.fill(bGrad, g * out, (g + 1) * out, 0.0f);
+        if (inputDelta != null) {
+            Arrays.fill(inputDelta, g * this.bufferCapacity * in, (g * this.bufferCapacity + numRows) * in, 0.0f);
+        }
+        // the weights and their gradients are read by block of outputs
+        int blockSize = Math.max(1, BLOCK_FLOATS / (2 * in));
+        for (int start = 0; start < out; start += blockSize) {
+            int end = Math.min(out, start + blockSize);
+            for (int b = 0; b < numRows; b++) {
+                int xOffset = l == 0 ? b * in : (g * this.bufferCapacity + b) * in;
+                int dOffset = (g * this.bufferCapacity + b) * out;
+                for (int o = start; o < end; o++) {
+                    float d = delta[dOffset + o];
+                    if (d == 0.0f) {
+                        continue;
+                    }
+                    bGrad[g * out + o] += d;
+                    int wo = wOffset + o * in;
+                    for (int i = 0; i < in; i++) {
+                        wGrad[wo + i] += d * x[xOffset + i];
+                    }
+                    if (inputDelta != null) {
+                        for (int i = 0; i < in; i++) {
+                            inputDelta[xOffset + i] += d * w[wo + i];
+                        }
+                    }
+                }
+            }
+        }
+        if (inputDelta != null) {
+            // the derivative of ReLU
+            for (int k = g * this.bufferCapacity * in; k < (g * this.bufferCapacity + numRows) * in; k++) {
+                if (x[k] <= 0.0f) {
+                    inputDelta[k] = 0.0f;
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the weights of a network with its optimizer.
+     */
+    protected void step(int g) {
+        this.steps[g]++;
+        int numLayers = this.units.length - 1;
+        for (int l = 0; l < numLayers; l++) {
+            int out = this.units[l + 1];
+            int size = out * this.units[l];
+            update(g, this.weights[l], this.weightGradients[l],
+                    this.weightMoments == null ? null : this.weightMoments[l],
+                    this.weightSquares == null ? null : this.weightSquares[l], g * size, size);
+            update(g, this.biases[l], this.biasGradients[l],
+                    this.biasMoments == null ? null : this.biasMoments[l],
+                    this.biasSquares == null ? null : this.biasSquares[l], g * out, out);
+        }
+    }
+
+    protected void update(int g, float[] w, float[] grad, float[] moments, float[] squares, int offset, int length) {
+        float learningRate = this.learningRates[g];
+        switch (this.optimizerTypes[g]) {
+            case MLP.OPTIMIZER_RMSPROP_RESET:
+            case MLP.OPTIMIZER_RMSPROP:
+                for (int k = offset; k < offset + length; k++) {
+                    squares[k] = RMSPROP_RHO * squares[k] + (1.0f - RMSPROP_RHO) * grad[k] * grad[k];
+                    w[k] -= learningRate * grad[k] / (float) Math.sqrt(squares[k] + EPSILON);
+                }
+                break;
+            case MLP.OPTIMIZER_ADAGRAD_RESET:
+            case MLP.OPTIMIZER_ADAGRAD:
+                for (int k = offset; k < offset + length; k++) {
+                    squares[k] += grad[k] * grad[k];
+                    w[k] -= learningRate * grad[k] / (float) Math.sqrt(squares[k] + EPSILON);
+                }
+                break;
+            case MLP.OPTIMIZER_ADAM_RESET:
+            case MLP.OPTIMIZER_ADAM:
+                float correctedRate = (float) (learningRate * Math.sqrt(1.0 - Math.pow(ADAM_BETA2, this.steps[g]))
+                        / (1.0 - Math.pow(ADAM_BETA1, this.steps[g])));
+                for (int k = offset; k < offset + length; k++) {
+                    moments[k] = ADAM_BETA1 * moments[k] + (1.0f - ADAM_BETA1) * grad[k];
+                    squares[k] = ADAM_BETA2 * squares[k] + (1.0f - ADAM_BETA2) * grad[k] * grad[k];
+                    w[k] -= correctedRate * moments[k] / ((float) Math.sqrt(squares[k]) + EPSILON);
+                }
+                break;
+            case MLP.OPTIMIZER_SGD:
+            default:
+                for (int k = offset; k < offset + length; k++) {
+                    w[k] -= learningRate * grad[k];
+                }
+                break;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import moa.core.Measurement;
 import moa.core.Utils;
 import com.github.javacliparser.FloatOption;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 
 /**
  * Single perceptron classifier.
@@ -95,6 +96,35 @@ public class Perceptron extends AbstractClassifier  implements MultiClassClassif
         }
     }
 
+    /**
+     * Predicts the rows of a batch, accumulating the weighted sums column by
+     * column.
+     */
+    @Override
+    public double[][] getVotesForBatch(InstanceBatch batch) {
+        if (!isInheritedFrom(Perceptron.class, "getVotesForInstance") || this.reset == true) {
+            return super.getVotesForBatch(batch);
+        }
+        int numRows = batch.numInstances();
+        double[][] votes = new double[numRows][batch.numClasses()];
+        for (int j = 0; j < batch.numAttributes() - 1; j++) {
+            double[] column = batch.column(modelAttIndexToInstanceAttIndex(j, batch.dataset()));
+            for (int i = 0; i < batch.numClasses(); i++) {
+                double weight = this.weightAttribute[i][j];
+                for (int row = 0; row < numRows; row++) {
+                    votes[row][i] += weight * column[row];
+                }
+            }
+        }
+        for (int row = 0; row < numRows; row++) {
+            for (int i = 0; i < votes[row].length; i++) {
+                votes[row][i] = sigmoid(votes[row][i] + this.weightAttribute[i][batch.numAttributes() - 1]);
+            }
+            normalizeVotes(votes[row]);
+        }
+        return votes;
+    }
+
     public void setWeights(double[][] w) {
         //Perceptron Hoeffding Tree
         this.weightAttribute = w;
@@ -121,9 +151,21 @@ public class Perceptron extends AbstractClassifier  implements MultiClassClassif
             sum += weightAttribute[classVal][i] * inst.valueInputAttribute(i);
         }
         sum += weightAttribute[classVal][inst.numAttributes() - 1];
+        return sigmoid(sum);
+    }
+
+    protected static double sigmoid(double sum) {
         return 1.0 / (1.0 + Math.exp(-sum));
     }
 
+    protected static void normalizeVotes(double[] votes) {
+        try {
+            Utils.normalize(votes);
+        } catch (Exception e) {
+            // ignore all zero votes error
+        }
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         double[] votes = new double[inst.numClasses()];
@@ -131,11 +173,7 @@ public class Perceptron extends AbstractClassifier  implements MultiClassClassif
             for (int i = 0; i < votes.length; i++) {
                 votes[i] = prediction(inst, i);
             }
-            try {
-                Utils.normalize(votes);
-            } catch (Exception e) {
-                // ignore all zero votes error
-            }
+            normalizeVotes(votes);
         }
         return votes;
     }
@@ -36,6 +36,7 @@ import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.MultiChoiceOption;
 import moa.classifiers.Regressor;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 import moa.core.Utils;
 
 /**
@@ -284,15 +285,25 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
         if (m_weights == null) {
             return new double[inst.numClasses()];
         }
-        double[] result = (inst.classAttribute().isNominal())
-                ? new double[2]
-                : new double[1];
-
 
         double wx = dotProd(inst, m_weights, inst.classIndex());// * m_wScale;
-        double z = (wx + m_bias);
+        return votesForOutput(wx + m_bias, inst.classAttribute().isNominal());
+    }
+
+    /**
+     * Turns the output of the linear model into the class membership
+     * probabilities, or the prediction for a numeric class.
+     *
+     * @param z 	the weighted sum of the attributes plus the bias
+     * @param nominalClass 	whether the class is nominal
+     * @return 		predicted class probability distribution
+     */
+    protected double[] votesForOutput(double z, boolean nominalClass) {
+        double[] result = nominalClass
+                ? new double[2]
+                : new double[1];
 
-        if (inst.classAttribute().isNumeric()) {
+        if (!nominalClass) {
             result[0] = z;
             return result;
         }
@@ -316,6 +327,38 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
         return result;
     }
 
+    /**
+     * Predicts the rows of a batch, accumulating the dot products column by
+     * column.
+     */
+    @Override
+    public double[][] getVotesForBatch(InstanceBatch batch) {
+        if (!isInheritedFrom(SGD.class, "getVotesForInstance") || m_weights == null) {
+            return super.getVotesForBatch(batch);
+        }
+        int numRows = batch.numInstances();
+        double[] wx = new double[numRows];
+        int n = Math.min(batch.numAttributes(), m_weights.numValues());
+        for (int j = 0; j < n; j++) {
+            if (j == batch.classIndex()) {
+                continue;
+            }
+            double[] column = batch.column(j);
+            double weight = m_weights.getValue(j);
+            for (int row = 0; row < numRows; row++) {
+                if (!Double.isNaN(column[row])) {
+                    wx[row] += column[row] * weight;
+                }
+            }
+        }
+        boolean nominalClass = batch.dataset().classAttribute().isNominal();
+        double[][] votes = new double[numRows][];
+        for (int row = 0; row < numRows; row++) {
+            votes[row] = votesForOutput(wx[row] + m_bias, nominalClass);
+        }
+        return votes;
+    }
+
     @Override
     public void getModelDescription(StringBuilder result, int indent) {
         StringUtils.appendIndented(result, indent, toString());
@@ -23,6 +23,8 @@ import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
+import moa.classifiers.lazy.neighboursearch.EuclideanDistance;
+import moa.classifiers.lazy.neighboursearch.IncrementalKDTree;
 import moa.core.Measurement;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
@@ -73,6 +75,9 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 
     public FlagOption recalculateSTMErrorOption = new FlagOption("recalculateError", 'r',
             "Recalculates the error rate of the STM for size adaption (Costly operation). Otherwise, an approximation is used.");
+
+    public FlagOption incrementalIndexOption = new FlagOption("incrementalIndex", 'i',
+            "Keeps the STM and LTM in incremental kd-trees, so that predictions do not scan both memories. Distances are only identical for numeric attributes.");
 	private int maxClassValue = 0;
 
     @Override
@@ -91,6 +96,8 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 	//private int trainStepCount;
 	private Map<Integer, List<Integer>> predictionHistories;
 	private Random random;
+	private IncrementalKDTree stmIndex;
+	private IncrementalKDTree ltmIndex;
 
     protected void init(){
     	this.maxLTMSize = (int)(relativeLTMSizeOption.getValue() * limitOption.getValue());
@@ -113,6 +120,7 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 			this.ltm = new Instances(context,0); 
 			this.ltm.setClassIndex(context.classIndex());
 			this.init();
+			this.initIndices();
 		} catch(Exception e) {
 			System.err.println("Error: no Model Context available.");
 			e.printStackTrace();
@@ -129,6 +137,8 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 		this.cmHistory = null;
 		this.distanceMatrixSTM = null;
 		this.predictionHistories = null;
+		this.stmIndex = null;
+		this.ltmIndex = null;
     }
 
     @Override
@@ -136,7 +146,7 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
         //this.trainStepCount++;
 		if (inst.classValue() > maxClassValue)
 			maxClassValue = (int)inst.classValue();
-		this.stm.add(inst);
+		this.addToSTM(inst);
 		memorySizeCheck();
 		clean(this.stm, this.ltm, true);
 		double distancesSTM[] = this.get1ToNDistances(inst, this.stm);
@@ -152,7 +162,7 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 
 			for (int i = diff; i>0;i--){
 				discardedSTMInstances.add(this.stm.get(0).copy());
-				this.stm.delete(0);
+				this.deleteFromSTM(0);
 			}
 			for (int i = 0; i < this.stm.numInstances(); i++){
 				for (int j = 0; j < this.stm.numInstances(); j++){
@@ -167,7 +177,7 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 
 			this.clean(this.stm, discardedSTMInstances, false);
 			for (int i = 0; i < discardedSTMInstances.numInstances(); i++){
-				this.ltm.add(discardedSTMInstances.get(i).copy());
+				this.addToLTM(discardedSTMInstances.get(i).copy());
 			}
 			memorySizeCheck();
 		}
@@ -188,7 +198,25 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
         int predClassLTM = 0;
         int predClassCM = 0;
 		try {
-			if (this.stm.numInstances()>0) {
+			if (this.stmIndex != null && this.stm.numInstances()>0) {
+				double[][] votes = this.getIndexedVotes(inst);
+				vSTM = votes[0];
+				vLTM = votes[1];
+				vCM = votes[2];
+				predClassSTM = this.getClassFromVotes(vSTM);
+				predClassLTM = this.getClassFromVotes(vLTM);
+				predClassCM = this.getClassFromVotes(vCM);
+				int correctSTM = historySum(this.stmHistory);
+				int correctLTM = historySum(this.ltmHistory);
+				int correctCM = historySum(this.cmHistory);
+				if(correctSTM>=correctLTM && correctSTM>=correctCM){
+					v=vSTM;
+				}else if(correctLTM>correctSTM && correctLTM>=correctCM){
+					v=vLTM;
+				}else{
+					v=vCM;
+				}
+			} else if (this.stm.numInstances()>0) {
 				distancesSTM = get1ToNDistances(inst, this.stm);
 				int nnIndicesSTM[] = nArgMin(Math.min(distancesSTM.length, this.kOption.getValue()), distancesSTM);
 				vSTM = getDistanceWeightedVotes(distancesSTM, nnIndicesSTM, this.stm);
@@ -296,6 +324,95 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 			}
 
 		}
+		if (this.ltmIndex != null)
+			this.ltmIndex.setInstances(this.ltm);
+	}
+
+    /**
+     * Creates the incremental indices over the STM and LTM, if enabled.
+     */
+	private void initIndices() {
+		if (this.incrementalIndexOption.isSet()) {
+			this.stmIndex = this.createIndex(this.stm);
+			this.ltmIndex = this.createIndex(this.ltm);
+		} else {
+			this.stmIndex = null;
+			this.ltmIndex = null;
+		}
+	}
+
+	private IncrementalKDTree createIndex(Instances memory) {
+		IncrementalKDTree index = new IncrementalKDTree();
+		try {
+			EuclideanDistance distance = new EuclideanDistance();
+			distance.setDontNormalize(true);
+			index.setDistanceFunction(distance);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		index.setInstances(memory);
+		return index;
+	}
+
+	private void addToSTM(Instance inst) {
+		this.stm.add(inst);
+		if (this.stmIndex != null)
+			this.stmIndex.update(this.stm.get(this.stm.numInstances() - 1));
+	}
+
+	private void deleteFromSTM(int index) {
+		if (this.stmIndex != null)
+			this.stmIndex.remove(this.stm.get(index));
+		this.stm.delete(index);
+	}
+
+	private void addToLTM(Instance inst) {
+		this.ltm.add(inst);
+		if (this.ltmIndex != null)
+			this.ltmIndex.update(this.ltm.get(this.ltm.numInstances() - 1));
+	}
+
+	private void deleteFromLTM(int index) {
+		if (this.ltmIndex != null)
+			this.ltmIndex.remove(this.ltm.get(index));
+		this.ltm.delete(index);
+	}
+
+    /**
+     * Returns the distance weighted votes of the STM, LTM and CM, using the indices to find the k nearest neighbours.
+     * The CM neighbours are obtained by merging the sorted STM and LTM neighbourhoods.
+     */
+	private double[][] getIndexedVotes(Instance inst) throws Exception {
+		int k = this.kOption.getValue();
+		Instances nnSTM = this.stmIndex.kNearestNeighbours(inst, Math.min(k, this.stm.numInstances()));
+		double[] distancesSTM = this.stmIndex.getDistances();
+		int numSTM = Math.min(k, nnSTM.numInstances());
+		Instances nnLTM = null;
+		double[] distancesLTM = null;
+		int numLTM = 0;
+		if (this.ltm.numInstances() > 0) {
+			nnLTM = this.ltmIndex.kNearestNeighbours(inst, Math.min(k, this.ltm.numInstances()));
+			distancesLTM = this.ltmIndex.getDistances();
+			numLTM = Math.min(k, nnLTM.numInstances());
+		}
+
+		double[] vSTM = new double[this.maxClassValue + 1];
+		for (int i = 0; i < numSTM; i++)
+			vSTM[(int) nnSTM.instance(i).classValue()] += 1. / Math.max(distancesSTM[i], 0.000000001);
+		double[] vLTM = new double[this.maxClassValue + 1];
+		for (int i = 0; i < numLTM; i++)
+			vLTM[(int) nnLTM.instance(i).classValue()] += 1. / Math.max(distancesLTM[i], 0.000000001);
+		double[] vCM = new double[this.maxClassValue + 1];
+		for (int i = 0, s = 0, l = 0; i < k && (s < numSTM || l < numLTM); i++) {
+			if (l >= numLTM || (s < numSTM && distancesSTM[s] <= distancesLTM[l])) {
+				vCM[(int) nnSTM.instance(s).classValue()] += 1. / Math.max(distancesSTM[s], 0.000000001);
+				s++;
+			} else {
+				vCM[(int) nnLTM.instance(l).classValue()] += 1. / Math.max(distancesLTM[l], 0.000000001);
+				l++;
+			}
+		}
+		return new double[][]{vSTM, vLTM, vCM};
 	}
 
     /**
@@ -308,8 +425,8 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 			}else{ //shift values from STM directly to LTM since STM is full
 				int numShifts = this.maxLTMSize - this.ltm.numInstances() + 1;
 				for (int i = 0; i < numShifts; i++){
-					this.ltm.add(this.stm.get(0).copy());
-					this.stm.delete(0);
+					this.addToLTM(this.stm.get(0).copy());
+					this.deleteFromSTM(0);
 					this.stmHistory.remove(0);
 					this.ltmHistory.remove(0);
 					this.cmHistory.remove(0);
@@ -350,8 +467,12 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 			}
 		}
 		Collections.sort(delIndices, Collections.reverseOrder());
-		for (Integer idx : delIndices)
-			toClean.delete(idx);
+		for (Integer idx : delIndices) {
+			if (toClean == this.ltm)
+				this.deleteFromLTM(idx);
+			else
+				toClean.delete(idx);
+		}
 	}
     /**
      * Removes distance-based all instances from the input samples that contradict those in the STM.
@@ -24,10 +24,13 @@ import com.github.javacliparser.FlagOption;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.Regressor;
+import moa.classifiers.lazy.neighboursearch.IncrementalKDTree;
 import moa.classifiers.lazy.neighboursearch.KDTree;
 import moa.classifiers.lazy.neighboursearch.LinearNNSearch;
 import moa.classifiers.lazy.neighboursearch.NearestNeighbourSearch;
 import moa.core.Measurement;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
@@ -44,7 +47,7 @@ import com.github.javacliparser.MultiChoiceOption;
  * @author Jesse Read (jesse@tsc.uc3m.es)
  * @version 03.2012
  */
-public class kNN extends AbstractClassifier implements MultiClassClassifier, Regressor {
+public class kNN extends AbstractClassifier implements MultiClassClassifier, Regressor, MemoryAccountable {
 
     private static final long serialVersionUID = 1L;
 
@@ -57,9 +60,10 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 
         public MultiChoiceOption nearestNeighbourSearchOption = new MultiChoiceOption(
             "nearestNeighbourSearch", 'n', "Nearest Neighbour Search to use", new String[]{
-                "LinearNN", "KDTree"},
+                "LinearNN", "KDTree", "IncrementalKDTree"},
             new String[]{"Brute force search algorithm for nearest neighbour search. ",
-                "KDTree search algorithm for nearest neighbour search"
+                "KDTree search algorithm for nearest neighbour search",
+                "KDTree that is kept up to date as the window slides, instead of being rebuilt for each prediction"
             }, 0);
 
 
@@ -72,11 +76,28 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 
     protected Instances window; 
 
+    /** Index over the window, only used with the IncrementalKDTree search. */
+    protected IncrementalKDTree windowIndex;
+
+    /**
+     * Ring buffer holding the window when the index is used, window then
+     * only holds the header. Expiring the oldest instance doesn't shift the
+     * remaining ones.
+     */
+    protected Instance[] windowBuffer;
+
+    /** Position of the oldest instance in windowBuffer. */
+    protected int windowStart;
+
+    /** Number of instances in windowBuffer. */
+    protected int windowCount;
+
 	@Override
 	public void setModelContext(InstancesHeader context) {
 		try {
 			this.window = new Instances(context,0); //new StringReader(context.toString())
 			this.window.setClassIndex(context.classIndex());
+			this.initWindowIndex();
 		} catch(Exception e) {
 			System.err.println("Error: no Model Context available.");
 			e.printStackTrace();
@@ -87,6 +108,8 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
     @Override
     public void resetLearningImpl() {
 		this.window = null;
+		this.windowIndex = null;
+		this.windowBuffer = null;
     }
 
     @Override
@@ -95,26 +118,131 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 			C = (int)inst.classValue();
 		if (this.window == null) {
 			this.window = new Instances(inst.dataset());
+			this.initWindowIndex();
 		}
-		if (this.limitOption.getValue() <= this.window.numInstances()) {
-			this.window.delete(0);
+		if (this.limitOption.getValue() <= this.windowSize()) {
+			this.deleteFromWindow(0);
 		}
-		this.window.add(inst);
+		this.addToWindow(inst);
     }
 
+	/**
+	 * Creates the incremental index over the current window, if the
+	 * IncrementalKDTree search is selected.
+	 */
+	protected void initWindowIndex() {
+		if (this.nearestNeighbourSearchOption.getChosenIndex() == 2) {
+			this.windowBuffer = new Instance[Math.max(1, Math.min(this.limitOption.getValue(), 1024))];
+			this.windowStart = 0;
+			this.windowCount = 0;
+			for (int i = 0; i < this.window.numInstances(); i++) {
+				this.pushToBuffer(this.window.instance(i));
+			}
+			this.window = new Instances(this.window, 0);
+			this.windowIndex = new IncrementalKDTree(this.window);
+			for (int i = 0; i < this.windowCount; i++) {
+				this.windowIndex.update(this.windowInstance(i));
+			}
+		} else {
+			this.windowBuffer = null;
+			this.windowIndex = null;
+		}
+	}
+
+	/**
+	 * Returns the number of instances in the window.
+	 *
+	 * @return the number of instances
+	 */
+	protected int windowSize() {
+		return (this.windowBuffer != null) ? this.windowCount : this.window.numInstances();
+	}
+
+	/**
+	 * Returns an instance of the window, the oldest one has index 0.
+	 *
+	 * @param index the position of the instance in the window
+	 * @return the instance
+	 */
+	protected Instance windowInstance(int index) {
+		if (this.windowBuffer != null) {
+			return this.windowBuffer[(this.windowStart + index) % this.windowBuffer.length];
+		}
+		return this.window.instance(index);
+	}
+
+	/**
+	 * Appends an instance to the window, keeping the index in sync.
+	 *
+	 * @param inst the instance to add
+	 */
+	protected void addToWindow(Instance inst) {
+		if (this.windowBuffer != null) {
+			Instance copy = inst.copy();
+			this.pushToBuffer(copy);
+			this.windowIndex.update(copy);
+		} else {
+			this.window.add(inst);
+		}
+	}
+
+	/**
+	 * Removes an instance from the window, keeping the index in sync.
+	 * Removing the oldest instance takes constant time when the index is
+	 * used.
+	 *
+	 * @param index the position of the instance in the window
+	 */
+	protected void deleteFromWindow(int index) {
+		if (this.windowBuffer == null) {
+			this.window.delete(index);
+			return;
+		}
+		int length = this.windowBuffer.length;
+		this.windowIndex.remove(this.windowInstance(index));
+		// close the gap from the front, only the younger part moves for index 0
+		for (int i = index; i > 0; i--) {
+			this.windowBuffer[(this.windowStart + i) % length] =
+				this.windowBuffer[(this.windowStart + i - 1) % length];
+		}
+		this.windowBuffer[this.windowStart] = null;
+		this.windowStart = (this.windowStart + 1) % length;
+		this.windowCount--;
+	}
+
+	/**
+	 * Appends an instance to the ring buffer, growing it when full.
+	 *
+	 * @param inst the instance to add
+	 */
+	private void pushToBuffer(Instance inst) {
+		if (this.windowCount == this.windowBuffer.length) {
+			Instance[] grown = new Instance[2 * this.windowBuffer.length];
+			for (int i = 0; i < this.windowCount; i++) {
+				grown[i] = this.windowInstance(i);
+			}
+			this.windowBuffer = grown;
+			this.windowStart = 0;
+		}
+		this.windowBuffer[(this.windowStart + this.windowCount) % this.windowBuffer.length] = inst;
+		this.windowCount++;
+	}
+
 	@Override
     public double[] getVotesForInstance(Instance inst) {
 		double v[] = new double[C+1];
 		try {
 			NearestNeighbourSearch search;
-			if (this.nearestNeighbourSearchOption.getChosenIndex()== 0) {
+			if (this.windowIndex != null) {
+				search = this.windowIndex;
+			} else if (this.nearestNeighbourSearchOption.getChosenIndex()== 0) {
 				search = new LinearNNSearch(this.window);  
 			} else {
 				search = new KDTree();
 				search.setInstances(this.window);
 			}	
-			if (this.window.numInstances()>0) {	
-				Instances neighbours = search.kNearestNeighbours(inst,Math.min(kOption.getValue(),this.window.numInstances()));
+			if (this.windowSize()>0) {	
+				Instances neighbours = search.kNearestNeighbours(inst,Math.min(kOption.getValue(),this.windowSize()));
 				//================== Regression ====================
 				if(inst.classAttribute().isNumeric()){
 					double[] result = new double[1];
@@ -171,6 +299,25 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
         return null;
     }
 
+    /**
+     * Estimates the size of the window. The index over the window isn't
+     * counted.
+     */
+    @Override
+    public long estimateByteSize() {
+        long size = MemoryEstimates.object(3, 8);
+        if (this.window != null) {
+            int numInstances = this.windowSize();
+            size += MemoryEstimates.object(6, 0) + MemoryEstimates.ARRAY_LIST;
+            size += MemoryEstimates.referenceArray(this.windowBuffer != null
+                    ? this.windowBuffer.length : numInstances);
+            for (int i = 0; i < numInstances; i++) {
+                size += MemoryEstimates.instance(this.windowInstance(i));
+            }
+        }
+        return size;
+    }
+
     @Override
     public void getModelDescription(StringBuilder out, int indent) {
     }
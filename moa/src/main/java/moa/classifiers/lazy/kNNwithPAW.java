@@ -49,6 +49,8 @@ public class kNNwithPAW extends kNN implements MultiClassClassifier {
     @Override
     public void resetLearningImpl() {
         this.window = null;
+        this.windowIndex = null;
+        this.windowBuffer = null;
         this.prob = Math.pow(2.0, -1.0 / this.limitOption.getValue());
     }
 
@@ -59,14 +61,15 @@ public class kNNwithPAW extends kNN implements MultiClassClassifier {
         }
         if (this.window == null) {
             this.window = new Instances(inst.dataset());
+            this.initWindowIndex();
         }
 
-        for (int i = 0; i < this.window.size(); i++) {
+        for (int i = 0; i < this.windowSize(); i++) {
             if (this.classifierRandom.nextDouble() > this.prob) {
-                this.window.delete(i);
+                this.deleteFromWindow(i);
             }
         }
-        this.window.add(inst);
+        this.addToWindow(inst);
 
     }
 
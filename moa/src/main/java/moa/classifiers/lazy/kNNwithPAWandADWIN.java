@@ -55,6 +55,8 @@ public class kNNwithPAWandADWIN extends kNN implements MultiClassClassifier {
     @Override
     public void resetLearningImpl() {
         this.window = null;
+        this.windowIndex = null;
+        this.windowBuffer = null;
         this.adwin = new ADWIN();
         this.prob = Math.pow(2.0, -1.0 / this.limitOption.getValue());
         this.time = 0;
@@ -70,27 +72,28 @@ public class kNNwithPAWandADWIN extends kNN implements MultiClassClassifier {
         // ADWIN
         if (this.window == null) {
             this.window = new Instances(inst.dataset());
+            this.initWindowIndex();
         }
 
         if (this.timeStamp == null) {
             this.timeStamp = new ArrayList<Integer>(10);
         }
-        for (int i = 0; i < this.window.size(); i++) {
+        for (int i = 0; i < this.windowSize(); i++) {
             if (this.classifierRandom.nextDouble() > this.prob) {
-                this.window.delete(i);
+                this.deleteFromWindow(i);
                 this.timeStamp.remove(i);
             }
         }
-        this.window.add(inst);
+        this.addToWindow(inst);
         this.timeStamp.add(this.time);
         this.time++;
         boolean correctlyClassifies = this.correctlyClassifies(inst);
         if (this.adwin.setInput(correctlyClassifies ? 0 : 1)) {
             //Change
             int size = (int) this.adwin.getWidth();
-            for (int i = 0; i < this.window.size(); i++) {
+            for (int i = 0; i < this.windowSize(); i++) {
                 if (this.timeStamp.get(i) < this.time - size) {
-                    this.window.delete(i);
+                    this.deleteFromWindow(i);
                     this.timeStamp.remove(i);
                 }
             }
@@ -0,0 +1,763 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    IncrementalKDTree.java
+ *    Copyright (C) 2024 University of Waikato
+ */
+
+package moa.classifiers.lazy.neighboursearch;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ <!-- globalinfo-start -->
+ * Class implementing a dynamic KDTree for nearest neighbour search over a
+ * sliding window.<br/>
+ * Unlike KDTree, the tree is not rebuilt whenever the neighbourhood changes:
+ * instances are inserted with update(Instance) and expired with
+ * remove(Instance), both in logarithmic (amortized) time. Every node keeps the
+ * bounding box of the numeric attributes of its instances, which is used both
+ * for pruning and for maintaining the exact attribute ranges needed by the
+ * (normalized) distance function. Subtrees that get out of balance are rebuilt
+ * in the style of scapegoat trees, splitting at the median of the widest
+ * (normalized) dimension.<br/>
+ * Only numeric attributes are used for splitting, missing values are sent to
+ * the left branch. The pruning bound assumes the EuclideanDistance; with any
+ * other distance function all leaves are scanned.
+ * <p/>
+ <!-- globalinfo-end -->
+ *
+ * @version $Revision: 1 $
+ */
+public class IncrementalKDTree
+  extends NearestNeighbourSearch {
+
+  /** For serialization. */
+  private static final long serialVersionUID = -2840279433452735812L;
+
+  /** The fraction of a node's instances a child may hold before the node
+   *  is considered out of balance. */
+  public static final double ALPHA = 0.75;
+
+  /** The index of MIN value in attributes' range array. */
+  public static final int MIN = EuclideanDistance.R_MIN;
+
+  /** The index of MAX value in attributes' range array. */
+  public static final int MAX = EuclideanDistance.R_MAX;
+
+  /** The index of WIDTH (MAX-MIN) value in attributes' range array. */
+  public static final int WIDTH = EuclideanDistance.R_WIDTH;
+
+  /**
+   * A node of the tree. Leaves hold their instances in a bucket, inner nodes
+   * split on a single numeric attribute.
+   */
+  protected static class KDNode
+    implements Serializable {
+
+    /** For serialization. */
+    private static final long serialVersionUID = 3016474522497413262L;
+
+    /** The position (in m_Dims) of the splitting attribute, -1 for leaves. */
+    public int m_SplitDim = -1;
+
+    /** The split value, instances with smaller (or missing) values go left. */
+    public double m_SplitValue;
+
+    /** The parent node, null for the root. */
+    public KDNode m_Parent;
+
+    /** The left child. */
+    public KDNode m_Left;
+
+    /** The right child. */
+    public KDNode m_Right;
+
+    /** The instances of a leaf. */
+    public Instance[] m_Bucket;
+
+    /** The number of instances in the subtree. */
+    public int m_Size;
+
+    /** The number of instances a leaf may hold before a split is tried. */
+    public int m_Capacity;
+
+    /** The number of inserts and removes since the node was built. */
+    public int m_Modifications;
+
+    /** The minimum of the non-missing values of each numeric attribute. */
+    public double[] m_Min;
+
+    /** The maximum of the non-missing values of each numeric attribute. */
+    public double[] m_Max;
+
+    /**
+     * Creates an empty node.
+     *
+     * @param numDims	the number of numeric attributes
+     * @param parent	the parent node
+     */
+    public KDNode(int numDims, KDNode parent) {
+      m_Parent = parent;
+      m_Min = new double[numDims];
+      m_Max = new double[numDims];
+      Arrays.fill(m_Min, Double.POSITIVE_INFINITY);
+      Arrays.fill(m_Max, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Returns whether the node is a leaf.
+     *
+     * @return		true if a leaf
+     */
+    public boolean isLeaf() {
+      return m_SplitDim < 0;
+    }
+  }
+
+  /** The root node of the tree. */
+  protected KDNode m_Root;
+
+  /** The attribute indices of the numeric (non-class) attributes. */
+  protected int[] m_Dims;
+
+  /** The maximal number of instances in a leaf. */
+  protected int m_MaxInstInLeaf = 40;
+
+  /** The ranges handed to the distance function. */
+  protected double[][] m_Ranges;
+
+  /** Whether the ranges need to be recomputed before the next search. */
+  protected boolean m_RangesDirty = true;
+
+  /** Array holding the distances of the nearest neighbours. */
+  protected double[] m_Distances;
+
+  /** The numeric attribute values of the current target. */
+  protected transient double[] m_Target;
+
+  /** The candidates referenced by the heap in the current search. */
+  protected transient Instance[] m_Candidates;
+
+  /** The number of candidates in the current search. */
+  protected transient int m_NumCandidates;
+
+  /**
+   * Constructor. Needs setInstances(Instances)
+   * to be called before the class is usable.
+   */
+  public IncrementalKDTree() {
+    super();
+  }
+
+  /**
+   * Constructor that builds the tree from the supplied set of instances.
+   *
+   * @param insts	the instances to use
+   */
+  public IncrementalKDTree(Instances insts) {
+    super();
+    setInstances(insts);
+  }
+
+  /**
+   * Returns a string describing this nearest neighbour search algorithm.
+   *
+   * @return 		a description of the algorithm for displaying in the
+   * 			explorer/experimenter gui
+   */
+  public String globalInfo() {
+    return
+        "Class implementing a KDTree that supports inserting and removing "
+      + "instances, for nearest neighbour search over sliding windows.";
+  }
+
+  /**
+   * Sets the maximal number of instances in a leaf. Only affects nodes
+   * built after the call.
+   *
+   * @param maxInstInLeaf	the maximal number of instances
+   */
+  public void setMaxInstInLeaf(int maxInstInLeaf) {
+    m_MaxInstInLeaf = Math.max(1, maxInstInLeaf);
+  }
+
+  /**
+   * Returns the maximal number of instances in a leaf.
+   *
+   * @return		the maximal number of instances
+   */
+  public int getMaxInstInLeaf() {
+    return m_MaxInstInLeaf;
+  }
+
+  /**
+   * Returns the number of instances currently stored in the tree.
+   *
+   * @return		the number of instances
+   */
+  public int numInstances() {
+    return (m_Root == null) ? 0 : m_Root.m_Size;
+  }
+
+  /**
+   * Sets the header of the neighbourhood and builds the tree from the
+   * instances it contains. Later changes have to be reported through
+   * update(Instance) and remove(Instance).
+   *
+   * @param insts 	the instances to build the tree from
+   */
+  public void setInstances(Instances insts) {
+    m_Instances = insts;
+    m_DistanceFunction.setInstances(new Instances(insts, 0));
+    initializeDims();
+    Instance[] all = new Instance[insts.numInstances()];
+    for (int i = 0; i < all.length; i++)
+      all[i] = insts.instance(i);
+    m_Root = null;
+    m_Root = build(all, 0, all.length, null);
+    m_RangesDirty = true;
+  }
+
+  /**
+   * Determines the numeric attributes used for splitting.
+   */
+  protected void initializeDims() {
+    int count = 0;
+    int[] dims = new int[m_Instances.numAttributes()];
+    for (int i = 0; i < dims.length; i++) {
+      if (i != m_Instances.classIndex() && !m_Instances.attribute(i).isNominal())
+        dims[count++] = i;
+    }
+    m_Dims = Arrays.copyOf(dims, count);
+    m_Ranges = new double[m_Instances.numAttributes()][3];
+  }
+
+  /**
+   * Inserts the given instance into the tree. The instance is stored by
+   * reference, the same reference has to be passed to remove(Instance).
+   *
+   * @param ins 	the instance to add
+   */
+  public void update(Instance ins) {
+    if (m_Root == null)
+      throw new IllegalStateException("No instances supplied yet. Cannot update "
+        + "without supplying a set of instances first.");
+
+    KDNode node = m_Root;
+    while (true) {
+      node.m_Size++;
+      node.m_Modifications++;
+      expandBox(node, ins);
+      if (node.isLeaf())
+        break;
+      node = goesLeft(ins, node) ? node.m_Left : node.m_Right;
+    }
+    if (node.m_Size > node.m_Bucket.length)
+      node.m_Bucket = Arrays.copyOf(node.m_Bucket, Math.max(2, 2 * node.m_Bucket.length));
+    node.m_Bucket[node.m_Size - 1] = ins;
+    m_RangesDirty = true;
+
+    rebalance(node);
+  }
+
+  /**
+   * Removes the given instance (by reference) from the tree.
+   *
+   * @param ins 	the instance to remove
+   * @return		true if the instance was found and removed
+   */
+  public boolean remove(Instance ins) {
+    if (m_Root == null)
+      return false;
+
+    KDNode node = m_Root;
+    while (!node.isLeaf())
+      node = goesLeft(ins, node) ? node.m_Left : node.m_Right;
+
+    int pos = -1;
+    for (int i = 0; i < node.m_Size; i++) {
+      if (node.m_Bucket[i] == ins) {
+        pos = i;
+        break;
+      }
+    }
+    if (pos < 0)
+      return false;
+
+    node.m_Size--;
+    node.m_Bucket[pos] = node.m_Bucket[node.m_Size];
+    node.m_Bucket[node.m_Size] = null;
+    node.m_Modifications++;
+    shrinkLeafBox(node, ins);
+    for (KDNode parent = node.m_Parent; parent != null; parent = parent.m_Parent) {
+      parent.m_Size--;
+      parent.m_Modifications++;
+      unionBox(parent);
+    }
+    m_RangesDirty = true;
+
+    rebalance(node);
+    return true;
+  }
+
+  /**
+   * Returns whether the instance is routed to the left child of the node.
+   *
+   * @param ins		the instance
+   * @param node	the inner node
+   * @return		true if the instance belongs to the left subtree
+   */
+  protected boolean goesLeft(Instance ins, KDNode node) {
+    int att = m_Dims[node.m_SplitDim];
+    return ins.isMissing(att) || ins.value(att) < node.m_SplitValue;
+  }
+
+  /**
+   * Enlarges the bounding box of the node to contain the instance.
+   *
+   * @param node	the node to update
+   * @param ins		the instance
+   */
+  protected void expandBox(KDNode node, Instance ins) {
+    for (int i = 0; i < m_Dims.length; i++) {
+      if (ins.isMissing(m_Dims[i]))
+        continue;
+      double value = ins.value(m_Dims[i]);
+      if (value < node.m_Min[i])
+        node.m_Min[i] = value;
+      if (value > node.m_Max[i])
+        node.m_Max[i] = value;
+    }
+  }
+
+  /**
+   * Recomputes the bounding box of a leaf after the instance was removed.
+   * Only the attributes where the removed value was on the border need to be
+   * recomputed.
+   *
+   * @param leaf	the leaf the instance was removed from
+   * @param removed	the removed instance
+   */
+  protected void shrinkLeafBox(KDNode leaf, Instance removed) {
+    for (int i = 0; i < m_Dims.length; i++) {
+      int att = m_Dims[i];
+      if (removed.isMissing(att))
+        continue;
+      double value = removed.value(att);
+      if (value > leaf.m_Min[i] && value < leaf.m_Max[i])
+        continue;
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (int n = 0; n < leaf.m_Size; n++) {
+        Instance inst = leaf.m_Bucket[n];
+        if (inst.isMissing(att))
+          continue;
+        value = inst.value(att);
+        if (value < min)
+          min = value;
+        if (value > max)
+          max = value;
+      }
+      leaf.m_Min[i] = min;
+      leaf.m_Max[i] = max;
+    }
+  }
+
+  /**
+   * Sets the bounding box of an inner node to the union of its children.
+   *
+   * @param node	the inner node
+   */
+  protected void unionBox(KDNode node) {
+    for (int i = 0; i < m_Dims.length; i++) {
+      node.m_Min[i] = Math.min(node.m_Left.m_Min[i], node.m_Right.m_Min[i]);
+      node.m_Max[i] = Math.max(node.m_Left.m_Max[i], node.m_Right.m_Max[i]);
+    }
+  }
+
+  /**
+   * Finds the highest node on the path from the given leaf to the root that
+   * needs restructuring and rebuilds it.
+   *
+   * @param leaf	the leaf that was modified
+   */
+  protected void rebalance(KDNode leaf) {
+    KDNode scapegoat = null;
+    for (KDNode node = leaf; node != null; node = node.m_Parent) {
+      if (needsRebuild(node))
+        scapegoat = node;
+    }
+    if (scapegoat != null)
+      rebuild(scapegoat);
+  }
+
+  /**
+   * Checks whether a node has to be rebuilt: overflowing leaves, inner nodes
+   * that fit into a leaf and inner nodes that got out of balance since they
+   * were built.
+   *
+   * @param node	the node to check
+   * @return		true if the node should be rebuilt
+   */
+  protected boolean needsRebuild(KDNode node) {
+    if (node.isLeaf())
+      return node.m_Size > node.m_Capacity;
+    if (node.m_Size <= m_MaxInstInLeaf)
+      return true;
+    int largest = Math.max(node.m_Left.m_Size, node.m_Right.m_Size);
+    return (largest > ALPHA * node.m_Size) && (4 * node.m_Modifications >= node.m_Size);
+  }
+
+  /**
+   * Rebuilds the subtree rooted at the given node.
+   *
+   * @param node	the root of the subtree
+   */
+  protected void rebuild(KDNode node) {
+    Instance[] insts = new Instance[node.m_Size];
+    collect(node, insts, 0);
+    KDNode parent = node.m_Parent;
+    KDNode rebuilt = build(insts, 0, insts.length, parent);
+    if (parent == null)
+      m_Root = rebuilt;
+    else if (parent.m_Left == node)
+      parent.m_Left = rebuilt;
+    else
+      parent.m_Right = rebuilt;
+  }
+
+  /**
+   * Copies the instances of the subtree into the array.
+   *
+   * @param node	the root of the subtree
+   * @param insts	the array to fill
+   * @param pos		the first position to fill
+   * @return		the position after the last instance copied
+   */
+  protected int collect(KDNode node, Instance[] insts, int pos) {
+    if (node.isLeaf()) {
+      System.arraycopy(node.m_Bucket, 0, insts, pos, node.m_Size);
+      return pos + node.m_Size;
+    }
+    pos = collect(node.m_Left, insts, pos);
+    return collect(node.m_Right, insts, pos);
+  }
+
+  /**
+   * Builds a balanced subtree for the given instances, splitting at the
+   * median of the widest dimension (relative to the global ranges).
+   *
+   * @param insts	the instances, reordered in place
+   * @param start	the first instance to use
+   * @param end		the position after the last instance to use
+   * @param parent	the parent of the new subtree
+   * @return		the root of the new subtree
+   */
+  protected KDNode build(Instance[] insts, int start, int end, KDNode parent) {
+    KDNode node = new KDNode(m_Dims.length, parent);
+    node.m_Size = end - start;
+    for (int i = start; i < end; i++)
+      expandBox(node, insts[i]);
+
+    if (node.m_Size > m_MaxInstInLeaf) {
+      // rank the dimensions by their width, relative to the whole tree
+      KDNode whole = (m_Root == null) ? node : m_Root;
+      double[] widths = new double[m_Dims.length];
+      Integer[] order = new Integer[m_Dims.length];
+      for (int i = 0; i < m_Dims.length; i++) {
+        order[i] = i;
+        double width = node.m_Max[i] - node.m_Min[i];
+        double scale = whole.m_Max[i] - whole.m_Min[i];
+        widths[i] = (width > 0) ? width / ((scale > 0) ? scale : width) : 0;
+      }
+      Arrays.sort(order, (a, b) -> Double.compare(widths[b], widths[a]));
+
+      double[] values = new double[node.m_Size];
+      for (int i = 0; i < order.length && widths[order[i]] > 0; i++) {
+        if (split(node, order[i], insts, start, end, values)) {
+          int att = m_Dims[node.m_SplitDim];
+          int left = start;
+          int right = end - 1;
+          while (left <= right) {
+            if (insts[left].isMissing(att) || insts[left].value(att) < node.m_SplitValue) {
+              left++;
+            } else {
+              Instance tmp = insts[left];
+              insts[left] = insts[right];
+              insts[right--] = tmp;
+            }
+          }
+          node.m_Left = build(insts, start, left, node);
+          node.m_Right = build(insts, left, end, node);
+          return node;
+        }
+      }
+    }
+
+    // leaf, possibly an oversized one that cannot be split
+    node.m_Capacity = (node.m_Size > m_MaxInstInLeaf) ? 2 * node.m_Size : m_MaxInstInLeaf;
+    node.m_Bucket = new Instance[node.m_Capacity + 1];
+    System.arraycopy(insts, start, node.m_Bucket, 0, node.m_Size);
+    return node;
+  }
+
+  /**
+   * Determines the split value of the node for the given dimension, using
+   * the median of the non-missing values.
+   *
+   * @param node	the node to split
+   * @param dim		the position of the attribute in m_Dims
+   * @param insts	the instances
+   * @param start	the first instance to use
+   * @param end		the position after the last instance to use
+   * @param values	buffer for the values
+   * @return		true if both sides of the split are non-empty
+   */
+  protected boolean split(KDNode node, int dim, Instance[] insts, int start, int end, double[] values) {
+    int att = m_Dims[dim];
+    int count = 0;
+    for (int i = start; i < end; i++) {
+      if (!insts[i].isMissing(att))
+        values[count++] = insts[i].value(att);
+    }
+    if (count < 2)
+      return false;
+    Arrays.sort(values, 0, count);
+    int median = count / 2;
+    double splitValue = values[median];
+    if (splitValue == values[0]) {
+      while (median < count && values[median] == splitValue)
+        median++;
+      if (median == count)
+        return false;
+      splitValue = values[median];
+    }
+    node.m_SplitDim = dim;
+    node.m_SplitValue = splitValue;
+    return true;
+  }
+
+  /**
+   * Hands the current attribute ranges (the bounding box of the root) to the
+   * distance function, if they changed since the last search.
+   */
+  protected void updateRanges() {
+    if (!m_RangesDirty || !(m_DistanceFunction instanceof NormalizableDistance))
+      return;
+    for (int i = 0; i < m_Ranges.length; i++) {
+      m_Ranges[i][MIN] = Double.POSITIVE_INFINITY;
+      m_Ranges[i][MAX] = Double.NEGATIVE_INFINITY;
+      m_Ranges[i][WIDTH] = Double.POSITIVE_INFINITY;
+    }
+    for (int i = 0; i < m_Dims.length; i++) {
+      if (m_Root.m_Min[i] <= m_Root.m_Max[i]) {
+        double[] range = m_Ranges[m_Dims[i]];
+        range[MIN] = m_Root.m_Min[i];
+        range[MAX] = m_Root.m_Max[i];
+        range[WIDTH] = range[MAX] - range[MIN];
+      }
+    }
+    ((NormalizableDistance) m_DistanceFunction).setRanges(m_Ranges);
+    m_RangesDirty = false;
+  }
+
+  /**
+   * Returns a lower bound of the (squared, Euclidean) distance between the
+   * current target and any instance in the node. Instances with missing
+   * values are covered as well, since their difference to the target is never
+   * smaller than the distance of the target to the box.
+   *
+   * @param node	the node
+   * @return		the lower bound
+   */
+  protected double minDistance(KDNode node) {
+    if (!(m_DistanceFunction instanceof EuclideanDistance))
+      return 0;
+    boolean normalize = !((EuclideanDistance) m_DistanceFunction).getDontNormalize();
+    double result = 0;
+    for (int i = 0; i < m_Dims.length; i++) {
+      double value = m_Target[i];
+      if (Double.isNaN(value) || node.m_Min[i] > node.m_Max[i])
+        continue;
+      double diff;
+      if (value < node.m_Min[i])
+        diff = node.m_Min[i] - value;
+      else if (value > node.m_Max[i])
+        diff = value - node.m_Max[i];
+      else
+        continue;
+      if (normalize) {
+        double width = m_Ranges[m_Dims[i]][WIDTH];
+        if (!(width > 0))
+          continue;
+        diff /= width;
+      }
+      result += diff * diff;
+    }
+    // guard against rounding differences to the distance function
+    return result * (1.0 - 1e-9);
+  }
+
+  /**
+   * Returns the nearest instance in the current neighbourhood to the supplied
+   * instance.
+   *
+   * @param target 	The instance to find the nearest neighbour for.
+   * @return		the nearest instance
+   * @throws Exception 	if the nearest neighbour could not be found.
+   */
+  public Instance nearestNeighbour(Instance target) throws Exception {
+    return (kNearestNeighbours(target, 1)).instance(0);
+  }
+
+  /**
+   * Returns k nearest instances in the current neighbourhood to the supplied
+   * instance. Like LinearNNSearch, instances tied with the kth nearest one
+   * are returned as well.
+   *
+   * @param target 	The instance to find the k nearest neighbours for.
+   * @param kNN		The number of nearest neighbours to find.
+   * @return		the k nearest neighbors
+   * @throws Exception  if the neighbours could not be found.
+   */
+  public Instances kNearestNeighbours(Instance target, int kNN) throws Exception {
+    if (m_Root == null)
+      throw new Exception("No instances supplied yet. Have to call "
+        + "setInstances(instances) with a set of Instances first.");
+
+    updateRanges();
+    if (m_Target == null || m_Target.length != m_Dims.length)
+      m_Target = new double[m_Dims.length];
+    for (int i = 0; i < m_Dims.length; i++)
+      m_Target[i] = target.isMissing(m_Dims[i]) ? Double.NaN : target.value(m_Dims[i]);
+    m_NumCandidates = 0;
+
+    MyHeap heap = new MyHeap(kNN);
+    findNearestNeighbours(target, m_Root, kNN, heap);
+
+    Instances neighbours = new Instances(m_Instances, (heap.size() + heap.noOfKthNearest()));
+    m_Distances = new double[heap.size() + heap.noOfKthNearest()];
+    int[] indices = new int[heap.size() + heap.noOfKthNearest()];
+    int i = 1;
+    MyHeapElement h;
+    while (heap.noOfKthNearest() > 0) {
+      h = heap.getKthNearest();
+      indices[indices.length - i] = h.index;
+      m_Distances[indices.length - i] = h.distance;
+      i++;
+    }
+    while (heap.size() > 0) {
+      h = heap.get();
+      indices[indices.length - i] = h.index;
+      m_Distances[indices.length - i] = h.distance;
+      i++;
+    }
+
+    m_DistanceFunction.postProcessDistances(m_Distances);
+
+    for (int k = 0; k < indices.length; k++)
+      neighbours.add(m_Candidates[indices[k]]);
+    Arrays.fill(m_Candidates, 0, m_NumCandidates, null);
+
+    return neighbours;
+  }
+
+  /**
+   * Searches the subtree for the nearest neighbours, visiting the closer
+   * child first and skipping subtrees that cannot contain a neighbour.
+   *
+   * @param target	the target instance
+   * @param node	the current node
+   * @param kNN		the number of neighbours to find
+   * @param heap	the heap holding the neighbours found so far
+   * @throws Exception	if the heap fails
+   */
+  protected void findNearestNeighbours(Instance target, KDNode node, int kNN, MyHeap heap) throws Exception {
+    if (node.isLeaf()) {
+      for (int i = 0; i < node.m_Size; i++) {
+        Instance inst = node.m_Bucket[i];
+        if (target == inst) //for hold-one-out cross-validation
+          continue;
+        if (heap.size() < kNN) {
+          double distance = m_DistanceFunction.distance(target, inst, Double.POSITIVE_INFINITY);
+          heap.put(addCandidate(inst), distance);
+        } else {
+          MyHeapElement temp = heap.peek();
+          double distance = m_DistanceFunction.distance(target, inst, temp.distance);
+          if (distance < temp.distance)
+            heap.putBySubstitute(addCandidate(inst), distance);
+          else if (distance == temp.distance)
+            heap.putKthNearest(addCandidate(inst), distance);
+        }
+      }
+      return;
+    }
+
+    double leftDistance = minDistance(node.m_Left);
+    double rightDistance = minDistance(node.m_Right);
+    KDNode first = node.m_Left;
+    KDNode second = node.m_Right;
+    if (rightDistance < leftDistance) {
+      first = node.m_Right;
+      second = node.m_Left;
+      double tmp = leftDistance;
+      leftDistance = rightDistance;
+      rightDistance = tmp;
+    }
+    if (first.m_Size > 0 && (heap.size() < kNN || leftDistance <= heap.peek().distance))
+      findNearestNeighbours(target, first, kNN, heap);
+    if (second.m_Size > 0 && (heap.size() < kNN || rightDistance <= heap.peek().distance))
+      findNearestNeighbours(target, second, kNN, heap);
+  }
+
+  /**
+   * Stores an instance that entered the heap and returns its index.
+   *
+   * @param inst	the instance
+   * @return		the index to put in the heap
+   */
+  protected int addCandidate(Instance inst) {
+    if (m_Candidates == null)
+      m_Candidates = new Instance[64];
+    else if (m_NumCandidates == m_Candidates.length)
+      m_Candidates = Arrays.copyOf(m_Candidates, 2 * m_Candidates.length);
+    m_Candidates[m_NumCandidates] = inst;
+    return m_NumCandidates++;
+  }
+
+  /**
+   * Returns the distances of the k nearest neighbours. The kNearestNeighbours
+   * or nearestNeighbour must always be called before calling this function.
+   *
+   * @return 		array containing the distances of the
+   * 			nearestNeighbours. The length and ordering of the
+   * 			array is the same as that of the instances returned
+   * 			by nearestNeighbour functions.
+   * @throws Exception 	if called before calling kNearestNeighbours
+   *            	or nearestNeighbours.
+   */
+  public double[] getDistances() throws Exception {
+    if (m_Distances == null)
+      throw new Exception("No distances available. Please call either "
+        + "kNearestNeighbours or nearestNeighbours first.");
+    return m_Distances;
+  }
+}
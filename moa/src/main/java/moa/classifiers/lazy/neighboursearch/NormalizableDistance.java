@@ -655,6 +655,18 @@ public abstract class NormalizableDistance
     m_Ranges = updateRanges(instance, m_Ranges);
   }
   
+  /**
+   * Sets the ranges directly, e.g., when they are maintained incrementally
+   * by the nearest neighbour search.
+   * 
+   * @param ranges 	low, high and width values for all attributes
+   */
+  public void setRanges(double[][] ranges) {
+    validate();
+    
+    m_Ranges = ranges;
+  }
+  
   /**
    * Test if an instance is within the given ranges.
    * 
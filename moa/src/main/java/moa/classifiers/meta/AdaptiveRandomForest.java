@@ -19,6 +19,7 @@
 package moa.classifiers.meta;
 
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
@@ -29,6 +30,8 @@ import moa.classifiers.MultiClassClassifier;
 import moa.core.DoubleVector;
 import moa.core.InstanceExample;
 import moa.core.Measurement;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 import moa.core.MiscUtils;
 import moa.options.ClassOption;
 
@@ -36,17 +39,17 @@ import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.concurrent.Callable;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 
 import moa.classifiers.trees.ARFHoeffdingTree;
 import moa.evaluation.BasicClassificationPerformanceEvaluator;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import moa.AbstractMOAObject;
 import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.core.driftdetection.DriftDetectorBank;
 
 
 /**
@@ -74,18 +77,20 @@ import moa.classifiers.core.driftdetection.ChangeDetector;
  * values corresponds to M - m</li>
  * <li>-a : The lambda value for bagging (lambda=6 corresponds to levBag)</li>
  * <li>-j : Number of threads to be used for training</li>
+ * <li>-b : Number of instances after which the training threads are synchronized</li>
  * <li>-x : Change detector for drifts and its parameters</li>
  * <li>-p : Change detector for warnings (start training bkg learner)</li>
  * <li>-w : Should use weighted voting?</li>
  * <li>-u : Should use drift detection? If disabled then bkg learner is also disabled</li>
  * <li>-q : Should use bkg learner? If disabled then reset tree immediately</li>
+ * <li>-P : Get the votes of the trees in parallel</li>
  * </ul>
  *
  * @author Heitor Murilo Gomes (heitor_murilo_gomes at yahoo dot com dot br)
  * @version $Revision: 1 $
  */
 public class AdaptiveRandomForest extends AbstractClassifier implements MultiClassClassifier,
-                                                                        CapabilitiesHandler {
+                                                                        CapabilitiesHandler, MemoryAccountable {
 
     @Override
     public String getPurposeString() {
@@ -115,6 +120,9 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
 
     public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
         "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
+    public IntOption microBatchSizeOption = new IntOption("microBatchSize", 'b',
+        "Number of instances after which the training threads are synchronized (0 = only when the model is queried)", 0, 0, Integer.MAX_VALUE);
     
     public ClassOption driftDetectionMethodOption = new ClassOption("driftDetectionMethod", 'x',
         "Change detector for drifts and its parameters", ChangeDetector.class, "ADWINChangeDetector -a 1.0E-3");
@@ -130,6 +138,9 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
 
     public FlagOption disableBackgroundLearnerOption = new FlagOption("disableBackgroundLearner", 'q', 
         "Should use bkg learner? If disabled then reset tree immediately.");
+
+    public FlagOption parallelPredictionOption = new FlagOption("parallelPrediction", 'P',
+        "Get the votes of the trees in parallel.");
     
     protected static final int FEATURES_M = 0;
     protected static final int FEATURES_SQRT = 1;
@@ -143,7 +154,12 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
     protected int subspaceSize;
     protected BasicClassificationPerformanceEvaluator evaluator;
 
-    private ExecutorService executor;
+    // Change detectors of the members, indexed as the ensemble.
+    protected DriftDetectorBank driftDetectors;
+    protected DriftDetectorBank warningDetectors;
+
+    // Training threads, created with the ensemble when more than one job is requested.
+    private transient TrainingWorkers workers;
     
     @Override
     public void resetLearningImpl() {
@@ -154,46 +170,82 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         this.evaluator = new BasicClassificationPerformanceEvaluator();
         
         // Multi-threading
+        if(this.workers != null) {
+            this.workers.shutdown();
+            this.workers = null;
+        }
+    }
+
+    protected int getNumberOfJobs() {
         int numberOfJobs;
         if(this.numberOfJobsOption.getValue() == -1) 
             numberOfJobs = Runtime.getRuntime().availableProcessors();
         else 
             numberOfJobs = this.numberOfJobsOption.getValue();
         // SINGLE_THREAD and requesting for only 1 thread are equivalent. 
-        // this.executor will be null and not used...
-        if(numberOfJobs != AdaptiveRandomForest.SINGLE_THREAD && numberOfJobs != 1)
-            this.executor = Executors.newFixedThreadPool(numberOfJobs);
+        if(numberOfJobs == AdaptiveRandomForest.SINGLE_THREAD)
+            numberOfJobs = 1;
+        return Math.min(numberOfJobs, this.ensemble.length);
+    }
+
+    /**
+     * Waits until the training threads have processed every instance
+     * submitted so far. Must be called before the members are read.
+     */
+    protected void synchronizeWorkers() {
+        if(this.workers != null)
+            this.workers.awaitAll();
     }
 
     @Override
     public void trainOnInstanceImpl(Instance instance) {
+        trainEnsemble(instance, null);
+    }
+
+    @Override
+    protected boolean supportsPredictAndTrainImpl() {
+        return isInheritedFrom(AdaptiveRandomForest.class, "trainOnInstanceImpl", "getVotesForInstance")
+                && isInheritedFrom(AbstractClassifier.class, "trainOnInstance");
+    }
+
+    @Override
+    protected double[] predictAndTrainImpl(Instance instance) {
+        DoubleVector combinedVote = new DoubleVector();
+        trainEnsemble(instance, combinedVote);
+        return combinedVote.getArrayRef();
+    }
+
+    /**
+     * Trains every member of the ensemble. The votes of the members, which are
+     * needed anyway to update their evaluators, are also combined into
+     * combinedVote when it is not null.
+     */
+    protected void trainEnsemble(Instance instance, DoubleVector combinedVote) {
         ++this.instancesSeen;
         if(this.ensemble == null) 
             initEnsemble(instance);
-        
-        Collection<TrainingRunnable> trainers = new ArrayList<TrainingRunnable>();
+        if(this.workers == null && getNumberOfJobs() > 1)
+            this.workers = new TrainingWorkers(getNumberOfJobs());
+
+        if(this.workers != null) {
+            // The weights are drawn here, in member order, so the result does
+            // not depend on the number of threads.
+            TrainingTask task = this.workers.nextTask();
+            for (int i = 0 ; i < this.ensemble.length ; i++)
+                task.weights[i] = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
+            this.workers.submit(task, instance, this.instancesSeen, combinedVote);
+            return;
+        }
+
+        InstanceExample example = new InstanceExample(instance);
         for (int i = 0 ; i < this.ensemble.length ; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(instance));
-            InstanceExample example = new InstanceExample(instance);
-            this.ensemble[i].evaluator.addResult(example, vote.getArrayRef());
+            double[] vote = this.ensemble[i].getVotesForInstance(instance);
+            if (combinedVote != null)
+                addWeightedVote(combinedVote, vote, i);
+            this.ensemble[i].evaluator.addResult(example, vote);
             int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
-            if (k > 0) {
-                if(this.executor != null) {
-                    TrainingRunnable trainer = new TrainingRunnable(this.ensemble[i], 
-                        instance, k, this.instancesSeen);
-                    trainers.add(trainer);
-                }
-                else { // SINGLE_THREAD is in-place... 
-                    this.ensemble[i].trainOnInstance(instance, k, this.instancesSeen);
-                }
-            }
-        }
-        if(this.executor != null) {
-            try {
-                this.executor.invokeAll(trainers);
-            } catch (InterruptedException ex) {
-                throw new RuntimeException("Could not call invokeAll() on training threads.");
-            }
+            if (k > 0)
+                this.ensemble[i].trainOnInstance(instance, k, this.instancesSeen);
         }
     }
 
@@ -202,22 +254,69 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         Instance testInstance = instance.copy();
         if(this.ensemble == null) 
             initEnsemble(testInstance);
+        synchronizeWorkers();
+        return combineVotes(EnsembleVotes.getVotes(this.ensemble.length, testInstance,
+                (i, inst) -> this.ensemble[i].getVotesForInstance(inst),
+                this.parallelPredictionOption.isSet()));
+    }
+
+    @Override
+    public double[][] getVotesForBatch(InstanceBatch batch) {
+        if(this.ensemble == null || !isInheritedFrom(AdaptiveRandomForest.class, "getVotesForInstance"))
+            return super.getVotesForBatch(batch);
+        synchronizeWorkers();
+        double[][][] memberVotes = EnsembleVotes.getVotesForBatch(this.ensemble.length,
+                EnsembleVotes.instances(batch),
+                (i, inst) -> this.ensemble[i].getVotesForInstance(inst),
+                this.parallelPredictionOption.isSet());
+        double[][] votes = new double[memberVotes.length][];
+        for(int row = 0 ; row < votes.length ; ++row)
+            votes[row] = combineVotes(memberVotes[row]);
+        return votes;
+    }
+
+    // Adds the weighted votes of the members, indexed as the ensemble, in member order.
+    private double[] combineVotes(double[][] memberVotes) {
         DoubleVector combinedVote = new DoubleVector();
+        for(int i = 0 ; i < memberVotes.length ; ++i) {
+            addWeightedVote(combinedVote, memberVotes[i], i);
+        }
+        return combinedVote.getArrayRef();
+    }
 
-        for(int i = 0 ; i < this.ensemble.length ; ++i) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(testInstance));
-            if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-                double acc = this.ensemble[i].evaluator.getPerformanceMeasurements()[1].getValue();
-                if(! this.disableWeightedVote.isSet() && acc > 0.0) {                        
-                    for(int v = 0 ; v < vote.numValues() ; ++v) {
-                        vote.setValue(v, vote.getValue(v) * acc);
-                    }
+    // Adds the normalized vote of member i, weighted by its current accuracy, to combinedVote.
+    private void addWeightedVote(DoubleVector combinedVote, double[] memberVote, int i) {
+        DoubleVector vote = weightedVote(memberVote, i);
+        if (vote != null)
+            combinedVote.addValues(vote);
+    }
+
+    // Normalizes the vote of member i and weights it by the member accuracy, null if the vote is empty.
+    private DoubleVector weightedVote(double[] memberVote, int i) {
+        DoubleVector vote = new DoubleVector(memberVote);
+        if (vote.sumOfValues() > 0.0) {
+            vote.normalize();
+            double acc = this.ensemble[i].evaluator.getPerformanceMeasurements()[1].getValue();
+            if(! this.disableWeightedVote.isSet() && acc > 0.0) {                        
+                for(int v = 0 ; v < vote.numValues() ; ++v) {
+                    vote.setValue(v, vote.getValue(v) * acc);
                 }
-                combinedVote.addValues(vote);
             }
+            return vote;
+        }
+        return null;
+    }
+
+    /**
+     * Waits for the training threads to process the instances submitted so far
+     * and stops them. They are started again if training resumes.
+     */
+    public void trainingHasEnded() {
+        if(this.workers != null) {
+            this.workers.awaitAll();
+            this.workers.shutdown();
+            this.workers = null;
         }
-        return combinedVote.getArrayRef();
     }
 
     @Override
@@ -231,9 +330,31 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
 
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
+        synchronizeWorkers();
         return null;
     }
 
+    @Override
+    public long estimateByteSize() {
+        synchronizeWorkers();
+        long size = MemoryEstimates.object(5, 12)
+                + MemoryEstimates.measureByteSize(this.driftDetectors)
+                + MemoryEstimates.measureByteSize(this.warningDetectors);
+        if (this.ensemble != null) {
+            size += MemoryEstimates.referenceArray(this.ensemble.length);
+            for (ARFBaseLearner member : this.ensemble) {
+                size += member.estimateByteSize();
+            }
+        }
+        return size;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // copies and size measurements must see every submitted instance
+        synchronizeWorkers();
+        out.defaultWriteObject();
+    }
+
     protected void initEnsemble(Instance instance) {
         // Init the ensemble.
         int ensembleSize = this.ensembleSizeOption.getValue();
@@ -282,6 +403,11 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         
         ARFHoeffdingTree treeLearner = (ARFHoeffdingTree) getPreparedClassOption(this.treeLearnerOption);
         treeLearner.resetLearning();
+
+        this.driftDetectors = this.disableDriftDetectionOption.isSet() ? null : DriftDetectorBank.create(
+                (ChangeDetector) getPreparedClassOption(this.driftDetectionMethodOption), ensembleSize);
+        this.warningDetectors = this.disableBackgroundLearnerOption.isSet() ? null : DriftDetectorBank.create(
+                (ChangeDetector) getPreparedClassOption(this.warningDetectionMethodOption), ensembleSize);
         
         for(int i = 0 ; i < ensembleSize ; ++i) {
             treeLearner.subspaceSizeOption.setValue(this.subspaceSize);
@@ -292,8 +418,6 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
                 this.instancesSeen, 
                 ! this.disableBackgroundLearnerOption.isSet(),
                 ! this.disableDriftDetectionOption.isSet(), 
-                driftDetectionMethodOption,
-                warningDetectionMethodOption,
                 false);
         }
     }
@@ -308,6 +432,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
 
     @Override
     public Classifier[] getSublearners() {
+        synchronizeWorkers();
         /* Extracts the reference to the ARFHoeffdingTree object from within the ensemble of ARFBaseLearner's */
         Classifier[] forest = new Classifier[this.ensemble.length];
         for(int i = 0 ; i < forest.length ; ++i)
@@ -328,14 +453,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         public ARFHoeffdingTree classifier;
         public boolean isBackgroundLearner;
         
-        // The drift and warning object parameters. 
-        protected ClassOption driftOption;
-        protected ClassOption warningOption;
-        
-        // Drift and warning detection
-        protected ChangeDetector driftDetectionMethod;
-        protected ChangeDetector warningDetectionMethod;
-        
+        // Drift and warning detection, with the detectors of indexOriginal
         public boolean useBkgLearner;
         public boolean useDriftDetector;
         
@@ -347,7 +465,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         protected int numberOfWarningsDetected;
 
         private void init(int indexOriginal, ARFHoeffdingTree instantiatedClassifier, BasicClassificationPerformanceEvaluator evaluatorInstantiated, 
-            long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, ClassOption driftOption, ClassOption warningOption, boolean isBackgroundLearner) {
+            long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, boolean isBackgroundLearner) {
             this.indexOriginal = indexOriginal;
             this.createdOn = instancesSeen;
             this.lastDriftOn = 0;
@@ -361,30 +479,24 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             this.numberOfDriftsDetected = 0;
             this.numberOfWarningsDetected = 0;
             this.isBackgroundLearner = isBackgroundLearner;
-
-            if(this.useDriftDetector) {
-                this.driftOption = driftOption;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
-            }
-
-            // Init Drift Detector for Warning detection. 
-            if(this.useBkgLearner) {
-                this.warningOption = warningOption;
-                this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
-            }
         }
 
         public ARFBaseLearner(int indexOriginal, ARFHoeffdingTree instantiatedClassifier, BasicClassificationPerformanceEvaluator evaluatorInstantiated, 
-                    long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, ClassOption driftOption, ClassOption warningOption, boolean isBackgroundLearner) {
-            init(indexOriginal, instantiatedClassifier, evaluatorInstantiated, instancesSeen, useBkgLearner, useDriftDetector, driftOption, warningOption, isBackgroundLearner);
+                    long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, boolean isBackgroundLearner) {
+            init(indexOriginal, instantiatedClassifier, evaluatorInstantiated, instancesSeen, useBkgLearner, useDriftDetector, isBackgroundLearner);
         }
 
         public void reset() {
+            reset(AdaptiveRandomForest.this.instancesSeen);
+        }
+
+        public void reset(long instancesSeen) {
             if(this.useBkgLearner && this.bkgLearner != null) {
                 this.classifier = this.bkgLearner.classifier;
                 
-                this.driftDetectionMethod = this.bkgLearner.driftDetectionMethod;
-                this.warningDetectionMethod = this.bkgLearner.warningDetectionMethod;
+                // the detectors of the bkg learner are new, it is never checked for drifts
+                driftDetectors.resetLearning(this.indexOriginal);
+                warningDetectors.resetLearning(this.indexOriginal);
                 
                 this.evaluator = this.bkgLearner.evaluator;
                 this.createdOn = this.bkgLearner.createdOn;
@@ -393,7 +505,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             else {
                 this.classifier.resetLearning();
                 this.createdOn = instancesSeen;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                driftDetectors.resetLearning(this.indexOriginal);
             }
             this.evaluator.reset();
         }
@@ -412,9 +524,9 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
                 // Check for warning only if useBkgLearner is active
                 if(this.useBkgLearner) {
                     // Update the warning detection method
-                    this.warningDetectionMethod.input(correctlyClassifies ? 0 : 1);
+                    warningDetectors.input(this.indexOriginal, correctlyClassifies ? 0 : 1);
                     // Check if there was a change
-                    if(this.warningDetectionMethod.getChange()) {
+                    if(warningDetectors.getChange(this.indexOriginal)) {
                         this.lastWarningOn = instancesSeen;
                         this.numberOfWarningsDetected++;
                         // Create a new bkgTree classifier
@@ -427,22 +539,21 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
                         
                         // Create a new bkgLearner object
                         this.bkgLearner = new ARFBaseLearner(indexOriginal, bkgClassifier, bkgEvaluator, instancesSeen, 
-                            this.useBkgLearner, this.useDriftDetector, this.driftOption, this.warningOption, true);
+                            this.useBkgLearner, this.useDriftDetector, true);
                         
-                        // Update the warning detection object for the current object 
-                        // (this effectively resets changes made to the object while it was still a bkg learner). 
-                        this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+                        // Reset the warning detection of the current object 
+                        warningDetectors.resetLearning(this.indexOriginal);
                     }
                 }
                 
                 /*********** drift detection ***********/
                 // Update the DRIFT detection method
-                this.driftDetectionMethod.input(correctlyClassifies ? 0 : 1);
+                driftDetectors.input(this.indexOriginal, correctlyClassifies ? 0 : 1);
                 // Check if there was a change
-                if(this.driftDetectionMethod.getChange()) {
+                if(driftDetectors.getChange(this.indexOriginal)) {
                     this.lastDriftOn = instancesSeen;
                     this.numberOfDriftsDetected++;
-                    this.reset();
+                    this.reset(instancesSeen);
                 }
             }
         }
@@ -452,37 +563,224 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             return vote.getArrayRef();
         }
 
+        public long estimateByteSize() {
+            long size = MemoryEstimates.object(4, 39)
+                    + MemoryEstimates.measureByteSize(this.classifier);
+            if (this.bkgLearner != null) {
+                size += this.bkgLearner.estimateByteSize();
+            }
+            return size;
+        }
+
         @Override
         public void getDescription(StringBuilder sb, int indent) {
         }
     }
     
     /***
-     * Inner class to assist with the multi-thread execution. 
+     * Instance submitted to the training threads. Tasks live in the ring
+     * buffer of TrainingWorkers and are reused once every worker is done.
      */
-    protected class TrainingRunnable implements Runnable, Callable<Integer> {
-        final private ARFBaseLearner learner;
-        final private Instance instance;
-        final private double weight;
-        final private long instancesSeen;
-
-        public TrainingRunnable(ARFBaseLearner learner, Instance instance, 
-                double weight, long instancesSeen) {
-            this.learner = learner;
-            this.instance = instance;
-            this.weight = weight;
-            this.instancesSeen = instancesSeen;
+    protected static final class TrainingTask {
+        protected Instance instance;
+        // Wraps instance, reused by every task published in this slot
+        protected final InstanceExample example = new InstanceExample(null);
+        protected long instancesSeen;
+        // Poisson weight of each member
+        protected final int[] weights;
+        // Weighted votes of each member, filled only when requested
+        protected final DoubleVector[] votes;
+        protected boolean collectVotes;
+        // Copy of the submitted instance owned by this slot
+        private Instance slotInstance;
+
+        protected TrainingTask(int ensembleSize) {
+            this.weights = new int[ensembleSize];
+            this.votes = new DoubleVector[ensembleSize];
         }
 
-        @Override
-        public void run() {
-            learner.trainOnInstance(this.instance, this.weight, this.instancesSeen);
+        /**
+         * Copies the instance into the instance of this slot, which is only
+         * allocated again when the instance does not fit into it.
+         */
+        protected Instance copyToSlot(Instance instance) {
+            Instance copy = this.slotInstance;
+            if (copy == null || copy.getClass() != instance.getClass()
+                    || copy.dataset() != instance.dataset()
+                    || copy.numAttributes() != instance.numAttributes()
+                    // every value of a sparse copy must be stored to be set
+                    || copy.numValues() != copy.numAttributes()) {
+                copy = instance.copy();
+                this.slotInstance = copy;
+                return copy;
+            }
+            for (int j = 0 ; j < instance.numAttributes() ; j++)
+                copy.setValue(j, instance.value(j));
+            copy.setWeight(instance.weight());
+            return copy;
         }
+    }
 
-        @Override
-        public Integer call() {
-            run();
-            return 0;
+    /***
+     * Persistent training threads. Each thread owns a fixed, contiguous shard
+     * of the ensemble and consumes the tasks published by the thread calling
+     * trainOnInstance from a single-producer ring buffer, so the only
+     * synchronization left is waiting for the shards to catch up when the
+     * model is queried or at micro-batch boundaries.
+     */
+    protected class TrainingWorkers {
+        // Capacity of the ring buffer, a power of two
+        private static final int RING_SIZE = 1024;
+        // Busy waiting rounds before a waiting thread parks
+        private static final int SPIN_TRIES = 1000;
+
+        private final TrainingTask[] ring = new TrainingTask[RING_SIZE];
+        // The ensemble trained by these threads
+        private final ARFBaseLearner[] members;
+        private final Thread[] threads;
+        // Number of tasks processed by each thread
+        private final AtomicLongArray consumed;
+        // Whether each thread is parked waiting for tasks
+        private final AtomicLongArray sleeping;
+        // Number of tasks published
+        private volatile long published;
+        private volatile boolean running = true;
+        private volatile Throwable failure;
+
+        protected TrainingWorkers(int numberOfThreads) {
+            this.members = ensemble;
+            for (int i = 0 ; i < RING_SIZE ; i++)
+                this.ring[i] = new TrainingTask(this.members.length);
+            this.threads = new Thread[numberOfThreads];
+            this.consumed = new AtomicLongArray(numberOfThreads);
+            this.sleeping = new AtomicLongArray(numberOfThreads);
+            for (int t = 0 ; t < numberOfThreads ; t++) {
+                final int worker = t;
+                final int from = t * this.members.length / numberOfThreads;
+                final int to = (t + 1) * this.members.length / numberOfThreads;
+                this.threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        consume(worker, from, to);
+                    }
+                }, "AdaptiveRandomForest-trainer-" + t);
+                this.threads[t].setDaemon(true);
+                this.threads[t].start();
+            }
+        }
+
+        /**
+         * Gets the next free task, waiting for the slowest thread if the ring
+         * buffer is full.
+         */
+        protected TrainingTask nextTask() {
+            int tries = 0;
+            while (this.published - minConsumed() >= RING_SIZE)
+                tries = idle(tries);
+            checkFailure();
+            return this.ring[(int) (this.published & (RING_SIZE - 1))];
+        }
+
+        /**
+         * Publishes the task obtained from nextTask. If combinedVote is not
+         * null, waits for the task and adds the member votes to it.
+         */
+        protected void submit(TrainingTask task, Instance instance, long instancesSeen, DoubleVector combinedVote) {
+            task.collectVotes = combinedVote != null;
+            // the caller may reuse its instance once we return
+            task.instance = task.collectVotes ? instance : task.copyToSlot(instance);
+            task.example.instance = task.instance;
+            task.instancesSeen = instancesSeen;
+            this.published++;
+            for (int t = 0 ; t < this.threads.length ; t++) {
+                if (this.sleeping.get(t) != 0)
+                    LockSupport.unpark(this.threads[t]);
+            }
+            int microBatchSize = microBatchSizeOption.getValue();
+            if (task.collectVotes || (microBatchSize > 0 && this.published % microBatchSize == 0))
+                awaitAll();
+            if (task.collectVotes) {
+                for (int i = 0 ; i < task.votes.length ; i++) {
+                    if (task.votes[i] != null)
+                        combinedVote.addValues(task.votes[i]);
+                }
+            }
+        }
+
+        /**
+         * Waits until every published task has been processed.
+         */
+        protected void awaitAll() {
+            int tries = 0;
+            while (minConsumed() < this.published)
+                tries = idle(tries);
+            checkFailure();
+        }
+
+        protected void shutdown() {
+            this.running = false;
+            for (Thread thread : this.threads)
+                LockSupport.unpark(thread);
+        }
+
+        private void consume(int worker, int from, int to) {
+            long next = 0;
+            int tries = 0;
+            while (this.running) {
+                if (next < this.published) {
+                    TrainingTask task = this.ring[(int) (next & (RING_SIZE - 1))];
+                    try {
+                        for (int i = from ; i < to ; i++)
+                            train(task, i);
+                    } catch (Throwable e) {
+                        this.failure = e;
+                    }
+                    this.consumed.set(worker, ++next);
+                    tries = 0;
+                }
+                else if (tries < SPIN_TRIES) {
+                    tries = idle(tries);
+                }
+                else {
+                    // the producer unparks sleeping threads after publishing
+                    this.sleeping.set(worker, 1);
+                    if (next == this.published && this.running)
+                        LockSupport.park(this);
+                    this.sleeping.set(worker, 0);
+                }
+            }
+        }
+
+        private void train(TrainingTask task, int i) {
+            double[] vote = this.members[i].getVotesForInstance(task.instance);
+            if (task.collectVotes)
+                task.votes[i] = weightedVote(vote, i);
+            this.members[i].evaluator.addResult(task.example, vote);
+            if (task.weights[i] > 0)
+                this.members[i].trainOnInstance(task.instance, task.weights[i], task.instancesSeen);
+        }
+
+        private long minConsumed() {
+            long min = Long.MAX_VALUE;
+            for (int t = 0 ; t < this.threads.length ; t++)
+                min = Math.min(min, this.consumed.get(t));
+            return min;
+        }
+
+        private int idle(int tries) {
+            if (tries < SPIN_TRIES)
+                Thread.yield();
+            else
+                LockSupport.parkNanos(this, 10000);
+            return tries + 1;
+        }
+
+        private void checkFailure() {
+            if (this.failure != null) {
+                Throwable e = this.failure;
+                this.failure = null;
+                throw new RuntimeException("Training thread failed.", e);
+            }
         }
     }
 }
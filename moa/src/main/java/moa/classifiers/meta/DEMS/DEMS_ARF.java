@@ -32,6 +32,7 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.core.driftdetection.DriftDetectorBank;
 import moa.classifiers.trees.ARFHoeffdingTree;
 import moa.core.*;
 import moa.evaluation.BasicClassificationPerformanceEvaluator;
@@ -145,6 +146,10 @@ public class DEMS_ARF extends AbstractClassifier implements MultiClassClassifier
     protected int subspaceSize;
     protected BasicClassificationPerformanceEvaluator evaluator;
 
+    // Change detectors of the members, indexed as the ensemble.
+    protected DriftDetectorBank driftDetectors;
+    protected DriftDetectorBank warningDetectors;
+
     private ExecutorService executor;
 
     private int kBest;
@@ -355,6 +360,11 @@ public class DEMS_ARF extends AbstractClassifier implements MultiClassClassifier
 //        treeLearner.resetLearning();
         treeLearner.subspaceSizeOption.setValue(this.subspaceSize);
 
+        this.driftDetectors = this.disableDriftDetectionOption.isSet() ? null : DriftDetectorBank.create(
+                (ChangeDetector) getPreparedClassOption(this.driftDetectionMethodOption), ensembleSize);
+        this.warningDetectors = this.disableBackgroundLearnerOption.isSet() ? null : DriftDetectorBank.create(
+                (ChangeDetector) getPreparedClassOption(this.warningDetectionMethodOption), ensembleSize);
+
         for (int i = 0; i < ensembleSize; ++i) {
 //            treeLearner.subspaceSizeOption.setValue(this.subspaceSize);
             ARFHoeffdingTree baseLearner = (ARFHoeffdingTree) treeLearner.copy();
@@ -368,8 +378,6 @@ public class DEMS_ARF extends AbstractClassifier implements MultiClassClassifier
                     this.instancesSeen,
                     !this.disableBackgroundLearnerOption.isSet(),
                     !this.disableDriftDetectionOption.isSet(),
-                    driftDetectionMethodOption,
-                    warningDetectionMethodOption,
                     false);
         }
     }
@@ -404,14 +412,7 @@ public class DEMS_ARF extends AbstractClassifier implements MultiClassClassifier
         public ARFHoeffdingTree classifier;
         public boolean isBackgroundLearner;
 
-        // The drift and warning object parameters.
-        protected ClassOption driftOption;
-        protected ClassOption warningOption;
-
-        // Drift and warning detection
-        protected ChangeDetector driftDetectionMethod;
-        protected ChangeDetector warningDetectionMethod;
-
+        // Drift and warning detection, with the detectors of indexOriginal
         public boolean useBkgLearner;
         public boolean useDriftDetector;
 
@@ -423,7 +424,7 @@ public class DEMS_ARF extends AbstractClassifier implements MultiClassClassifier
         protected int numberOfWarningsDetected;
 
         private void init(int indexOriginal, ARFHoeffdingTree instantiatedClassifier, BasicClassificationPerformanceEvaluator evaluatorInstantiated,
-                          long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, ClassOption driftOption, ClassOption warningOption, boolean isBackgroundLearner) {
+                          long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, boolean isBackgroundLearner) {
             this.indexOriginal = indexOriginal;
             this.createdOn = instancesSeen;
             this.lastDriftOn = 0;
@@ -437,30 +438,20 @@ public class DEMS_ARF extends AbstractClassifier implements MultiClassClassifier
             this.numberOfDriftsDetected = 0;
             this.numberOfWarningsDetected = 0;
             this.isBackgroundLearner = isBackgroundLearner;
-
-            if (this.useDriftDetector) {
-                this.driftOption = driftOption;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
-            }
-
-            // Init Drift Detector for Warning detection.
-            if (this.useBkgLearner) {
-                this.warningOption = warningOption;
-                this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
-            }
         }
 
         public ARFBaseLearner(int indexOriginal, ARFHoeffdingTree instantiatedClassifier, BasicClassificationPerformanceEvaluator evaluatorInstantiated,
-                              long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, ClassOption driftOption, ClassOption warningOption, boolean isBackgroundLearner) {
-            init(indexOriginal, instantiatedClassifier, evaluatorInstantiated, instancesSeen, useBkgLearner, useDriftDetector, driftOption, warningOption, isBackgroundLearner);
+                              long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, boolean isBackgroundLearner) {
+            init(indexOriginal, instantiatedClassifier, evaluatorInstantiated, instancesSeen, useBkgLearner, useDriftDetector, isBackgroundLearner);
         }
 
         public void reset() {
             if (this.useBkgLearner && this.bkgLearner != null) {
                 this.classifier = this.bkgLearner.classifier;
 
-                this.driftDetectionMethod = this.bkgLearner.driftDetectionMethod;
-                this.warningDetectionMethod = this.bkgLearner.warningDetectionMethod;
+                // the detectors of the bkg learner are new, it is never checked for drifts
+                driftDetectors.resetLearning(this.indexOriginal);
+                warningDetectors.resetLearning(this.indexOriginal);
 
                 this.evaluator = this.bkgLearner.evaluator;
                 this.createdOn = this.bkgLearner.createdOn;
@@ -468,7 +459,7 @@ public class DEMS_ARF extends AbstractClassifier implements MultiClassClassifier
             } else {
                 this.classifier.resetLearning();
                 this.createdOn = instancesSeen;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                driftDetectors.resetLearning(this.indexOriginal);
             }
             this.evaluator.reset();
         }
@@ -487,9 +478,9 @@ public class DEMS_ARF extends AbstractClassifier implements MultiClassClassifier
                 // Check for warning only if useBkgLearner is active
                 if (this.useBkgLearner) {
                     // Update the warning detection method
-                    this.warningDetectionMethod.input(correctlyClassifies ? 0 : 1);
+                    warningDetectors.input(this.indexOriginal, correctlyClassifies ? 0 : 1);
                     // Check if there was a change
-                    if (this.warningDetectionMethod.getChange()) {
+                    if (warningDetectors.getChange(this.indexOriginal)) {
                         this.lastWarningOn = instancesSeen;
                         this.numberOfWarningsDetected++;
                         // Create a new bkgTree classifier
@@ -502,19 +493,18 @@ public class DEMS_ARF extends AbstractClassifier implements MultiClassClassifier
 
                         // Create a new bkgLearner object
                         this.bkgLearner = new ARFBaseLearner(indexOriginal, bkgClassifier, bkgEvaluator, instancesSeen,
-                                this.useBkgLearner, this.useDriftDetector, this.driftOption, this.warningOption, true);
+                                this.useBkgLearner, this.useDriftDetector, true);
 
-                        // Update the warning detection object for the current object
-                        // (this effectively resets changes made to the object while it was still a bkg learner).
-                        this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+                        // Reset the warning detection of the current object
+                        warningDetectors.resetLearning(this.indexOriginal);
                     }
                 }
 
                 /*********** drift detection ***********/
                 // Update the DRIFT detection method
-                this.driftDetectionMethod.input(correctlyClassifies ? 0 : 1);
+                driftDetectors.input(this.indexOriginal, correctlyClassifies ? 0 : 1);
                 // Check if there was a change
-                if (this.driftDetectionMethod.getChange()) {
+                if (driftDetectors.getChange(this.indexOriginal)) {
                     this.lastDriftOn = instancesSeen;
                     this.numberOfDriftsDetected++;
                     this.reset();
@@ -32,6 +32,7 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.DriftDetectorBank;
 import moa.classifiers.trees.HoeffdingTree;
 import moa.core.*;
 import moa.evaluation.BasicClassificationPerformanceEvaluator;
@@ -98,6 +99,9 @@ public class DEMS_LVB extends AbstractClassifier implements MultiClassClassifier
 
     protected ADWIN[] ADError;
 
+    // The ADWINs of ADError, all updated together after each instance
+    protected DriftDetectorBank.ADWINBank errorDetectors;
+
     protected int numberOfChangesDetected;
 
     protected int[][] matrixCodes;
@@ -123,10 +127,9 @@ public class DEMS_LVB extends AbstractClassifier implements MultiClassClassifier
             this.evaluators[i] = new BasicClassificationPerformanceEvaluator();
         }
 
-        this.ADError = new ADWIN[this.ensemble.length];
-        for (int i = 0; i < this.ensemble.length; i++) {
-            this.ADError[i] = new ADWIN((double) this.deltaAdwinOption.getValue());
-        }
+        this.errorDetectors = new DriftDetectorBank.ADWINBank(this.ensemble.length,
+                this.deltaAdwinOption.getValue());
+        this.ADError = this.errorDetectors.getADWINs();
         this.numberOfChangesDetected = 0;
         if (this.outputCodesOption.isSet()) {
             this.initMatrixCodes = true;
@@ -191,7 +194,7 @@ public class DEMS_LVB extends AbstractClassifier implements MultiClassClassifier
         }
 
 
-        boolean Change = false;
+        double[] errors = new double[this.ensemble.length];
         Instance weightedInst = (Instance) inst.copy();
         double w = this.weightShrinkOption.getValue();
 
@@ -203,7 +206,7 @@ public class DEMS_LVB extends AbstractClassifier implements MultiClassClassifier
                     k = MiscUtils.poisson(w, this.classifierRandom);
                     break;
                 case 1: //LeveragingBagME
-                    double error = this.ADError[i].getEstimation();
+                    double error = this.errorDetectors.getEstimation(i);
                     k = !this.ensemble[i].correctlyClassifies(weightedInst) ? 1.0 : (this.classifierRandom.nextDouble() < (error / (1.0 - error)) ? 1.0 : 0.0);
                     break;
                 case 2: //LeveragingBagHalf
@@ -231,20 +234,17 @@ public class DEMS_LVB extends AbstractClassifier implements MultiClassClassifier
                 this.ensemble[i].trainOnInstance(weightedInst);
             }
             boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
-            double ErrEstim = this.ADError[i].getEstimation();
-            if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
-                if (this.ADError[i].getEstimation() > ErrEstim) {
-                    Change = true;
-                }
-            }
+            errors[i] = correctlyClassifies ? 0 : 1;
         }
+        // the members only read their own detector, so all can be updated now
+        boolean Change = this.errorDetectors.input(errors) > 0;
         if (Change) {
             numberOfChangesDetected++;
             double max = 0.0;
             int imax = -1;
             for (int i = 0; i < this.ensemble.length; i++) {
-                if (max < this.ADError[i].getEstimation()) {
-                    max = this.ADError[i].getEstimation();
+                if (max < this.errorDetectors.getEstimation(i)) {
+                    max = this.errorDetectors.getEstimation(i);
                     imax = i;
                 }
             }
@@ -252,7 +252,7 @@ public class DEMS_LVB extends AbstractClassifier implements MultiClassClassifier
                 this.ensemble[imax].resetLearning();
                 //this.ensemble[imax].trainOnInstance(inst);
                 this.evaluators[imax].reset();
-                this.ADError[imax] = new ADWIN((double) this.deltaAdwinOption.getValue());
+                this.errorDetectors.resetLearning(imax);
             }
         }
     }
@@ -23,9 +23,9 @@ import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 import com.yahoo.labs.samoa.instances.Attribute;
-import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.SubspaceInstanceView;
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
@@ -33,6 +33,7 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.core.driftdetection.DriftDetectorBank;
 import moa.classifiers.trees.HoeffdingTree;
 import moa.core.*;
 import moa.evaluation.BasicClassificationPerformanceEvaluator;
@@ -139,6 +140,10 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
     protected long instancesSeen;
     protected ArrayList<ArrayList<Integer>> subspaces;
 
+    // Change detectors of the members, indexed as the ensemble.
+    protected DriftDetectorBank driftDetectors;
+    protected DriftDetectorBank warningDetectors;
+
     // Yibin New
     protected int[] performances;
     protected List<SortingInformation> infos;
@@ -330,6 +335,11 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
         // Obtain the base learner. It is not restricted to a specific learner.
         Classifier baseLearner = (Classifier) getPreparedClassOption(this.baseLearnerOption);
         baseLearner.resetLearning();
+
+        this.driftDetectors = this.disableDriftDetectionOption.isSet() ? null : DriftDetectorBank.create(
+                (ChangeDetector) getPreparedClassOption(this.driftDetectionMethodOption), ensembleSize);
+        this.warningDetectors = this.disableBackgroundLearnerOption.isSet() ? null : DriftDetectorBank.create(
+                (ChangeDetector) getPreparedClassOption(this.warningDetectionMethodOption), ensembleSize);
         for (int i = 0; i < ensembleSize; ++i) {
             switch (this.trainingMethodOption.getChosenIndex()) {
                 case DEMS_SRP.TRAIN_RESAMPLING:
@@ -340,8 +350,6 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
                             this.instancesSeen,
                             this.disableBackgroundLearnerOption.isSet(),
                             this.disableDriftDetectionOption.isSet(),
-                            this.driftDetectionMethodOption,
-                            this.warningDetectionMethodOption,
                             false);
                     break;
                 case DEMS_SRP.TRAIN_RANDOM_SUBSPACES:
@@ -356,8 +364,6 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
                             this.instancesSeen,
                             this.disableBackgroundLearnerOption.isSet(),
                             this.disableDriftDetectionOption.isSet(),
-                            this.driftDetectionMethodOption,
-                            this.warningDetectionMethodOption,
                             subsetOfFeatures,
                             instance,
                             false);
@@ -430,18 +436,13 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
         public Classifier classifier;
 
         // Stores current model subspace representation of the original instances.
-        public Instances subset;
+        public SubspaceInstanceView subset;
         public int[] featureIndexes;
 
         // Drift detection
         public boolean disableBkgLearner;
         public boolean disableDriftDetector;
 
-        protected ChangeDetector driftDetectionMethod;
-        protected ChangeDetector warningDetectionMethod;
-        // The drift and warning object parameters.
-        protected ClassOption driftOption;
-        protected ClassOption warningOption;
 
         // Bkg learner
         public StreamingRandomPatchesClassifier bkgLearner;
@@ -458,7 +459,7 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
         private void init(int indexOriginal, Classifier instantiatedClassifier,
                           BasicClassificationPerformanceEvaluator evaluatorInstantiated,
                           long instancesSeen, boolean disableBkgLearner, boolean disableDriftDetector,
-                          ClassOption driftOption, ClassOption warningOption, boolean isBackgroundLearner) {
+                          boolean isBackgroundLearner) {
             this.indexOriginal = indexOriginal;
             this.createdOn = instancesSeen;
 
@@ -467,17 +468,6 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
             this.disableBkgLearner = disableBkgLearner;
             this.disableDriftDetector = disableDriftDetector;
 
-            if (!this.disableDriftDetector) {
-                this.driftOption = driftOption;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(driftOption)).copy();
-            }
-
-            // Init Drift Detector for Warning detection.
-            if (!this.disableBkgLearner) {
-                this.warningOption = warningOption;
-                this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(warningOption)).copy();
-            }
-
             this.numberOfDriftsDetected = this.numberOfDriftsInduced = 0;
             this.numberOfWarningsDetected = this.numberOfWarningsInduced = 0;
             this.isBackgroundLearner = isBackgroundLearner;
@@ -487,12 +477,9 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
         public StreamingRandomPatchesClassifier(int indexOriginal, Classifier instantiatedClassifier,
                                                 BasicClassificationPerformanceEvaluator evaluatorInstantiated,
                                                 long instancesSeen, boolean disableBkgLearner, boolean disableDriftDetector,
-                                                ClassOption driftOption, ClassOption warningOption,
                                                 boolean isBackgroundLearner) {
             init(indexOriginal, instantiatedClassifier, evaluatorInstantiated, instancesSeen, disableBkgLearner,
-                    disableDriftDetector, driftOption,
-                    warningOption,
-                    isBackgroundLearner);
+                    disableDriftDetector, isBackgroundLearner);
 
             this.featureIndexes = null;
             this.subset = null;
@@ -502,11 +489,10 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
         public StreamingRandomPatchesClassifier(int indexOriginal, Classifier instantiatedClassifier,
                                                 BasicClassificationPerformanceEvaluator evaluatorInstantiated,
                                                 long instancesSeen, boolean disableBkgLearner, boolean disableDriftDetector,
-                                                ClassOption driftOption, ClassOption warningOption,
                                                 ArrayList<Integer> featuresIndexes, Instance instance,
                                                 boolean isBackgroundLearner) {
             init(indexOriginal, instantiatedClassifier, evaluatorInstantiated, instancesSeen, disableBkgLearner,
-                    disableDriftDetector, driftOption, warningOption, isBackgroundLearner);
+                    disableDriftDetector, isBackgroundLearner);
 
             // Features + class (last index)
             this.featureIndexes = new int[featuresIndexes.size()];
@@ -517,26 +503,13 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
                 attSub.add(instance.attribute(featuresIndexes.get(i)));
                 this.featureIndexes[i] = featuresIndexes.get(i);
             }
-            this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-            this.subset.setClassIndex(this.subset.numAttributes() - 1);
-            prepareRandomSubspaceInstance(instance, 1);
+            Instances header = new Instances("Subsets Candidate Instances", attSub, 0);
+            header.setClassIndex(header.numAttributes() - 1);
+            this.subset = new SubspaceInstanceView(this.featureIndexes, header);
         }
 
-        public void prepareRandomSubspaceInstance(Instance instance, double weight) {
-            // If there is any instance lingering in the subset, remove it.
-            while (this.subset.numInstances() > 0)
-                this.subset.delete(0);
-
-            double[] values = new double[this.subset.numAttributes()];
-            for (int j = 0; j < this.subset.numAttributes(); ++j)
-                values[j] = instance.value(this.featureIndexes[j]);
-
-            // Set the class value for each value array.
-            values[values.length - 1] = instance.classValue();
-            DenseInstance subInstance = new DenseInstance(1.0, values);
-            subInstance.setWeight(weight);
-            subInstance.setDataset(this.subset);
-            this.subset.add(subInstance);
+        public Instance prepareRandomSubspaceInstance(Instance instance, double weight) {
+            return this.subset.setSource(instance, weight);
         }
 
         private ArrayList<Integer> applySubsetResetStrategy(Instance instance, Random random) {
@@ -559,9 +532,13 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
         public void reset(Instance instance, long instancesSeen, Random random) {
 
             if (!this.disableBkgLearner && this.bkgLearner != null) {
+                // the detectors of the bkg learner are new, it is never checked for drifts,
+                // but it is kept, so they are already the current ones the next times
+                if (this.classifier != this.bkgLearner.classifier) {
+                    driftDetectors.resetLearning(this.indexOriginal);
+                    warningDetectors.resetLearning(this.indexOriginal);
+                }
                 this.classifier = this.bkgLearner.classifier;
-                this.driftDetectionMethod = this.bkgLearner.driftDetectionMethod;
-                this.warningDetectionMethod = this.bkgLearner.warningDetectionMethod;
                 this.evaluator = this.bkgLearner.evaluator;
                 this.evaluator.reset();
                 this.createdOn = this.bkgLearner.createdOn;
@@ -571,7 +548,7 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
                 this.classifier.resetLearning();
                 this.evaluator.reset();
                 this.createdOn = instancesSeen;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                driftDetectors.resetLearning(this.indexOriginal);
 
                 if (this.subset != null) {
                     ArrayList<Integer> fIndexes = this.applySubsetResetStrategy(instance, random);
@@ -582,9 +559,9 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
                     for (int i = 0; i < this.featureIndexes.length; ++i)
                         attSub.add(instance.attribute(this.featureIndexes[i]));
 
-                    this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-                    this.subset.setClassIndex(this.subset.numAttributes() - 1);
-                    prepareRandomSubspaceInstance(instance, 1);
+                    Instances header = new Instances("Subsets Candidate Instances", attSub, 0);
+                    header.setClassIndex(header.numAttributes() - 1);
+                    this.subset = new SubspaceInstanceView(this.featureIndexes, header);
                 }
             }
         }
@@ -594,11 +571,9 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
             // The subset object will be null if we are training with all features
             if (this.subset != null) {
                 // Selecting just the subset of features that we are going to use
-                prepareRandomSubspaceInstance(instance, weight);
-
-                // After prepareRandomSubspaceInstance, index 0 of subset holds the instance with this learner subspaces
-                this.classifier.trainOnInstance(this.subset.get(0));
-                correctlyClassifies = this.classifier.correctlyClassifies(this.subset.get(0));
+                Instance subInstance = prepareRandomSubspaceInstance(instance, weight);
+                this.classifier.trainOnInstance(subInstance);
+                correctlyClassifies = this.classifier.correctlyClassifies(subInstance);
                 if (this.bkgLearner != null)
                     this.bkgLearner.trainOnInstance(instance, weight, instancesSeen, random);
             } else {
@@ -615,9 +590,9 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
                 // Check for warning only if useBkgLearner is active
                 if (!this.disableBkgLearner) {
                     // Update the warning detection method
-                    this.warningDetectionMethod.input(correctlyClassifies ? 0 : 1);
+                    warningDetectors.input(this.indexOriginal, correctlyClassifies ? 0 : 1);
                     // Check if there was a change
-                    if (this.warningDetectionMethod.getChange()) {
+                    if (warningDetectors.getChange(this.indexOriginal)) {
                         this.numberOfWarningsDetected++;
                         triggerWarning(instance, instancesSeen, random);
                     }
@@ -625,9 +600,9 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
 
                 /*********** drift detection ***********/
                 // Update the DRIFT detection method
-                this.driftDetectionMethod.input(correctlyClassifies ? 0 : 1);
+                driftDetectors.input(this.indexOriginal, correctlyClassifies ? 0 : 1);
                 // Check if there was a change
-                if (this.driftDetectionMethod.getChange()) {
+                if (driftDetectors.getChange(this.indexOriginal)) {
                     this.numberOfDriftsDetected++;
                     // There was a change, this model must be reset
                     this.reset(instance, instancesSeen, random);
@@ -643,15 +618,15 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
             bkgEvaluator.reset();
             if (this.subset == null) {
                 this.bkgLearner = new StreamingRandomPatchesClassifier(indexOriginal, bkgClassifier, bkgEvaluator, instancesSeen,
-                        this.disableBkgLearner, this.disableDriftDetector, this.driftOption, this.warningOption, true);
+                        this.disableBkgLearner, this.disableDriftDetector, true);
             } else {
                 ArrayList<Integer> fIndexes = this.applySubsetResetStrategy(instance, random);
 
                 this.bkgLearner = new StreamingRandomPatchesClassifier(indexOriginal, bkgClassifier, bkgEvaluator, instancesSeen,
-                        this.disableBkgLearner, this.disableDriftDetector, this.driftOption, this.warningOption,
+                        this.disableBkgLearner, this.disableDriftDetector,
                         fIndexes, instance, true);
             }
-            this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+            warningDetectors.resetLearning(this.indexOriginal);
         }
 
         /**
@@ -660,9 +635,9 @@ public class DEMS_SRP extends AbstractClassifier implements MultiClassClassifier
          */
         public double[] getVotesForInstance(Instance instance) {
             if (this.subset != null) {
-                prepareRandomSubspaceInstance(instance, 1);
-                // subset.get(0) returns the instance transformed to the correct subspace (i.e. current model subspace).
-                DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(this.subset.get(0)));
+                // the view of the instance in the current model subspace
+                DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(
+                        prepareRandomSubspaceInstance(instance, 1)));
 
                 return vote.getArrayRef();
             }
@@ -0,0 +1,141 @@
+/*
+ *    EnsembleVotes.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.meta;
+
+import java.util.stream.IntStream;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
+
+import moa.core.DoubleVector;
+
+/**
+ * Gets the votes of the members of an ensemble. The members can be asked in
+ * parallel, as tasks of the common fork-join pool shared by all the ensembles
+ * of the process, the calling thread taking part in the work until all the
+ * votes are in. The votes are returned indexed by member, so that ensembles
+ * combine them in the same order, and get the same predictions, as when the
+ * members are asked one after the other.
+ *
+ * <p>The members must not share state that getVotesForInstance modifies.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public final class EnsembleVotes {
+
+    /**
+     * The votes of a member of an ensemble for an instance.
+     */
+    public interface MemberVotes {
+
+        double[] getVotesForInstance(int member, Instance inst);
+    }
+
+    private EnsembleVotes() {
+    }
+
+    /**
+     * Gets the votes of every member for an instance.
+     *
+     * @param numMembers the number of members
+     * @param inst the instance, it is only read
+     * @param memberVotes the votes of a member
+     * @param parallel whether to ask the members in parallel
+     * @return the votes indexed by member
+     */
+    public static double[][] getVotes(int numMembers, Instance inst,
+            MemberVotes memberVotes, boolean parallel) {
+        double[][] votes = new double[numMembers][];
+        if (parallel && numMembers > 1) {
+            IntStream.range(0, numMembers).parallel().forEach(i ->
+                    votes[i] = memberVotes.getVotesForInstance(i, inst));
+        } else {
+            for (int i = 0; i < numMembers; i++) {
+                votes[i] = memberVotes.getVotesForInstance(i, inst);
+            }
+        }
+        return votes;
+    }
+
+    /**
+     * Gets the votes of every member for the instances of a batch. Each task
+     * runs one member over all the instances, which keeps the member in cache
+     * and needs a single join for the whole batch.
+     *
+     * @param numMembers the number of members
+     * @param instances the instances, they are only read
+     * @param memberVotes the votes of a member
+     * @param parallel whether to ask the members in parallel
+     * @return the votes indexed by instance and then by member
+     */
+    public static double[][][] getVotesForBatch(int numMembers, Instance[] instances,
+            MemberVotes memberVotes, boolean parallel) {
+        double[][][] votes = new double[instances.length][numMembers][];
+        if (parallel && numMembers > 1) {
+            IntStream.range(0, numMembers).parallel().forEach(i ->
+                    getMemberVotes(i, instances, memberVotes, votes));
+        } else {
+            for (int i = 0; i < numMembers; i++) {
+                getMemberVotes(i, instances, memberVotes, votes);
+            }
+        }
+        return votes;
+    }
+
+    /**
+     * Gets the instances of a batch, each one a separate object, since the
+     * rows of a batch can't be read from several threads.
+     *
+     * @param batch the batch
+     * @return the instances of the batch
+     */
+    public static Instance[] instances(InstanceBatch batch) {
+        Instance[] instances = new Instance[batch.numInstances()];
+        for (int row = 0; row < instances.length; row++) {
+            instances[row] = batch.instance(row);
+        }
+        return instances;
+    }
+
+    /**
+     * Adds the normalized votes of the members, in member order, skipping
+     * the members without votes.
+     *
+     * @param memberVotes the votes indexed by member
+     * @return the combined votes
+     */
+    public static double[] sumOfNormalizedVotes(double[][] memberVotes) {
+        DoubleVector combinedVote = new DoubleVector();
+        for (double[] memberVote : memberVotes) {
+            DoubleVector vote = new DoubleVector(memberVote);
+            if (vote.sumOfValues() > 0.0) {
+                vote.normalize();
+                combinedVote.addValues(vote);
+            }
+        }
+        return combinedVote.getArrayRef();
+    }
+
+    protected static void getMemberVotes(int member, Instance[] instances,
+            MemberVotes memberVotes, double[][][] votes) {
+        for (int row = 0; row < instances.length; row++) {
+            votes[row][member] = memberVotes.getVotesForInstance(member, instances[row]);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.github.javacliparser.IntOption;
 import com.github.javacliparser.ListOption;
 import com.github.javacliparser.Option;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 
 import moa.classifiers.AbstractClassifier;
@@ -61,6 +62,7 @@ import moa.tasks.TaskMonitor;
  * <li>-b : Comma-separated string of classifiers</li>
  * <li>-g : Grace period (1 = optimal)</li>
  * <li>-k : Number of active classifiers</li>
+ * <li>-P : Get the votes of the classifiers in parallel</li>
  * </ul>
  *
  * @author Jan N. van Rijn (j.n.van.rijn@liacs.leidenuniv.nl)
@@ -96,6 +98,10 @@ public abstract class HeterogeneousEnsembleAbstract extends AbstractClassifier i
 			"weightClassifiers", 'p',
 			"Uses online performance estimation to weight the classifiers");
 
+	public FlagOption parallelPredictionOption = new FlagOption(
+			"parallelPrediction", 'P',
+			"Get the votes of the classifiers in parallel");
+
 	protected Classifier[] ensemble;
 
 	protected double[] historyTotal;
@@ -104,6 +110,16 @@ public abstract class HeterogeneousEnsembleAbstract extends AbstractClassifier i
 
 	List<Integer> topK;
 
+	/**
+	 * Gets the votes of every classifier of the ensemble for an instance,
+	 * in parallel if requested.
+	 */
+	protected double[][] getMemberVotes(Instance inst) {
+		return EnsembleVotes.getVotes(ensemble.length, inst,
+				(i, instance) -> ensemble[i].getVotesForInstance(instance),
+				parallelPredictionOption.isSet());
+	}
+
 	@Override
 	public String getPurposeString() {
 		return "The model-free heterogeneous ensemble as presented in "
@@ -123,11 +139,33 @@ public abstract class HeterogeneousEnsembleAbstract extends AbstractClassifier i
 
 	@Override
 	public double[] getVotesForInstance(Instance inst) {
-		double[] votes = new double[inst.classAttribute().numValues()];
+		return combineVotes(EnsembleVotes.getVotes(topK.size(), inst,
+				(i, instance) -> ensemble[topK.get(i)].getVotesForInstance(instance),
+				parallelPredictionOption.isSet()), inst.classAttribute().numValues());
+	}
+
+	@Override
+	public double[][] getVotesForBatch(InstanceBatch batch) {
+		if (!isInheritedFrom(HeterogeneousEnsembleAbstract.class, "getVotesForInstance")) {
+			return super.getVotesForBatch(batch);
+		}
+		double[][][] activeVotes = EnsembleVotes.getVotesForBatch(topK.size(),
+				EnsembleVotes.instances(batch),
+				(i, instance) -> ensemble[topK.get(i)].getVotesForInstance(instance),
+				parallelPredictionOption.isSet());
+		double[][] votes = new double[activeVotes.length][];
+		for (int row = 0; row < votes.length; ++row) {
+			votes[row] = combineVotes(activeVotes[row], batch.numClasses());
+		}
+		return votes;
+	}
+
+	// Combines the votes of the active classifiers, indexed as topK.
+	protected double[] combineVotes(double[][] activeVotes, int numClasses) {
+		double[] votes = new double[numClasses];
 
 		for (int i = 0; i < topK.size(); ++i) {
-			double[] memberVotes = normalize(
-					ensemble[topK.get(i)].getVotesForInstance(inst));
+			double[] memberVotes = normalize(activeVotes[i]);
 			double weight = 1.0;
 
 			if (weightClassifiersOption.isSet()) {
@@ -78,10 +78,12 @@ public class HeterogeneousEnsembleBlast extends HeterogeneousEnsembleAbstract im
 	public void trainOnInstanceImpl(Instance inst) {
 		int wValue = windowSizeOption.getValue();
 
+		double[][] memberVotes = getMemberVotes(inst);
+
 		for (int i = 0; i < this.ensemble.length; i++) {
 
 			// Online Performance estimation
-			double[] votes = ensemble[i].getVotesForInstance(inst);
+			double[] votes = memberVotes[i];
 			boolean correct = (maxIndex(votes) * 1.0 == inst.classValue());
 
 			if (correct && !onlineHistory[i][instancesSeen % wValue]) {
@@ -85,10 +85,12 @@ public class HeterogeneousEnsembleBlastFadingFactors
 	@Override
 	public void trainOnInstanceImpl(Instance inst) {
 
+		double[][] memberVotes = getMemberVotes(inst);
+
 		for (int i = 0; i < this.ensemble.length; i++) {
 
 			// Online Performance estimation
-			double[] votes = ensemble[i].getVotesForInstance(inst);
+			double[] votes = memberVotes[i];
 			boolean correct = (maxIndex(votes) * 1.0 == inst.classValue());
 
 			historyTotal[i] = historyTotal[i] * alphaOption.getValue();
@@ -29,13 +29,16 @@ import moa.classifiers.MultiClassClassifier;
 import moa.options.ClassOption;
 import com.github.javacliparser.MultiChoiceOption;
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.DriftDetectorBank;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.Utils;
 
 /**
  * Leveraging Bagging for evolving data streams using ADWIN. Leveraging Bagging
@@ -84,10 +87,16 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
                 "Leveraging Subagging using resampling without replacement."
             }, 0);
 
+    public FlagOption parallelPredictionOption = new FlagOption("parallelPrediction", 'P',
+            "Get the votes of the members in parallel, except with output codes.");
+
     protected Classifier[] ensemble;
 
     protected ADWIN[] ADError;
 
+    // The ADWINs of ADError, all updated together after each instance
+    protected DriftDetectorBank.ADWINBank errorDetectors;
+
     protected int numberOfChangesDetected;
 
     protected int[][] matrixCodes;
@@ -102,10 +111,9 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
         for (int i = 0; i < this.ensemble.length; i++) {
             this.ensemble[i] = baseLearner.copy();
         }
-        this.ADError = new ADWIN[this.ensemble.length];
-        for (int i = 0; i < this.ensemble.length; i++) {
-            this.ADError[i] = new ADWIN((double) this.deltaAdwinOption.getValue());
-        }
+        this.errorDetectors = new DriftDetectorBank.ADWINBank(this.ensemble.length,
+                this.deltaAdwinOption.getValue());
+        this.ADError = this.errorDetectors.getADWINs();
         this.numberOfChangesDetected = 0;
         if (this.outputCodesOption.isSet()) {
             this.initMatrixCodes = true;
@@ -114,6 +122,29 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
 
     @Override
     public void trainOnInstanceImpl(Instance inst) {
+        trainEnsemble(inst, null);
+    }
+
+    @Override
+    protected boolean supportsPredictAndTrainImpl() {
+        return !this.outputCodesOption.isSet()
+                && isInheritedFrom(LeveragingBag.class, "trainOnInstanceImpl", "getVotesForInstance")
+                && isInheritedFrom(AbstractClassifier.class, "trainOnInstance");
+    }
+
+    @Override
+    protected double[] predictAndTrainImpl(Instance inst) {
+        DoubleVector combinedVote = new DoubleVector();
+        trainEnsemble(inst, combinedVote);
+        return combinedVote.getArrayRef();
+    }
+
+    /**
+     * Trains every member of the ensemble. When combinedVote is not null, the
+     * votes of the members before training are added to it, reusing the
+     * prediction that LeveragingBagME needs for its weights.
+     */
+    protected void trainEnsemble(Instance inst, DoubleVector combinedVote) {
         int numClasses = inst.numClasses();
         //Output Codes
         if (this.initMatrixCodes == true) {
@@ -146,20 +177,28 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
         }
 
 
-        boolean Change = false;
+        double[] errors = new double[this.ensemble.length];
         Instance weightedInst = (Instance) inst.copy();
         double w = this.weightShrinkOption.getValue();
 
         //Train ensemble of classifiers
         for (int i = 0; i < this.ensemble.length; i++) {
             double k = 0.0;
+            double[] vote = null;
             switch (this.leveraginBagAlgorithmOption.getChosenIndex()) {
                 case 0: //LeveragingBag
                     k = MiscUtils.poisson(w, this.classifierRandom);
                     break;
                 case 1: //LeveragingBagME
-                    double error = this.ADError[i].getEstimation();
-                    k = !this.ensemble[i].correctlyClassifies(weightedInst) ? 1.0 : (this.classifierRandom.nextDouble() < (error / (1.0 - error)) ? 1.0 : 0.0);
+                    double error = this.errorDetectors.getEstimation(i);
+                    boolean correct;
+                    if (combinedVote != null) {
+                        vote = this.ensemble[i].getVotesForInstance(weightedInst);
+                        correct = Utils.maxIndex(vote) == (int) weightedInst.classValue();
+                    } else {
+                        correct = this.ensemble[i].correctlyClassifies(weightedInst);
+                    }
+                    k = !correct ? 1.0 : (this.classifierRandom.nextDouble() < (error / (1.0 - error)) ? 1.0 : 0.0);
                     break;
                 case 2: //LeveragingBagHalf
                     w = 1.0;
@@ -180,30 +219,41 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
                     weightedInst.setClassValue((double) this.matrixCodes[i][(int) inst.classValue()]);
                 }
                 weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
+                if (combinedVote != null && vote == null) {
+                    vote = this.ensemble[i].predictAndTrain(weightedInst);
+                } else {
+                    this.ensemble[i].trainOnInstance(weightedInst);
+                }
             }
-            boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
-            double ErrEstim = this.ADError[i].getEstimation();
-            if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
-                if (this.ADError[i].getEstimation() > ErrEstim) {
-                    Change = true;
+            if (combinedVote != null) {
+                if (vote == null) {
+                    vote = this.ensemble[i].getVotesForInstance(weightedInst);
+                }
+                DoubleVector memberVote = new DoubleVector(vote);
+                if (memberVote.sumOfValues() > 0.0) {
+                    memberVote.normalize();
+                    combinedVote.addValues(memberVote);
                 }
             }
+            boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
+            errors[i] = correctlyClassifies ? 0 : 1;
         }
+        // the members only read their own detector, so all can be updated now
+        boolean Change = this.errorDetectors.input(errors) > 0;
         if (Change) {
             numberOfChangesDetected++;
             double max = 0.0;
             int imax = -1;
             for (int i = 0; i < this.ensemble.length; i++) {
-                if (max < this.ADError[i].getEstimation()) {
-                    max = this.ADError[i].getEstimation();
+                if (max < this.errorDetectors.getEstimation(i)) {
+                    max = this.errorDetectors.getEstimation(i);
                     imax = i;
                 }
             }
             if (imax != -1) {
                 this.ensemble[imax].resetLearning();
                 //this.ensemble[imax].trainOnInstance(inst);
-                this.ADError[imax] = new ADWIN((double) this.deltaAdwinOption.getValue());
+                this.errorDetectors.resetLearning(imax);
             }
         }
     }
@@ -213,15 +263,27 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
         if (this.outputCodesOption.isSet()) {
             return getVotesForInstanceBinary(inst);
         }
-        DoubleVector combinedVote = new DoubleVector();
-        for (int i = 0; i < this.ensemble.length; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
-            if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-                combinedVote.addValues(vote);
-            }
+        return EnsembleVotes.sumOfNormalizedVotes(EnsembleVotes.getVotes(
+                this.ensemble.length, inst,
+                (i, instance) -> this.ensemble[i].getVotesForInstance(instance),
+                this.parallelPredictionOption.isSet()));
+    }
+
+    @Override
+    public double[][] getVotesForBatch(InstanceBatch batch) {
+        if (this.outputCodesOption.isSet()
+                || !isInheritedFrom(LeveragingBag.class, "getVotesForInstance")) {
+            return super.getVotesForBatch(batch);
         }
-        return combinedVote.getArrayRef();
+        double[][][] memberVotes = EnsembleVotes.getVotesForBatch(this.ensemble.length,
+                EnsembleVotes.instances(batch),
+                (i, instance) -> this.ensemble[i].getVotesForInstance(instance),
+                this.parallelPredictionOption.isSet());
+        double[][] votes = new double[batch.numInstances()][];
+        for (int row = 0; row < votes.length; row++) {
+            votes[row] = EnsembleVotes.sumOfNormalizedVotes(memberVotes[row]);
+        }
+        return votes;
     }
 
     public double[] getVotesForInstanceBinary(Instance inst) {
@@ -25,12 +25,16 @@ import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 
 import moa.classifiers.MultiClassClassifier;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 import moa.core.MiscUtils;
 import moa.options.ClassOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 
 /**
@@ -48,13 +52,14 @@ import com.github.javacliparser.IntOption;
  *
  * <p>Parameters:</p> <ul>
  * <li>-l : Classiﬁer to train</li>
- * <li>-s : The number of models in the bag</li> </ul>
+ * <li>-s : The number of models in the bag</li>
+ * <li>-P : Get the votes of the members in parallel</li> </ul>
  *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
 public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
-                                                          CapabilitiesHandler {
+                                                          CapabilitiesHandler, MemoryAccountable {
 
     @Override
     public String getPurposeString() {
@@ -69,6 +74,9 @@ public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
     public IntOption ensembleSizeOption = new IntOption("ensembleSize", 's',
             "The number of models in the bag.", 10, 1, Integer.MAX_VALUE);
 
+    public FlagOption parallelPredictionOption = new FlagOption("parallelPrediction", 'P',
+            "Get the votes of the members in parallel.");
+
     protected Classifier[] ensemble;
 
     @Override
@@ -94,10 +102,24 @@ public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
     }
 
     @Override
-    public double[] getVotesForInstance(Instance inst) {
+    protected boolean supportsPredictAndTrainImpl() {
+        return isInheritedFrom(OzaBag.class, "trainOnInstanceImpl", "getVotesForInstance")
+                && isInheritedFrom(AbstractClassifier.class, "trainOnInstance");
+    }
+
+    @Override
+    protected double[] predictAndTrainImpl(Instance inst) {
         DoubleVector combinedVote = new DoubleVector();
         for (int i = 0; i < this.ensemble.length; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
+            int k = MiscUtils.poisson(1.0, this.classifierRandom);
+            DoubleVector vote;
+            if (k > 0) {
+                Instance weightedInst = (Instance) inst.copy();
+                weightedInst.setWeight(inst.weight() * k);
+                vote = new DoubleVector(this.ensemble[i].predictAndTrain(weightedInst));
+            } else {
+                vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
+            }
             if (vote.sumOfValues() > 0.0) {
                 vote.normalize();
                 combinedVote.addValues(vote);
@@ -106,6 +128,30 @@ public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
         return combinedVote.getArrayRef();
     }
 
+    @Override
+    public double[] getVotesForInstance(Instance inst) {
+        return EnsembleVotes.sumOfNormalizedVotes(EnsembleVotes.getVotes(
+                this.ensemble.length, inst,
+                (i, instance) -> this.ensemble[i].getVotesForInstance(instance),
+                this.parallelPredictionOption.isSet()));
+    }
+
+    @Override
+    public double[][] getVotesForBatch(InstanceBatch batch) {
+        if (!isInheritedFrom(OzaBag.class, "getVotesForInstance")) {
+            return super.getVotesForBatch(batch);
+        }
+        double[][][] memberVotes = EnsembleVotes.getVotesForBatch(this.ensemble.length,
+                EnsembleVotes.instances(batch),
+                (i, instance) -> this.ensemble[i].getVotesForInstance(instance),
+                this.parallelPredictionOption.isSet());
+        double[][] votes = new double[batch.numInstances()][];
+        for (int row = 0; row < votes.length; row++) {
+            votes[row] = EnsembleVotes.sumOfNormalizedVotes(memberVotes[row]);
+        }
+        return votes;
+    }
+
     @Override
     public boolean isRandomizable() {
         return true;
@@ -122,6 +168,18 @@ public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
                     this.ensemble != null ? this.ensemble.length : 0)};
     }
 
+    @Override
+    public long estimateByteSize() {
+        long size = MemoryEstimates.object(1, 0);
+        if (this.ensemble != null) {
+            size += MemoryEstimates.referenceArray(this.ensemble.length);
+            for (Classifier member : this.ensemble) {
+                size += MemoryEstimates.measureByteSize(member);
+            }
+        }
+        return size;
+    }
+
     @Override
     public Classifier[] getSubClassifiers() {
         return this.ensemble.clone();
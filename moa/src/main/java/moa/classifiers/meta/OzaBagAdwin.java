@@ -24,6 +24,7 @@ import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.DriftDetectorBank;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -103,6 +104,9 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
 
     protected ADWIN[] ADError;
 
+    // The ADWINs of ADError, all updated together after each instance
+    protected DriftDetectorBank.ADWINBank errorDetectors;
+
     @Override
     public void resetLearningImpl() {
         this.ensemble = new Classifier[this.ensembleSizeOption.getValue()];
@@ -111,15 +115,13 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
         for (int i = 0; i < this.ensemble.length; i++) {
             this.ensemble[i] = baseLearner.copy();
         }
-        this.ADError = new ADWIN[this.ensemble.length];
-        for (int i = 0; i < this.ensemble.length; i++) {
-            this.ADError[i] = new ADWIN();
-        }
+        this.errorDetectors = new DriftDetectorBank.ADWINBank(this.ensemble.length, ADWIN.DELTA);
+        this.ADError = this.errorDetectors.getADWINs();
     }
 
     @Override
     public void trainOnInstanceImpl(Instance inst) {
-        boolean Change = false;
+        double[] errors = new double[this.ensemble.length];
         for (int i = 0; i < this.ensemble.length; i++) {
             int k = MiscUtils.poisson(1.0, this.classifierRandom);
             if (k > 0) {
@@ -128,26 +130,22 @@ public class OzaBagAdwin extends AbstractClassifier implements MultiClassClassif
                 this.ensemble[i].trainOnInstance(weightedInst);
             }
             boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(inst);
-            double ErrEstim = this.ADError[i].getEstimation();
-            if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
-                if (this.ADError[i].getEstimation() > ErrEstim) {
-                    Change = true;
-                }
-            }
+            errors[i] = correctlyClassifies ? 0 : 1;
         }
+        boolean Change = this.errorDetectors.input(errors) > 0;
         if (Change) {
             double max = 0.0;
             int imax = -1;
             for (int i = 0; i < this.ensemble.length; i++) {
-                if (max < this.ADError[i].getEstimation()) {
-                    max = this.ADError[i].getEstimation();
+                if (max < this.errorDetectors.getEstimation(i)) {
+                    max = this.errorDetectors.getEstimation(i);
                     imax = i;
                 }
             }
             if (imax != -1) {
                 this.ensemble[imax].resetLearning();
                 //this.ensemble[imax].trainOnInstance(inst);
-                this.ADError[imax] = new ADWIN();
+                this.errorDetectors.resetLearning(imax);
             }
         }
     }
@@ -23,10 +23,10 @@ import moa.options.ClassOption;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
-import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SubspaceInstanceView;
 
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
@@ -143,6 +143,8 @@ public class RandomRules extends AbstractClassifier implements Regressor {
 	protected int[][] listAttributes;
 	protected int numAttributes;
 	protected InstancesHeader[] dataset;
+	// The views of the instances in the attributes of each model, reused between instances.
+	protected SubspaceInstanceView[] subspaceInstances;
 
 	protected Instance transformInstance(Instance inst, int classifierIndex) {
 		if (this.listAttributes == null) {
@@ -150,6 +152,7 @@ public class RandomRules extends AbstractClassifier implements Regressor {
 			this.numAttributes = (int) (this.numAttributesPercentageOption.getValue() * (inst.numAttributes()-1)/100.0);
 			this.listAttributes = new int[this.numAttributes][this.ensemble.length];
 			this.dataset = new InstancesHeader[this.ensemble.length];
+			this.subspaceInstances = new SubspaceInstanceView[this.ensemble.length];
 			for (int ensembleIndex = 0; ensembleIndex < this.ensemble.length; ensembleIndex++) {
 				for (int attributeIndex = 0; attributeIndex < this.numAttributes; attributeIndex++) {
 					boolean isUnique = false;
@@ -178,22 +181,16 @@ public class RandomRules extends AbstractClassifier implements Regressor {
 						getCLICreationString(InstanceStream.class), attributes, 0));
 				this.dataset[ensembleIndex].setClassIndex(this.numAttributes);
 				this.ensemble[ensembleIndex].setModelContext(this.dataset[ensembleIndex]);
+				int[] featureIndexes = new int[this.numAttributes + 1];
+				for (int attributeIndex = 0; attributeIndex < this.numAttributes; attributeIndex++) {
+					featureIndexes[attributeIndex] = this.listAttributes[attributeIndex][ensembleIndex];
+				}
+				featureIndexes[this.numAttributes] = inst.classIndex();
+				this.subspaceInstances[ensembleIndex] = new SubspaceInstanceView(featureIndexes,
+						this.dataset[ensembleIndex]);
 			}
 		}
-		//Instance instance = new DenseInstance(this.numAttributes+1);
-		//instance.setDataset(dataset[classifierIndex]);
-		double[] attVals = new double[this.numAttributes + 1];
-		for (int attributeIndex = 0; attributeIndex < this.numAttributes; attributeIndex++) {
-			//instance.setValue(attributeIndex, inst.value(this.listAttributes[attributeIndex][classifierIndex]));
-			attVals[attributeIndex] = inst.value(this.listAttributes[attributeIndex][classifierIndex]);
-		}
-		Instance instance = new DenseInstance(1.0, attVals);
-		instance.setDataset(dataset[classifierIndex]);
-		instance.setClassValue(inst.classValue());
-		// System.out.println(inst.toString());
-		// System.out.println(instance.toString());
-		// System.out.println("============");
-		return instance;
+		return this.subspaceInstances[classifierIndex].setSource(inst, 1.0);
 	}
 }
 
@@ -24,6 +24,7 @@ import com.yahoo.labs.samoa.instances.Attribute;
 import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.SubspaceInstanceView;
 import moa.AbstractMOAObject;
 import moa.capabilities.Capabilities;
 import moa.classifiers.*;
@@ -93,6 +94,8 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
     protected boolean reset;
     protected int numberClasses;
     protected double[] lastPrediction = null;
+    /** The binary class views of the instance, one per class, null until the first multi class instance. */
+    protected SubspaceInstanceView[] binaryClassInstances = null;
     //endregion ================ VARIABLES ================
 
     //region ================ OVERRIDDEN METHODS ================
@@ -102,6 +105,7 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
             this.randomSeedOption.setValue(super.randomSeedOption.getValue()); // override current random
         }
         this.reset = true;
+        this.binaryClassInstances = null;
         this.classifierRandom = new Random(randomSeedOption.getValue());
     }
 
@@ -199,17 +203,15 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
     //endregion ================ OVERRIDDEN METHODS ================
 
     //region ================ STATIC METHODS ================
-    static public Instance newBinaryClassInstance(Instance instance){
+    static public Instances newBinaryClassHeader(Instance instance){
         int classIndex = instance.classIndex();
         ArrayList<Attribute> attributes = new ArrayList<>();
-        ArrayList<Double> v = new ArrayList<>();
         List<String> classAttributeValues = new ArrayList<>();
 
-        // set attributes and values for all except class attribute
+        // set attributes for all except class attribute
         for (int i = 0; i < instance.numAttributes(); i++){
             if (i != classIndex){
                 attributes.add(instance.attribute(i));
-                v.add(instance.value(i));
             }
         }
 
@@ -219,14 +221,23 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
         Attribute classAttribute = new Attribute("classAttribute", classAttributeValues);
 
         attributes.add(classAttribute);
-        v.add(0.0);
 
         Instances newInstances = new Instances("Copy", attributes, 100);
         newInstances.setClassIndex(newInstances.numAttributes()-1);
+        return newInstances;
+    }
+    static public Instance newBinaryClassInstance(Instance instance){
+        int classIndex = instance.classIndex();
+        Instances newInstances = newBinaryClassHeader(instance);
 
-        double[] values = v.stream()
-//                .parallel()
-                .mapToDouble(Double::doubleValue).toArray();
+        // set values for all except class attribute, then the class
+        double[] values = new double[newInstances.numAttributes()];
+        int v = 0;
+        for (int i = 0; i < instance.numAttributes(); i++){
+            if (i != classIndex){
+                values[v++] = instance.value(i);
+            }
+        }
         double weight = instance.weight();
 
         DenseInstance newInstance = new DenseInstance(weight, values);
@@ -314,9 +325,57 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
         return new double[outputSize];
     }
 
-    static double[] getScoreFromSubInstance(Instance inst, ArrayList<Integer> subSpaceFeaturesIndexes, boolean setNumericClassAttribute, SGBT.BoostingCommittee b, boolean useOneHotEncoding) {
-        Instance subInstance = getSubInstance(inst, 1.0, subSpaceFeaturesIndexes, setNumericClassAttribute, -1, useOneHotEncoding);
-        return b.getScoresForInstance(subInstance);
+    /**
+     * Creates views of instances with the attributes of a subspace, laid out
+     * as by getSubInstance, followed by a numeric target, so that the pseudo
+     * residuals of every instance are learnt without building new instances.
+     * The views share the same header.
+     *
+     * @param instance an instance with the header of the stream
+     * @param subSpaceFeaturesIndexes the indexes of the attributes of the subspace
+     * @param useOneHotEncoding whether to one-hot encode nominal attributes with more than 2 values
+     * @param numInstances the number of views
+     * @return the views
+     */
+    public static SubspaceInstanceView[] newSubInstances(Instance instance, ArrayList<Integer> subSpaceFeaturesIndexes, boolean useOneHotEncoding, int numInstances) {
+        ArrayList<Attribute> attSub = new ArrayList<>();
+        ArrayList<Integer> featureIndexes = new ArrayList<>();
+        ArrayList<Integer> oneHotValues = new ArrayList<>();
+        // Add attributes of the selected subset
+        for (Integer featuresIndex : subSpaceFeaturesIndexes) {
+            if (useOneHotEncoding && instance.attribute(featuresIndex).isNominal()) {
+                if (instance.attribute(featuresIndex).numValues() > 2){
+                    // Do one hot-encoding
+                    for (int j = 0; j < instance.attribute(featuresIndex).numValues(); j++) {
+                        attSub.add(new Attribute(""));
+                        featureIndexes.add(featuresIndex);
+                        oneHotValues.add(j);
+                    }
+                }else{ // binary feature
+                    attSub.add(new Attribute("")); // create a numeric attribute
+                    featureIndexes.add(featuresIndex); // sets the index as value
+                    oneHotValues.add(-1);
+                }
+            } else {
+                attSub.add(instance.attribute(featuresIndex));
+                featureIndexes.add(featuresIndex);
+                oneHotValues.add(-1);
+            }
+        }
+        // adds a numeric class attribute, the target of the views
+        attSub.add(new Attribute("classAttribute"));
+        featureIndexes.add(-1);
+        oneHotValues.add(-1);
+        Instances subset = new Instances("Subsets Candidate Instances", attSub, 0);
+        subset.setClassIndex(subset.numAttributes() - 1);
+
+        int[] indexes = featureIndexes.stream().mapToInt(Integer::intValue).toArray();
+        int[] values = oneHotValues.stream().mapToInt(Integer::intValue).toArray();
+        SubspaceInstanceView[] subInstances = new SubspaceInstanceView[numInstances];
+        for (int i = 0; i < subInstances.length; i++) {
+            subInstances[i] = new SubspaceInstanceView(indexes, values, subset);
+        }
+        return subInstances;
     }
     //endregion ================ STATIC METHODS ================
 
@@ -346,21 +405,29 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
     Instance[] getBinaryClassInstanceArray(Instance inst){
         int actualClass = (int) inst.classValue();
 
-        // create binaryClassInstanceArray
-        Instance binaryInstance = newBinaryClassInstance(inst);
-
-        // generate multiple instances
-        Instance[] binaryClassInstanceArray = new Instance[SGBTCommittee.length];
-        IntStream.range(0, SGBTCommittee.length)
-//                .parallel()
-                .forEach(i -> binaryClassInstanceArray[i] = binaryInstance.copy());
-
-        // set label based on actualClass binaryClassInstanceArray
-        IntStream.range(0, SGBTCommittee.length)
-//                .parallel()
-                .forEach(i -> binaryClassInstanceArray[i].setClassValue((i == actualClass) ? 1.0 : 0.0));
+        if (this.binaryClassInstances == null) {
+            // one view per class, as the SGBTs are trained in parallel, all reading inst without its class
+            Instances header = newBinaryClassHeader(inst);
+            int[] featureIndexes = new int[header.numAttributes()];
+            int v = 0;
+            for (int i = 0; i < inst.numAttributes(); i++) {
+                if (i != inst.classIndex()) {
+                    featureIndexes[v++] = i;
+                }
+            }
+            featureIndexes[v] = -1;
+            this.binaryClassInstances = new SubspaceInstanceView[SGBTCommittee.length];
+            for (int i = 0; i < this.binaryClassInstances.length; i++) {
+                this.binaryClassInstances[i] = new SubspaceInstanceView(featureIndexes, header);
+            }
+        }
 
-        return binaryClassInstanceArray;
+        // set label based on actualClass
+        for (int i = 0; i < this.binaryClassInstances.length; i++) {
+            this.binaryClassInstances[i].setSource(inst, inst.weight());
+            this.binaryClassInstances[i].setClassValue((i == actualClass) ? 1.0 : 0.0);
+        }
+        return this.binaryClassInstances;
     }
     //endregion ================ OTHER METHODS ================
 
@@ -388,6 +455,8 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
             private int committeeSize;
             protected ArrayList<ArrayList<Integer>> subspaces;
             protected ArrayList<ArrayList<Integer>> subSpacesForEachBoostingIteration;
+            /** The views of the subspace of each boosting iteration, one per committee member. */
+            protected SubspaceInstanceView[][] subInstances;
             protected Objective mObjective;
             private long instancesSeenAtTrain;
             private Classifier baseLearner = null;
@@ -400,9 +469,6 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
                 this.baseLearner = baseLearner;
             }
             public void trainOnInstance(Instance inst) {
-                if ((this.instancesSeenAtTrain % 1000) == 0) {
-                    System.gc();
-                }
                 if ((this.randomlySkip1SthOfInstancesAtTraining.getValue() > 1) && (this.classifierRandom.nextInt(this.randomlySkip1SthOfInstancesAtTraining.getValue()) == 0)) {
                     // skip training
                     return;
@@ -510,6 +576,10 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
                 for (int i = 0; i < numberOfboostingIterations.getValue(); i++) {
                     subSpacesForEachBoostingIteration.add(this.subspaces.get(subSpaceIndexes[i]));
                 }
+                subInstances = new SubspaceInstanceView[numberOfboostingIterations.getValue()][];
+                for (int i = 0; i < subInstances.length; i++) {
+                    subInstances[i] = newSubInstances(inst, subSpacesForEachBoostingIteration.get(i), useOneHotEncoding.isSet(), committeeSize);
+                }
             }
 
             public void trainBoosterUsingSoftmaxCrossEntropyLoss(Instance inst) {
@@ -530,29 +600,20 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
                 DoubleVector rawScore = new DoubleVector(getScoresWhenNullTree(committeeSize));
 
                 for (int m = 0; m < booster.size(); m++) {
-                    Instance subInstance;
                     // compute Derivatives (g and h) using y and sum up raw scores, for all the trees in the committee
                     // at m th iteration, gets the adjustment by the m th committee considering all the previous adjustments
                     GradHess[] gradHess = mObjective.computeDerivatives(groundTruth, rawScore.getArrayRef(), false, false);
-                    // create a sub instance from the inst
-                    subInstance = getSubInstance(inst, 1.0, subSpacesForEachBoostingIteration.get(m), true, -1, useOneHotEncoding.isSet());
-                    //create sub instance for each committee member
-                    Instance[] subInstArray = new Instance[gradHess.length];
-                    if (gradHess.length == 1) {
-                        subInstArray[0] = subInstance;
-                    } else {
-                        IntStream.range(0, gradHess.length)
-                                .forEach(i -> subInstArray[i] = subInstance.copy());
+                    // move the sub instance of each committee member to inst
+                    SubspaceInstanceView[] subInstArray = subInstances[m];
+        //            set each sub instance pseudo label to gradient/hessian, with weight 1
+                    for (int i = 0; i < subInstArray.length; i++) {
+                        subInstArray[i].setSource(inst, 1.0);
+                        subInstArray[i].setClassValue(gradHess[i].gradient / gradHess[i].hessian);
                     }
-        //            by default weight is set 1 at instance creation
-        //            set each sub instance pseudo label to gradient/hessian
-                    IntStream.range(0, subInstArray.length)
-        //                        .parallel()
-                            .forEach(i -> subInstArray[i].setClassValue(gradHess[i].gradient / gradHess[i].hessian));
                     // train each member of the committee using sub instance with relevant weight and pseudo-label
                     booster.get(m).trainOnInstanceImpl(subInstArray, multipleIterationByCeilingOfHessianTimesM.getValue(), gradHess);
-                    // get the score from the committee for current subInstance (here we use subInstance for useWeightedInstances==true, as we do not need the label)
-                    DoubleVector currentScore = new DoubleVector(booster.get(m).getScoresForInstance(subInstance));
+                    // get the score from the committee for current subInstance (the label is not needed)
+                    DoubleVector currentScore = new DoubleVector(booster.get(m).getScoresForInstance(subInstArray[0]));
                     // scale the score by learning rate
                     double learningRate = learningRateOption.getValue();
                     currentScore.scaleValues(learningRate);
@@ -565,17 +626,22 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
 
                 double[][] s = new double[booster.size()][];
                 if (booster.size() == 1) {
-                    s[0] = getScoreFromSubInstance(inst, subSpacesForEachBoostingIteration.get(0), true, booster.get(0), useOneHotEncoding.isSet());
+                    s[0] = getScoreFromSubInstance(inst, 0);
                 } else {
                         IntStream.range(0, booster.size())
                                 .parallel()
-                                .forEach(m -> s[m] = getScoreFromSubInstance(inst, subSpacesForEachBoostingIteration.get(m), true, booster.get(m), useOneHotEncoding.isSet()));
+                                .forEach(m -> s[m] = getScoreFromSubInstance(inst, m));
                 }
                 for (int i = 0; i < booster.size(); i++) {
                     rawScore.addValues(s[i]);
                 }
                 return rawScore;
             }
+            protected double[] getScoreFromSubInstance(Instance inst, int m) {
+                SubspaceInstanceView subInstance = subInstances[m][0].setSource(inst, 1.0);
+                subInstance.setClassValue(-1);
+                return booster.get(m).getScoresForInstance(subInstance);
+            }
             public double[] getVotesForInstance(Instance inst) {
                 double[] prediction = null;
                 if (booster == null) {
@@ -23,9 +23,10 @@ import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 import com.yahoo.labs.samoa.instances.Attribute;
-import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.SubspaceInstanceView;
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
@@ -33,6 +34,7 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.core.driftdetection.DriftDetectorBank;
 import moa.core.*;
 import moa.evaluation.BasicClassificationPerformanceEvaluator;
 import moa.options.ClassOption;
@@ -65,6 +67,7 @@ import java.util.Random;
  * <li>-w : Should use weighted voting?</li>
  * <li>-u : Should use drift detection? If disabled, then the bkg learner is also disabled.</li>
  * <li>-q : Should use bkg learner? If disabled, then trees are reset immediately.</li>
+ * <li>-P : Get the votes of the learners in parallel.</li>
  * </ul>
  *
  * @author Heitor Murilo Gomes (heitor dot gomes at waikato dot ac dot nz)
@@ -118,6 +121,9 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     public FlagOption disableBackgroundLearnerOption = new FlagOption("disableBackgroundLearner", 'q',
             "Should use bkg learner? If disabled, then trees are reset immediately.");
 
+    public FlagOption parallelPredictionOption = new FlagOption("parallelPrediction", 'P',
+            "Get the votes of the learners in parallel.");
+
     public static final int TRAIN_RANDOM_SUBSPACES = 0;
     public static final int TRAIN_RESAMPLING = 1;
     public static final int TRAIN_RANDOM_PATCHES = 2;
@@ -131,6 +137,10 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     protected long instancesSeen;
     protected ArrayList<ArrayList<Integer>> subspaces;
 
+    // Change detectors of the members, indexed as the ensemble.
+    protected DriftDetectorBank driftDetectors;
+    protected DriftDetectorBank warningDetectors;
+
     @Override
     public void resetLearningImpl() {
         this.instancesSeen = 0;
@@ -138,12 +148,36 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
 
     @Override
     public void trainOnInstanceImpl(Instance instance) {
+        trainEnsemble(instance, null);
+    }
+
+    @Override
+    protected boolean supportsPredictAndTrainImpl() {
+        return isInheritedFrom(StreamingRandomPatches.class, "trainOnInstanceImpl", "getVotesForInstance")
+                && isInheritedFrom(AbstractClassifier.class, "trainOnInstance");
+    }
+
+    @Override
+    protected double[] predictAndTrainImpl(Instance instance) {
+        DoubleVector combinedVote = new DoubleVector();
+        trainEnsemble(instance, combinedVote);
+        return combinedVote.getArrayRef();
+    }
+
+    /**
+     * Trains every member of the ensemble. The votes of the members, which are
+     * needed anyway to update their evaluators, are also combined into
+     * combinedVote when it is not null.
+     */
+    protected void trainEnsemble(Instance instance, DoubleVector combinedVote) {
         ++this.instancesSeen;
         if(this.ensemble == null)
             initEnsemble(instance);
 
         for (int i = 0 ; i < this.ensemble.length ; i++) {
             double[] rawVote = this.ensemble[i].getVotesForInstance(instance);
+            if (combinedVote != null)
+                addWeightedVote(combinedVote, rawVote, i);
             DoubleVector vote = new DoubleVector(rawVote);
             InstanceExample example = new InstanceExample(instance);
 
@@ -170,22 +204,51 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         testInstance.setClassValue(0.0);
         if(this.ensemble == null)
             initEnsemble(testInstance);
+        return combineVotes(EnsembleVotes.getVotes(this.ensemble.length, testInstance,
+                (i, inst) -> this.ensemble[i].getVotesForInstance(inst),
+                this.parallelPredictionOption.isSet()));
+    }
+
+    @Override
+    public double[][] getVotesForBatch(InstanceBatch batch) {
+        if(this.ensemble == null || !isInheritedFrom(StreamingRandomPatches.class, "getVotesForInstance"))
+            return super.getVotesForBatch(batch);
+        Instance[] testInstances = EnsembleVotes.instances(batch);
+        for(Instance testInstance : testInstances) {
+            testInstance.setMissing(testInstance.classAttribute());
+            testInstance.setClassValue(0.0);
+        }
+        double[][][] memberVotes = EnsembleVotes.getVotesForBatch(this.ensemble.length,
+                testInstances, (i, inst) -> this.ensemble[i].getVotesForInstance(inst),
+                this.parallelPredictionOption.isSet());
+        double[][] votes = new double[memberVotes.length][];
+        for(int row = 0 ; row < votes.length ; ++row)
+            votes[row] = combineVotes(memberVotes[row]);
+        return votes;
+    }
+
+    // Adds the weighted votes of the members, indexed as the ensemble, in member order.
+    private double[] combineVotes(double[][] memberVotes) {
         DoubleVector combinedVote = new DoubleVector();
+        for(int i = 0 ; i < memberVotes.length ; ++i) {
+            addWeightedVote(combinedVote, memberVotes[i], i);
+        }
+        return combinedVote.getArrayRef();
+    }
 
-        for(int i = 0 ; i < this.ensemble.length ; ++i) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(testInstance));
-            if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-                double acc = this.ensemble[i].evaluator.getPerformanceMeasurements()[1].getValue();
-                if(!this.disableWeightedVote.isSet() && acc > 0.0) {
-                    for(int v = 0 ; v < vote.numValues() ; ++v) {
-                        vote.setValue(v, vote.getValue(v) * acc);
-                    }
+    // Adds the normalized vote of member i, weighted by its current accuracy, to combinedVote.
+    private void addWeightedVote(DoubleVector combinedVote, double[] memberVote, int i) {
+        DoubleVector vote = new DoubleVector(memberVote);
+        if (vote.sumOfValues() > 0.0) {
+            vote.normalize();
+            double acc = this.ensemble[i].evaluator.getPerformanceMeasurements()[1].getValue();
+            if(!this.disableWeightedVote.isSet() && acc > 0.0) {
+                for(int v = 0 ; v < vote.numValues() ; ++v) {
+                    vote.setValue(v, vote.getValue(v) * acc);
                 }
-                combinedVote.addValues(vote);
             }
+            combinedVote.addValues(vote);
         }
-        return combinedVote.getArrayRef();
     }
 
     @Override
@@ -270,6 +333,11 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         // Obtain the base learner. It is not restricted to a specific learner.
         Classifier baseLearner = (Classifier) getPreparedClassOption(this.baseLearnerOption);
         baseLearner.resetLearning();
+
+        this.driftDetectors = this.disableDriftDetectionOption.isSet() ? null : DriftDetectorBank.create(
+                (ChangeDetector) getPreparedClassOption(this.driftDetectionMethodOption), ensembleSize);
+        this.warningDetectors = this.disableBackgroundLearnerOption.isSet() ? null : DriftDetectorBank.create(
+                (ChangeDetector) getPreparedClassOption(this.warningDetectionMethodOption), ensembleSize);
         for(int i = 0 ; i < ensembleSize ; ++i) {
             switch(this.trainingMethodOption.getChosenIndex()) {
                 case StreamingRandomPatches.TRAIN_RESAMPLING:
@@ -280,8 +348,6 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                             this.instancesSeen,
                             this.disableBackgroundLearnerOption.isSet(),
                             this.disableDriftDetectionOption.isSet(),
-                            this.driftDetectionMethodOption,
-                            this.warningDetectionMethodOption,
                             false);
                     break;
                 case StreamingRandomPatches.TRAIN_RANDOM_SUBSPACES:
@@ -296,8 +362,6 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                             this.instancesSeen,
                             this.disableBackgroundLearnerOption.isSet(),
                             this.disableDriftDetectionOption.isSet(),
-                            this.driftDetectionMethodOption,
-                            this.warningDetectionMethodOption,
                             subsetOfFeatures,
                             instance,
                             false);
@@ -370,18 +434,13 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         public Classifier classifier;
 
         // Stores current model subspace representation of the original instances.
-        public Instances subset;
+        public SubspaceInstanceView subset;
         public int[] featureIndexes;
 
         // Drift detection
         public boolean disableBkgLearner;
         public boolean disableDriftDetector;
 
-        protected ChangeDetector driftDetectionMethod;
-        protected ChangeDetector warningDetectionMethod;
-        // The drift and warning object parameters.
-        protected ClassOption driftOption;
-        protected ClassOption warningOption;
 
         // Bkg learner
         public StreamingRandomPatchesClassifier bkgLearner;
@@ -398,7 +457,7 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         private void init(int indexOriginal, Classifier instantiatedClassifier,
                           BasicClassificationPerformanceEvaluator evaluatorInstantiated,
                           long instancesSeen, boolean disableBkgLearner, boolean disableDriftDetector,
-                          ClassOption driftOption, ClassOption warningOption, boolean isBackgroundLearner) {
+                          boolean isBackgroundLearner) {
             this.indexOriginal = indexOriginal;
             this.createdOn = instancesSeen;
 
@@ -407,17 +466,6 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
             this.disableBkgLearner = disableBkgLearner;
             this.disableDriftDetector = disableDriftDetector;
 
-            if(!this.disableDriftDetector) {
-                this.driftOption = driftOption;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(driftOption)).copy();
-            }
-
-            // Init Drift Detector for Warning detection.
-            if(!this.disableBkgLearner) {
-                this.warningOption = warningOption;
-                this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(warningOption)).copy();
-            }
-
             this.numberOfDriftsDetected = this.numberOfDriftsInduced = 0;
             this.numberOfWarningsDetected = this.numberOfWarningsInduced = 0;
             this.isBackgroundLearner = isBackgroundLearner;
@@ -427,12 +475,9 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         public StreamingRandomPatchesClassifier(int indexOriginal, Classifier instantiatedClassifier,
                                                 BasicClassificationPerformanceEvaluator evaluatorInstantiated,
                                                 long instancesSeen, boolean disableBkgLearner, boolean disableDriftDetector,
-                                                ClassOption driftOption, ClassOption warningOption,
                                                 boolean isBackgroundLearner) {
             init(indexOriginal, instantiatedClassifier, evaluatorInstantiated, instancesSeen, disableBkgLearner,
-                    disableDriftDetector, driftOption,
-                    warningOption,
-                    isBackgroundLearner);
+                    disableDriftDetector, isBackgroundLearner);
 
             this.featureIndexes = null;
             this.subset = null;
@@ -442,11 +487,10 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         public StreamingRandomPatchesClassifier(int indexOriginal, Classifier instantiatedClassifier,
                                                 BasicClassificationPerformanceEvaluator evaluatorInstantiated,
                                                 long instancesSeen, boolean disableBkgLearner, boolean disableDriftDetector,
-                                                ClassOption driftOption, ClassOption warningOption,
                                                 ArrayList<Integer> featuresIndexes, Instance instance,
                                                 boolean isBackgroundLearner) {
             init(indexOriginal, instantiatedClassifier, evaluatorInstantiated, instancesSeen, disableBkgLearner,
-                    disableDriftDetector, driftOption, warningOption, isBackgroundLearner);
+                    disableDriftDetector, isBackgroundLearner);
 
             // Features + class (last index)
             this.featureIndexes = new int[featuresIndexes.size()];
@@ -457,26 +501,13 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                 attSub.add(instance.attribute(featuresIndexes.get(i)));
                 this.featureIndexes[i] = featuresIndexes.get(i);
             }
-            this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-            this.subset.setClassIndex(this.subset.numAttributes()-1);
-            prepareRandomSubspaceInstance(instance,1);
+            Instances header = new Instances("Subsets Candidate Instances", attSub, 0);
+            header.setClassIndex(header.numAttributes() - 1);
+            this.subset = new SubspaceInstanceView(this.featureIndexes, header);
         }
 
-        public void prepareRandomSubspaceInstance(Instance instance, double weight) {
-            // If there is any instance lingering in the subset, remove it.
-            while(this.subset.numInstances() > 0)
-                this.subset.delete(0);
-
-            double[] values = new double[this.subset.numAttributes()];
-            for(int j = 0 ; j < this.subset.numAttributes() ; ++j)
-                values[j] = instance.value(this.featureIndexes[j]);
-
-            // Set the class value for each value array.
-            values[values.length-1] = instance.classValue();
-            DenseInstance subInstance = new DenseInstance(1.0, values);
-            subInstance.setWeight(weight);
-            subInstance.setDataset(this.subset);
-            this.subset.add(subInstance);
+        public Instance prepareRandomSubspaceInstance(Instance instance, double weight) {
+            return this.subset.setSource(instance, weight);
         }
 
         private ArrayList<Integer> applySubsetResetStrategy(Instance instance, Random random) {
@@ -499,9 +530,13 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         public void reset(Instance instance, long instancesSeen, Random random) {
 
             if(!this.disableBkgLearner && this.bkgLearner != null) {
+                // the detectors of the bkg learner are new, it is never checked for drifts,
+                // but it is kept, so they are already the current ones the next times
+                if(this.classifier != this.bkgLearner.classifier) {
+                    driftDetectors.resetLearning(this.indexOriginal);
+                    warningDetectors.resetLearning(this.indexOriginal);
+                }
                 this.classifier = this.bkgLearner.classifier;
-                this.driftDetectionMethod = this.bkgLearner.driftDetectionMethod;
-                this.warningDetectionMethod = this.bkgLearner.warningDetectionMethod;
                 this.evaluator = this.bkgLearner.evaluator;
                 this.evaluator.reset();
                 this.createdOn = this.bkgLearner.createdOn;
@@ -512,7 +547,7 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                 this.classifier.resetLearning();
                 this.evaluator.reset();
                 this.createdOn = instancesSeen;
-                this.driftDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.driftOption)).copy();
+                driftDetectors.resetLearning(this.indexOriginal);
 
                 if(this.subset != null) {
                     ArrayList<Integer> fIndexes = this.applySubsetResetStrategy(instance, random);
@@ -523,9 +558,9 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                     for(int i = 0 ; i < this.featureIndexes.length ; ++i)
                         attSub.add(instance.attribute(this.featureIndexes[i]));
 
-                    this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-                    this.subset.setClassIndex(this.subset.numAttributes()-1);
-                    prepareRandomSubspaceInstance(instance, 1);
+                    Instances header = new Instances("Subsets Candidate Instances", attSub, 0);
+                    header.setClassIndex(header.numAttributes() - 1);
+                    this.subset = new SubspaceInstanceView(this.featureIndexes, header);
                 }
             }
         }
@@ -535,11 +570,9 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
             // The subset object will be null if we are training with all features
             if(this.subset != null) {
                 // Selecting just the subset of features that we are going to use
-                prepareRandomSubspaceInstance(instance, weight);
-
-                // After prepareRandomSubspaceInstance, index 0 of subset holds the instance with this learner subspaces
-                this.classifier.trainOnInstance(this.subset.get(0));
-                correctlyClassifies = this.classifier.correctlyClassifies(this.subset.get(0));
+                Instance subInstance = prepareRandomSubspaceInstance(instance, weight);
+                this.classifier.trainOnInstance(subInstance);
+                correctlyClassifies = this.classifier.correctlyClassifies(subInstance);
                 if(this.bkgLearner != null)
                     this.bkgLearner.trainOnInstance(instance, weight, instancesSeen, random);
             }
@@ -557,9 +590,9 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                 // Check for warning only if useBkgLearner is active
                 if (!this.disableBkgLearner) {
                     // Update the warning detection method
-                    this.warningDetectionMethod.input(correctlyClassifies ? 0 : 1);
+                    warningDetectors.input(this.indexOriginal, correctlyClassifies ? 0 : 1);
                     // Check if there was a change
-                    if (this.warningDetectionMethod.getChange()) {
+                    if (warningDetectors.getChange(this.indexOriginal)) {
                         this.numberOfWarningsDetected++;
                         triggerWarning(instance, instancesSeen, random);
                     }
@@ -567,9 +600,9 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
 
                 /*********** drift detection ***********/
                 // Update the DRIFT detection method
-                this.driftDetectionMethod.input(correctlyClassifies ? 0 : 1);
+                driftDetectors.input(this.indexOriginal, correctlyClassifies ? 0 : 1);
                 // Check if there was a change
-                if (this.driftDetectionMethod.getChange()) {
+                if (driftDetectors.getChange(this.indexOriginal)) {
                     this.numberOfDriftsDetected++;
                     // There was a change, this model must be reset
                     this.reset(instance, instancesSeen, random);
@@ -585,16 +618,16 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
             bkgEvaluator.reset();
             if(this.subset == null) {
                 this.bkgLearner = new StreamingRandomPatchesClassifier(indexOriginal, bkgClassifier, bkgEvaluator, instancesSeen,
-                        this.disableBkgLearner, this.disableDriftDetector, this.driftOption, this.warningOption,true);
+                        this.disableBkgLearner, this.disableDriftDetector, true);
             }
             else {
                 ArrayList<Integer> fIndexes = this.applySubsetResetStrategy(instance, random);
 
                 this.bkgLearner = new StreamingRandomPatchesClassifier(indexOriginal, bkgClassifier, bkgEvaluator, instancesSeen,
-                        this.disableBkgLearner, this.disableDriftDetector, this.driftOption, this.warningOption,
+                        this.disableBkgLearner, this.disableDriftDetector,
                         fIndexes, instance,true);
             }
-            this.warningDetectionMethod = ((ChangeDetector) getPreparedClassOption(this.warningOption)).copy();
+            warningDetectors.resetLearning(this.indexOriginal);
         }
 
         /**
@@ -603,9 +636,9 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
          */
         public double[] getVotesForInstance(Instance instance) {
             if(this.subset != null) {
-                prepareRandomSubspaceInstance(instance, 1);
-                // subset.get(0) returns the instance transformed to the correct subspace (i.e. current model subspace).
-                DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(this.subset.get(0)));
+                // the view of the instance in the current model subspace
+                DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(
+                        prepareRandomSubspaceInstance(instance, 1)));
 
                 return vote.getArrayRef();
             }
@@ -37,6 +37,7 @@ import moa.core.MiscUtils;
 import moa.evaluation.BasicClassificationPerformanceEvaluator;
 import moa.options.ClassOption;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Random;
 import java.util.concurrent.Callable;
@@ -160,6 +161,7 @@ public class AdaptiveRandomForestMB extends AbstractClassifierMiniBatch implemen
 
     @Override
     public double[] getVotesForInstance(Instance instance) {
+        trainOnStaleInstances();
         Instance testInstance = instance.copy();
         if(this.trainers == null)
             initEnsemble(testInstance);
@@ -424,7 +426,7 @@ public class AdaptiveRandomForestMB extends AbstractClassifierMiniBatch implemen
     /***
      * Inner class to assist with the multi-thread execution. 
      */
-    protected class TrainingRunnable implements Runnable, Callable<Integer> {
+    protected class TrainingRunnable implements Runnable, Callable<Integer>, Serializable {
         private ARFBaseLearner learner;
         private ArrayList<Instance> instances;
         private final double lambdaOption;
@@ -36,6 +36,7 @@ import moa.core.Measurement;
 import moa.core.MiscUtils;
 import moa.options.ClassOption;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Random;
 import java.util.concurrent.Callable;
@@ -186,6 +187,7 @@ public class LeveragingBagMB extends AbstractClassifierMiniBatch implements Mult
 
     @Override
     public double[] getVotesForInstance(Instance inst) {
+        trainOnStaleInstances();
         if (this.outputCodesOption.isSet()) {
             return getVotesForInstanceBinary(inst);
         }
@@ -269,7 +271,7 @@ public class LeveragingBagMB extends AbstractClassifierMiniBatch implements Mult
     /***
      * Inner class to assist with the multi-thread execution.
      */
-    protected class TrainingRunnable implements Runnable, Callable<Integer> {
+    protected class TrainingRunnable implements Runnable, Callable<Integer>, Serializable {
         private Classifier learner;
         private ArrayList<Instance> instances;
         protected int LevAlgOption;
@@ -33,6 +33,7 @@ import moa.core.Measurement;
 import moa.core.MiscUtils;
 import moa.options.ClassOption;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Random;
 import java.util.concurrent.Callable;
@@ -147,6 +148,7 @@ public class OzaBagAdwinMB extends AbstractClassifierMiniBatch implements MultiC
 
     @Override
     public double[] getVotesForInstance(Instance inst) {
+        trainOnStaleInstances();
         DoubleVector combinedVote = new DoubleVector();
         for (TrainingRunnable trainer : this.trainers) {
             DoubleVector vote = new DoubleVector(trainer.learner.getVotesForInstance(inst));
@@ -199,7 +201,7 @@ public class OzaBagAdwinMB extends AbstractClassifierMiniBatch implements MultiC
     /***
      * Inner class to assist with the multi-thread execution.
      */
-    protected class TrainingRunnable implements Runnable, Callable<Integer> {
+    protected class TrainingRunnable implements Runnable, Callable<Integer>, Serializable {
         private Classifier learner;
         private ArrayList<Instance> instances;
         protected ADWIN ADError;
@@ -21,6 +21,7 @@ package moa.classifiers.meta.minibatch;
 
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.AbstractClassifierMiniBatch;
@@ -31,6 +32,7 @@ import moa.core.Measurement;
 import moa.core.MiscUtils;
 import moa.options.ClassOption;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Random;
 import java.util.concurrent.Callable;
@@ -97,8 +99,74 @@ public class OzaBagMB extends AbstractClassifierMiniBatch implements MultiClassC
         }
     }
 
+    /**
+     * Trains the members with the batch in parallel. Each member trains with
+     * the same values and its own column of Poisson weights.
+     */
+    @Override
+    public void trainOnBatch(InstanceBatch batch) {
+        if (getClass() != OzaBagMB.class || this.myBatch == null) {
+            super.trainOnBatch(batch);
+            return;
+        }
+        if (!this.myBatch.isEmpty()) {
+            // keep the order of the instances already buffered
+            trainOnBufferedInstances();
+        }
+        int[] rows = new int[batch.numInstances()];
+        int numRows = 0;
+        for (int row = 0; row < batch.numInstances(); row++) {
+            if (isTrainingInstance(batch.row(row))) {
+                rows[numRows++] = row;
+                this.trainingWeightSeenByModel += batch.weight(row);
+            }
+        }
+        if (numRows == 0) {
+            return;
+        }
+        InstanceBatch trainingBatch = numRows == batch.numInstances() ? batch : batch.subset(rows, numRows);
+        for (TrainingRunnable t : trainers) {
+            t.batch = trainingBatch;
+        }
+        if (this.threadpool != null) {
+            try {
+                this.threadpool.invokeAll(trainers);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException("Could not call invokeAll() on training threads.");
+            }
+        }
+    }
+
+    @Override
+    public double[][] getVotesForBatch(InstanceBatch batch) {
+        trainOnStaleInstances();
+        if (getClass() != OzaBagMB.class) {
+            return super.getVotesForBatch(batch);
+        }
+        DoubleVector[] combinedVotes = new DoubleVector[batch.numInstances()];
+        for (int row = 0; row < combinedVotes.length; row++) {
+            combinedVotes[row] = new DoubleVector();
+        }
+        for (TrainingRunnable trainer : this.trainers) {
+            double[][] votes = trainer.learner.getVotesForBatch(batch);
+            for (int row = 0; row < combinedVotes.length; row++) {
+                DoubleVector vote = new DoubleVector(votes[row]);
+                if (vote.sumOfValues() > 0.0) {
+                    vote.normalize();
+                    combinedVotes[row].addValues(vote);
+                }
+            }
+        }
+        double[][] votes = new double[combinedVotes.length][];
+        for (int row = 0; row < votes.length; row++) {
+            votes[row] = combinedVotes[row].getArrayRef();
+        }
+        return votes;
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
+        trainOnStaleInstances();
         DoubleVector combinedVote = new DoubleVector();
         for (TrainingRunnable trainer : this.trainers) {
             DoubleVector vote = new DoubleVector(trainer.learner.getVotesForInstance(inst));
@@ -147,10 +215,11 @@ public class OzaBagMB extends AbstractClassifierMiniBatch implements MultiClassC
      * Inner class to assist with the multi-thread execution.
      */
 
-    protected class TrainingRunnable implements Runnable, Callable<Integer> {
+    protected class TrainingRunnable implements Runnable, Callable<Integer>, Serializable {
         // TODO: Fix bug that makes seed initialized random objects not give the same result in MOA
         private Classifier learner;
         private ArrayList<Instance> instances;
+        private InstanceBatch batch;
         private Random trRandom;
         public int localSeed;
 
@@ -164,6 +233,16 @@ public class OzaBagMB extends AbstractClassifierMiniBatch implements MultiClassC
 
         @Override
         public void run() {
+            if (this.batch != null) {
+                double[] weights = new double[this.batch.numInstances()];
+                for (int row = 0; row < weights.length; row++) {
+                    int k = MiscUtils.poisson(1.0, this.trRandom);
+                    weights[row] = this.batch.weight(row) * k;
+                }
+                this.learner.trainOnBatch(this.batch.withWeights(weights));
+                this.batch = null;
+                return;
+            }
             for (Instance inst : this.instances) {
                 int k = MiscUtils.poisson(1.0, this.trRandom);
                 Instance weightedInst = inst.copy();
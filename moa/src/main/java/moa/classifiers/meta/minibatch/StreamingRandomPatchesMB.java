@@ -23,9 +23,9 @@ import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 import com.yahoo.labs.samoa.instances.Attribute;
-import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.SubspaceInstanceView;
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
@@ -41,6 +41,7 @@ import moa.core.MiscUtils;
 import moa.evaluation.BasicClassificationPerformanceEvaluator;
 import moa.options.ClassOption;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Random;
 import java.util.concurrent.Callable;
@@ -162,6 +163,7 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
 
     @Override
     public double[] getVotesForInstance(Instance instance) {
+        trainOnStaleInstances();
         Instance testInstance = instance.copy();
         if (this.trainers == null)
             initEnsemble(testInstance);
@@ -371,13 +373,13 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
     }
 
     // Inner class representing the base learner of SRP.
-    protected class StreamingRandomPatchesClassifier {
+    protected class StreamingRandomPatchesClassifier implements Serializable {
         public int indexOriginal;
         public long createdOn;
         public Classifier classifier;
 
         // Stores current model subspace representation of the original instances.
-        public Instances subset;
+        public SubspaceInstanceView subset;
         public int[] featureIndexes;
 
         // Drift detection
@@ -464,26 +466,13 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
                 attSub.add(instance.attribute(featuresIndexes.get(i)));
                 this.featureIndexes[i] = featuresIndexes.get(i);
             }
-            this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-            this.subset.setClassIndex(this.subset.numAttributes()-1);
-            prepareRandomSubspaceInstance(instance,1);
+            Instances header = new Instances("Subsets Candidate Instances", attSub, 0);
+            header.setClassIndex(header.numAttributes() - 1);
+            this.subset = new SubspaceInstanceView(this.featureIndexes, header);
         }
 
-        public void prepareRandomSubspaceInstance(Instance instance, double weight) {
-            // If there is any instance lingering in the subset, remove it.
-            while(this.subset.numInstances() > 0)
-                this.subset.delete(0);
-
-            double[] values = new double[this.subset.numAttributes()];
-            for(int j = 0 ; j < this.subset.numAttributes() ; ++j)
-                values[j] = instance.value(this.featureIndexes[j]);
-
-            // Set the class value for each value array.
-            values[values.length-1] = instance.classValue();
-            DenseInstance subInstance = new DenseInstance(1.0, values);
-            subInstance.setWeight(weight);
-            subInstance.setDataset(this.subset);
-            this.subset.add(subInstance);
+        public Instance prepareRandomSubspaceInstance(Instance instance, double weight) {
+            return this.subset.setSource(instance, weight);
         }
 
         private ArrayList<Integer> applySubsetResetStrategy(Instance instance, Random random) {
@@ -530,9 +519,9 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
                     for(int i = 0 ; i < this.featureIndexes.length ; ++i)
                         attSub.add(instance.attribute(this.featureIndexes[i]));
 
-                    this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-                    this.subset.setClassIndex(this.subset.numAttributes()-1);
-                    prepareRandomSubspaceInstance(instance, 1);
+                    Instances header = new Instances("Subsets Candidate Instances", attSub, 0);
+                    header.setClassIndex(header.numAttributes() - 1);
+                    this.subset = new SubspaceInstanceView(this.featureIndexes, header);
                 }
             }
         }
@@ -542,11 +531,9 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
             // The subset object will be null if we are training with all features
             if(this.subset != null) {
                 // Selecting just the subset of features that we are going to use
-                prepareRandomSubspaceInstance(instance, weight);
-
-                // After prepareRandomSubspaceInstance, index 0 of subset holds the instance with this learner subspaces
-                this.classifier.trainOnInstance(this.subset.get(0));
-                correctlyClassifies = this.classifier.correctlyClassifies(this.subset.get(0));
+                Instance subInstance = prepareRandomSubspaceInstance(instance, weight);
+                this.classifier.trainOnInstance(subInstance);
+                correctlyClassifies = this.classifier.correctlyClassifies(subInstance);
                 if(this.bkgLearner != null)
                     this.bkgLearner.trainOnInstance(instance, weight, instancesSeen, random);
             }
@@ -610,9 +597,9 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
          */
         public double[] getVotesForInstance(Instance instance) {
             if(this.subset != null) {
-                prepareRandomSubspaceInstance(instance, 1);
-                // subset.get(0) returns the instance transformed to the correct subspace (i.e. current model subspace).
-                DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(this.subset.get(0)));
+                // the view of the instance in the current model subspace
+                DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(
+                        prepareRandomSubspaceInstance(instance, 1)));
 
                 return vote.getArrayRef();
             }
@@ -624,7 +611,7 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
     /***
      * Inner class to assist with the multi-thread execution.
      */
-    protected class TrainingRunnable implements Runnable, Callable<Integer> {
+    protected class TrainingRunnable implements Runnable, Callable<Integer>, Serializable {
         private StreamingRandomPatchesClassifier learner;
         private ArrayList<Instance> instances;
         private final double lambdaOption;
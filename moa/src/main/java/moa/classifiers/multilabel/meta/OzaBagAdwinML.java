@@ -19,7 +19,6 @@
 package moa.classifiers.multilabel.meta;
 
 import moa.classifiers.Classifier;
-import moa.classifiers.core.driftdetection.ADWIN;
 import moa.classifiers.meta.OzaBagAdwin;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import moa.core.InstanceExample;
@@ -71,14 +70,12 @@ public class OzaBagAdwinML extends OzaBagAdwin implements MultiLabelLearner, Mul
 			//System.err.println("loss["+i+"] = "+loss);
 
 			// adwin stuff
-			double ErrEstim = this.ADError[i].getEstimation();
-			if (this.ADError[i].setInput(loss)) {
-				if (this.ADError[i].getEstimation() > ErrEstim) {
-					System.err.println("Change model "+i+"!");
-					this.ensemble[i].resetLearning();
-					this.ensemble[i].trainOnInstance(inst);
-					this.ADError[i] = new ADWIN();
-				}
+			this.errorDetectors.input(i, loss);
+			if (this.errorDetectors.getChange(i)) {
+				System.err.println("Change model "+i+"!");
+				this.ensemble[i].resetLearning();
+				this.ensemble[i].trainOnInstance(inst);
+				this.errorDetectors.resetLearning(i);
 			}
 		}
 	}
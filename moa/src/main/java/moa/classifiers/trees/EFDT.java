@@ -47,6 +47,10 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
@@ -59,6 +63,7 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.SplitEvaluation;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NullAttributeClassObserver;
@@ -147,6 +152,19 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
   public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
     "Disable pre-pruning.");
 
+  public FlagOption flatInferenceOption = new FlagOption("flatInference", 'f',
+    "Predict with a flat copy of the tree, compiled again after the tree changes.");
+
+  public FlagOption parallelSplitEvaluationOption = new FlagOption("parallelSplitEvaluation", 'P',
+    "Evaluate the split suggestions of the attributes in parallel.");
+
+  public FloatOption reEvalWeightGrowthOption = new FloatOption("reevaluationWeightGrowth", 'G',
+    "Fraction of the weight of an internal node an attribute must observe before its split is scored again, 0 to score all attributes at every re-evaluation.",
+    0.0, 0.0, Double.MAX_VALUE);
+
+  public FlagOption backgroundReEvalOption = new FlagOption("backgroundReevaluation", 'B',
+    "Re-evaluate internal nodes in the background, on copies of their statistics.");
+
   public MultiChoiceOption leafpredictionOption = new MultiChoiceOption(
     "leafprediction", 'l', "Leaf prediction to use.", new String[]{
     "MC", "NB", "NBAdaptive"}, new String[]{
@@ -180,6 +198,9 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
   protected int splitCount = 0;
 
+  /** The flat copy of the tree used for predictions, null if out of date */
+  protected transient FlatTree flatTree;
+
   @Override
   public String getPurposeString() {
     return "Hoeffding Tree or VFDT.";
@@ -208,6 +229,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
     this.activeLeafByteSizeEstimate = 0.0;
     this.byteSizeEstimateOverheadFraction = 1.0;
     this.growthAllowed = true;
+    this.flatTree = null;
     if (this.leafpredictionOption.getChosenIndex() > 0) {
       this.removePoorAttsOption = null;
     }
@@ -215,6 +237,10 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
   @Override
   public double[] getVotesForInstance(Instance inst) {
+    if (this.treeRoot != null && this.flatInferenceOption.isSet()) {
+      FlatTree flat = getFlatTree();
+      return ((Node) flat.getNode(flat.route(inst))).getClassVotes(inst, this);
+    }
     if (this.treeRoot != null) {
       FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst,
 	null, -1);
@@ -230,6 +256,58 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
     }
   }
 
+  /**
+   * Compiles the tree into a flat tree.
+   *
+   * @param export whether to store a copy of the class distribution of
+   * every node instead of the nodes themselves
+   * @return the flat tree, empty if nothing has been learned
+   */
+  public FlatTree compileFlatTree(boolean export) {
+    FlatTree flat = new FlatTree();
+    if (this.treeRoot != null) {
+      addToFlatTree(flat, this.treeRoot, export);
+    }
+    return flat;
+  }
+
+  protected int addToFlatTree(FlatTree flat, Node node, boolean export) {
+    int index;
+    if (node instanceof SplitNode) {
+      SplitNode splitNode = (SplitNode) node;
+      index = flat.addSplit(export ? null : node, splitNode.splitTest,
+	splitNode.numChildren());
+      for (int i = 0; i < splitNode.numChildren(); i++) {
+	Node child = splitNode.getChild(i);
+	if (child != null) {
+	  flat.setChild(index, i, addToFlatTree(flat, child, export));
+	}
+      }
+    }
+    else {
+      index = flat.addLeaf(export ? null : node);
+    }
+    if (export) {
+      flat.setVotes(index, node.getObservedClassDistribution());
+    }
+    return index;
+  }
+
+  protected FlatTree getFlatTree() {
+    if (this.flatTree == null) {
+      this.flatTree = compileFlatTree(false);
+    }
+    return this.flatTree;
+  }
+
+  /**
+   * Marks the flat copy of the tree out of date, to be called whenever
+   * nodes are added or replaced.
+   */
+  protected void invalidateFlatTree() {
+    this.flatTree = null;
+  }
+
   @Override
   protected Measurement[] getModelMeasurementsImpl() {
     FoundNode[] learningNodes = findLearningNodes();
@@ -269,6 +347,20 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
     return false;
   }
 
+  /** The threads re-evaluating internal nodes in the background, shared by all trees */
+  private static ExecutorService reEvalExecutor;
+
+  protected static synchronized ExecutorService getReEvalExecutor() {
+    if (reEvalExecutor == null) {
+      reEvalExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+	Thread thread = new Thread(runnable, "EFDT re-evaluation");
+	thread.setDaemon(true);
+	return thread;
+      });
+    }
+    return reEvalExecutor;
+  }
+
   public static double computeHoeffdingBound(double range, double confidence,
 					     double n) {
     return Math.sqrt(((range * range) * Math.log(1.0 / confidence))
@@ -385,6 +477,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
     }
     this.activeLeafNodeCount--;
     this.inactiveLeafNodeCount++;
+    invalidateFlatTree();
   }
 
   protected void activateLearningNode(InactiveLearningNode toActivate,
@@ -398,6 +491,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
     }
     this.activeLeafNodeCount++;
     this.inactiveLeafNodeCount--;
+    invalidateFlatTree();
   }
 
   protected FoundNode[] findLearningNodes() {
@@ -565,6 +659,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	  else {
 	    parent.setChild(parentIndex, newSplit);
 	  }
+	  invalidateFlatTree();
 
 	}
 	// manage memory
@@ -580,6 +675,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
       this.treeRoot = newLearningNode();
       ((EFDTNode) this.treeRoot).setRoot(true);
       this.activeLeafNodeCount = 1;
+      invalidateFlatTree();
     }
 
     FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
@@ -589,6 +685,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
       leafNode = newLearningNode();
       foundNode.parent.setChild(foundNode.parentBranch, leafNode);
       this.activeLeafNodeCount++;
+      invalidateFlatTree();
     }
 
     ((EFDTNode) this.treeRoot).learnFromInstance(inst, this, null, -1);
@@ -888,6 +985,18 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
     protected AutoExpandVector<AttributeClassObserver> attributeObservers;
 
+    /** The suggestion of each attribute when it was last scored during re-evaluation */
+    protected AttributeSplitSuggestion[] cachedSuggestions;
+
+    /** The weight observed by each attribute since it was last scored */
+    protected DoubleVector weightSinceScoring = new DoubleVector();
+
+    /** The weight of the node when each attribute was last scored */
+    protected DoubleVector weightAtScoring = new DoubleVector();
+
+    /** The re-evaluation running in the background, null if none */
+    protected transient ReEvaluation pendingReEval;
+
     public EFDTSplitNode(InstanceConditionalTest splitTest, double[] classObservations, int size) {
       super(splitTest, classObservations, size);
     }
@@ -936,19 +1045,134 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	  new double[0][], criterion.getMeritOfSplit(
 	  preSplitDist, new double[][]{preSplitDist})));
       }
-      for (int i = 0; i < this.attributeObservers.size(); i++) {
-	AttributeClassObserver obs = this.attributeObservers.get(i);
-	if (obs != null) {
-	  AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-	    preSplitDist, i, ht.binarySplitsOption.isSet());
-	  if (bestSuggestion != null) {
-	    bestSuggestions.add(bestSuggestion);
-	  }
+      SplitEvaluation.addBestSplitSuggestions(bestSuggestions, this.attributeObservers,
+	criterion, preSplitDist, ht.binarySplitsOption.isSet(),
+	ht.parallelSplitEvaluationOption.isSet());
+      return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
+    }
+
+
+    /**
+     * Finds the attributes to score again, those that observed enough weight
+     * since they were last scored.
+     */
+    protected boolean[] getAttributesToScore(EFDT ht) {
+      double growth = ht.reEvalWeightGrowthOption.getValue();
+      boolean[] toScore = new boolean[this.attributeObservers.size()];
+      for (int i = 0; i < toScore.length; i++) {
+	toScore[i] = this.cachedSuggestions == null || i >= this.cachedSuggestions.length
+	  || this.weightSinceScoring.getValue(i) >= growth * this.weightAtScoring.getValue(i);
+      }
+      return toScore;
+    }
+
+    protected List<AttributeClassObserver> getObserversToScore(boolean[] toScore, boolean copy) {
+      List<AttributeClassObserver> observers = new ArrayList<>(toScore.length);
+      for (int i = 0; i < toScore.length; i++) {
+	AttributeClassObserver obs = toScore[i] ? this.attributeObservers.get(i) : null;
+	observers.add(obs != null && copy ? (AttributeClassObserver) obs.copy() : obs);
+      }
+      return observers;
+    }
+
+    protected void resetWeightSinceScoring(boolean[] toScore, double weight) {
+      for (int i = 0; i < toScore.length; i++) {
+	if (toScore[i]) {
+	  this.weightSinceScoring.setValue(i, 0.0);
+	  this.weightAtScoring.setValue(i, weight);
+	}
+      }
+    }
+
+    /**
+     * Stores the suggestions of the attributes scored again and returns the
+     * suggestions of all the attributes, as getBestSplitSuggestions does.
+     */
+    protected AttributeSplitSuggestion[] updateCachedSuggestions(boolean[] toScore,
+      AttributeSplitSuggestion[] scored, SplitCriterion criterion, double[] preSplitDist, EFDT ht) {
+      if (this.cachedSuggestions == null) {
+	this.cachedSuggestions = new AttributeSplitSuggestion[toScore.length];
+      }
+      else if (this.cachedSuggestions.length < toScore.length) {
+	this.cachedSuggestions = Arrays.copyOf(this.cachedSuggestions, toScore.length);
+      }
+      for (int i = 0; i < toScore.length; i++) {
+	if (toScore[i]) {
+	  this.cachedSuggestions[i] = scored[i];
+	}
+      }
+      List<AttributeSplitSuggestion> bestSuggestions = new LinkedList<>();
+      if (!ht.noPrePruneOption.isSet()) {
+	// add null split as an option
+	bestSuggestions.add(new AttributeSplitSuggestion(null,
+	  new double[0][], criterion.getMeritOfSplit(
+	  preSplitDist, new double[][]{preSplitDist})));
+      }
+      for (AttributeSplitSuggestion suggestion : this.cachedSuggestions) {
+	if (suggestion != null) {
+	  bestSuggestions.add(suggestion);
 	}
       }
       return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
     }
 
+    /**
+     * Gets the weight to compute the Hoeffding bound of a re-evaluation with:
+     * the least weight the node had when the merits of the cached suggestions
+     * were scored, or when the distribution of the null split was taken.
+     *
+     * @param weight the weight of the node when the distribution was taken
+     */
+    protected double getWeightAtScoring(double weight) {
+      if (this.cachedSuggestions != null) {
+	for (int i = 0; i < this.cachedSuggestions.length; i++) {
+	  if (this.cachedSuggestions[i] != null) {
+	    weight = Math.min(weight, this.weightAtScoring.getValue(i));
+	  }
+	}
+      }
+      return weight;
+    }
+
+    /**
+     * Gets the split suggestions for re-evaluation, scoring again only the
+     * attributes that observed enough weight since they were last scored.
+     */
+    public AttributeSplitSuggestion[] getReEvaluationSuggestions(SplitCriterion criterion, EFDT ht) {
+      boolean[] toScore = getAttributesToScore(ht);
+      double[] preSplitDist = this.observedClassDistribution.getArrayCopy();
+      AttributeSplitSuggestion[] scored = SplitEvaluation.getBestSplitSuggestions(
+	getObserversToScore(toScore, false), criterion, preSplitDist,
+	ht.binarySplitsOption.isSet(), ht.parallelSplitEvaluationOption.isSet());
+      resetWeightSinceScoring(toScore, Utils.sum(preSplitDist));
+      return updateCachedSuggestions(toScore, scored, criterion, preSplitDist, ht);
+    }
+
+    /**
+     * Starts scoring the attributes to score again in the background, on
+     * copies of their observers.
+     */
+    protected ReEvaluation startReEvaluation(SplitCriterion criterion, EFDT ht) {
+      boolean[] toScore = getAttributesToScore(ht);
+      double[] preSplitDist = this.observedClassDistribution.getArrayCopy();
+      List<AttributeClassObserver> observers = getObserversToScore(toScore, true);
+      boolean binaryOnly = ht.binarySplitsOption.isSet();
+      boolean parallel = ht.parallelSplitEvaluationOption.isSet();
+      double weight = Utils.sum(preSplitDist);
+      resetWeightSinceScoring(toScore, weight);
+      return new ReEvaluation(toScore, criterion, preSplitDist, weight, getReEvalExecutor().submit(() ->
+	SplitEvaluation.getBestSplitSuggestions(observers, criterion, preSplitDist, binaryOnly, parallel)));
+    }
+
+    protected AttributeSplitSuggestion[] finishReEvaluation(ReEvaluation reEval, EFDT ht) {
+      AttributeSplitSuggestion[] scored;
+      try {
+	scored = reEval.scored.get();
+      } catch (InterruptedException | ExecutionException e) {
+	throw new RuntimeException("Re-evaluation failed.", e);
+      }
+      return updateCachedSuggestions(reEval.toScore, scored, reEval.criterion, reEval.preSplitDist, ht);
+    }
 
     @Override
     public void learnFromInstance(Instance inst, EFDT ht, EFDTSplitNode parent, int parentBranch) {
@@ -966,10 +1190,19 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	  this.attributeObservers.set(i, obs);
 	}
 	obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
+	if (!inst.isMissing(instAttIndex)) {
+	  this.weightSinceScoring.addToValue(i, inst.weight());
+	}
       }
 
       // check if a better split is available. if so, chop the tree at this point, copying likelihood. predictors for children are from parent likelihood.
-      if (ht.numInstances % ht.reEvalPeriodOption.getValue() == 0) {
+      if (this.pendingReEval != null && this.pendingReEval.scored.isDone()) {
+	ReEvaluation reEval = this.pendingReEval;
+	this.pendingReEval = null;
+	this.reEvaluateBestSplit(this, parent, parentBranch, finishReEvaluation(reEval, ht),
+	  getWeightAtScoring(reEval.weight));
+      }
+      else if (ht.numInstances % ht.reEvalPeriodOption.getValue() == 0) {
 	this.reEvaluateBestSplit(this, parent, parentBranch);
       }
 
@@ -984,6 +1217,28 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 
     protected void reEvaluateBestSplit(EFDTSplitNode node, EFDTSplitNode parent,
 				       int parentIndex) {
+      SplitCriterion splitCriterion = (SplitCriterion) getPreparedClassOption(EFDT.this.splitCriterionOption);
+      if (EFDT.this.backgroundReEvalOption.isSet()) {
+	// the result is used once ready, by a later instance
+	if (node.pendingReEval == null) {
+	  node.pendingReEval = node.startReEvaluation(splitCriterion, EFDT.this);
+	}
+	return;
+      }
+      double weight = node.observedClassDistribution.sumOfValues();
+      AttributeSplitSuggestion[] suggestions = node.getReEvaluationSuggestions(splitCriterion, EFDT.this);
+      reEvaluateBestSplit(node, parent, parentIndex, suggestions, node.getWeightAtScoring(weight));
+    }
+
+    /**
+     * Re-evaluates the split of the node with the given suggestions.
+     *
+     * @param weightAtScoring the weight the merits of the suggestions were
+     * scored with, used for the Hoeffding bound
+     */
+    protected void reEvaluateBestSplit(EFDTSplitNode node, EFDTSplitNode parent,
+				       int parentIndex, AttributeSplitSuggestion[] bestSplitSuggestions,
+				       double weightAtScoring) {
 
 
       node.addToSplitAttempts(1);
@@ -1007,10 +1262,8 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
       //compute Hoeffding bound
       SplitCriterion splitCriterion = (SplitCriterion) getPreparedClassOption(EFDT.this.splitCriterionOption);
       double hoeffdingBound = computeHoeffdingBound(splitCriterion.getRangeOfMerit(node.getClassDistributionAtTimeOfCreation()),
-	EFDT.this.splitConfidenceOption.getValue(), node.observedClassDistribution.sumOfValues());
+	EFDT.this.splitConfidenceOption.getValue(), weightAtScoring);
 
-      // get best split suggestions
-      AttributeSplitSuggestion[] bestSplitSuggestions = node.getBestSplitSuggestions(splitCriterion, EFDT.this);
       Arrays.sort(bestSplitSuggestions);
 
       // get the best suggestion
@@ -1087,6 +1340,9 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	    node.getObservedClassDistribution(), splitDecision.numSplits());
 
 	  ((EFDTSplitNode) newSplit).attributeObservers = node.attributeObservers; // copy the attribute observers
+	  ((EFDTSplitNode) newSplit).cachedSuggestions = node.cachedSuggestions; // and the merits scored from them
+	  ((EFDTSplitNode) newSplit).weightSinceScoring = node.weightSinceScoring;
+	  ((EFDTSplitNode) newSplit).weightAtScoring = node.weightAtScoring;
 	  newSplit.setInfogainSum(node.getInfogainSum());  // transfer infogain history, split to replacement split
 
 	  if (node.splitTest == splitDecision.splitTest
@@ -1139,6 +1395,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	    parent.setChild(parentIndex, newSplit);
 	  }
 	}
+	EFDT.this.invalidateFlatTree();
       }
     }
 
@@ -1153,6 +1410,33 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
     }
   }
 
+  /**
+   * The scoring of the attributes of an internal node, running in the
+   * background on copies of their observers.
+   */
+  protected static class ReEvaluation {
+
+    protected final boolean[] toScore;
+
+    protected final SplitCriterion criterion;
+
+    protected final double[] preSplitDist;
+
+    /** The weight of the node when its statistics were copied */
+    protected final double weight;
+
+    protected final Future<AttributeSplitSuggestion[]> scored;
+
+    public ReEvaluation(boolean[] toScore, SplitCriterion criterion, double[] preSplitDist,
+			double weight, Future<AttributeSplitSuggestion[]> scored) {
+      this.toScore = toScore;
+      this.criterion = criterion;
+      this.preSplitDist = preSplitDist;
+      this.weight = weight;
+      this.scored = scored;
+    }
+  }
+
   public static abstract class LearningNode extends Node {
 
     private static final long serialVersionUID = 1L;
@@ -1304,16 +1588,9 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	  new double[0][], criterion.getMeritOfSplit(
 	  preSplitDist, new double[][]{preSplitDist})));
       }
-      for (int i = 0; i < this.attributeObservers.size(); i++) {
-	AttributeClassObserver obs = this.attributeObservers.get(i);
-	if (obs != null) {
-	  AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-	    preSplitDist, i, ht.binarySplitsOption.isSet());
-	  if (bestSuggestion != null) {
-	    bestSuggestions.add(bestSuggestion);
-	  }
-	}
-      }
+      SplitEvaluation.addBestSplitSuggestions(bestSuggestions, this.attributeObservers,
+	criterion, preSplitDist, ht.binarySplitsOption.isSet(),
+	ht.parallelSplitEvaluationOption.isSet());
       return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
     }
 
@@ -1533,6 +1810,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	    } else {
 	      parent.setChild(parentIndex, newSplit);
 	    }
+	    invalidateFlatTree();
 
 	  }
 
@@ -1579,6 +1857,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
       if (this.treeRoot == null) {
 	this.treeRoot = newLearningNode();
 	this.activeLeafNodeCount = 1;
+	invalidateFlatTree();
       }
       FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
       Node leafNode = foundNode.node;
@@ -1587,6 +1866,7 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	leafNode = newLearningNode();
 	foundNode.parent.setChild(foundNode.parentBranch, leafNode);
 	this.activeLeafNodeCount++;
+	invalidateFlatTree();
       }
 
       if (leafNode instanceof LearningNode) {
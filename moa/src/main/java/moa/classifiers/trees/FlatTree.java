@@ -0,0 +1,389 @@
+/*
+ *    FlatTree.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.trees;
+
+import java.util.Arrays;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.AbstractMOAObject;
+import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+
+/**
+ * A decision tree compiled into parallel primitive arrays, for routing
+ * instances without following node objects and calling their split tests.
+ * Nodes are numbered in depth-first order with the root at 0. The split of a
+ * node is given by its kind, attribute and value, and its children are
+ * stored from its child offset. Missing children are -1.
+ *
+ * A flat tree is either a mirror of a live tree, that keeps the node objects
+ * to let them vote, or an export that keeps a copy of the class distribution
+ * observed at every node instead. Either way it isn't updated when the tree
+ * learns: mirrors are compiled again after the tree changes its structure.
+ *
+ * @version $Revision: 7 $
+ */
+public class FlatTree extends AbstractMOAObject {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final byte LEAF = 0;
+
+    /** Numeric test, where values equal to the split value go right */
+    public static final byte NUMERIC = 1;
+
+    /** Numeric test, where values equal to the split value go left */
+    public static final byte NUMERIC_EQUALS_PASSES = 2;
+
+    public static final byte NOMINAL_BINARY = 3;
+
+    public static final byte NOMINAL_MULTIWAY = 4;
+
+    /** Any other test, which is called */
+    public static final byte OTHER = 5;
+
+    protected int numNodes;
+
+    protected byte[] kind = new byte[16];
+
+    protected int[] attribute = new int[16];
+
+    protected double[] value = new double[16];
+
+    protected int[] childOffset = new int[16];
+
+    protected int[] numChildren = new int[16];
+
+    protected int[] alternate = new int[16];
+
+    protected int numChildSlots;
+
+    protected int[] children = new int[32];
+
+    protected boolean hasAlternates;
+
+    protected InstanceConditionalTest[] tests = new InstanceConditionalTest[16];
+
+    protected Object[] nodes = new Object[16];
+
+    protected int[] votesOffset;
+
+    protected double[] votes;
+
+    protected int numVotes;
+
+    /**
+     * Adds a leaf.
+     *
+     * @param node the node of the tree, null for an export
+     * @return the index of the leaf
+     */
+    public int addLeaf(Object node) {
+        return addNode(node, LEAF, -1, 0.0, null, 0);
+    }
+
+    /**
+     * Adds a split node, without its children.
+     *
+     * @param node the node of the tree, null for an export
+     * @param test the split test of the node
+     * @param numBranches the number of children of the node
+     * @return the index of the split node
+     */
+    public int addSplit(Object node, InstanceConditionalTest test, int numBranches) {
+        Class<?> testClass = test.getClass();
+        if (testClass == NumericAttributeBinaryTest.class) {
+            NumericAttributeBinaryTest numericTest = (NumericAttributeBinaryTest) test;
+            return addNode(node, numericTest.isEqualsPassesTest() ? NUMERIC_EQUALS_PASSES : NUMERIC,
+                    test.getAttsTestDependsOn()[0], numericTest.getSplitValue(), null, numBranches);
+        }
+        if (testClass == NominalAttributeBinaryTest.class) {
+            return addNode(node, NOMINAL_BINARY, test.getAttsTestDependsOn()[0],
+                    ((NominalAttributeBinaryTest) test).getValue(), null, numBranches);
+        }
+        if (testClass == NominalAttributeMultiwayTest.class) {
+            return addNode(node, NOMINAL_MULTIWAY, test.getAttsTestDependsOn()[0], 0.0, null,
+                    numBranches);
+        }
+        return addNode(node, OTHER, -1, 0.0, test, numBranches);
+    }
+
+    protected int addNode(Object node, byte nodeKind, int att, double val,
+            InstanceConditionalTest test, int numBranches) {
+        if (this.numNodes == this.kind.length) {
+            int capacity = 2 * this.numNodes;
+            this.kind = Arrays.copyOf(this.kind, capacity);
+            this.attribute = Arrays.copyOf(this.attribute, capacity);
+            this.value = Arrays.copyOf(this.value, capacity);
+            this.childOffset = Arrays.copyOf(this.childOffset, capacity);
+            this.numChildren = Arrays.copyOf(this.numChildren, capacity);
+            this.alternate = Arrays.copyOf(this.alternate, capacity);
+            this.tests = Arrays.copyOf(this.tests, capacity);
+            this.nodes = Arrays.copyOf(this.nodes, capacity);
+        }
+        if (this.numChildSlots + numBranches > this.children.length) {
+            this.children = Arrays.copyOf(this.children,
+                    Math.max(2 * this.children.length, this.numChildSlots + numBranches));
+        }
+        int index = this.numNodes++;
+        this.kind[index] = nodeKind;
+        this.attribute[index] = att;
+        this.value[index] = val;
+        this.childOffset[index] = this.numChildSlots;
+        this.numChildren[index] = numBranches;
+        this.alternate[index] = -1;
+        this.tests[index] = test;
+        this.nodes[index] = node;
+        Arrays.fill(this.children, this.numChildSlots, this.numChildSlots + numBranches, -1);
+        this.numChildSlots += numBranches;
+        return index;
+    }
+
+    public void setChild(int node, int branch, int child) {
+        this.children[this.childOffset[node] + branch] = child;
+    }
+
+    /**
+     * Sets the alternate tree of a node, which is visited by
+     * {@link #routeAll(Instance)} next to the node itself.
+     */
+    public void setAlternate(int node, int alternateRoot) {
+        this.alternate[node] = alternateRoot;
+        this.hasAlternates = true;
+    }
+
+    /**
+     * Stores a copy of the votes of a node, for an export.
+     */
+    public void setVotes(int node, double[] nodeVotes) {
+        if (this.votesOffset == null) {
+            this.votesOffset = new int[this.kind.length];
+            this.votes = new double[16];
+        } else if (this.votesOffset.length < this.kind.length) {
+            this.votesOffset = Arrays.copyOf(this.votesOffset, this.kind.length);
+        }
+        if (this.numVotes + nodeVotes.length + 1 > this.votes.length) {
+            this.votes = Arrays.copyOf(this.votes,
+                    Math.max(2 * this.votes.length, this.numVotes + nodeVotes.length + 1));
+        }
+        this.votesOffset[node] = this.numVotes;
+        // the number of votes is stored in front of them
+        this.votes[this.numVotes++] = nodeVotes.length;
+        System.arraycopy(nodeVotes, 0, this.votes, this.numVotes, nodeVotes.length);
+        this.numVotes += nodeVotes.length;
+    }
+
+    public int numNodes() {
+        return this.numNodes;
+    }
+
+    public byte getKind(int node) {
+        return this.kind[node];
+    }
+
+    public int getAttribute(int node) {
+        return this.attribute[node];
+    }
+
+    public double getValue(int node) {
+        return this.value[node];
+    }
+
+    public int numChildren(int node) {
+        return this.numChildren[node];
+    }
+
+    public int getChild(int node, int branch) {
+        return branch < this.numChildren[node] ? this.children[this.childOffset[node] + branch] : -1;
+    }
+
+    public int getAlternate(int node) {
+        return this.alternate[node];
+    }
+
+    /**
+     * Gets the node of the tree that a node was compiled from.
+     *
+     * @param node the index of the node
+     * @return the node of the tree, null for an export
+     */
+    public Object getNode(int node) {
+        return this.nodes[node];
+    }
+
+    /**
+     * Gets a copy of the votes stored for a node by an export.
+     */
+    public double[] getVotes(int node) {
+        int offset = this.votesOffset[node];
+        return Arrays.copyOfRange(this.votes, offset + 1, offset + 1 + (int) this.votes[offset]);
+    }
+
+    /**
+     * Gets the branch of a split node that an instance follows, the same way
+     * as the split test of the node.
+     *
+     * @return the branch, -1 if unknown
+     */
+    public int branchForInstance(int node, Instance inst) {
+        int att = this.attribute[node];
+        switch (this.kind[node]) {
+            case NUMERIC:
+            case NUMERIC_EQUALS_PASSES: {
+                if (inst.isMissing(att)) {
+                    return -1;
+                }
+                double v = inst.valueInputAttribute(att);
+                if (v == this.value[node]) {
+                    return this.kind[node] == NUMERIC_EQUALS_PASSES ? 0 : 1;
+                }
+                return v < this.value[node] ? 0 : 1;
+            }
+            case NOMINAL_BINARY: {
+                int instAttIndex = att < inst.classIndex() ? att : att + 1;
+                return inst.isMissing(instAttIndex) ? -1
+                        : ((int) inst.value(instAttIndex) == (int) this.value[node] ? 0 : 1);
+            }
+            case NOMINAL_MULTIWAY:
+                return inst.isMissing(att) ? -1 : (int) inst.value(att);
+            case OTHER:
+                return this.tests[node].branchForInstance(inst);
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Routes an instance from the root to the node that predicts it: the
+     * leaf reached, or the split node where its branch is unknown or has no
+     * child. Alternate trees are ignored.
+     *
+     * @param inst the instance to route
+     * @return the index of the node, -1 if the tree is empty
+     */
+    public int route(Instance inst) {
+        if (this.numNodes == 0) {
+            return -1;
+        }
+        int node = 0;
+        while (this.kind[node] != LEAF) {
+            int branch = branchForInstance(node, inst);
+            if (branch < 0 || branch >= this.numChildren[node]) {
+                return node;
+            }
+            int child = this.children[this.childOffset[node] + branch];
+            if (child < 0) {
+                return node;
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Routes an instance through the tree and its alternate trees, in the
+     * order of {@link HoeffdingAdaptiveTree}, and collects the nodes that
+     * vote: the leaves reached, except roots of alternate trees, and the
+     * split nodes where the branch of the instance has no child.
+     *
+     * @param inst the instance to route
+     * @return the indices of the voting nodes
+     */
+    public int[] routeAll(Instance inst) {
+        if (this.numNodes == 0) {
+            return new int[0];
+        }
+        int[] found = new int[4];
+        int numFound = 0;
+        // roots of alternate trees are pushed complemented
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int entry = stack[--top];
+            int node = entry < 0 ? ~entry : entry;
+            int voter = -1;
+            if (this.kind[node] == LEAF) {
+                if (entry >= 0) {
+                    voter = node;
+                }
+            } else {
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                }
+                if (this.alternate[node] >= 0) {
+                    stack[top++] = ~this.alternate[node];
+                }
+                int branch = branchForInstance(node, inst);
+                if (branch >= 0) {
+                    int child = getChild(node, branch);
+                    if (child >= 0) {
+                        stack[top++] = child;
+                    } else {
+                        voter = node;
+                    }
+                }
+            }
+            if (voter >= 0) {
+                if (numFound == found.length) {
+                    found = Arrays.copyOf(found, 2 * numFound);
+                }
+                found[numFound++] = voter;
+            }
+        }
+        return Arrays.copyOf(found, numFound);
+    }
+
+    /**
+     * Predicts an instance with the votes stored by an export, summing the
+     * votes of all voting nodes if the tree has alternate trees.
+     *
+     * @param inst the instance to predict
+     * @return the votes for the classes
+     */
+    public double[] getVotesForInstance(Instance inst) {
+        if (this.votes == null) {
+            throw new IllegalStateException("The flat tree stores no votes.");
+        }
+        if (!this.hasAlternates) {
+            int node = route(inst);
+            return node < 0 ? new double[0] : getVotes(node);
+        }
+        double[] sum = new double[0];
+        for (int node : routeAll(inst)) {
+            int offset = this.votesOffset[node];
+            int length = (int) this.votes[offset];
+            if (length > sum.length) {
+                sum = Arrays.copyOf(sum, length);
+            }
+            for (int i = 0; i < length; i++) {
+                sum[i] += this.votes[offset + 1 + i];
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        sb.append("Flat tree with ").append(this.numNodes).append(" nodes");
+    }
+}
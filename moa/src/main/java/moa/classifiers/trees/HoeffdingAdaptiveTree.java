@@ -113,7 +113,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
                 byteSize += alternateTree.calcByteSizeIncludingSubtree();
             }
             if (estimationErrorWeight != null) {
-                byteSize += estimationErrorWeight.measureByteSize();
+                byteSize += estimationErrorWeight.estimateByteSize();
             }
             for (Node child : this.children) {
                 if (child != null) {
@@ -203,6 +203,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
                 this.alternateTree = ht.newLearningNode();
                 //this.alternateTree.isAlternateTree = true;
                 ht.alternateTrees++;
+                ht.invalidateFlatTree();
             } // Check condition to replace tree
             else if (this.alternateTree != null && ((NewNode) this.alternateTree).isNullError() == false) {
                 if (this.getErrorWidth() > 300 && ((NewNode) this.alternateTree).getErrorWidth() > 300) {
@@ -225,6 +226,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
                             ht.treeRoot = ((AdaSplitNode) ht.treeRoot).alternateTree;
                         }
                         ht.switchedAlternateTrees++;
+                        ht.invalidateFlatTree();
                     } else if (Bound < altErrorRate - oldErrorRate) {
                         // Erase alternate tree
                         if (this.alternateTree instanceof ActiveLearningNode) {
@@ -237,6 +239,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
                             ((AdaSplitNode) this.alternateTree).killTreeChilds(ht);
                         }
                         ht.prunedAlternateTrees++;
+                        ht.invalidateFlatTree();
                     }
                 }
             }
@@ -317,7 +320,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
         public long calcByteSize() {
             long byteSize = super.calcByteSize();
             if (estimationErrorWeight != null) {
-                byteSize += estimationErrorWeight.measureByteSize();
+                byteSize += estimationErrorWeight.estimateByteSize();
             }
             return byteSize;
         }
@@ -465,6 +468,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
         if (this.treeRoot == null) {
             this.treeRoot = newLearningNode();
             this.activeLeafNodeCount = 1;
+            invalidateFlatTree();
         }
         ((NewNode) this.treeRoot).learnFromInstance(inst, this, null, -1);
     }
@@ -478,8 +482,25 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
         return nodes.toArray(new FoundNode[nodes.size()]);
     }
 
+    @Override
+    protected int addToFlatTree(FlatTree flat, Node node, boolean export) {
+        int index = super.addToFlatTree(flat, node, export);
+        if (node instanceof AdaSplitNode && ((AdaSplitNode) node).alternateTree != null) {
+            flat.setAlternate(index, addToFlatTree(flat, ((AdaSplitNode) node).alternateTree, export));
+        }
+        return index;
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
+        if (this.treeRoot != null && this.flatInferenceOption.isSet()) {
+            FlatTree flat = getFlatTree();
+            DoubleVector result = new DoubleVector();
+            for (int node : flat.routeAll(inst)) {
+                result.addValues(((Node) flat.getNode(node)).getClassVotes(inst, this));
+            }
+            return result.getArrayRef();
+        }
         if (this.treeRoot != null) {
             FoundNode[] foundNodes = filterInstanceToLeaves(inst,
                     null, -1, false);
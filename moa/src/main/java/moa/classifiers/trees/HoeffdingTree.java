@@ -22,6 +22,7 @@ package moa.classifiers.trees;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -37,6 +38,7 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.SplitEvaluation;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NullAttributeClassObserver;
@@ -45,12 +47,16 @@ import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
+import moa.core.FastCopyable;
 import moa.core.Measurement;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 import moa.core.SizeOf;
 import moa.core.StringUtils;
 import moa.core.Utils;
 import moa.options.ClassOption;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
 
 /**
  * Hoeffding Tree or VFDT.
@@ -87,6 +93,9 @@ import com.yahoo.labs.samoa.instances.Instance;
  * ties</li> <li> -b : Only allow binary splits</li> <li> -z : Stop growing as
  * soon as memory limit is hit</li> <li> -r : Disable poor attributes</li> <li>
  * -p : Disable pre-pruning</li> 
+ * <li> -E : Manage memory with the estimated sizes of the nodes. Otherwise the
+ * sizes are measured with SizeOf, which needs its agent: without it the
+ * memory limit is not enforced, as before.</li>
  *  <li> -l : Leaf prediction to use: MajorityClass (MC), Naive Bayes (NB) or NaiveBayes
  * adaptive (NBAdaptive).</li>
  *  <li> -q : The number of instances a leaf should observe before
@@ -97,7 +106,7 @@ import com.yahoo.labs.samoa.instances.Instance;
  * @version $Revision: 7 $
  */
 public class HoeffdingTree extends AbstractClassifier implements MultiClassClassifier,
-                                                                 CapabilitiesHandler {
+                                                                 CapabilitiesHandler, FastCopyable, MemoryAccountable {
 
     private static final long serialVersionUID = 1L;
 
@@ -167,6 +176,15 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
             "Disable pre-pruning.");
 
+    public FlagOption flatInferenceOption = new FlagOption("flatInference", 'f',
+            "Predict with a flat copy of the tree, compiled again after the tree changes.");
+
+    public FlagOption parallelSplitEvaluationOption = new FlagOption("parallelSplitEvaluation", 'P',
+            "Evaluate the split suggestions of the attributes in parallel.");
+
+    public FlagOption estimateMemoryOption = new FlagOption("estimateMemory", 'E',
+            "Enforce maxByteSize with the estimated sizes of the nodes instead of SizeOf, which needs its agent.");
+
     public static class FoundNode {
 
         public Node node;
@@ -193,7 +211,19 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         }
 
         public long calcByteSize() {
-            return SizeOf.sizeOf(this) + SizeOf.fullSizeOf(this.observedClassDistribution);
+            return objectByteSize() + this.observedClassDistribution.estimateByteSize();
+        }
+
+        /**
+         * Estimates the size of the node object itself, with the fields
+         * declared by its class and superclasses but without the objects they
+         * reference. Subclasses adding fields override it, so that the object
+         * is aligned once.
+         *
+         * @return the estimated size in bytes
+         */
+        protected long objectByteSize() {
+            return MemoryEstimates.object(1, 0);
         }
 
         public long calcByteSizeIncludingSubtree() {
@@ -261,10 +291,16 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
         protected AutoExpandVector<Node> children; // = new AutoExpandVector<Node>();
 
+        @Override
+        protected long objectByteSize() {
+            return MemoryEstimates.object(3, 0);
+        }
+
         @Override
         public long calcByteSize() {
             return super.calcByteSize()
-                    + SizeOf.sizeOf(this.children) + SizeOf.fullSizeOf(this.splitTest);
+                    + MemoryEstimates.list(this.children)
+                    + MemoryEstimates.measureByteSize(this.splitTest);
         }
 
         @Override
@@ -395,6 +431,21 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         }
 
         public abstract void learnFromInstance(Instance inst, HoeffdingTree ht);
+
+        /**
+         * Gets whether learnFromBatch reads the columns of the batch. The
+         * rows of such nodes are learned later than the rows of other nodes,
+         * so their learning must depend on nothing but their own rows.
+         */
+        public boolean learnsFromColumns() {
+            return false;
+        }
+
+        public void learnFromBatch(InstanceBatch batch, int[] rows, int numRows, HoeffdingTree ht) {
+            for (int i = 0; i < numRows; i++) {
+                learnFromInstance(batch.row(rows[i]), ht);
+            }
+        }
     }
 
     public static class InactiveLearningNode extends LearningNode {
@@ -410,6 +461,25 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             this.observedClassDistribution.addToValue((int) inst.classValue(),
                     inst.weight());
         }
+
+        @Override
+        public boolean learnsFromColumns() {
+            return getClass() == InactiveLearningNode.class;
+        }
+
+        @Override
+        public void learnFromBatch(InstanceBatch batch, int[] rows, int numRows, HoeffdingTree ht) {
+            if (!learnsFromColumns()) {
+                super.learnFromBatch(batch, rows, numRows, ht);
+                return;
+            }
+            double[] classValues = batch.classValues();
+            double[] weights = batch.weights();
+            for (int i = 0; i < numRows; i++) {
+                this.observedClassDistribution.addToValue((int) classValues[rows[i]],
+                        weights[rows[i]]);
+            }
+        }
     }
 
     public static class ActiveLearningNode extends LearningNode {
@@ -428,10 +498,19 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             this.isInitialized = false;
         }
 
+        @Override
+        protected long objectByteSize() {
+            return MemoryEstimates.object(2, 9);
+        }
+
         @Override
         public long calcByteSize() {
-            return super.calcByteSize()
-                    + SizeOf.fullSizeOf(this.attributeObservers);
+            long byteSize = super.calcByteSize()
+                    + MemoryEstimates.list(this.attributeObservers);
+            for (AttributeClassObserver obs : this.attributeObservers) {
+                byteSize += MemoryEstimates.measureByteSize(obs);
+            }
+            return byteSize;
         }
 
         @Override
@@ -453,6 +532,42 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             }
         }
 
+        @Override
+        public boolean learnsFromColumns() {
+            // subclasses overriding learnFromInstance must learn row by row
+            return getClass() == ActiveLearningNode.class || getClass() == LearningNodeNB.class;
+        }
+
+        @Override
+        public void learnFromBatch(InstanceBatch batch, int[] rows, int numRows, HoeffdingTree ht) {
+            if (!learnsFromColumns()) {
+                super.learnFromBatch(batch, rows, numRows, ht);
+                return;
+            }
+            if (this.isInitialized == false) {
+                this.attributeObservers = new AutoExpandVector<AttributeClassObserver>(batch.numAttributes());
+                this.isInitialized = true;
+            }
+            double[] classValues = batch.classValues();
+            double[] weights = batch.weights();
+            for (int i = 0; i < numRows; i++) {
+                this.observedClassDistribution.addToValue((int) classValues[rows[i]],
+                        weights[rows[i]]);
+            }
+            for (int j = 0; j < batch.numAttributes() - 1; j++) {
+                int instAttIndex = modelAttIndexToInstanceAttIndex(j, batch.dataset());
+                AttributeClassObserver obs = this.attributeObservers.get(j);
+                if (obs == null) {
+                    obs = batch.dataset().attribute(instAttIndex).isNominal() ? ht.newNominalClassObserver() : ht.newNumericClassObserver();
+                    this.attributeObservers.set(j, obs);
+                }
+                double[] column = batch.column(instAttIndex);
+                for (int i = 0; i < numRows; i++) {
+                    obs.observeAttributeClass(column[rows[i]], (int) classValues[rows[i]], weights[rows[i]]);
+                }
+            }
+        }
+
         public double getWeightSeen() {
             return this.observedClassDistribution.sumOfValues();
         }
@@ -476,16 +591,9 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                         preSplitDist,
                         new double[][]{preSplitDist})));
             }
-            for (int i = 0; i < this.attributeObservers.size(); i++) {
-                AttributeClassObserver obs = this.attributeObservers.get(i);
-                if (obs != null) {
-                    AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-                            preSplitDist, i, ht.binarySplitsOption.isSet());
-                    if (bestSuggestion != null) {
-                        bestSuggestions.add(bestSuggestion);
-                    }
-                }
-            }
+            SplitEvaluation.addBestSplitSuggestions(bestSuggestions, this.attributeObservers,
+                    criterion, preSplitDist, ht.binarySplitsOption.isSet(),
+                    ht.parallelSplitEvaluationOption.isSet());
             return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
         }
 
@@ -511,8 +619,17 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
     protected boolean growthAllowed;
 
+    /** The flat copy of the tree used for predictions, null if out of date */
+    protected transient FlatTree flatTree;
+
+    /**
+     * Estimates the size of the tree from its nodes. The options of the
+     * tree aren't counted.
+     *
+     * @return the estimated size in bytes
+     */
     public long calcByteSize() {
-        long size = SizeOf.sizeOf(this);
+        long size = MemoryEstimates.object(1, 37);
         if (this.treeRoot != null) {
             size += this.treeRoot.calcByteSizeIncludingSubtree();
         }
@@ -532,6 +649,11 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         return calcByteSize();
     }
 
+    @Override
+    public long estimateByteSize() {
+        return calcByteSize();
+    }
+
     @Override
     public void resetLearningImpl() {
         this.treeRoot = null;
@@ -542,6 +664,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         this.activeLeafByteSizeEstimate = 0.0;
         this.byteSizeEstimateOverheadFraction = 1.0;
         this.growthAllowed = true;
+        this.flatTree = null;
         if (this.leafpredictionOption.getChosenIndex()>0) { 
             this.removePoorAttsOption = null;
         }
@@ -552,13 +675,18 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         if (this.treeRoot == null) {
             this.treeRoot = newLearningNode();
             this.activeLeafNodeCount = 1;
+            invalidateFlatTree();
         }
-        FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
+        learnFromFoundNode(inst, this.treeRoot.filterInstanceToLeaf(inst, null, -1));
+    }
+
+    protected void learnFromFoundNode(Instance inst, FoundNode foundNode) {
         Node leafNode = foundNode.node;
         if (leafNode == null) {
             leafNode = newLearningNode();
             foundNode.parent.setChild(foundNode.parentBranch, leafNode);
             this.activeLeafNodeCount++;
+            invalidateFlatTree();
         }
         if (leafNode instanceof LearningNode) {
             LearningNode learningNode = (LearningNode) leafNode;
@@ -583,6 +711,10 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
     @Override
     public double[] getVotesForInstance(Instance inst) {
+        if (this.treeRoot != null && this.flatInferenceOption.isSet()) {
+            FlatTree flat = getFlatTree();
+            return ((Node) flat.getNode(flat.route(inst))).getClassVotes(inst, this);
+        }
         if (this.treeRoot != null) {
             FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst,
                     null, -1);
@@ -597,6 +729,225 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
           }
     }
 
+    /**
+     * Compiles the tree into a flat tree.
+     *
+     * @param export whether to store a copy of the class distribution of
+     * every node instead of the nodes themselves
+     * @return the flat tree, empty if nothing has been learned
+     */
+    public FlatTree compileFlatTree(boolean export) {
+        flushPendingRows();
+        FlatTree flat = new FlatTree();
+        if (this.treeRoot != null) {
+            addToFlatTree(flat, this.treeRoot, export);
+        }
+        return flat;
+    }
+
+    /**
+     * Exports the tree as a flat tree, that predicts the majority class
+     * observed at the leaves without referring to the tree.
+     *
+     * @return the flat tree
+     */
+    public FlatTree exportFlatTree() {
+        return compileFlatTree(true);
+    }
+
+    protected int addToFlatTree(FlatTree flat, Node node, boolean export) {
+        int index;
+        if (node instanceof SplitNode) {
+            SplitNode splitNode = (SplitNode) node;
+            index = flat.addSplit(export ? null : node, splitNode.splitTest,
+                    splitNode.numChildren());
+            for (int i = 0; i < splitNode.numChildren(); i++) {
+                Node child = splitNode.getChild(i);
+                if (child != null) {
+                    flat.setChild(index, i, addToFlatTree(flat, child, export));
+                }
+            }
+        } else {
+            index = flat.addLeaf(export ? null : node);
+        }
+        if (export) {
+            flat.setVotes(index, node.getObservedClassDistribution());
+        }
+        return index;
+    }
+
+    protected FlatTree getFlatTree() {
+        if (this.flatTree == null) {
+            this.flatTree = compileFlatTree(false);
+        }
+        return this.flatTree;
+    }
+
+    /**
+     * Marks the flat copy of the tree out of date, to be called whenever
+     * nodes are added or replaced.
+     */
+    protected void invalidateFlatTree() {
+        this.flatTree = null;
+    }
+
+    /**
+     * Rows of a batch waiting to be learned by a leaf.
+     */
+    protected static class PendingRows {
+
+        protected int[] rows = new int[16];
+
+        protected int numRows;
+
+        protected double weight;
+
+        protected void add(int row, double rowWeight) {
+            if (this.numRows == this.rows.length) {
+                this.rows = Arrays.copyOf(this.rows, 2 * this.rows.length);
+            }
+            this.rows[this.numRows++] = row;
+            this.weight += rowWeight;
+        }
+    }
+
+    /** The batch being trained by trainOnBatch */
+    protected transient InstanceBatch pendingBatch;
+
+    /** The rows of pendingBatch not yet learned by each leaf */
+    protected transient IdentityHashMap<LearningNode, PendingRows> pendingRows;
+
+    /**
+     * Trains the tree with the rows of a batch. Each row is still sorted into
+     * its leaf in order, but leaves that learn from columns collect their rows
+     * and learn them together, before any split attempt or memory management
+     * that may depend on them. The resulting tree is the one obtained by
+     * training with each row.
+     */
+    @Override
+    public void trainOnBatch(InstanceBatch batch) {
+        if (!isInheritedFrom(HoeffdingTree.class, "trainOnInstanceImpl")
+                || !isInheritedFrom(AbstractClassifier.class, "trainOnInstance")) {
+            super.trainOnBatch(batch);
+            return;
+        }
+        this.pendingBatch = batch;
+        this.pendingRows = new IdentityHashMap<LearningNode, PendingRows>();
+        try {
+            for (int row = 0; row < batch.numInstances(); row++) {
+                Instance inst = batch.row(row);
+                if (!isTrainingInstance(inst)) {
+                    continue;
+                }
+                this.trainingWeightSeenByModel += inst.weight();
+                if (this.treeRoot == null) {
+                    this.treeRoot = newLearningNode();
+                    this.activeLeafNodeCount = 1;
+                    invalidateFlatTree();
+                }
+                FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
+                if (foundNode.node instanceof LearningNode
+                        && ((LearningNode) foundNode.node).learnsFromColumns()) {
+                    learnLater(row, inst.weight(), foundNode);
+                } else {
+                    learnFromFoundNode(inst, foundNode);
+                }
+            }
+            flushPendingRows();
+        } finally {
+            this.pendingBatch = null;
+            this.pendingRows = null;
+        }
+    }
+
+    protected void learnLater(int row, double weight, FoundNode foundNode) {
+        LearningNode learningNode = (LearningNode) foundNode.node;
+        PendingRows pending = this.pendingRows.get(learningNode);
+        if (pending == null) {
+            pending = new PendingRows();
+            this.pendingRows.put(learningNode, pending);
+        }
+        pending.add(row, weight);
+        if (this.growthAllowed
+                && (learningNode instanceof ActiveLearningNode)) {
+            ActiveLearningNode activeLearningNode = (ActiveLearningNode) learningNode;
+            double weightSeen = activeLearningNode.getWeightSeen() + pending.weight;
+            // the pending weight is summed in a different order, so the exact
+            // check is done on the learned rows once the grace period is close
+            if (weightSeen - activeLearningNode.getWeightSeenAtLastSplitEvaluation()
+                    >= this.gracePeriodOption.getValue() - 1.0e-6 * (1.0 + weightSeen)) {
+                flushPendingRows(activeLearningNode);
+                weightSeen = activeLearningNode.getWeightSeen();
+                if (weightSeen
+                        - activeLearningNode.getWeightSeenAtLastSplitEvaluation() >= this.gracePeriodOption.getValue()) {
+                    attemptToSplit(activeLearningNode, foundNode.parent,
+                            foundNode.parentBranch);
+                    activeLearningNode.setWeightSeenAtLastSplitEvaluation(weightSeen);
+                }
+            }
+        }
+        if (this.trainingWeightSeenByModel
+                % this.memoryEstimatePeriodOption.getValue() == 0) {
+            estimateModelByteSizes();
+        }
+    }
+
+    protected void flushPendingRows(LearningNode learningNode) {
+        PendingRows pending = this.pendingRows.remove(learningNode);
+        if (pending != null) {
+            learningNode.learnFromBatch(this.pendingBatch, pending.rows, pending.numRows, this);
+        }
+    }
+
+    /**
+     * Makes every leaf learn its pending rows, if a batch is being trained.
+     */
+    protected void flushPendingRows() {
+        if (this.pendingRows != null && !this.pendingRows.isEmpty()) {
+            for (java.util.Map.Entry<LearningNode, PendingRows> entry : this.pendingRows.entrySet()) {
+                PendingRows pending = entry.getValue();
+                entry.getKey().learnFromBatch(this.pendingBatch, pending.rows, pending.numRows, this);
+            }
+            this.pendingRows.clear();
+        }
+    }
+
+    @Override
+    public double[][] getVotesForBatch(InstanceBatch batch) {
+        if (!isInheritedFrom(HoeffdingTree.class, "getVotesForInstance")) {
+            return super.getVotesForBatch(batch);
+        }
+        double[][] votes = new double[batch.numInstances()][];
+        for (int row = 0; row < votes.length; row++) {
+            votes[row] = getVotesForInstance(batch.row(row));
+        }
+        return votes;
+    }
+
+    @Override
+    protected boolean supportsPredictAndTrainImpl() {
+        return isInheritedFrom(HoeffdingTree.class, "trainOnInstanceImpl", "getVotesForInstance")
+                && isInheritedFrom(AbstractClassifier.class, "trainOnInstance");
+    }
+
+    @Override
+    protected double[] predictAndTrainImpl(Instance inst) {
+        if (this.treeRoot == null) {
+            double[] votes = getVotesForInstance(inst);
+            trainOnInstanceImpl(inst);
+            return votes;
+        }
+        // the leaf reached for voting is the one that learns from the instance
+        FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
+        Node leafNode = foundNode.node;
+        if (leafNode == null) {
+            leafNode = foundNode.parent;
+        }
+        double[] votes = leafNode.getClassVotes(inst, this);
+        learnFromFoundNode(inst, foundNode);
+        return votes;
+    }
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return new Measurement[]{
@@ -731,6 +1082,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                     } else {
                         parent.setChild(parentIndex, newSplit);
                     }
+                    invalidateFlatTree();
                 }
                 // manage memory
                 enforceTrackerLimit();
@@ -739,6 +1091,8 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     }
 
     public void enforceTrackerLimit() {
+        // leaves may be compared and replaced
+        flushPendingRows();
         if ((this.inactiveLeafNodeCount > 0)
                 || ((this.activeLeafNodeCount * this.activeLeafByteSizeEstimate + this.inactiveLeafNodeCount
                 * this.inactiveLeafByteSizeEstimate)
@@ -786,14 +1140,15 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     }
 
     public void estimateModelByteSizes() {
+        flushPendingRows();
         FoundNode[] learningNodes = findLearningNodes();
         long totalActiveSize = 0;
         long totalInactiveSize = 0;
         for (FoundNode foundNode : learningNodes) {
             if (foundNode.node instanceof ActiveLearningNode) {
-                totalActiveSize += SizeOf.fullSizeOf(foundNode.node);
+                totalActiveSize += leafByteSize(foundNode.node);
             } else {
-                totalInactiveSize += SizeOf.fullSizeOf(foundNode.node);
+                totalInactiveSize += leafByteSize(foundNode.node);
             }
         }
         if (totalActiveSize > 0) {
@@ -804,7 +1159,8 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             this.inactiveLeafByteSizeEstimate = (double) totalInactiveSize
                     / this.inactiveLeafNodeCount;
         }
-        long actualModelSize = this.measureByteSize();
+        long actualModelSize = this.estimateMemoryOption.isSet() ? this.measureByteSize()
+                : SizeOf.sizeOf(this) + SizeOf.fullSizeOf(this.treeRoot);
         double estimatedModelSize = (this.activeLeafNodeCount
                 * this.activeLeafByteSizeEstimate + this.inactiveLeafNodeCount
                 * this.inactiveLeafByteSizeEstimate);
@@ -815,6 +1171,14 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         }
     }
 
+    // Size of a leaf for the memory manager, -1 if SizeOf is used without its agent
+    private long leafByteSize(Node leaf) {
+        if (this.estimateMemoryOption.isSet()) {
+            return leaf.calcByteSize();
+        }
+        return SizeOf.fullSizeOf(leaf);
+    }
+
     public void deactivateAllLeaves() {
         FoundNode[] learningNodes = findLearningNodes();
         for (int i = 0; i < learningNodes.length; i++) {
@@ -836,6 +1200,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         }
         this.activeLeafNodeCount--;
         this.inactiveLeafNodeCount++;
+        invalidateFlatTree();
     }
 
     protected void activateLearningNode(InactiveLearningNode toActivate,
@@ -848,6 +1213,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         }
         this.activeLeafNodeCount++;
         this.inactiveLeafNodeCount--;
+        invalidateFlatTree();
     }
 
     protected FoundNode[] findLearningNodes() {
@@ -917,6 +1283,11 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
         protected double nbCorrectWeight = 0.0;
 
+        @Override
+        protected long objectByteSize() {
+            return MemoryEstimates.object(2, 25);
+        }
+
         public LearningNodeNBAdaptive(double[] initialClassObservations) {
             super(initialClassObservations);
         }
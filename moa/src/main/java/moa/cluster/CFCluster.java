@@ -21,6 +21,8 @@
 package moa.cluster;
 import java.util.Arrays;
 import com.yahoo.labs.samoa.instances.Instance;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 
 /* micro cluster, as defined by Aggarwal et al, On Clustering Massive Data Streams: A Summarization Praradigm 
  * in the book Data streams : models and algorithms, by Charu C Aggarwal
@@ -52,7 +54,7 @@ o The sum of the time stamps Ti, . . .Tin maintained in CFlt.
 o The number of data points is maintained in n.
 
  */
-public abstract class CFCluster extends SphereCluster {
+public abstract class CFCluster extends SphereCluster implements MemoryAccountable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -153,6 +155,21 @@ public abstract class CFCluster extends SphereCluster {
 		 return N;
 	 }
 
+	 @Override
+	 public long estimateByteSize() {
+		 return objectByteSize() + MemoryEstimates.doubleArray(LS.length)
+			 + MemoryEstimates.doubleArray(SS.length);
+	 }
+
+	 /**
+	  * Estimates the size of the cluster object itself, without its arrays.
+	  * Subclasses adding fields override it, so that the object is aligned
+	  * once.
+	  */
+	 protected long objectByteSize() {
+		 return MemoryEstimates.object(4, 48);
+	 }
+
 	 /**
 	  * Adds the second array to the first array element by element. The arrays
 	  * must have the same length.
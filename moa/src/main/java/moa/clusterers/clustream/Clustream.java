@@ -29,6 +29,8 @@ import moa.cluster.Clustering;
 import moa.cluster.SphereCluster;
 import moa.clusterers.AbstractClusterer;
 import moa.core.Measurement;
+import moa.core.MemoryAccountable;
+import moa.core.MemoryEstimates;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -36,7 +38,7 @@ import com.yahoo.labs.samoa.instances.Instance;
 /** Citation: CluStream: Charu C. Aggarwal, Jiawei Han, Jianyong Wang, Philip S. Yu:
  * A Framework for Clustering Evolving Data Streams. VLDB 2003: 81-92
  */
-public class Clustream extends AbstractClusterer{
+public class Clustream extends AbstractClusterer implements MemoryAccountable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -318,6 +320,26 @@ public class Clustream extends AbstractClusterer{
 		throw new UnsupportedOperationException("Not supported yet.");
 	}
 
+	@Override
+	public long estimateByteSize() {
+		long size = MemoryEstimates.object(2, 29);
+		if (kernels != null) {
+			size += MemoryEstimates.referenceArray(kernels.length);
+			for (ClustreamKernel kernel : kernels) {
+				if (kernel != null) {
+					size += kernel.estimateByteSize();
+				}
+			}
+		}
+		if (buffer != null) {
+			size += MemoryEstimates.list(buffer);
+			for (ClustreamKernel kernel : buffer) {
+				size += kernel.estimateByteSize();
+			}
+		}
+		return size;
+	}
+
 	@Override
 	public void getModelDescription(StringBuilder out, int indent) {
 		throw new UnsupportedOperationException("Not supported yet.");
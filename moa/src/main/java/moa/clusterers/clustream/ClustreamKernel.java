@@ -22,6 +22,7 @@ package moa.clusterers.clustream;
 import java.util.ArrayList;
 import java.util.Random;
 import moa.cluster.CFCluster;
+import moa.core.MemoryEstimates;
 import com.yahoo.labs.samoa.instances.Instance;
 
 public class ClustreamKernel extends CFCluster {
@@ -253,6 +254,11 @@ public class ClustreamKernel extends CFCluster {
         return res;
     }
 
+    @Override
+    protected long objectByteSize() {
+        return MemoryEstimates.object(4, 76);
+    }
+
     @Override
     protected void getClusterSpecificInfo(ArrayList<String> infoTitle, ArrayList<String> infoValue) {
         super.getClusterSpecificInfo(infoTitle, infoValue);
@@ -27,7 +27,7 @@ import moa.AbstractMOAObject;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class DoubleVector extends AbstractMOAObject {
+public class DoubleVector extends AbstractMOAObject implements FastCopyable, MemoryAccountable {
 
     private static final long serialVersionUID = 1L;
 
@@ -195,6 +195,11 @@ public class DoubleVector extends AbstractMOAObject {
         out.append("}");
     }
 
+    @Override
+    public long estimateByteSize() {
+        return MemoryEstimates.object(1, 0) + MemoryEstimates.doubleArray(this.array.length);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         getSingleLineDescription(sb);
@@ -0,0 +1,34 @@
+/*
+ *    FastCopyable.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import moa.MOAObject;
+
+/**
+ * Marks objects whose copies are made field by field with
+ * {@link StructuralCopier} instead of being serialized and read back. The
+ * copy is the same as the one made by serialization: transient fields are
+ * left unset, and objects that customise their serialization are still
+ * serialized. A class can also write its own copy() instead.
+ *
+ * @version $Revision: 7 $
+ */
+public interface FastCopyable extends MOAObject {
+
+}
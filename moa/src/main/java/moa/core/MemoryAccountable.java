@@ -0,0 +1,46 @@
+/*
+ *    MemoryAccountable.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+/**
+ * Implemented by objects that estimate their own memory size from their
+ * structure, e.g. from the number of nodes of a tree and the lengths of
+ * their arrays, instead of having their object graph walked by
+ * {@link SizeOf}. Estimates are cheap enough to be taken at every
+ * evaluation sample, and {@link moa.AbstractMOAObject#measureByteSize()},
+ * which the evaluation tasks use for RAM-Hours, prefers them.
+ *
+ * <p>Estimates are computed on demand, by walking the structure when they are
+ * asked for; they are not maintained as the model changes. Only some models
+ * implement this interface: the Hoeffding trees and their observers, ADWIN,
+ * kNN, OzaBag and AdaptiveRandomForest among the ensembles, and the Clustream
+ * kernels among the clusterers. The size of the other objects is still
+ * measured with {@link SizeOf}, which returns -1 without its agent.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public interface MemoryAccountable {
+
+    /**
+     * Estimates the memory size of this object and of the objects it owns.
+     *
+     * @return the estimated size in bytes
+     */
+    long estimateByteSize();
+}
@@ -0,0 +1,140 @@
+/*
+ *    MemoryEstimates.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+
+import moa.MOAObject;
+
+/**
+ * Building blocks for {@link MemoryAccountable} estimates. The sizes assume
+ * the layout of a 64-bit JVM with compressed references: 12 byte object
+ * headers, 16 byte array headers, 4 byte references and objects aligned to
+ * 8 bytes.
+ *
+ * @version $Revision: 7 $
+ */
+public class MemoryEstimates {
+
+    public static final int OBJECT_HEADER = 12;
+
+    public static final int ARRAY_HEADER = 16;
+
+    public static final int REFERENCE = 4;
+
+    /** An ArrayList or AutoExpandVector without its array */
+    public static final long ARRAY_LIST = object(1, 8);
+
+    /**
+     * Gets the size of an object, the way the memory manager of a tree uses
+     * it: the estimate of a MemoryAccountable object, otherwise the size
+     * measured by the object itself, which usually walks its graph with
+     * {@link SizeOf}.
+     *
+     * @param obj the object, may be null
+     * @return the size in bytes
+     */
+    public static long measureByteSize(Object obj) {
+        if (obj == null) {
+            return 0;
+        }
+        if (obj instanceof MemoryAccountable) {
+            return ((MemoryAccountable) obj).estimateByteSize();
+        }
+        if (obj instanceof MOAObject) {
+            return ((MOAObject) obj).measureByteSize();
+        }
+        return SizeOf.fullSizeOf(obj);
+    }
+
+    /**
+     * Compares the estimate of an object with the size measured by
+     * {@link SizeOf}, to validate estimates in tests.
+     *
+     * @param obj the object to validate
+     * @return the estimate divided by the measured size, or NaN if the
+     * SizeOf agent isn't present
+     */
+    public static double compareWithSizeOf(MemoryAccountable obj) {
+        long measured = SizeOf.fullSizeOf(obj);
+        if (measured <= 0) {
+            return Double.NaN;
+        }
+        return (double) obj.estimateByteSize() / measured;
+    }
+
+    public static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * Gets the size of an object with the given fields.
+     *
+     * @param numReferences the number of reference fields
+     * @param primitiveBytes the total size of the primitive fields
+     * @return the size in bytes
+     */
+    public static long object(int numReferences, int primitiveBytes) {
+        return align(OBJECT_HEADER + (long) numReferences * REFERENCE + primitiveBytes);
+    }
+
+    public static long doubleArray(int length) {
+        return align(ARRAY_HEADER + 8L * length);
+    }
+
+    public static long intArray(int length) {
+        return align(ARRAY_HEADER + 4L * length);
+    }
+
+    public static long booleanArray(int length) {
+        return align(ARRAY_HEADER + (long) length);
+    }
+
+    public static long referenceArray(int length) {
+        return align(ARRAY_HEADER + (long) REFERENCE * length);
+    }
+
+    /**
+     * Gets the size of a list and its array or links, without its elements.
+     */
+    public static long list(List<?> list) {
+        if (list == null) {
+            return 0;
+        }
+        if (list instanceof LinkedList) {
+            return object(2, 8) + list.size() * object(3, 0);
+        }
+        return ARRAY_LIST + referenceArray(list.size());
+    }
+
+    /**
+     * Gets the size of an instance and its values, without its header.
+     */
+    public static long instance(Instance inst) {
+        int numValues = inst.numValues();
+        if (inst instanceof SparseInstance) {
+            return object(2, 8) + object(2, 4) + doubleArray(numValues) + intArray(numValues);
+        }
+        return object(2, 8) + object(1, 0) + doubleArray(numValues);
+    }
+}
@@ -0,0 +1,481 @@
+/*
+ *    StructuralCopier.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.io.Externalizable;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deep copies object graphs field by field, with the same result as
+ * serializing them and reading them back, but without going through a
+ * byte stream.
+ *
+ * <p>How each class is copied is worked out once. Objects are allocated
+ * the way serialization does, without running the constructors of their
+ * serializable classes, and their non-transient fields are copied, so
+ * transient fields are left unset. Shared and cyclic references are kept.
+ * Immutable values are shared, arrays and the common collections are
+ * copied element by element, and Random, which only refers to its own
+ * state, is copied by serialization on its own. If any other object can't
+ * be copied this way, such as one with its own writeObject or readResolve,
+ * or a JDK class whose fields are not accessible, the whole graph is
+ * serialized instead, as serializing that object on its own would
+ * duplicate the objects it shares with the rest of the graph.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public final class StructuralCopier {
+
+    /** sun.reflect.ReflectionFactory, used the way serialization does */
+    private static final Object REFLECTION_FACTORY;
+
+    private static final Method NEW_CONSTRUCTOR_FOR_SERIALIZATION;
+
+    static {
+        Object factory = null;
+        Method method = null;
+        try {
+            Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+            factory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+            method = factoryClass.getMethod("newConstructorForSerialization",
+                    Class.class, Constructor.class);
+        } catch (Throwable t) {
+            factory = null;
+            method = null;
+        }
+        REFLECTION_FACTORY = factory;
+        NEW_CONSTRUCTOR_FOR_SERIALIZATION = method;
+    }
+
+    private static final Set<Class<?>> IMMUTABLE = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            String.class, Boolean.class, Byte.class, Character.class,
+            Short.class, Integer.class, Long.class, Float.class,
+            Double.class, BigInteger.class, BigDecimal.class, Class.class));
+
+    private static final Set<Class<?>> COLLECTIONS = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            ArrayList.class, LinkedList.class, ArrayDeque.class, Vector.class,
+            HashSet.class, LinkedHashSet.class, TreeSet.class));
+
+    /** LinkedHashMap is left out, as its access order can't be read */
+    private static final Set<Class<?>> MAPS = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            HashMap.class, TreeMap.class, ConcurrentHashMap.class));
+
+    private static final ClassValue<Plan> PLANS = new ClassValue<Plan>() {
+        @Override
+        protected Plan computeValue(Class<?> type) {
+            return plan(type);
+        }
+    };
+
+    /** The copies made so far, by original */
+    private final IdentityHashMap<Object, Object> copies = new IdentityHashMap<Object, Object>();
+
+    private StructuralCopier() {
+    }
+
+    /**
+     * Whether objects can be copied structurally in this JVM. If not,
+     * {@link #copy(Object)} serializes them.
+     */
+    public static boolean isAvailable() {
+        return NEW_CONSTRUCTOR_FOR_SERIALIZATION != null;
+    }
+
+    /**
+     * Deep copies an object.
+     *
+     * @param obj the object to copy
+     * @return the copy, as it would be read back after serializing obj
+     * @throws Exception if obj can't be copied, e.g. it is not serializable
+     */
+    public static Object copy(Object obj) throws Exception {
+        if (!isAvailable()) {
+            return serializedCopy(obj);
+        }
+        try {
+            return new StructuralCopier().copyObject(obj);
+        } catch (SerializationNeeded e) {
+            return serializedCopy(obj);
+        }
+    }
+
+    private Object copyObject(Object obj) throws Exception {
+        if (obj == null) {
+            return null;
+        }
+        Object copy = this.copies.get(obj);
+        if (copy != null) {
+            return copy;
+        }
+        return PLANS.get(obj.getClass()).copy(obj, this);
+    }
+
+    private void register(Object obj, Object copy) {
+        this.copies.put(obj, copy);
+    }
+
+    private static Object serializedCopy(Object obj) throws Exception {
+        if (!(obj instanceof Serializable)) {
+            throw new NotSerializableException(obj.getClass().getName());
+        }
+        return SerializeUtils.copyObject((Serializable) obj);
+    }
+
+    /**
+     * Thrown when an object of the graph has to be serialized, so that the
+     * copy is abandoned and the whole graph serialized.
+     */
+    private static final class SerializationNeeded extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final SerializationNeeded INSTANCE = new SerializationNeeded();
+
+        private SerializationNeeded() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * How objects of a class are copied.
+     */
+    private abstract static class Plan {
+
+        abstract Object copy(Object obj, StructuralCopier copier) throws Exception;
+    }
+
+    private static final Plan SHARE = new Plan() {
+        @Override
+        Object copy(Object obj, StructuralCopier copier) {
+            return obj;
+        }
+    };
+
+    private static final Plan SERIALIZE = new Plan() {
+        @Override
+        Object copy(Object obj, StructuralCopier copier) throws Exception {
+            throw SerializationNeeded.INSTANCE;
+        }
+    };
+
+    /** For objects that don't refer to anything outside their own state */
+    private static final Plan SERIALIZE_ALONE = new Plan() {
+        @Override
+        Object copy(Object obj, StructuralCopier copier) throws Exception {
+            Object copy = serializedCopy(obj);
+            copier.register(obj, copy);
+            return copy;
+        }
+    };
+
+    private static final Plan PRIMITIVE_ARRAY = new Plan() {
+        @Override
+        Object copy(Object obj, StructuralCopier copier) {
+            int length = Array.getLength(obj);
+            Object copy = Array.newInstance(obj.getClass().getComponentType(), length);
+            System.arraycopy(obj, 0, copy, 0, length);
+            copier.register(obj, copy);
+            return copy;
+        }
+    };
+
+    private static final Plan OBJECT_ARRAY = new Plan() {
+        @Override
+        Object copy(Object obj, StructuralCopier copier) throws Exception {
+            Object[] array = (Object[]) obj;
+            Object[] copy = (Object[]) Array.newInstance(obj.getClass().getComponentType(), array.length);
+            copier.register(obj, copy);
+            for (int i = 0; i < array.length; i++) {
+                copy[i] = copier.copyObject(array[i]);
+            }
+            return copy;
+        }
+    };
+
+    /**
+     * Allocates an object without running the constructors of its
+     * serializable classes and copies their non-transient fields.
+     */
+    private static final class FieldsPlan extends Plan {
+
+        private final Constructor<?> constructor;
+
+        private final Field[] fields;
+
+        private final char[] kinds;
+
+        FieldsPlan(Constructor<?> constructor, List<Field> fields) {
+            this.constructor = constructor;
+            this.fields = fields.toArray(new Field[fields.size()]);
+            this.kinds = new char[this.fields.length];
+            for (int i = 0; i < this.fields.length; i++) {
+                Class<?> type = this.fields[i].getType();
+                this.kinds[i] = type == boolean.class ? 'Z'
+                        : type == long.class ? 'J'
+                        : type.isPrimitive() ? type.getName().toUpperCase().charAt(0)
+                        : 'L';
+            }
+        }
+
+        @Override
+        Object copy(Object obj, StructuralCopier copier) throws Exception {
+            Object copy = this.constructor.newInstance();
+            copier.register(obj, copy);
+            for (int i = 0; i < this.fields.length; i++) {
+                Field field = this.fields[i];
+                switch (this.kinds[i]) {
+                    case 'D':
+                        field.setDouble(copy, field.getDouble(obj));
+                        break;
+                    case 'I':
+                        field.setInt(copy, field.getInt(obj));
+                        break;
+                    case 'J':
+                        field.setLong(copy, field.getLong(obj));
+                        break;
+                    case 'Z':
+                        field.setBoolean(copy, field.getBoolean(obj));
+                        break;
+                    case 'F':
+                        field.setFloat(copy, field.getFloat(obj));
+                        break;
+                    case 'S':
+                        field.setShort(copy, field.getShort(obj));
+                        break;
+                    case 'B':
+                        field.setByte(copy, field.getByte(obj));
+                        break;
+                    case 'C':
+                        field.setChar(copy, field.getChar(obj));
+                        break;
+                    default:
+                        field.set(copy, copier.copyObject(field.get(obj)));
+                }
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Creates an empty collection with its no-argument constructor and adds
+     * copies of the elements, as the collection's readObject does.
+     */
+    private static final class CollectionPlan extends Plan {
+
+        private final Constructor<?> constructor;
+
+        CollectionPlan(Constructor<?> constructor) {
+            this.constructor = constructor;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        Object copy(Object obj, StructuralCopier copier) throws Exception {
+            if (obj instanceof SortedSet && ((SortedSet<?>) obj).comparator() != null) {
+                return SERIALIZE.copy(obj, copier);
+            }
+            Collection<Object> collection = (Collection<Object>) obj;
+            Collection<Object> copy = (Collection<Object>) this.constructor.newInstance();
+            copier.register(obj, copy);
+            List<Object> elements = new ArrayList<Object>(collection.size());
+            for (Object element : collection) {
+                elements.add(copier.copyObject(element));
+            }
+            copy.addAll(elements);
+            return copy;
+        }
+    }
+
+    /**
+     * Creates an empty map with its no-argument constructor and puts
+     * copies of the entries, as the map's readObject does.
+     */
+    private static final class MapPlan extends Plan {
+
+        private final Constructor<?> constructor;
+
+        MapPlan(Constructor<?> constructor) {
+            this.constructor = constructor;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        Object copy(Object obj, StructuralCopier copier) throws Exception {
+            if (obj instanceof SortedMap && ((SortedMap<?, ?>) obj).comparator() != null) {
+                return SERIALIZE.copy(obj, copier);
+            }
+            Map<Object, Object> map = (Map<Object, Object>) obj;
+            Map<Object, Object> copy = (Map<Object, Object>) this.constructor.newInstance();
+            copier.register(obj, copy);
+            Map<Object, Object> entries = new LinkedHashMap<Object, Object>();
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                entries.put(copier.copyObject(entry.getKey()), copier.copyObject(entry.getValue()));
+            }
+            copy.putAll(entries);
+            return copy;
+        }
+    }
+
+    private static final Plan ATOMIC = new Plan() {
+        @Override
+        Object copy(Object obj, StructuralCopier copier) {
+            Object copy;
+            if (obj instanceof AtomicLong) {
+                copy = new AtomicLong(((AtomicLong) obj).get());
+            } else if (obj instanceof AtomicInteger) {
+                copy = new AtomicInteger(((AtomicInteger) obj).get());
+            } else {
+                copy = new AtomicBoolean(((AtomicBoolean) obj).get());
+            }
+            copier.register(obj, copy);
+            return copy;
+        }
+    };
+
+    private static boolean isJdkClass(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.")
+                || name.startsWith("sun.") || name.startsWith("jdk.")
+                || name.startsWith("com.sun.");
+    }
+
+    /**
+     * Whether a class customises its serialization, so that its fields
+     * can't simply be copied.
+     */
+    private static boolean customisesSerialization(Class<?> type) {
+        for (Method method : type.getDeclaredMethods()) {
+            String name = method.getName();
+            Class<?>[] parameters = method.getParameterTypes();
+            if ((name.equals("writeObject") && parameters.length == 1
+                    && parameters[0] == ObjectOutputStream.class)
+                    || (name.equals("readObject") && parameters.length == 1
+                    && parameters[0] == ObjectInputStream.class)
+                    || (parameters.length == 0 && (name.equals("readObjectNoData")
+                    || name.equals("writeReplace") || name.equals("readResolve")))) {
+                return true;
+            }
+        }
+        try {
+            type.getDeclaredField("serialPersistentFields");
+            return true;
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
+
+    private static Plan plan(Class<?> type) {
+        if (type.isArray()) {
+            return type.getComponentType().isPrimitive() ? PRIMITIVE_ARRAY : OBJECT_ARRAY;
+        }
+        if (IMMUTABLE.contains(type) || Enum.class.isAssignableFrom(type)) {
+            return SHARE;
+        }
+        if (type == AtomicLong.class || type == AtomicInteger.class || type == AtomicBoolean.class) {
+            return ATOMIC;
+        }
+        if (type == Random.class) {
+            return SERIALIZE_ALONE;
+        }
+        if (!Serializable.class.isAssignableFrom(type)
+                || Externalizable.class.isAssignableFrom(type)
+                || type.isSynthetic() || Proxy.isProxyClass(type)) {
+            return SERIALIZE;
+        }
+        try {
+            // the classes of the object outside the JDK must not customise
+            // their serialization
+            List<Field> fields = new ArrayList<Field>();
+            Class<?> c = type;
+            for (; !isJdkClass(c) && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+                if (customisesSerialization(c)) {
+                    return SERIALIZE;
+                }
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            if (!Serializable.class.isAssignableFrom(c)) {
+                // c is the first class that isn't serialized, and its
+                // constructor is run
+                Constructor<?> superConstructor = c.getDeclaredConstructor();
+                int modifiers = superConstructor.getModifiers();
+                if (Modifier.isPrivate(modifiers) || (!Modifier.isPublic(modifiers)
+                        && !Modifier.isProtected(modifiers)
+                        && c.getPackage() != type.getPackage())) {
+                    return SERIALIZE;
+                }
+                Constructor<?> constructor = (Constructor<?>) NEW_CONSTRUCTOR_FOR_SERIALIZATION
+                        .invoke(REFLECTION_FACTORY, type, superConstructor);
+                constructor.setAccessible(true);
+                return new FieldsPlan(constructor, fields);
+            }
+            // c is a serializable JDK class: only the common collections are
+            // copied, if their subclasses have no state of their own
+            if (!fields.isEmpty() || !(COLLECTIONS.contains(c) || MAPS.contains(c))) {
+                return SERIALIZE;
+            }
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return COLLECTIONS.contains(c) ? new CollectionPlan(constructor) : new MapPlan(constructor);
+        } catch (Exception e) {
+            return SERIALIZE;
+        } catch (LinkageError e) {
+            return SERIALIZE;
+        }
+    }
+}
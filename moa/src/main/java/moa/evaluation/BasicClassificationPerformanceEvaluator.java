@@ -24,6 +24,7 @@ import com.github.javacliparser.FlagOption;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.core.Example;
+import moa.core.FastCopyable;
 import moa.core.Measurement;
 import moa.core.ObjectRepository;
 import moa.core.Utils;
@@ -49,7 +50,7 @@ import java.util.ArrayList;
  * @version $Revision: 8 $
  */
 public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandler
-        implements ClassificationPerformanceEvaluator {
+        implements ClassificationPerformanceEvaluator, FastCopyable {
 
     private static final long serialVersionUID = 1L;
 
@@ -117,7 +117,7 @@ public class EfficientEvaluationLoops {
             if (storeY)
                 targetValues.add(instance.getData().classValue());
 
-            double[] prediction = learner.getVotesForInstance(instance);
+            double[] prediction = learner.predictAndTrain(instance);
             if (basicEvaluator != null)
                 basicEvaluator.addResult(instance, prediction);
             if (windowedEvaluator != null)
@@ -126,8 +126,6 @@ public class EfficientEvaluationLoops {
             if (storePredictions)
                 predictions.add(prediction.length == 0? 0 : prediction[0]);
 
-            learner.trainOnInstance(instance);
-
             instancesProcessed++;
 
             if (windowedEvaluator != null)
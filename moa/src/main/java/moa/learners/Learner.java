@@ -95,6 +95,28 @@ public interface Learner<E extends Example> extends MOAObject, OptionHandler, AW
      */
     public double[] getVotesForInstance(E example);
 
+    /**
+     * Predicts the class memberships for a given instance and then trains
+     * this learner with it. The returned votes are the ones the learner
+     * would have produced with <code>getVotesForInstance</code> before
+     * training, so this is equivalent to calling both methods in sequence,
+     * but lets learners share the work done for the prediction with the
+     * update (e.g. sorting the instance into a leaf only once).
+     *
+     * @param example the instance to be classified and used for training
+     * @return an array containing the estimated membership
+     * probabilities of the instance in each class before training
+     */
+    public default double[] predictAndTrain(E example) {
+        double[] votes = getVotesForInstance(example);
+        if (votes != null) {
+            // training must not change the prediction already made
+            votes = votes.clone();
+        }
+        trainOnInstance(example);
+        return votes;
+    }
+
     /**
      * Gets the current measurements of this learner.
      *
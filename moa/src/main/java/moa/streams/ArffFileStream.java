@@ -23,12 +23,9 @@ import com.github.javacliparser.FileOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
-import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.util.ArrayList;
 
 import moa.capabilities.CapabilitiesHandler;
@@ -69,7 +66,7 @@ public class ArffFileStream extends AbstractOptionHandler implements
 
     protected Instances instances;
 
-    protected Reader fileReader;
+    protected InputStream fileStream;
 
     protected boolean hitEndOfFile;
 
@@ -128,16 +125,14 @@ public class ArffFileStream extends AbstractOptionHandler implements
     @Override
     public void restart() {
         try {
-            if (this.fileReader != null) {
-                this.fileReader.close();
+            if (this.fileStream != null) {
+                this.fileStream.close();
             }
-            InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
             this.fileProgressMonitor = new InputStreamProgressMonitor(
-                    fileStream);
-            this.fileReader = new BufferedReader(new InputStreamReader(
-                    this.fileProgressMonitor));
+                    new FileInputStream(this.arffFileOption.getFile()));
+            this.fileStream = this.fileProgressMonitor;
             int classIndex = this.classIndexOption.getValue();
-            this.instances = new Instances(this.fileReader, 1, classIndex);
+            this.instances = new Instances(this.fileStream, classIndex);
             if (classIndex < 0) {
 		this.instances.setClassIndex(this.instances.numAttributes() - 1);
             } else if (this.classIndexOption.getValue() > 0) {
@@ -154,15 +149,15 @@ public class ArffFileStream extends AbstractOptionHandler implements
 
     protected boolean readNextInstanceFromFile() {
         try {
-            if (this.instances.readInstance(this.fileReader)) {
+            if (this.instances.readInstance()) {
                 this.lastInstanceRead = new InstanceExample(this.instances.instance(0));
                 this.instances.delete(); // keep instances clean
                 this.numInstancesRead++;
                 return true;
             }
-            if (this.fileReader != null) {
-                this.fileReader.close();
-                this.fileReader = null;
+            if (this.fileStream != null) {
+                this.fileStream.close();
+                this.fileStream = null;
             }
             return false;
         } catch (IOException ioe) {
@@ -0,0 +1,321 @@
+/*
+ *    BinaryFileStream.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import com.github.javacliparser.FileOption;
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import moa.capabilities.CapabilitiesHandler;
+import moa.capabilities.Capability;
+import moa.capabilities.ImmutableCapabilities;
+import moa.core.InstanceExample;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Stream reader of the binary files written by WriteStreamToBinaryFile.
+ *
+ * <p>A file starts with the ARFF header of the stream and its class index,
+ * followed by blocks of instances. A block stores its instances by columns of
+ * fixed width: numeric attributes as float64 or float32, nominal attributes
+ * as the index of their value in the header in 1, 2 or 4 bytes, and the
+ * weights as a last numeric column. As every instance has the same width, the
+ * position of any value is computed directly. The file is memory-mapped, so
+ * restarting the stream only moves back to the first instance.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class BinaryFileStream extends AbstractOptionHandler implements
+        InstanceStream, CapabilitiesHandler {
+
+    @Override
+    public String getPurposeString() {
+        return "A stream read from a binary file written by WriteStreamToBinaryFile.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /** The first bytes of a file, "MOAB" */
+    public static final int MAGIC = 0x4D4F4142;
+
+    public static final int VERSION = 1;
+
+    /** The position of the number of instances, written last */
+    public static final int NUM_INSTANCES_POSITION = 8;
+
+    /** The column types */
+    public static final byte FLOAT64 = 0;
+
+    public static final byte FLOAT32 = 1;
+
+    public static final byte NOMINAL8 = 2;
+
+    public static final byte NOMINAL16 = 3;
+
+    public static final byte NOMINAL32 = 4;
+
+    /** The largest memory-mapped region */
+    protected static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Binary file to load.", null, "moab", false);
+
+    protected Instances instances;
+
+    protected long numInstances;
+
+    protected int blockSize;
+
+    /** The types of the columns, the weights last */
+    protected byte[] columnTypes;
+
+    /** The offset of each column in a row of a block */
+    protected int[] columnOffsets;
+
+    protected int rowWidth;
+
+    protected int blocksPerSegment;
+
+    protected transient ByteBuffer[] segments;
+
+    protected long numInstancesRead;
+
+    public BinaryFileStream() {
+    }
+
+    public BinaryFileStream(String binaryFileName) {
+        this.binaryFileOption.setValue(binaryFileName);
+        restart();
+    }
+
+    /**
+     * Gets the type of the column of an attribute.
+     *
+     * @param attribute the attribute
+     * @param singlePrecision whether numeric values are stored as float32
+     * @return the type
+     */
+    public static byte columnType(Attribute attribute, boolean singlePrecision) {
+        if (attribute.isNominal()) {
+            // the largest index is kept for missing values
+            if (attribute.numValues() < 0xFF) {
+                return NOMINAL8;
+            }
+            return attribute.numValues() < 0xFFFF ? NOMINAL16 : NOMINAL32;
+        }
+        return singlePrecision ? FLOAT32 : FLOAT64;
+    }
+
+    /**
+     * Gets the number of bytes of a value in a column.
+     *
+     * @param columnType the type of the column
+     * @return the width
+     */
+    public static int columnWidth(byte columnType) {
+        switch (columnType) {
+            case FLOAT64:
+                return 8;
+            case FLOAT32:
+            case NOMINAL32:
+                return 4;
+            case NOMINAL16:
+                return 2;
+            case NOMINAL8:
+                return 1;
+            default:
+                throw new IllegalArgumentException("Unknown column type " + columnType);
+        }
+    }
+
+    @Override
+    public void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        this.segments = null;
+        restart();
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return new InstancesHeader(this.instances);
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        return this.numInstances - this.numInstancesRead;
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return this.numInstancesRead < this.numInstances;
+    }
+
+    @Override
+    public InstanceExample nextInstance() {
+        long index = this.numInstancesRead++;
+        long block = index / this.blockSize;
+        int row = (int) (index % this.blockSize);
+        ByteBuffer segment = this.segments[(int) (block / this.blocksPerSegment)];
+        int blockStart = (int) (block % this.blocksPerSegment) * this.blockSize * this.rowWidth;
+        int blockRows = (int) Math.min(this.blockSize, this.numInstances - block * this.blockSize);
+        int numAttributes = this.columnTypes.length - 1;
+        double[] values = new double[numAttributes];
+        for (int j = 0; j < numAttributes; j++) {
+            values[j] = readValue(segment, this.columnTypes[j],
+                    blockStart + this.columnOffsets[j] * blockRows + row * columnWidth(this.columnTypes[j]));
+        }
+        double weight = readValue(segment, this.columnTypes[numAttributes],
+                blockStart + this.columnOffsets[numAttributes] * blockRows + row * columnWidth(this.columnTypes[numAttributes]));
+        Instance inst = new DenseInstance(weight, values);
+        inst.setDataset(this.instances);
+        return new InstanceExample(inst);
+    }
+
+    protected static double readValue(ByteBuffer segment, byte columnType, int position) {
+        int value;
+        switch (columnType) {
+            case FLOAT64:
+                return segment.getDouble(position);
+            case FLOAT32:
+                return segment.getFloat(position);
+            case NOMINAL8:
+                value = segment.get(position) & 0xFF;
+                return value == 0xFF ? Double.NaN : value;
+            case NOMINAL16:
+                value = segment.getShort(position) & 0xFFFF;
+                return value == 0xFFFF ? Double.NaN : value;
+            default:
+                value = segment.getInt(position);
+                return value == -1 ? Double.NaN : value;
+        }
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return true;
+    }
+
+    @Override
+    public void restart() {
+        if (this.segments == null) {
+            try {
+                open(this.binaryFileOption.getFile());
+            } catch (IOException ioe) {
+                throw new RuntimeException("BinaryFileStream restart failed.", ioe);
+            }
+        }
+        this.numInstancesRead = 0;
+    }
+
+    protected void open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer preamble = read(channel, 28);
+            if (preamble.getInt() != MAGIC) {
+                throw new IOException(file + " is not a binary stream file.");
+            }
+            int version = preamble.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary stream file version " + version);
+            }
+            this.numInstances = preamble.getLong();
+            this.blockSize = preamble.getInt();
+            int classIndex = preamble.getInt();
+            int numAttributes = preamble.getInt();
+            ByteBuffer types = read(channel, numAttributes + 1 + 4);
+            this.columnTypes = new byte[numAttributes + 1];
+            types.get(this.columnTypes);
+            byte[] arffHeader = new byte[types.getInt()];
+            read(channel, arffHeader.length).get(arffHeader);
+
+            this.instances = new Instances(new StringReader(
+                    new String(arffHeader, StandardCharsets.UTF_8)), 0, 0);
+            if (this.instances.numAttributes() != numAttributes) {
+                throw new IOException("The header of " + file + " does not match its columns.");
+            }
+            this.instances.setClassIndex(classIndex);
+
+            this.columnOffsets = new int[this.columnTypes.length];
+            this.rowWidth = 0;
+            for (int j = 0; j < this.columnTypes.length; j++) {
+                this.columnOffsets[j] = this.rowWidth;
+                this.rowWidth += columnWidth(this.columnTypes[j]);
+            }
+            long blockBytes = (long) this.blockSize * this.rowWidth;
+            this.blocksPerSegment = (int) Math.max(1, MAX_SEGMENT_SIZE / blockBytes);
+            long dataStart = dataStart(channel.position());
+            long numBlocks = (this.numInstances + this.blockSize - 1) / this.blockSize;
+            int numSegments = (int) ((numBlocks + this.blocksPerSegment - 1) / this.blocksPerSegment);
+            long dataEnd = dataStart + this.numInstances * this.rowWidth;
+            this.segments = new ByteBuffer[numSegments];
+            for (int s = 0; s < numSegments; s++) {
+                long start = dataStart + (long) s * this.blocksPerSegment * blockBytes;
+                long size = Math.min(this.blocksPerSegment * blockBytes, dataEnd - start);
+                this.segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start, size)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    /**
+     * Gets the start of the blocks, aligned to 8 bytes.
+     *
+     * @param headerEnd the end of the header
+     * @return the position of the first block
+     */
+    public static long dataStart(long headerEnd) {
+        return (headerEnd + 7) & ~7L;
+    }
+
+    protected static ByteBuffer read(FileChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Truncated binary stream file.");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    @Override
+    public ImmutableCapabilities defineImmutableCapabilities() {
+        if (this.getClass() == BinaryFileStream.class)
+            return new ImmutableCapabilities(Capability.VIEW_STANDARD, Capability.VIEW_LITE);
+        else
+            return new ImmutableCapabilities(Capability.VIEW_STANDARD);
+    }
+}
@@ -22,12 +22,9 @@ package moa.streams;
 import com.github.javacliparser.FileOption;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
-import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader; 
 import com.github.javacliparser.RangeOption;  // jesse
 import moa.core.InputStreamProgressMonitor;
 import moa.core.InstanceExample;
@@ -62,7 +59,7 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
 
     protected Instances instances;
 
-    protected Reader fileReader;
+    protected InputStream fileStream;
 
     protected boolean hitEndOfFile;
 
@@ -130,14 +127,12 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
     @Override
     public void restart() {
         try {
-            if (this.fileReader != null) {
-                this.fileReader.close();
+            if (this.fileStream != null) {
+                this.fileStream.close();
             }
-            InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
             this.fileProgressMonitor = new InputStreamProgressMonitor(
-                    fileStream);
-            this.fileReader = new BufferedReader(new InputStreamReader(
-                    this.fileProgressMonitor));
+                    new FileInputStream(this.arffFileOption.getFile()));
+            this.fileStream = this.fileProgressMonitor;
 			// jesse -----
 			/*int cs[] = this.outputAttributesOption.getRange(); 
 			if (cs.length == 1) {
@@ -153,7 +148,7 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
 			else {*/
 				// multi-label since cs[] contains _multipe_ class indices, e.g., cs[] = {9,10,11} 
 				// what to do here?
-			this.instances = new Instances(this.fileReader, this.outputAttributesOption.getRange());
+			this.instances = new Instances(this.fileStream, this.outputAttributesOption.getRange());
 			//}
             this.numInstancesRead = 0;
             this.lastInstanceRead = null;
@@ -165,15 +160,15 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
 
     protected boolean readNextInstanceFromFile() {
         try {
-            if (this.instances.readInstance(this.fileReader)) {
+            if (this.instances.readInstance()) {
                 this.lastInstanceRead = new InstanceExample(this.instances.instance(0));
                 this.instances.delete(); // keep instances clean
                 this.numInstancesRead++;
                 return true;
             }
-            if (this.fileReader != null) {
-                this.fileReader.close();
-                this.fileReader = null;
+            if (this.fileStream != null) {
+                this.fileStream.close();
+                this.fileStream = null;
             }
             return false;
         } catch (IOException ioe) {
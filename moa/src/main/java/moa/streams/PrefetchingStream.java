@@ -0,0 +1,309 @@
+/*
+ *    PrefetchingStream.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import moa.core.Example;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.options.ClassOption;
+import moa.tasks.TaskMonitor;
+
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Stream that reads the examples of another stream ahead of its consumer.
+ *
+ * <p>The examples are produced by a background thread into a bounded ring
+ * buffer, so parsing, generating or filtering the next examples overlaps
+ * with the processing of the current ones. The examples are returned in the
+ * order of the wrapped stream. The ring buffer allocates no memory per
+ * example. Restarting stops the background thread before restarting the
+ * wrapped stream, which is only used by one thread at a time.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class PrefetchingStream extends AbstractOptionHandler implements
+        InstanceStream {
+
+    @Override
+    public String getPurposeString() {
+        return "Reads the examples of a stream ahead on a background thread.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to read ahead.", ExampleStream.class,
+            "generators.RandomTreeGenerator");
+
+    public IntOption bufferSizeOption = new IntOption("bufferSize", 'b',
+            "Maximum number of examples read ahead of the consumer.", 1024, 1,
+            1 << 30);
+
+    protected ExampleStream<Example<Instance>> stream;
+
+    protected InstancesHeader header;
+
+    protected transient Prefetcher prefetcher;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        stopPrefetcher();
+        this.stream = (ExampleStream<Example<Instance>>) getPreparedClassOption(this.streamOption);
+        this.header = this.stream.getHeader();
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.header;
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        // the wrapped stream may be producing, so this is only an estimate
+        long remaining = this.stream.estimatedRemainingInstances();
+        Prefetcher p = this.prefetcher;
+        return remaining < 0 || p == null ? remaining : remaining + p.numBuffered();
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return startPrefetcher().hasNext();
+    }
+
+    @Override
+    public Example<Instance> nextInstance() {
+        return startPrefetcher().next();
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return this.stream.isRestartable();
+    }
+
+    @Override
+    public void restart() {
+        stopPrefetcher();
+        this.stream.restart();
+    }
+
+    protected Prefetcher startPrefetcher() {
+        if (this.prefetcher == null) {
+            this.prefetcher = new Prefetcher(this, this.stream, this.bufferSizeOption.getValue());
+        }
+        return this.prefetcher;
+    }
+
+    protected void stopPrefetcher() {
+        if (this.prefetcher != null) {
+            this.prefetcher.stop();
+            this.prefetcher = null;
+        }
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    /**
+     * A single producer, single consumer ring buffer filled by a thread.
+     * Each side spins for a while and then parks when the buffer is full or
+     * empty; the other side unparks it after publishing its position.
+     */
+    protected static class Prefetcher implements Runnable {
+
+        protected static final int SPIN_TRIES = 1000;
+
+        /** How often a full producer checks if the stream is still used */
+        protected static final long OWNER_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+        /** The stream is only weakly referenced, so a stream that is
+         * dropped without being read to the end stops its thread */
+        protected final WeakReference<PrefetchingStream> owner;
+
+        protected final ExampleStream<Example<Instance>> stream;
+
+        protected final Object[] ring;
+
+        protected final int mask;
+
+        protected final AtomicLong produced = new AtomicLong();
+
+        protected final AtomicLong consumed = new AtomicLong();
+
+        protected volatile boolean finished;
+
+        protected volatile boolean stopped;
+
+        protected volatile boolean producerWaiting;
+
+        protected volatile boolean consumerWaiting;
+
+        protected volatile Throwable failure;
+
+        protected volatile Thread consumer;
+
+        protected final Thread producer;
+
+        protected Prefetcher(PrefetchingStream owner, ExampleStream<Example<Instance>> stream, int bufferSize) {
+            this.owner = new WeakReference<PrefetchingStream>(owner);
+            this.stream = stream;
+            int capacity = Integer.highestOneBit(bufferSize);
+            if (capacity < bufferSize) {
+                capacity <<= 1;
+            }
+            this.ring = new Object[capacity];
+            this.mask = capacity - 1;
+            this.producer = new Thread(this, "PrefetchingStream-producer");
+            this.producer.setDaemon(true);
+            this.producer.start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!this.stopped && this.stream.hasMoreInstances()) {
+                    Example<Instance> example = this.stream.nextInstance();
+                    long position = this.produced.get();
+                    if (!awaitSpace(position)) {
+                        return;
+                    }
+                    this.ring[(int) position & this.mask] = example;
+                    this.produced.set(position + 1);
+                    if (this.consumerWaiting) {
+                        LockSupport.unpark(this.consumer);
+                    }
+                }
+            } catch (Throwable t) {
+                this.failure = t;
+            } finally {
+                this.finished = true;
+                if (this.consumerWaiting) {
+                    LockSupport.unpark(this.consumer);
+                }
+            }
+        }
+
+        /**
+         * Waits until the slot of a position is free.
+         *
+         * @return false if the producer must stop
+         */
+        protected boolean awaitSpace(long position) {
+            int tries = 0;
+            while (position - this.consumed.get() >= this.ring.length) {
+                if (this.stopped) {
+                    return false;
+                }
+                if (++tries < SPIN_TRIES) {
+                    continue;
+                }
+                this.producerWaiting = true;
+                if (position - this.consumed.get() >= this.ring.length && !this.stopped) {
+                    LockSupport.parkNanos(this, OWNER_CHECK_NANOS);
+                    if (this.owner.get() == null) {
+                        return false;
+                    }
+                }
+                this.producerWaiting = false;
+            }
+            return true;
+        }
+
+        protected boolean hasNext() {
+            long position = this.consumed.get();
+            int tries = 0;
+            while (this.produced.get() == position) {
+                if (this.finished) {
+                    if (this.produced.get() != position) {
+                        break;
+                    }
+                    checkFailure();
+                    return false;
+                }
+                if (++tries < SPIN_TRIES) {
+                    continue;
+                }
+                this.consumer = Thread.currentThread();
+                this.consumerWaiting = true;
+                if (this.produced.get() == position && !this.finished) {
+                    LockSupport.park(this);
+                }
+                this.consumerWaiting = false;
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        protected Example<Instance> next() {
+            if (!hasNext()) {
+                return null;
+            }
+            long position = this.consumed.get();
+            int slot = (int) position & this.mask;
+            Example<Instance> example = (Example<Instance>) this.ring[slot];
+            this.ring[slot] = null;
+            this.consumed.set(position + 1);
+            if (this.producerWaiting) {
+                LockSupport.unpark(this.producer);
+            }
+            return example;
+        }
+
+        protected long numBuffered() {
+            return this.produced.get() - this.consumed.get();
+        }
+
+        protected void checkFailure() {
+            Throwable t = this.failure;
+            if (t != null) {
+                throw new RuntimeException("PrefetchingStream failed to read from stream.", t);
+            }
+        }
+
+        /**
+         * Stops the producer and waits for it, so that the stream can be used
+         * by another thread.
+         */
+        protected void stop() {
+            this.stopped = true;
+            LockSupport.unpark(this.producer);
+            boolean interrupted = false;
+            while (this.producer.isAlive()) {
+                try {
+                    this.producer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
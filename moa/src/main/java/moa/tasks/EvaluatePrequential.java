@@ -196,7 +196,7 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
             Example trainInst = stream.nextInstance();
             Example testInst = (Example) trainInst; //.copy();
             //testInst.setClassMissing();
-            double[] prediction = learner.getVotesForInstance(testInst);
+            double[] prediction = learner.predictAndTrain(trainInst);
             // Output prediction
             if (outputPredictionFile != null) {
                 int trueClass = (int) ((Instance) trainInst.getData()).classValue();
@@ -206,7 +206,6 @@ public class EvaluatePrequential extends ClassificationMainTask implements Capab
 
             //evaluator.addClassificationAttempt(trueClass, prediction, testInst.weight());
             evaluator.addResult(testInst, prediction);
-            learner.trainOnInstance(trainInst);
             instancesProcessed++;
             if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
                     || stream.hasMoreInstances() == false) {
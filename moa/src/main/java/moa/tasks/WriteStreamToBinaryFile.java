@@ -0,0 +1,214 @@
+/*
+ *    WriteStreamToBinaryFile.java
+ *    Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import moa.core.ObjectRepository;
+import moa.options.ClassOption;
+import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import moa.streams.BinaryFileStream;
+import moa.streams.InstanceStream;
+
+/**
+ * Task to output a stream to a binary file read by BinaryFileStream.
+ *
+ * @see BinaryFileStream
+ * @version $Revision: 7 $
+ */
+public class WriteStreamToBinaryFile extends AuxiliarMainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Outputs a stream to a binary file read by BinaryFileStream.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to write.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Destination binary file.", null, "moab", true);
+
+    public IntOption maxInstancesOption = new IntOption("maxInstances", 'm',
+            "Maximum number of instances to write to file.", 10000000, 0,
+            Integer.MAX_VALUE);
+
+    public IntOption blockSizeOption = new IntOption("blockSize", 'b',
+            "Number of instances stored together by columns.", 4096, 1,
+            Integer.MAX_VALUE);
+
+    public FlagOption singlePrecisionOption = new FlagOption("singlePrecision",
+            'p', "Store numeric values and weights as float32 instead of float64.");
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        File destFile = this.binaryFileOption.getFile();
+        if (destFile != null) {
+            try {
+                monitor.setCurrentActivityDescription("Writing stream to binary file");
+                long numWritten = writeStream(stream, destFile);
+                return "Stream written to binary file " + destFile + " (" + numWritten + " instances)";
+            } catch (Exception ex) {
+                throw new RuntimeException(
+                        "Failed writing to file " + destFile, ex);
+            }
+        }
+        throw new IllegalArgumentException("No destination file to write to.");
+    }
+
+    protected long writeStream(InstanceStream stream, File destFile) throws IOException {
+        InstancesHeader header = stream.getHeader();
+        int numAttributes = header.numAttributes();
+        boolean singlePrecision = this.singlePrecisionOption.isSet();
+        byte[] columnTypes = new byte[numAttributes + 1];
+        int rowWidth = 0;
+        for (int j = 0; j < numAttributes; j++) {
+            columnTypes[j] = BinaryFileStream.columnType(header.attribute(j), singlePrecision);
+            rowWidth += BinaryFileStream.columnWidth(columnTypes[j]);
+        }
+        columnTypes[numAttributes] = singlePrecision ? BinaryFileStream.FLOAT32 : BinaryFileStream.FLOAT64;
+        rowWidth += BinaryFileStream.columnWidth(columnTypes[numAttributes]);
+        int blockSize = this.blockSizeOption.getValue();
+        if ((long) blockSize * rowWidth > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Blocks of " + blockSize
+                    + " instances exceed 2GB, use a smaller block size.");
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(destFile, "rw")) {
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            byte[] arffHeader = header.toString().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer preamble = ByteBuffer.allocate(28 + columnTypes.length + 4 + arffHeader.length)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            preamble.putInt(BinaryFileStream.MAGIC);
+            preamble.putInt(BinaryFileStream.VERSION);
+            preamble.putLong(0); // the number of instances, once known
+            preamble.putInt(blockSize);
+            preamble.putInt(header.classIndex());
+            preamble.putInt(numAttributes);
+            preamble.put(columnTypes);
+            preamble.putInt(arffHeader.length);
+            preamble.put(arffHeader);
+            preamble.flip();
+            writeFully(channel, preamble);
+            channel.position(BinaryFileStream.dataStart(channel.position()));
+
+            double[][] columns = new double[columnTypes.length][blockSize];
+            ByteBuffer block = ByteBuffer.allocate(blockSize * rowWidth).order(ByteOrder.LITTLE_ENDIAN);
+            long numWritten = 0;
+            int blockRows = 0;
+            while ((numWritten < this.maxInstancesOption.getValue())
+                    && stream.hasMoreInstances()) {
+                Instance inst = stream.nextInstance().getData();
+                for (int j = 0; j < numAttributes; j++) {
+                    columns[j][blockRows] = inst.value(j);
+                }
+                columns[numAttributes][blockRows] = inst.weight();
+                blockRows++;
+                numWritten++;
+                if (blockRows == blockSize) {
+                    writeBlock(channel, block, columns, columnTypes, blockRows);
+                    blockRows = 0;
+                }
+            }
+            if (blockRows > 0) {
+                writeBlock(channel, block, columns, columnTypes, blockRows);
+            }
+            ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            count.putLong(numWritten).flip();
+            channel.position(BinaryFileStream.NUM_INSTANCES_POSITION);
+            writeFully(channel, count);
+            return numWritten;
+        }
+    }
+
+    protected static void writeBlock(FileChannel channel, ByteBuffer block,
+            double[][] columns, byte[] columnTypes, int blockRows) throws IOException {
+        block.clear();
+        for (int j = 0; j < columnTypes.length; j++) {
+            double[] column = columns[j];
+            switch (columnTypes[j]) {
+                case BinaryFileStream.FLOAT64:
+                    for (int i = 0; i < blockRows; i++) {
+                        block.putDouble(column[i]);
+                    }
+                    break;
+                case BinaryFileStream.FLOAT32:
+                    for (int i = 0; i < blockRows; i++) {
+                        block.putFloat((float) column[i]);
+                    }
+                    break;
+                case BinaryFileStream.NOMINAL8:
+                    for (int i = 0; i < blockRows; i++) {
+                        block.put((byte) nominalIndex(column[i], 0xFF));
+                    }
+                    break;
+                case BinaryFileStream.NOMINAL16:
+                    for (int i = 0; i < blockRows; i++) {
+                        block.putShort((short) nominalIndex(column[i], 0xFFFF));
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < blockRows; i++) {
+                        block.putInt(nominalIndex(column[i], -1));
+                    }
+                    break;
+            }
+        }
+        block.flip();
+        writeFully(channel, block);
+    }
+
+    protected static int nominalIndex(double value, int missing) {
+        if (Double.isNaN(value)) {
+            return missing;
+        }
+        int index = (int) value;
+        if (missing > 0 && index >= missing) {
+            throw new IllegalStateException("Nominal value " + index
+                    + " is not in the header of the stream.");
+        }
+        return index;
+    }
+
+    protected static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return String.class;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ByteArffLoaderTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that ByteArffLoader reads the same instances as ArffLoader.
+ */
+public class ByteArffLoaderTest {
+
+  protected static final String HEADER = "% a comment\n"
+      + "@relation test\n"
+      + "@attribute x numeric\n"
+      + "@attribute 'colour name' {red, 'light blue', \"dark green\"}\n"
+      + "@attribute y real\n"
+      + "@attribute class {yes,no}\n"
+      + "\n"
+      + "@DATA\n";
+
+  protected void checkSameInstances(String arff, boolean sparse) {
+    ArffLoader expected = new ArffLoader(new StringReader(arff), 0, -1);
+    ByteArffLoader actual = new ByteArffLoader(
+        new ByteArrayInputStream(arff.getBytes(StandardCharsets.UTF_8)), -1);
+    assertEquals(expected.getStructure().numAttributes(), actual.getStructure().numAttributes());
+    assertEquals(expected.getStructure().classIndex(), actual.getStructure().classIndex());
+    int numInstances = 0;
+    Instance expectedInstance;
+    while ((expectedInstance = expected.readInstance()) != null
+        && (sparse || expectedInstance.numValues() > 0)) {
+      Instance actualInstance = actual.readInstance();
+      assertEquals(expectedInstance.numValues(), actualInstance.numValues());
+      for (int p = 0; p < expectedInstance.numValues(); p++) {
+        assertEquals("instance " + numInstances, expectedInstance.index(p), actualInstance.index(p));
+        assertEquals("instance " + numInstances, expectedInstance.valueSparse(p), actualInstance.valueSparse(p), 0.0);
+      }
+      numInstances++;
+    }
+    if (!sparse) {
+      assertNull(actual.readInstance());
+    }
+  }
+
+  @Test
+  public void testDense() {
+    String arff = HEADER
+        + "1.5,red,-2e3,yes\n"
+        + "  % a comment line\n"
+        + "\n"
+        + "-0.25, 'light blue' ,  3.25E-2 ,no % trailing comment\r\n"
+        + "?,\"dark green\",.5,?\n"
+        + "12345678901234567890,red,1e-400,yes\n"
+        + "+7,purple,0.1234567890123456789,no\n"
+        + "8,purple,NaN,no\n"
+        + "9,red,-0,yes";
+    checkSameInstances(arff, false);
+  }
+
+  @Test
+  public void testSparse() {
+    String arff = HEADER
+        + "{0 1.5,1 red,3 yes}\n"
+        + "{1 \"dark green\", 2 -4.5e10}\n"
+        + "{}\n"
+        + "{0 3, 2 7}\n";
+    checkSameInstances(arff, true);
+  }
+
+  @Test
+  public void testLargeFile() {
+    Random random = new Random(1);
+    String[] colours = {"red", "'light blue'", "\"dark green\""};
+    StringBuilder arff = new StringBuilder(HEADER);
+    while (arff.length() < 3 * ByteArffLoader.BUFFER_SIZE) {
+      arff.append(random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10)).append(',')
+          .append(colours[random.nextInt(colours.length)]).append(',')
+          .append(random.nextInt(1000) / 100.0).append(',')
+          .append(random.nextBoolean() ? "yes" : "no").append('\n');
+    }
+    checkSameInstances(arff.toString(), false);
+  }
+
+  @Test
+  public void testParseDouble() {
+    Random random = new Random(1);
+    String[] numbers = {"0", "-0", "1", "1.", ".5", "007", "1e22", "1e23", "123456789012345",
+        "1234567890123456", "0.000000000000000000001", "4.9e-324", "1.7976931348623157E308",
+        "9007199254740993", "+3.14", "2.5E+3", "1E-22"};
+    for (String number : numbers) {
+      checkParseDouble(number);
+    }
+    for (int i = 0; i < 10000; i++) {
+      checkParseDouble(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20)));
+      checkParseDouble(Float.toString(random.nextFloat() * random.nextInt(100000)));
+      checkParseDouble(Long.toString(random.nextLong() >> random.nextInt(64)));
+    }
+  }
+
+  protected void checkParseDouble(String number) {
+    byte[] bytes = number.getBytes(StandardCharsets.UTF_8);
+    assertEquals(number, Double.doubleToLongBits(Double.valueOf(number)),
+        Double.doubleToLongBits(ByteArffLoader.parseDouble(bytes, 0, bytes.length)));
+  }
+}
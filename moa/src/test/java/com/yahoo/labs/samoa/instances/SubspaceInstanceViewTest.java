@@ -0,0 +1,147 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SubspaceInstanceViewTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks that a SubspaceInstanceView reads the selected attributes of its
+ * source instance without changing it.
+ */
+public class SubspaceInstanceViewTest {
+
+  protected static final int[] FEATURE_INDEXES = {3, 0, 4};
+
+  protected Instances newDataset() {
+    List<Attribute> attributes = new ArrayList<Attribute>();
+    for (int i = 0; i < 4; i++) {
+      attributes.add(new Attribute("att" + i));
+    }
+    attributes.add(new Attribute("class", Arrays.asList("a", "b", "c")));
+    Instances dataset = new Instances("test", attributes, 0);
+    dataset.setClassIndex(4);
+    return dataset;
+  }
+
+  protected Instances newSubspaceHeader(Instances dataset) {
+    List<Attribute> attributes = new ArrayList<Attribute>();
+    for (int index : FEATURE_INDEXES) {
+      attributes.add(dataset.attribute(index));
+    }
+    Instances header = new Instances("subspace", attributes, 0);
+    header.setClassIndex(attributes.size() - 1);
+    return header;
+  }
+
+  protected Instance newInstance(Instances dataset, double... values) {
+    Instance inst = new DenseInstance(1.0, values);
+    inst.setDataset(dataset);
+    return inst;
+  }
+
+  @Test
+  public void testReadsSource() {
+    Instances dataset = newDataset();
+    SubspaceInstanceView view = new SubspaceInstanceView(FEATURE_INDEXES, newSubspaceHeader(dataset));
+    Instance source = newInstance(dataset, 1.5, Double.NaN, -2.0, 7.0, 2.0);
+    assertSame(view, view.setSource(source, 3.0));
+
+    assertEquals(3, view.numAttributes());
+    assertEquals(3.0, view.weight(), 0.0);
+    assertEquals(2, view.classIndex());
+    assertEquals(3, view.numClasses());
+    assertEquals("att3", view.attribute(0).name());
+    assertArrayEquals(new double[] {7.0, 1.5, 2.0}, view.toDoubleArray(), 0.0);
+    assertEquals(2.0, view.classValue(), 0.0);
+    assertFalse(view.isMissing(1));
+
+    source.setValue(3, Double.NaN);
+    assertTrue(view.isMissing(0));
+
+    view.setSource(newInstance(dataset, 4.0, 5.0, 6.0, 8.0, 0.0), 1.0);
+    assertArrayEquals(new double[] {8.0, 4.0, 0.0}, view.toDoubleArray(), 0.0);
+  }
+
+  @Test
+  public void testSetValueKeepsSource() {
+    Instances dataset = newDataset();
+    SubspaceInstanceView view = new SubspaceInstanceView(FEATURE_INDEXES, newSubspaceHeader(dataset));
+    Instance source = newInstance(dataset, 1.0, 2.0, 3.0, 4.0, 1.0);
+    view.setSource(source, 1.0);
+
+    view.setClassValue(0.0);
+    view.setValue(1, 9.0);
+    assertArrayEquals(new double[] {4.0, 9.0, 0.0}, view.toDoubleArray(), 0.0);
+    assertArrayEquals(new double[] {1.0, 2.0, 3.0, 4.0, 1.0}, source.toDoubleArray(), 0.0);
+
+    view.setSource(source, 1.0);
+    assertArrayEquals(new double[] {4.0, 1.0, 1.0}, view.toDoubleArray(), 0.0);
+  }
+
+  @Test
+  public void testTargetAndOneHotEncoding() {
+    Instances dataset = newDataset();
+    List<Attribute> attributes = new ArrayList<Attribute>();
+    for (int i = 0; i < 5; i++) {
+      attributes.add(new Attribute("att" + i));
+    }
+    Instances header = new Instances("subspace", attributes, 0);
+    header.setClassIndex(4);
+    SubspaceInstanceView view = new SubspaceInstanceView(new int[] {0, 4, 4, 4, -1},
+        new int[] {-1, 0, 1, 2, -1}, header);
+    Instance source = newInstance(dataset, 1.5, 2.0, 3.0, 4.0, 1.0);
+    view.setSource(source, 1.0);
+
+    view.setClassValue(-0.5);
+    assertArrayEquals(new double[] {1.5, 0.0, 1.0, 0.0, -0.5}, view.toDoubleArray(), 0.0);
+    view.setSource(newInstance(dataset, 2.5, 2.0, 3.0, 4.0, 2.0), 1.0);
+    assertArrayEquals(new double[] {2.5, 0.0, 0.0, 1.0, -0.5}, view.toDoubleArray(), 0.0);
+
+    view.setValue(0, 9.0);
+    view.setClassValue(0.25);
+    assertArrayEquals(new double[] {9.0, 0.0, 0.0, 1.0, 0.25}, view.toDoubleArray(), 0.0);
+    view.setSource(source, 1.0);
+    assertArrayEquals(new double[] {1.5, 0.0, 1.0, 0.0, 0.25}, view.toDoubleArray(), 0.0);
+  }
+
+  @Test
+  public void testCopy() {
+    Instances dataset = newDataset();
+    SubspaceInstanceView view = new SubspaceInstanceView(FEATURE_INDEXES, newSubspaceHeader(dataset));
+    view.setSource(newInstance(dataset, 1.0, 2.0, 3.0, 4.0, 1.0), 2.0);
+    Instance copy = view.copy();
+    view.setSource(newInstance(dataset, 5.0, 6.0, 7.0, 8.0, 2.0), 1.0);
+
+    assertTrue(copy instanceof DenseInstance);
+    assertSame(view.dataset(), copy.dataset());
+    assertEquals(2.0, copy.weight(), 0.0);
+    assertArrayEquals(new double[] {4.0, 1.0, 1.0}, copy.toDoubleArray(), 0.0);
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MiniBatchSchedulerTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
+
+import moa.classifiers.meta.minibatch.OzaBagMB;
+import moa.core.Measurement;
+import moa.streams.generators.RandomRBFGenerator;
+
+/**
+ * Checks when a MiniBatchScheduler trains on the buffered instances, and how
+ * it adapts the batch size.
+ */
+public class MiniBatchSchedulerTest {
+
+  protected static final long MILLIS = 1000000L;
+
+  protected static double value(Measurement[] measurements, String name) {
+    for (Measurement measurement : measurements) {
+      if (measurement.getName().equals(name)) {
+        return measurement.getValue();
+      }
+    }
+    throw new IllegalArgumentException(name);
+  }
+
+  @Test
+  public void testFixedBatchSize() {
+    MiniBatchScheduler scheduler = new MiniBatchScheduler(4, 1000, 0.0, 0.0);
+    long now = 0;
+    for (int batch = 0; batch < 3; batch++) {
+      for (int depth = 1; depth <= 4; depth++) {
+        now += 10 * MILLIS;
+        assertEquals(depth == 4, scheduler.instanceBuffered(depth, now));
+      }
+      scheduler.batchTrained(4, now, now + 100 * MILLIS);
+      assertEquals(4, scheduler.batchSize());
+    }
+    Measurement[] measurements = scheduler.getMeasurements();
+    assertEquals(4.0, value(measurements, "mean trained batch size"), 0.0);
+    assertEquals(3.0, value(measurements, "mini batches trained"), 0.0);
+    assertEquals(2.5, value(measurements, "mean queue depth"), 0.0);
+    assertEquals(4.0, value(measurements, "max queue depth"), 0.0);
+    // reporting doesn't change the scheduler
+    assertEquals(3.0, value(scheduler.getMeasurements(), "mini batches trained"), 0.0);
+  }
+
+  @Test
+  public void testRecentHistory() {
+    MiniBatchScheduler scheduler = new MiniBatchScheduler(1000, 1000, 0.0, 0.0);
+    Measurement[] measurements = scheduler.getMeasurements();
+    assertEquals(0.0, value(measurements, "last trained batch size"), 0.0);
+    assertEquals(0.0, value(measurements, "recent min trained batch size"), 0.0);
+    // a large batch, then small ones pushing it out of the history
+    long arrivals = 0;
+    for (int batch = 0; batch <= MiniBatchScheduler.HISTORY_SIZE; batch++) {
+      int size = batch == 0 ? 50 : 2 + batch % 3;
+      for (int depth = 1; depth <= size; depth++) {
+        scheduler.instanceBuffered(depth, ++arrivals * MILLIS);
+      }
+      scheduler.batchTrained(size, 0, 0);
+      measurements = scheduler.getMeasurements();
+      assertEquals(size, value(measurements, "last trained batch size"), 0.0);
+      assertEquals(size, value(measurements, "last queue depth"), 0.0);
+      if (batch == 0) {
+        assertEquals(50.0, value(measurements, "recent min trained batch size"), 0.0);
+      }
+    }
+    assertEquals(2.0, value(measurements, "recent min trained batch size"), 0.0);
+    assertEquals(4.0, value(measurements, "recent max trained batch size"), 0.0);
+    assertEquals(1.0, value(measurements, "recent min queue depth"), 0.0);
+    assertEquals(4.0, value(measurements, "recent max queue depth"), 0.0);
+    // the max since the scheduler was created keeps the large batch
+    assertEquals(50.0, value(measurements, "max queue depth"), 0.0);
+  }
+
+  @Test
+  public void testWindow() {
+    MiniBatchScheduler scheduler = new MiniBatchScheduler(4, 1000, 0.0, 0.0);
+    for (int depth = 1; depth <= 4; depth++) {
+      scheduler.instanceBuffered(depth, depth * MILLIS);
+    }
+    scheduler.batchTrained(4, 0, 0);
+    MiniBatchScheduler.Counts window = scheduler.snapshot();
+    assertEquals(0.0, value(scheduler.getMeasurements(window), "mini batches trained"), 0.0);
+
+    scheduler.instanceBuffered(1, 10 * MILLIS);
+    scheduler.instanceBuffered(2, 11 * MILLIS);
+    scheduler.batchTrained(2, 0, 0);
+    Measurement[] measurements = scheduler.getMeasurements(window);
+    assertEquals(1.0, value(measurements, "mini batches trained"), 0.0);
+    assertEquals(2.0, value(measurements, "mean trained batch size"), 0.0);
+    assertEquals(1.5, value(measurements, "mean queue depth"), 0.0);
+    assertEquals(2.0, value(scheduler.getMeasurements(), "mini batches trained"), 0.0);
+  }
+
+  @Test
+  public void testDeadline() {
+    MiniBatchScheduler scheduler = new MiniBatchScheduler(100, 100, 0.0, 50.0);
+    assertFalse(scheduler.instanceBuffered(1, 0));
+    assertFalse(scheduler.instanceBuffered(2, 20 * MILLIS));
+    assertFalse(scheduler.instanceBuffered(3, 40 * MILLIS));
+    assertTrue(scheduler.instanceBuffered(4, 60 * MILLIS));
+    assertEquals(1.0, value(scheduler.getMeasurements(), "deadline flushes"), 0.0);
+
+    // without a new instance
+    assertFalse(scheduler.instanceBuffered(1, 100 * MILLIS));
+    assertFalse(scheduler.deadlinePassed(120 * MILLIS));
+    assertTrue(scheduler.deadlinePassed(150 * MILLIS));
+    assertEquals(2.0, value(scheduler.getMeasurements(), "deadline flushes"), 0.0);
+  }
+
+  @Test
+  public void testDeadlineBeforePrediction() throws InterruptedException {
+    RandomRBFGenerator stream = new RandomRBFGenerator();
+    stream.prepareForUse();
+    OzaBagMB learner = new OzaBagMB();
+    learner.getOptions().setViaCLIString("-s 3 -c 1 -b 1000 -M 1000 -D 200");
+    learner.prepareForUse();
+    learner.setModelContext(stream.getHeader());
+    for (int i = 0; i < 3; i++) {
+      learner.trainOnInstance(stream.nextInstance().getData());
+    }
+    Thread.sleep(300);
+    learner.getVotesForInstance(stream.nextInstance().getData());
+    Measurement[] measurements = learner.getModelMeasurements();
+    assertEquals(1.0, value(measurements, "deadline flushes"), 0.0);
+    assertEquals(1.0, value(measurements, "mini batches trained"), 0.0);
+    assertEquals(3.0, value(measurements, "mean trained batch size"), 0.0);
+  }
+
+  @Test
+  public void testAdaptsToTargetLatency() {
+    // 1 ms per instance, 20 ms per batch
+    MiniBatchScheduler scheduler = new MiniBatchScheduler(4, 1000, 20.0, 0.0);
+    scheduler.batchTrained(4, 0, 4 * MILLIS);
+    assertEquals(20, scheduler.batchSize());
+    scheduler.batchTrained(20, 0, 20 * MILLIS);
+    assertEquals(20, scheduler.batchSize());
+    // the training gets slower
+    for (int i = 0; i < 50; i++) {
+      scheduler.batchTrained(scheduler.batchSize(), 0, 4 * MILLIS * scheduler.batchSize());
+    }
+    assertEquals(5, scheduler.batchSize());
+  }
+
+  @Test
+  public void testAdaptsToStalenessDeadline() {
+    // instances every 10 ms, trained on in no time: 10 instances within 100 ms
+    MiniBatchScheduler scheduler = new MiniBatchScheduler(1, 1000, 0.0, 100.0);
+    long now = 0;
+    for (int i = 0; i < 50; i++) {
+      int depth = 0;
+      do {
+        now += 10 * MILLIS;
+      } while (!scheduler.instanceBuffered(++depth, now));
+      scheduler.batchTrained(depth, now, now);
+    }
+    assertEquals(10, scheduler.batchSize());
+  }
+
+  @Test
+  public void testLearnerMeasurementsAndSharedPool() {
+    RandomRBFGenerator stream = new RandomRBFGenerator();
+    stream.prepareForUse();
+    OzaBagMB[] learners = new OzaBagMB[2];
+    for (int i = 0; i < learners.length; i++) {
+      learners[i] = new OzaBagMB();
+      learners[i].getOptions().setViaCLIString("-s 3 -c 1 -b 8");
+      learners[i].prepareForUse();
+      learners[i].setModelContext(stream.getHeader());
+    }
+    assertSame(learners[0].threadpool, learners[1].threadpool);
+    for (int i = 0; i < 100; i++) {
+      Instance inst = stream.nextInstance().getData();
+      learners[0].trainOnInstance(inst);
+    }
+    // describing the learner doesn't reset its measurements
+    learners[0].getDescription(new StringBuilder(), 0);
+    Measurement[] measurements = learners[0].getModelMeasurements();
+    assertEquals(8.0, value(measurements, "mini batch size"), 0.0);
+    assertEquals(12.0, value(measurements, "mini batches trained"), 0.0);
+    assertEquals(8.0, value(measurements, "mean trained batch size"), 0.0);
+    assertEquals(12.0, value(learners[0].getModelMeasurements(), "mini batches trained"), 0.0);
+    learners[0].trainingHasEnded();
+    assertFalse(learners[1].threadpool.isShutdown());
+  }
+
+  @Test
+  public void testBufferedInstancesBeforeBatch() {
+    RandomRBFGenerator stream = new RandomRBFGenerator();
+    stream.prepareForUse();
+    OzaBagMB learner = new OzaBagMB();
+    learner.getOptions().setViaCLIString("-s 3 -c 1 -b 8");
+    learner.prepareForUse();
+    learner.setModelContext(stream.getHeader());
+    for (int i = 0; i < 5; i++) {
+      learner.trainOnInstance(stream.nextInstance().getData());
+    }
+    InstanceBatch batch = new InstanceBatch(stream.getHeader(), 10);
+    for (int i = 0; i < 10; i++) {
+      batch.add(stream.nextInstance().getData());
+    }
+    // the buffered instances are trained on as a mini batch of their own
+    learner.trainOnBatch(batch);
+    Measurement[] measurements = learner.getModelMeasurements();
+    assertEquals(1.0, value(measurements, "mini batches trained"), 0.0);
+    assertEquals(5.0, value(measurements, "mean trained batch size"), 0.0);
+    assertEquals(15.0, learner.trainingWeightSeenByModel(), 0.0);
+  }
+
+  @Test(timeout = 60000)
+  public void testNestedLearners() {
+    // the members train on the threads of the pool they share with the ensemble
+    RandomRBFGenerator stream = new RandomRBFGenerator();
+    stream.prepareForUse();
+    OzaBagMB learner = new OzaBagMB();
+    learner.getOptions().setViaCLIString("-s 2 -c 1 -b 4 -l (meta.minibatch.OzaBagMB -s 2 -c 1 -b 2)");
+    learner.prepareForUse();
+    learner.setModelContext(stream.getHeader());
+    for (int i = 0; i < 100; i++) {
+      Instance inst = stream.nextInstance().getData();
+      learner.getVotesForInstance(inst);
+      learner.trainOnInstance(inst);
+    }
+    assertEquals(25.0, value(learner.getModelMeasurements(), "mini batches trained"), 0.0);
+
+    // a copy trains with the same pool
+    OzaBagMB copy = (OzaBagMB) learner.copy();
+    assertSame(learner.threadpool, copy.threadpool);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PredictAndTrainTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.meta.AdaptiveRandomForest;
+import moa.classifiers.meta.LeveragingBag;
+import moa.classifiers.meta.OzaBag;
+import moa.classifiers.meta.StreamingRandomPatches;
+import moa.classifiers.trees.ASHoeffdingTree;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.generators.RandomRBFGenerator;
+
+/**
+ * Checks that predictAndTrain gives the same votes and models as calling
+ * getVotesForInstance followed by trainOnInstance.
+ */
+public class PredictAndTrainTest {
+
+  protected static final int NUM_INSTANCES = 3000;
+
+  /**
+   * Claims support for predictAndTrainImpl without overriding it.
+   */
+  public static class SupportingNaiveBayes extends NaiveBayes {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean supportsPredictAndTrainImpl() {
+      return true;
+    }
+  }
+
+  protected void checkEquivalence(Classifier classifier) {
+    Classifier sequential = classifier.copy();
+    Classifier fused = classifier.copy();
+    sequential.prepareForUse();
+    fused.prepareForUse();
+
+    RandomRBFGenerator stream = new RandomRBFGenerator();
+    stream.prepareForUse();
+    sequential.setModelContext(stream.getHeader());
+    fused.setModelContext(stream.getHeader());
+
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      Instance inst = stream.nextInstance().getData();
+      double[] expected = sequential.getVotesForInstance(inst);
+      sequential.trainOnInstance(inst);
+      double[] actual = fused.predictAndTrain(inst);
+      assertArrayEquals(classifier.getClass().getSimpleName() + " instance " + i,
+          expected, actual, 1e-10);
+    }
+    assertEquals(sequential.trainingWeightSeenByModel(), fused.trainingWeightSeenByModel(), 0.0);
+  }
+
+  @Test
+  public void testHoeffdingTree() {
+    checkEquivalence(new HoeffdingTree());
+    HoeffdingTree majorityClass = new HoeffdingTree();
+    majorityClass.leafpredictionOption.setChosenIndex(0);
+    checkEquivalence(majorityClass);
+  }
+
+  @Test
+  public void testSubclassFallsBack() {
+    checkEquivalence(new ASHoeffdingTree());
+  }
+
+  @Test
+  public void testDefaultPredictAndTrainImpl() {
+    checkEquivalence(new SupportingNaiveBayes());
+  }
+
+  @Test
+  public void testAdaptiveRandomForest() {
+    AdaptiveRandomForest arf = new AdaptiveRandomForest();
+    arf.ensembleSizeOption.setValue(5);
+    checkEquivalence(arf);
+  }
+
+  @Test
+  public void testStreamingRandomPatches() {
+    StreamingRandomPatches srp = new StreamingRandomPatches();
+    srp.ensembleSizeOption.setValue(5);
+    checkEquivalence(srp);
+  }
+
+  @Test
+  public void testOzaBag() {
+    checkEquivalence(new OzaBag());
+  }
+
+  @Test
+  public void testLeveragingBag() {
+    checkEquivalence(new LeveragingBag());
+    LeveragingBag me = new LeveragingBag();
+    me.leveraginBagAlgorithmOption.setChosenIndex(1);
+    checkEquivalence(me);
+    LeveragingBag outputCodes = new LeveragingBag();
+    outputCodes.outputCodesOption.set();
+    checkEquivalence(outputCodes);
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TrainOnBatchTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
+
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.functions.Perceptron;
+import moa.classifiers.functions.SGD;
+import moa.classifiers.meta.minibatch.OzaBagMB;
+import moa.classifiers.trees.ARFHoeffdingTree;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.options.OptionHandler;
+import moa.streams.InstanceStream;
+import moa.streams.generators.RandomRBFGenerator;
+import moa.streams.generators.RandomTreeGenerator;
+
+/**
+ * Checks that trainOnBatch and getVotesForBatch give the same models and votes
+ * as training and predicting with each instance.
+ */
+public class TrainOnBatchTest {
+
+  protected static final int NUM_BATCHES = 30;
+
+  protected static final int BATCH_SIZE = 100;
+
+  protected void checkEquivalence(Classifier classifier, InstanceStream stream) {
+    Classifier perRow = classifier.copy();
+    Classifier batched = classifier.copy();
+    perRow.prepareForUse();
+    batched.prepareForUse();
+
+    ((OptionHandler) stream).prepareForUse();
+    perRow.setModelContext(stream.getHeader());
+    batched.setModelContext(stream.getHeader());
+
+    InstanceBatch batch = new InstanceBatch(stream.getHeader(), BATCH_SIZE);
+    for (int b = 0; b < NUM_BATCHES; b++) {
+      batch.clear();
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        Instance inst = stream.nextInstance().getData();
+        if (i % 10 == 3) {
+          inst.setWeight(2.5);
+        } else if (i % 10 == 7) {
+          inst.setWeight(0.0);
+        } else if (i % 10 == 9) {
+          inst.setMissing(inst.classIndex());
+        }
+        batch.add(inst);
+      }
+      double[][] votes = batched.getVotesForBatch(batch);
+      assertEquals(BATCH_SIZE, votes.length);
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        double[] expected = perRow.getVotesForInstance(batch.instance(i));
+        assertArrayEquals(classifier.getClass().getSimpleName() + " batch " + b + " row " + i,
+            expected, votes[i], 1e-10);
+      }
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        perRow.trainOnInstance(batch.instance(i));
+      }
+      batched.trainOnBatch(batch);
+    }
+    assertEquals(perRow.trainingWeightSeenByModel(), batched.trainingWeightSeenByModel(), 1e-9);
+  }
+
+  @Test
+  public void testNaiveBayes() {
+    checkEquivalence(new NaiveBayes(), new RandomRBFGenerator());
+    checkEquivalence(new NaiveBayes(), new RandomTreeGenerator());
+  }
+
+  @Test
+  public void testPerceptron() {
+    checkEquivalence(new Perceptron(), new RandomRBFGenerator());
+  }
+
+  @Test
+  public void testSGD() {
+    checkEquivalence(new SGD(), new RandomRBFGenerator());
+  }
+
+  @Test
+  public void testHoeffdingTree() {
+    for (int leafPrediction = 0; leafPrediction < 3; leafPrediction++) {
+      HoeffdingTree ht = new HoeffdingTree();
+      ht.leafpredictionOption.setChosenIndex(leafPrediction);
+      ht.gracePeriodOption.setValue(50);
+      checkEquivalence(ht, new RandomRBFGenerator());
+      checkEquivalence(ht, new RandomTreeGenerator());
+    }
+  }
+
+  @Test
+  public void testHoeffdingTreeMemoryLimit() {
+    HoeffdingTree ht = new HoeffdingTree();
+    ht.gracePeriodOption.setValue(20);
+    ht.maxByteSizeOption.setValue(20000);
+    ht.memoryEstimatePeriodOption.setValue(250);
+    checkEquivalence(ht, new RandomTreeGenerator());
+  }
+
+  @Test
+  public void testRandomSubspaceLeaves() {
+    ARFHoeffdingTree tree = new ARFHoeffdingTree();
+    tree.gracePeriodOption.setValue(50);
+    checkEquivalence(tree, new RandomRBFGenerator());
+  }
+
+  @Test
+  public void testOzaBagMB() {
+    OzaBagMB bag = new OzaBagMB();
+    bag.ensembleSizeOption.setValue(5);
+    checkEquivalence(bag, new RandomRBFGenerator());
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PackedGaussianNumericAttributeClassObserverTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.generators.RandomTreeGenerator;
+
+/**
+ * Checks that the packed Gaussian observer gives the same results as
+ * {@link GaussianNumericAttributeClassObserver}.
+ */
+public class PackedGaussianNumericAttributeClassObserverTest {
+
+  @Test
+  public void testSameStatistics() {
+    GaussianNumericAttributeClassObserver gaussian = new GaussianNumericAttributeClassObserver();
+    PackedGaussianNumericAttributeClassObserver packed = new PackedGaussianNumericAttributeClassObserver();
+    gaussian.prepareForUse();
+    packed.prepareForUse();
+    Random random = new Random(1);
+    // class 2 is never observed
+    int[] classes = {0, 1, 3};
+    double[] preSplitDist = new double[4];
+    for (int i = 0; i < 5000; i++) {
+      int classVal = classes[random.nextInt(classes.length)];
+      double attVal = random.nextGaussian() * (classVal + 1) + classVal;
+      double weight = random.nextInt(3);
+      gaussian.observeAttributeClass(attVal, classVal, weight);
+      packed.observeAttributeClass(attVal, classVal, weight);
+      preSplitDist[classVal] += weight;
+      if (i % 250 == 249) {
+        for (int c = 0; c < 5; c++) {
+          assertEquals(gaussian.probabilityOfAttributeValueGivenClass(attVal, c),
+              packed.probabilityOfAttributeValueGivenClass(attVal, c), 0.0);
+        }
+        double[] splits = gaussian.getSplitPointSuggestions();
+        assertArrayEquals(splits, packed.getSplitPointSuggestions(), 0.0);
+        for (double split : splits) {
+          double[][] expected = gaussian.getClassDistsResultingFromBinarySplit(split);
+          double[][] actual = packed.getClassDistsResultingFromBinarySplit(split);
+          assertArrayEquals(expected[0], actual[0], 0.0);
+          assertArrayEquals(expected[1], actual[1], 0.0);
+        }
+        AttributeSplitSuggestion expected = gaussian.getBestEvaluatedSplitSuggestion(
+            new InfoGainSplitCriterion(), preSplitDist, 0, true);
+        AttributeSplitSuggestion actual = packed.getBestEvaluatedSplitSuggestion(
+            new InfoGainSplitCriterion(), preSplitDist, 0, true);
+        assertEquals(expected.merit, actual.merit, 0.0);
+        assertEquals(((NumericAttributeBinaryTest) expected.splitTest).getSplitValue(),
+            ((NumericAttributeBinaryTest) actual.splitTest).getSplitValue(), 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testSingleValue() {
+    GaussianNumericAttributeClassObserver gaussian = new GaussianNumericAttributeClassObserver();
+    PackedGaussianNumericAttributeClassObserver packed = new PackedGaussianNumericAttributeClassObserver();
+    gaussian.observeAttributeClass(1.0, 1, 1.0);
+    packed.observeAttributeClass(1.0, 1, 1.0);
+    assertArrayEquals(gaussian.getSplitPointSuggestions(), packed.getSplitPointSuggestions(), 0.0);
+    assertEquals(gaussian.probabilityOfAttributeValueGivenClass(1.0, 1),
+        packed.probabilityOfAttributeValueGivenClass(1.0, 1), 0.0);
+    assertEquals(0, packed.getSplitPointSuggestions().length);
+  }
+
+  @Test
+  public void testHoeffdingTree() {
+    RandomTreeGenerator stream = new RandomTreeGenerator();
+    stream.prepareForUse();
+    HoeffdingTree tree = new HoeffdingTree();
+    tree.setModelContext(stream.getHeader());
+    tree.prepareForUse();
+    HoeffdingTree packed = new HoeffdingTree();
+    packed.numericEstimatorOption.setValueViaCLIString("PackedGaussianNumericAttributeClassObserver");
+    packed.setModelContext(stream.getHeader());
+    packed.prepareForUse();
+    for (int i = 0; i < 20000; i++) {
+      Instance inst = stream.nextInstance().getData();
+      assertArrayEquals("instance " + i, tree.getVotesForInstance(inst), packed.getVotesForInstance(inst), 0.0);
+      tree.trainOnInstance(inst);
+      packed.trainOnInstance(inst);
+    }
+    assertEquals(tree.getNodeCount(), packed.getNodeCount());
+  }
+}
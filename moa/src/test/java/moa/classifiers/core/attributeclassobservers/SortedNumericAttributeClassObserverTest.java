@@ -0,0 +1,115 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SortedNumericAttributeClassObserverTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.classifiers.core.splitcriteria.VarianceReductionSplitCriterion;
+
+/**
+ * Checks that the sorted observers find the same splits as the binary tree
+ * ones while under their bound, and stay bounded above it.
+ */
+public class SortedNumericAttributeClassObserverTest {
+
+  protected double splitValue(AttributeSplitSuggestion suggestion) {
+    return ((NumericAttributeBinaryTest) suggestion.splitTest).getSplitValue();
+  }
+
+  @Test
+  public void testSameSplitAsBinaryTree() {
+    BinaryTreeNumericAttributeClassObserver tree = new BinaryTreeNumericAttributeClassObserver();
+    SortedNumericAttributeClassObserver sorted = new SortedNumericAttributeClassObserver();
+    sorted.prepareForUse();
+    Random random = new Random(1);
+    double[] preSplitDist = new double[3];
+    SplitCriterion criterion = new InfoGainSplitCriterion();
+    for (int i = 0; i < 2000; i++) {
+      int classVal = random.nextInt(3);
+      // few distinct values, so that some are seen several times
+      double attVal = Math.round((random.nextGaussian() + classVal) * 50) / 10.0;
+      tree.observeAttributeClass(attVal, classVal, 1.0);
+      sorted.observeAttributeClass(attVal, classVal, 1.0);
+      preSplitDist[classVal]++;
+      if (i % 100 == 99) {
+        AttributeSplitSuggestion expected = tree.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true);
+        AttributeSplitSuggestion actual = sorted.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true);
+        assertEquals(expected.merit, actual.merit, 1e-12);
+        assertEquals(splitValue(expected), splitValue(actual), 0.0);
+        assertArrayEquals(expected.resultingClassDistributions[0], actual.resultingClassDistributions[0], 1e-9);
+      }
+    }
+    assertTrue(sorted.getNumValues() < 1000);
+  }
+
+  @Test
+  public void testBoundedOnSortedValues() {
+    SortedNumericAttributeClassObserver sorted = new SortedNumericAttributeClassObserver();
+    sorted.maxValuesOption.setValue(100);
+    sorted.prepareForUse();
+    double[] preSplitDist = new double[2];
+    for (int i = 0; i < 100000; i++) {
+      int classVal = i < 30000 ? 0 : 1;
+      sorted.observeAttributeClass(i, classVal, 1.0);
+      preSplitDist[classVal]++;
+    }
+    assertTrue(sorted.getNumValues() <= 100);
+    AttributeSplitSuggestion suggestion = sorted.getBestEvaluatedSplitSuggestion(
+        new InfoGainSplitCriterion(), preSplitDist, 0, true);
+    // the distributions of the remaining split points are exact
+    double split = splitValue(suggestion);
+    assertEquals(split + 1, suggestion.resultingClassDistributions[0][0]
+        + suggestion.resultingClassDistributions[0][1], 0.0);
+    assertTrue(Math.abs(split - 29999) < 100000 / 25);
+  }
+
+  @Test
+  public void testRegressionSameSplitAsFIMTDD() {
+    FIMTDDNumericAttributeClassObserver tree = new FIMTDDNumericAttributeClassObserver();
+    SortedNumericAttributeClassObserverRegression sorted = new SortedNumericAttributeClassObserverRegression();
+    sorted.prepareForUse();
+    Random random = new Random(1);
+    double[] preSplitDist = new double[3];
+    SplitCriterion criterion = new VarianceReductionSplitCriterion();
+    for (int i = 0; i < 2000; i++) {
+      double attVal = random.nextInt(200);
+      double target = attVal > 120 ? 10 + random.nextGaussian() : random.nextGaussian();
+      tree.observeAttributeClass(attVal, target, 1.0);
+      sorted.observeAttributeTarget(attVal, target);
+      preSplitDist[0]++;
+      preSplitDist[1] += target;
+      preSplitDist[2] += target * target;
+    }
+    AttributeSplitSuggestion expected = tree.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true);
+    AttributeSplitSuggestion actual = sorted.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true);
+    assertEquals(expected.merit, actual.merit, 1e-9);
+    assertEquals(splitValue(expected), splitValue(actual), 0.0);
+  }
+}
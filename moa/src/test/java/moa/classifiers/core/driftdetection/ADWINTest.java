@@ -0,0 +1,80 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ADWINTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.core.driftdetection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the change detection of ADWIN and that adding items in batches is
+ * the same as adding them one by one.
+ */
+public class ADWINTest {
+
+  protected double[] bits(Random random, int length, double probability) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextDouble() < probability ? 1.0 : 0.0;
+    }
+    return values;
+  }
+
+  @Test
+  public void testDetectsChange() {
+    Random random = new Random(1);
+    ADWIN adwin = new ADWIN();
+    for (double value : bits(random, 5000, 0.2)) {
+      adwin.setInput(value);
+    }
+    assertEquals(5000, adwin.getWidth(), 0.0);
+    assertEquals(0.2, adwin.getEstimation(), 0.02);
+    boolean change = false;
+    for (double value : bits(random, 5000, 0.8)) {
+      change |= adwin.setInput(value);
+    }
+    assertTrue(change);
+    assertTrue(adwin.getWidth() < 10000);
+    assertEquals(0.8, adwin.getEstimation(), 0.02);
+  }
+
+  @Test
+  public void testBatchInput() {
+    Random random = new Random(2);
+    ADWIN single = new ADWIN();
+    ADWIN batch = new ADWIN();
+    for (int i = 0; i < 100; i++) {
+      double[] values = bits(random, 100, i < 50 ? 0.3 : 0.7);
+      boolean change = false;
+      for (double value : values) {
+        change |= single.setInput(value);
+      }
+      assertEquals(change, batch.setInput(Arrays.copyOf(values, values.length)));
+      assertEquals(single.getWidth(), batch.getWidth(), 0.0);
+      assertEquals(single.getEstimation(), batch.getEstimation(), 0.0);
+      assertEquals(single.getVariance(), batch.getVariance(), 0.0);
+    }
+    assertTrue(batch.getNumberDetections() > 0);
+  }
+}
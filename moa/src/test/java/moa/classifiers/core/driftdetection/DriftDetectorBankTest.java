@@ -0,0 +1,145 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DriftDetectorBankTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.core.driftdetection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the members of a bank of change detectors behave as copies of
+ * the change detector the bank was created from.
+ */
+public class DriftDetectorBankTest {
+
+  protected ChangeDetector prepare(ChangeDetector detector, String options) {
+    detector.getOptions().setViaCLIString(options);
+    detector.prepareForUse();
+    return detector;
+  }
+
+  /**
+   * Feeds the same errors, whose rate changes over time, to a bank and to
+   * copies of its prototype, resetting the members that detect a change.
+   */
+  protected void checkSameAsCopies(ChangeDetector prototype, int size, Class<?> bankType) {
+    DriftDetectorBank bank = DriftDetectorBank.create(prototype, size);
+    assertEquals(bankType, bank.getClass());
+    ChangeDetector[] copies = new ChangeDetector[size];
+    for (int i = 0; i < size; i++) {
+      copies[i] = prototype.copy();
+    }
+    Random random = new Random(1);
+    double[] errors = new double[size];
+    int numChanges = 0;
+    for (int t = 0; t < 20000; t++) {
+      for (int i = 0; i < size; i++) {
+        double errorRate = ((t + 1000 * i) / 3000) % 2 == 0 ? 0.1 : 0.4;
+        errors[i] = random.nextDouble() < errorRate ? 1.0 : 0.0;
+      }
+      int bankChanges = bank.input(errors);
+      int copiesChanges = 0;
+      for (int i = 0; i < size; i++) {
+        copies[i].input(errors[i]);
+        assertEquals("member " + i + " at " + t, copies[i].getChange(), bank.getChange(i));
+        assertEquals("member " + i + " at " + t, copies[i].getWarningZone(), bank.getWarningZone(i));
+        assertEquals("member " + i + " at " + t, copies[i].getEstimation(), bank.getEstimation(i), 0.0);
+        if (copies[i].getChange()) {
+          copiesChanges++;
+          if (i % 2 == 0) {
+            copies[i] = prototype.copy();
+            bank.resetLearning(i);
+          }
+        }
+      }
+      assertEquals(copiesChanges, bankChanges);
+      numChanges += bankChanges;
+    }
+    assertTrue(numChanges > 0);
+  }
+
+  @Test
+  public void testADWIN() {
+    checkSameAsCopies(prepare(new ADWINChangeDetector(), "-a 0.01"), 5,
+        DriftDetectorBank.ADWINBank.class);
+  }
+
+  @Test
+  public void testDDM() {
+    checkSameAsCopies(prepare(new DDM(), "-n 50"), 5, DriftDetectorBank.DDMBank.class);
+  }
+
+  @Test
+  public void testEDDM() {
+    checkSameAsCopies(prepare(new EDDM(), ""), 5, DriftDetectorBank.EDDMBank.class);
+  }
+
+  @Test
+  public void testPageHinkley() {
+    checkSameAsCopies(prepare(new PageHinkleyDM(), "-l 20"), 5,
+        DriftDetectorBank.PageHinkleyBank.class);
+  }
+
+  @Test
+  public void testHDDMA() {
+    checkSameAsCopies(prepare(new HDDM_A_Test(), "-t Two-sided"), 5,
+        DriftDetectorBank.HDDMABank.class);
+  }
+
+  @Test
+  public void testHDDMW() {
+    // the copies of HDDM_W_Test share their samples, only one can be compared
+    checkSameAsCopies(prepare(new HDDM_W_Test(), ""), 1, DriftDetectorBank.HDDMWBank.class);
+    checkSameAsCopies(prepare(new HDDM_W_Test(), "-t Two-sided"), 1,
+        DriftDetectorBank.HDDMWBank.class);
+  }
+
+  @Test
+  public void testOtherDetectors() {
+    checkSameAsCopies(prepare(new CusumDM(), ""), 5, DriftDetectorBank.CopiesBank.class);
+  }
+
+  @Test
+  public void testADWINView() {
+    DriftDetectorBank.ADWINBank bank = new DriftDetectorBank.ADWINBank(3, ADWIN.DELTA);
+    ADWIN[] adwins = bank.getADWINs();
+    for (int t = 0; t < 100; t++) {
+      bank.input(new double[]{1.0, 0.0, 1.0});
+    }
+    assertEquals(1.0, adwins[0].getEstimation(), 0.0);
+    assertEquals(100, adwins[2].getWidth());
+    ADWIN reset = adwins[0];
+    bank.resetLearning(0);
+    // the array is the one of the bank, resets show in it
+    assertSame(adwins, bank.getADWINs());
+    assertNotSame(reset, adwins[0]);
+    assertEquals(0, adwins[0].getWidth());
+    // and ADWINs set in it are used by the bank
+    adwins[2] = new ADWIN();
+    bank.input(2, 0.0);
+    assertEquals(1, adwins[2].getWidth());
+    assertEquals(0.0, bank.getEstimation(2), 0.0);
+  }
+}
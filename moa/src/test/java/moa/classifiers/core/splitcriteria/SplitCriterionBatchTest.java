@@ -0,0 +1,72 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SplitCriterionBatchTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.core.splitcriteria;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that scoring binary splits in one call gives the same merits as
+ * scoring them one at a time.
+ */
+public class SplitCriterionBatchTest {
+
+  protected void checkSameMerits(SplitCriterion criterion) {
+    Random random = new Random(1);
+    int numClasses = 4;
+    int numSplits = 50;
+    double[] lhsDists = new double[numClasses * numSplits];
+    double[] rhsDists = new double[numClasses * numSplits];
+    double[] preSplitDist = new double[numClasses];
+    for (int i = 0; i < lhsDists.length; i++) {
+      // some empty classes and some empty branches
+      lhsDists[i] = random.nextInt(4) == 0 ? 0.0 : random.nextDouble() * 100;
+      rhsDists[i] = i / numClasses % 10 == 0 ? 0.0 : random.nextDouble() * 100;
+      preSplitDist[i % numClasses] += lhsDists[i] + rhsDists[i];
+    }
+    double[] merits = new double[numSplits];
+    criterion.getMeritsOfBinarySplits(preSplitDist, lhsDists, rhsDists, numClasses, numSplits, merits);
+    for (int i = 0; i < numSplits; i++) {
+      double[][] postSplitDists = new double[][]{
+          Arrays.copyOfRange(lhsDists, i * numClasses, (i + 1) * numClasses),
+          Arrays.copyOfRange(rhsDists, i * numClasses, (i + 1) * numClasses)};
+      assertEquals("split " + i, criterion.getMeritOfSplit(preSplitDist, postSplitDists), merits[i], 0.0);
+    }
+  }
+
+  @Test
+  public void testInfoGain() {
+    checkSameMerits(new InfoGainSplitCriterion());
+  }
+
+  @Test
+  public void testGini() {
+    checkSameMerits(new GiniSplitCriterion());
+  }
+
+  @Test
+  public void testDefault() {
+    checkSameMerits(new VarianceReductionSplitCriterion());
+  }
+}
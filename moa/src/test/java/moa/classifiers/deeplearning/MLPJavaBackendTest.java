@@ -0,0 +1,74 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MLPJavaBackendTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.deeplearning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.core.Utils;
+import moa.streams.InstanceStream;
+import moa.streams.generators.AgrawalGenerator;
+import moa.streams.generators.RandomRBFGenerator;
+
+/**
+ * Checks that an MLP with the Java backend learns, without the DJL engine.
+ */
+public class MLPJavaBackendTest {
+
+  protected static final int NUM_INSTANCES = 5000;
+
+  protected double prequentialAccuracy(String options, InstanceStream stream) {
+    MLP mlp = new MLP();
+    mlp.getOptions().setViaCLIString("-E Java " + options);
+    mlp.prepareForUse();
+    mlp.setModelContext(stream.getHeader());
+    int correct = 0;
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      Instance inst = stream.nextInstance().getData();
+      double[] votes = mlp.getVotesForInstance(inst);
+      assertEquals(inst.numClasses(), votes.length);
+      if (Utils.maxIndex(votes) == (int) inst.classValue()) {
+        correct++;
+      }
+      mlp.trainOnInstance(inst);
+    }
+    return correct / (double) NUM_INSTANCES;
+  }
+
+  @Test
+  public void testNumericAttributes() {
+    RandomRBFGenerator stream = new RandomRBFGenerator();
+    stream.prepareForUse();
+    double accuracy = prequentialAccuracy("-N 6 -B 4 -o ADAM -r 0.005", stream);
+    assertTrue("accuracy " + accuracy, accuracy > 0.75);
+  }
+
+  @Test
+  public void testNormalization() {
+    AgrawalGenerator stream = new AgrawalGenerator();
+    stream.prepareForUse();
+    double accuracy = prequentialAccuracy("-N 6 -n -o ADAM -r 0.005", stream);
+    assertTrue("accuracy " + accuracy, accuracy > 0.75);
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * StackedMLPTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.deeplearning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the networks of a StackedMLP learn, and are the same as when
+ * each one is computed on its own.
+ */
+public class StackedMLPTest {
+
+  protected static final int NUM_INPUTS = 3;
+
+  protected static final int[] HIDDEN_LAYER_SIZES = {8, 6};
+
+  protected static final int[] OPTIMIZERS = {MLP.OPTIMIZER_SGD, MLP.OPTIMIZER_ADAM,
+      MLP.OPTIMIZER_RMSPROP, MLP.OPTIMIZER_ADAGRAD};
+
+  protected static final double[] LEARNING_RATES = {0.1, 0.01, 0.01, 0.05};
+
+  /** The class is 1 when the first input is above the second one. */
+  protected double[] nextRow(Random random, StackedMLP.InputBatch batch) {
+    double[] x = new double[NUM_INPUTS];
+    for (int i = 0; i < NUM_INPUTS; i++) {
+      x[i] = random.nextDouble() * 2.0 - 1.0;
+    }
+    if (batch != null) {
+      batch.add(x, x[0] > x[1] ? 1.0 : 0.0);
+    }
+    return x;
+  }
+
+  @Test
+  public void testSameAsSeparateNetworks() {
+    StackedMLP stack = new StackedMLP(NUM_INPUTS, HIDDEN_LAYER_SIZES, 2, OPTIMIZERS, LEARNING_RATES, 7);
+    StackedMLP[] separate = new StackedMLP[OPTIMIZERS.length];
+    for (int g = 0; g < separate.length; g++) {
+      separate[g] = new StackedMLP(NUM_INPUTS, HIDDEN_LAYER_SIZES, 2,
+          new int[] {OPTIMIZERS[g]}, new double[] {LEARNING_RATES[g]}, 7);
+    }
+    Random random = new Random(1);
+    StackedMLP.InputBatch batch = new StackedMLP.InputBatch(NUM_INPUTS, 5);
+    for (int step = 0; step < 50; step++) {
+      batch.clear();
+      while (!batch.isFull()) {
+        nextRow(random, batch);
+      }
+      boolean[] trainNetwork = new boolean[OPTIMIZERS.length];
+      for (int g = 0; g < trainNetwork.length; g++) {
+        trainNetwork[g] = (step + g) % 3 != 0;
+      }
+      double[] losses = stack.train(batch, trainNetwork, 0.0).clone();
+      double[] x = nextRow(random, null);
+      for (int g = 0; g < separate.length; g++) {
+        double[] loss = separate[g].train(batch, new boolean[] {trainNetwork[g]}, 0.0);
+        assertEquals(loss[0], losses[g], 0.0);
+        assertEquals(trainNetwork[g], stack.wasTrained(g));
+        double[] expected = new double[2];
+        double[] votes = new double[2];
+        separate[g].getVotes(0, x, expected);
+        stack.getVotes(g, x, votes);
+        assertArrayEquals(expected, votes, 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testLearns() {
+    StackedMLP stack = new StackedMLP(NUM_INPUTS, HIDDEN_LAYER_SIZES, 2, OPTIMIZERS, LEARNING_RATES, 7);
+    Random random = new Random(1);
+    StackedMLP.InputBatch batch = new StackedMLP.InputBatch(NUM_INPUTS, 8);
+    boolean[] trainNetwork = {true, true, true, true};
+    for (int step = 0; step < 2000; step++) {
+      batch.clear();
+      while (!batch.isFull()) {
+        nextRow(random, batch);
+      }
+      stack.train(batch, trainNetwork, 0.0);
+    }
+    for (int g = 0; g < OPTIMIZERS.length; g++) {
+      int correct = 0;
+      double[] votes = new double[2];
+      for (int i = 0; i < 200; i++) {
+        double[] x = nextRow(random, null);
+        stack.getVotes(g, x, votes);
+        if ((votes[1] > votes[0]) == (x[0] > x[1])) {
+          correct++;
+        }
+      }
+      assertTrue("network " + g + " correct " + correct, correct > 180);
+    }
+  }
+
+  @Test
+  public void testLossThreshold() {
+    StackedMLP stack = new StackedMLP(NUM_INPUTS, HIDDEN_LAYER_SIZES, 2, OPTIMIZERS, LEARNING_RATES, 7);
+    Random random = new Random(1);
+    StackedMLP.InputBatch batch = new StackedMLP.InputBatch(NUM_INPUTS, 4);
+    while (!batch.isFull()) {
+      nextRow(random, batch);
+    }
+    double[] x = nextRow(random, null);
+    double[] before = new double[2];
+    stack.getVotes(0, x, before);
+
+    double[] losses = stack.train(batch, new boolean[] {true, true, true, true}, 100.0);
+    assertTrue(losses[0] > 0.0);
+    assertFalse(stack.wasTrained(0));
+    double[] after = new double[2];
+    stack.getVotes(0, x, after);
+    assertArrayEquals(before, after, 0.0);
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * IncrementalKDTreeTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.lazy.neighboursearch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+import moa.classifiers.lazy.kNN;
+import moa.classifiers.lazy.kNNwithPAW;
+import moa.streams.generators.RandomRBFGenerator;
+
+/**
+ * Compares the IncrementalKDTree against the brute force search on a sliding
+ * window.
+ */
+public class IncrementalKDTreeTest {
+
+	private static final double EPS = 1e-9;
+
+	protected void compareWithLinearSearch(boolean withMissing) throws Exception {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.numAttsOption.setValue(5);
+		stream.prepareForUse();
+		Random random = new Random(1);
+
+		Instances window = new Instances(stream.getHeader(), 0);
+		IncrementalKDTree index = new IncrementalKDTree(window);
+		index.setMaxInstInLeaf(8);
+		for (int n = 0; n < 2000; n++) {
+			Instance inst = stream.nextInstance().getData();
+			if (withMissing && random.nextDouble() < 0.1)
+				inst.setMissing(random.nextInt(5));
+
+			if (n >= 2000 / 2 && n % 10 == 0) {
+				int k = Math.min(5, window.numInstances());
+				LinearNNSearch linear = new LinearNNSearch(window);
+				Instances expected = linear.kNearestNeighbours(inst, k);
+				Instances actual = index.kNearestNeighbours(inst, k);
+				assertEquals(expected.numInstances(), actual.numInstances());
+				assertArrayEquals(linear.getDistances(), index.getDistances(), EPS);
+			}
+
+			if (window.numInstances() >= 300) {
+				assertTrue(index.remove(window.instance(0)));
+				window.delete(0);
+			}
+			window.add(inst);
+			index.update(window.instance(window.numInstances() - 1));
+			assertEquals(window.numInstances(), index.numInstances());
+		}
+	}
+
+	@Test
+	public void testSlidingWindow() throws Exception {
+		compareWithLinearSearch(false);
+	}
+
+	@Test
+	public void testSlidingWindowWithMissingValues() throws Exception {
+		compareWithLinearSearch(true);
+	}
+
+	@Test
+	public void testRemoveUnknownInstance() throws Exception {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.prepareForUse();
+		Instances window = new Instances(stream.getHeader(), 0);
+		IncrementalKDTree index = new IncrementalKDTree(window);
+		Instance inst = stream.nextInstance().getData();
+		index.update(inst);
+		assertFalse(index.remove(inst.copy()));
+		assertTrue(index.remove(inst));
+		assertEquals(0, index.numInstances());
+	}
+
+	protected void compareClassifierWithLinearSearch(kNN linear, kNN indexed) {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.numAttsOption.setValue(5);
+		stream.prepareForUse();
+		linear.limitOption.setValue(300);
+		indexed.limitOption.setValue(300);
+		indexed.nearestNeighbourSearchOption.setChosenIndex(2);
+		linear.setModelContext(stream.getHeader());
+		indexed.setModelContext(stream.getHeader());
+		linear.prepareForUse();
+		indexed.prepareForUse();
+		for (int n = 0; n < 2000; n++) {
+			Instance inst = stream.nextInstance().getData();
+			if (n % 10 == 0)
+				assertArrayEquals(linear.getVotesForInstance(inst), indexed.getVotesForInstance(inst), EPS);
+			linear.trainOnInstance(inst);
+			indexed.trainOnInstance(inst);
+		}
+	}
+
+	@Test
+	public void testKNNWindow() throws Exception {
+		compareClassifierWithLinearSearch(new kNN(), new kNN());
+	}
+
+	@Test
+	public void testKNNWithPAWWindow() throws Exception {
+		compareClassifierWithLinearSearch(new kNNwithPAW(), new kNNwithPAW());
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AdaptiveRandomForestJobsTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.meta;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.Classifier;
+import moa.streams.generators.RandomRBFGeneratorDrift;
+
+/**
+ * Checks that training AdaptiveRandomForest with several threads gives the
+ * same model as training it with a single thread.
+ */
+public class AdaptiveRandomForestJobsTest {
+
+  protected static final int NUM_INSTANCES = 3000;
+
+  protected AdaptiveRandomForest newForest(int jobs, int microBatchSize) {
+    AdaptiveRandomForest arf = new AdaptiveRandomForest();
+    arf.ensembleSizeOption.setValue(10);
+    arf.numberOfJobsOption.setValue(jobs);
+    arf.microBatchSizeOption.setValue(microBatchSize);
+    arf.prepareForUse();
+    return arf;
+  }
+
+  protected void checkSameVotes(int jobs, int microBatchSize, boolean fused) {
+    Classifier single = newForest(1, 0);
+    Classifier parallel = newForest(jobs, microBatchSize);
+
+    RandomRBFGeneratorDrift stream = new RandomRBFGeneratorDrift();
+    stream.speedChangeOption.setValue(0.001);
+    stream.prepareForUse();
+    single.setModelContext(stream.getHeader());
+    parallel.setModelContext(stream.getHeader());
+
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      Instance inst = stream.nextInstance().getData();
+      double[] expected = single.predictAndTrain(inst);
+      double[] actual;
+      if (fused) {
+        actual = parallel.predictAndTrain(inst);
+      } else {
+        actual = parallel.getVotesForInstance(inst);
+        parallel.trainOnInstance(inst);
+      }
+      assertArrayEquals("instance " + i, expected, actual, 1e-10);
+    }
+    parallel.resetLearning();
+  }
+
+  @Test
+  public void testSynchronizedOnQuery() {
+    checkSameVotes(4, 0, false);
+  }
+
+  @Test
+  public void testMicroBatches() {
+    checkSameVotes(3, 16, false);
+  }
+
+  @Test
+  public void testPredictAndTrain() {
+    checkSameVotes(4, 0, true);
+  }
+
+  protected boolean trainersAlive() {
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.isAlive() && thread.getName().startsWith("AdaptiveRandomForest-trainer-")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void testTrainingHasEnded() throws InterruptedException {
+    Classifier single = newForest(1, 0);
+    AdaptiveRandomForest parallel = newForest(4, 0);
+
+    RandomRBFGeneratorDrift stream = new RandomRBFGeneratorDrift();
+    stream.prepareForUse();
+    single.setModelContext(stream.getHeader());
+    parallel.setModelContext(stream.getHeader());
+
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      Instance inst = stream.nextInstance().getData();
+      single.trainOnInstance(inst);
+      parallel.trainOnInstance(inst);
+      // the forest must not depend on the caller keeping the instance
+      for (int j = 0; j < inst.numAttributes(); j++) {
+        inst.setValue(j, 0.0);
+      }
+      if (i == NUM_INSTANCES / 2) {
+        parallel.trainingHasEnded();
+        for (int tries = 0; tries < 100 && trainersAlive(); tries++) {
+          Thread.sleep(10);
+        }
+        assertFalse(trainersAlive());
+      }
+    }
+    Instance inst = stream.nextInstance().getData();
+    assertArrayEquals(single.getVotesForInstance(inst), parallel.getVotesForInstance(inst), 1e-10);
+    parallel.trainingHasEnded();
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ParallelPredictionTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.meta;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstanceBatch;
+
+import moa.classifiers.Classifier;
+import moa.streams.generators.RandomRBFGeneratorDrift;
+
+/**
+ * Checks that ensembles asking their members for votes in parallel, for an
+ * instance or for a batch, give the same votes as asking them one after the
+ * other.
+ */
+public class ParallelPredictionTest {
+
+  protected static final int NUM_BATCHES = 20;
+
+  protected static final int BATCH_SIZE = 50;
+
+  protected void checkSameVotes(Classifier classifier, String options) {
+    Classifier serial = classifier.copy();
+    Classifier parallel = classifier.copy();
+    serial.getOptions().setViaCLIString(options);
+    parallel.getOptions().setViaCLIString(options + " -P");
+    serial.prepareForUse();
+    parallel.prepareForUse();
+
+    RandomRBFGeneratorDrift stream = new RandomRBFGeneratorDrift();
+    stream.speedChangeOption.setValue(0.001);
+    stream.prepareForUse();
+    serial.setModelContext(stream.getHeader());
+    parallel.setModelContext(stream.getHeader());
+
+    String name = classifier.getClass().getSimpleName();
+    InstanceBatch batch = new InstanceBatch(stream.getHeader(), BATCH_SIZE);
+    for (int b = 0; b < NUM_BATCHES; b++) {
+      batch.clear();
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        batch.add(stream.nextInstance().getData());
+      }
+      double[][] parallelVotes = parallel.getVotesForBatch(batch);
+      double[][] serialVotes = serial.getVotesForBatch(batch);
+      assertEquals(BATCH_SIZE, parallelVotes.length);
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        Instance inst = batch.instance(i);
+        double[] expected = serial.getVotesForInstance(inst);
+        String message = name + " batch " + b + " row " + i;
+        assertArrayEquals(message, expected, parallel.getVotesForInstance(inst), 0.0);
+        assertArrayEquals(message, expected, parallelVotes[i], 0.0);
+        assertArrayEquals(message, expected, serialVotes[i], 0.0);
+      }
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        Instance inst = batch.instance(i);
+        serial.trainOnInstance(inst);
+        parallel.trainOnInstance(inst);
+      }
+    }
+  }
+
+  @Test
+  public void testOzaBag() {
+    checkSameVotes(new OzaBag(), "-s 8");
+  }
+
+  @Test
+  public void testLeveragingBag() {
+    checkSameVotes(new LeveragingBag(), "-s 8");
+  }
+
+  @Test
+  public void testAdaptiveRandomForest() {
+    checkSameVotes(new AdaptiveRandomForest(), "-s 8");
+    checkSameVotes(new AdaptiveRandomForest(), "-s 8 -j 3");
+  }
+
+  @Test
+  public void testStreamingRandomPatches() {
+    checkSameVotes(new StreamingRandomPatches(), "-s 8");
+  }
+
+  @Test
+  public void testHeterogeneousEnsembleBlast() {
+    checkSameVotes(new HeterogeneousEnsembleBlast(), "-k 3 -p");
+  }
+}
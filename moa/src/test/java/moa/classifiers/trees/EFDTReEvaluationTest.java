@@ -0,0 +1,115 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EFDTReEvaluationTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.trees;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.core.Utils;
+import moa.streams.ConceptDriftStream;
+import moa.streams.InstanceStream;
+
+/**
+ * Checks the re-evaluation of EFDT with cached merits and in the background.
+ */
+public class EFDTReEvaluationTest {
+
+  protected InstanceStream newStream() {
+    ConceptDriftStream stream = new ConceptDriftStream();
+    stream.driftstreamOption.setValueViaCLIString("generators.RandomTreeGenerator -r 7 -i 7");
+    stream.positionOption.setValue(10000);
+    stream.widthOption.setValue(100);
+    stream.prepareForUse();
+    return stream;
+  }
+
+  protected double accuracy(EFDT tree, int numInstances) {
+    InstanceStream stream = newStream();
+    tree.setModelContext(stream.getHeader());
+    tree.prepareForUse();
+    int correct = 0;
+    for (int i = 0; i < numInstances; i++) {
+      Instance inst = stream.nextInstance().getData();
+      if (Utils.maxIndex(tree.getVotesForInstance(inst)) == (int) inst.classValue()) {
+        correct++;
+      }
+      tree.trainOnInstance(inst);
+    }
+    return correct / (double) numInstances;
+  }
+
+  @Test
+  public void testNoGrowthScoresEverything() {
+    EFDT tree = new EFDT();
+    EFDT cached = new EFDT();
+    cached.reEvalWeightGrowthOption.setValue(0.0);
+    InstanceStream stream = newStream();
+    tree.setModelContext(stream.getHeader());
+    tree.prepareForUse();
+    cached.setModelContext(stream.getHeader());
+    cached.prepareForUse();
+    for (int i = 0; i < 20000; i++) {
+      Instance inst = stream.nextInstance().getData();
+      assertArrayEquals(tree.getVotesForInstance(inst), cached.getVotesForInstance(inst), 0.0);
+      tree.trainOnInstance(inst);
+      cached.trainOnInstance(inst);
+    }
+  }
+
+  @Test
+  public void testCachedMerits() {
+    double expected = accuracy(new EFDT(), 20000);
+    EFDT cached = new EFDT();
+    cached.reEvalWeightGrowthOption.setValue(0.5);
+    assertTrue(accuracy(cached, 20000) > expected - 0.05);
+  }
+
+  @Test
+  public void testBackground() {
+    double expected = accuracy(new EFDT(), 20000);
+    EFDT background = new EFDT();
+    background.backgroundReEvalOption.set();
+    background.reEvalWeightGrowthOption.setValue(0.1);
+    assertTrue(accuracy(background, 20000) > expected - 0.05);
+  }
+
+  @Test
+  public void testBoundUsesWeightAtScoring() {
+    EFDT tree = new EFDT();
+    EFDT.EFDTSplitNode node = tree.new EFDTSplitNode(null, new double[]{60.0, 40.0});
+    // no cached merits, the bound uses the weight of the distribution
+    assertEquals(100.0, node.getWeightAtScoring(100.0), 0.0);
+    node.cachedSuggestions = new AttributeSplitSuggestion[3];
+    node.cachedSuggestions[0] = new AttributeSplitSuggestion(null, new double[0][], 0.1);
+    node.cachedSuggestions[2] = new AttributeSplitSuggestion(null, new double[0][], 0.2);
+    node.weightAtScoring.setValue(0, 80.0);
+    node.weightAtScoring.setValue(1, 10.0);
+    node.weightAtScoring.setValue(2, 90.0);
+    // the merit scored with the least weight bounds the comparison
+    assertEquals(80.0, node.getWeightAtScoring(100.0), 0.0);
+    assertEquals(50.0, node.getWeightAtScoring(50.0), 0.0);
+  }
+}
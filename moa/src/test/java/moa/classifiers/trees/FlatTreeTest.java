@@ -0,0 +1,124 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FlatTreeTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.trees;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.AbstractClassifier;
+import moa.streams.ConceptDriftStream;
+import moa.streams.InstanceStream;
+import moa.streams.generators.RandomTreeGenerator;
+
+/**
+ * Checks that predictions made with flat trees are the same as the ones made
+ * by walking the nodes.
+ */
+public class FlatTreeTest {
+
+  protected void checkSamePredictions(AbstractClassifier tree, AbstractClassifier flat,
+                                      InstanceStream stream, int numInstances) {
+    tree.setModelContext(stream.getHeader());
+    tree.prepareForUse();
+    flat.setModelContext(stream.getHeader());
+    flat.prepareForUse();
+    for (int i = 0; i < numInstances; i++) {
+      Instance inst = stream.nextInstance().getData();
+      assertArrayEquals("instance " + i, tree.getVotesForInstance(inst), flat.getVotesForInstance(inst), 0.0);
+      tree.trainOnInstance(inst);
+      flat.trainOnInstance(inst);
+    }
+  }
+
+  protected InstanceStream randomTree() {
+    RandomTreeGenerator stream = new RandomTreeGenerator();
+    stream.prepareForUse();
+    return stream;
+  }
+
+  @Test
+  public void testHoeffdingTree() {
+    HoeffdingTree flat = new HoeffdingTree();
+    flat.flatInferenceOption.set();
+    checkSamePredictions(new HoeffdingTree(), flat, randomTree(), 20000);
+    assertTrue(flat.getFlatTree().numNodes() > 1);
+  }
+
+  @Test
+  public void testBinarySplits() {
+    HoeffdingTree tree = new HoeffdingTree();
+    tree.binarySplitsOption.set();
+    HoeffdingTree flat = new HoeffdingTree();
+    flat.binarySplitsOption.set();
+    flat.flatInferenceOption.set();
+    checkSamePredictions(tree, flat, randomTree(), 20000);
+  }
+
+  @Test
+  public void testHoeffdingAdaptiveTree() {
+    ConceptDriftStream drift = new ConceptDriftStream();
+    drift.driftstreamOption.setValueViaCLIString("generators.RandomTreeGenerator -r 7 -i 7");
+    drift.positionOption.setValue(5000);
+    drift.widthOption.setValue(100);
+    drift.prepareForUse();
+    HoeffdingAdaptiveTree flat = new HoeffdingAdaptiveTree();
+    flat.flatInferenceOption.set();
+    checkSamePredictions(new HoeffdingAdaptiveTree(), flat, drift, 15000);
+  }
+
+  @Test
+  public void testEFDT() {
+    EFDT flat = new EFDT();
+    flat.flatInferenceOption.set();
+    checkSamePredictions(new EFDT(), flat, randomTree(), 10000);
+  }
+
+  @Test
+  public void testARFHoeffdingTree() {
+    ARFHoeffdingTree tree = new ARFHoeffdingTree();
+    tree.subspaceSizeOption.setValue(3);
+    ARFHoeffdingTree flat = new ARFHoeffdingTree();
+    flat.subspaceSizeOption.setValue(3);
+    flat.flatInferenceOption.set();
+    checkSamePredictions(tree, flat, randomTree(), 10000);
+  }
+
+  @Test
+  public void testExport() {
+    HoeffdingTree tree = new HoeffdingTree();
+    tree.leafpredictionOption.setChosenIndex(0);
+    InstanceStream stream = randomTree();
+    tree.setModelContext(stream.getHeader());
+    tree.prepareForUse();
+    for (int i = 0; i < 20000; i++) {
+      tree.trainOnInstance(stream.nextInstance().getData());
+    }
+    FlatTree export = tree.exportFlatTree();
+    assertTrue(export.numNodes() > 1);
+    for (int i = 0; i < 1000; i++) {
+      Instance inst = stream.nextInstance().getData();
+      assertArrayEquals(tree.getVotesForInstance(inst), export.getVotesForInstance(inst), 0.0);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ParallelSplitEvaluationTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.classifiers.trees;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.AbstractClassifier;
+import moa.streams.InstanceStream;
+import moa.streams.generators.RandomTreeGenerator;
+
+/**
+ * Checks that trees evaluating their splits in parallel grow the same as
+ * when evaluating them one attribute after the other.
+ */
+public class ParallelSplitEvaluationTest {
+
+  protected void checkSamePredictions(AbstractClassifier tree, AbstractClassifier parallel) {
+    RandomTreeGenerator stream = new RandomTreeGenerator();
+    stream.numNominalsOption.setValue(20);
+    stream.numNumericsOption.setValue(100);
+    stream.prepareForUse();
+    tree.setModelContext(stream.getHeader());
+    tree.prepareForUse();
+    parallel.setModelContext(stream.getHeader());
+    parallel.prepareForUse();
+    for (int i = 0; i < 5000; i++) {
+      Instance inst = stream.nextInstance().getData();
+      assertArrayEquals("instance " + i, tree.getVotesForInstance(inst), parallel.getVotesForInstance(inst), 0.0);
+      tree.trainOnInstance(inst);
+      parallel.trainOnInstance(inst);
+    }
+  }
+
+  @Test
+  public void testHoeffdingTree() {
+    HoeffdingTree parallel = new HoeffdingTree();
+    parallel.parallelSplitEvaluationOption.set();
+    checkSamePredictions(new HoeffdingTree(), parallel);
+  }
+
+  @Test
+  public void testHoeffdingAdaptiveTree() {
+    HoeffdingAdaptiveTree parallel = new HoeffdingAdaptiveTree();
+    parallel.parallelSplitEvaluationOption.set();
+    checkSamePredictions(new HoeffdingAdaptiveTree(), parallel);
+  }
+
+  @Test
+  public void testEFDT() {
+    EFDT parallel = new EFDT();
+    parallel.parallelSplitEvaluationOption.set();
+    checkSamePredictions(new EFDT(), parallel);
+  }
+
+  @Test
+  public void testPackedObserver() {
+    HoeffdingTree tree = new HoeffdingTree();
+    HoeffdingTree packed = new HoeffdingTree();
+    packed.numericEstimatorOption.setValueViaCLIString("PackedGaussianNumericAttributeClassObserver");
+    packed.parallelSplitEvaluationOption.set();
+    checkSamePredictions(tree, packed);
+  }
+}
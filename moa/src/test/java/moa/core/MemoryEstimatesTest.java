@@ -0,0 +1,244 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MemoryEstimatesTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.ADWINChangeDetector;
+import moa.classifiers.core.driftdetection.DDM;
+import moa.classifiers.core.driftdetection.DriftDetectorBank;
+import moa.classifiers.lazy.kNN;
+import moa.classifiers.meta.AdaptiveRandomForest;
+import moa.classifiers.meta.OzaBag;
+import moa.classifiers.trees.HoeffdingAdaptiveTree;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.clusterers.clustream.Clustream;
+import moa.streams.generators.RandomRBFGenerator;
+import moa.streams.generators.RandomTreeGenerator;
+
+/**
+ * Checks the memory estimates of learners. The estimates are compared with
+ * the sizes measured by {@link SizeOf} only if its agent is present, which the
+ * build passes to the tests; their structural invariants are always checked.
+ * The agent doesn't follow the internals of JDK collections on Java 9 and
+ * later, so only structures made of arrays and primitives are compared.
+ */
+public class MemoryEstimatesTest {
+
+  protected void train(Classifier learner, int numInstances) {
+    RandomTreeGenerator stream = new RandomTreeGenerator();
+    stream.prepareForUse();
+    learner.setModelContext(stream.getHeader());
+    learner.prepareForUse();
+    for (int i = 0; i < numInstances; i++) {
+      learner.trainOnInstance(stream.nextInstance().getData());
+    }
+  }
+
+  protected void checkAgainstSizeOf(MemoryAccountable obj) {
+    double ratio = MemoryEstimates.compareWithSizeOf(obj);
+    assumeFalse("SizeOf agent not present", Double.isNaN(ratio));
+    assertTrue("estimate/measured = " + ratio, ratio > 0.95 && ratio < 1.05);
+  }
+
+  @Test
+  public void testHoeffdingTreeGrows() {
+    HoeffdingTree small = new HoeffdingTree();
+    train(small, 1000);
+    HoeffdingTree large = new HoeffdingTree();
+    train(large, 20000);
+    assertTrue(small.estimateByteSize() > 0);
+    assertTrue(large.getNodeCount() > small.getNodeCount());
+    assertTrue(large.estimateByteSize() > small.estimateByteSize());
+    assertEquals(large.estimateByteSize(), large.measureByteSize());
+  }
+
+  @Test
+  public void testHoeffdingAdaptiveTree() {
+    HoeffdingTree tree = new HoeffdingTree();
+    train(tree, 5000);
+    HoeffdingAdaptiveTree adaptive = new HoeffdingAdaptiveTree();
+    train(adaptive, 5000);
+    // the adaptive tree keeps an ADWIN in every node
+    assertTrue(adaptive.estimateByteSize() > tree.estimateByteSize());
+  }
+
+  @Test
+  public void testOzaBagSumsMembers() {
+    OzaBag bag = new OzaBag();
+    bag.ensembleSizeOption.setValue(3);
+    train(bag, 2000);
+    long members = 0;
+    for (Classifier member : bag.getSubClassifiers()) {
+      members += ((MemoryAccountable) member).estimateByteSize();
+    }
+    assertTrue(bag.estimateByteSize() > members);
+    assertTrue(bag.estimateByteSize() < members + 1024);
+    assertEquals(bag.estimateByteSize(), bag.measureByteSize());
+  }
+
+  @Test
+  public void testKNNWindow() {
+    kNN knn = new kNN();
+    knn.limitOption.setValue(100);
+    train(knn, 50);
+    long half = knn.estimateByteSize();
+    train(knn, 100);
+    assertTrue(knn.estimateByteSize() > half);
+    long full = knn.estimateByteSize();
+    train(knn, 500);
+    assertEquals(full, knn.estimateByteSize());
+  }
+
+  @Test
+  public void testADWIN() {
+    ADWIN adwin = new ADWIN();
+    long empty = adwin.estimateByteSize();
+    Random random = new Random(1);
+    for (int i = 0; i < 10000; i++) {
+      adwin.setInput(random.nextDouble());
+    }
+    assertTrue(adwin.estimateByteSize() > empty);
+  }
+
+  @Test
+  public void testAgainstSizeOf() {
+    checkAgainstSizeOf(new DoubleVector(new double[100]));
+    ADWIN adwin = new ADWIN();
+    Random random = new Random(1);
+    for (int i = 0; i < 10000; i++) {
+      adwin.setInput(random.nextDouble());
+    }
+    checkAgainstSizeOf(adwin);
+    GaussianEstimator estimator = new GaussianEstimator();
+    estimator.addObservation(1.0, 1.0);
+    checkAgainstSizeOf(estimator);
+    checkAgainstSizeOf(new NumericAttributeBinaryTest(1, 0.5, true));
+    checkAgainstSizeOf(new NominalAttributeBinaryTest(1, 2));
+    ADWINChangeDetector detector = new ADWINChangeDetector();
+    detector.prepareForUse();
+    DriftDetectorBank bank = DriftDetectorBank.create(detector, 10);
+    for (int i = 0; i < 10000; i++) {
+      bank.input(i % 10, random.nextDouble());
+    }
+    checkAgainstSizeOf(bank);
+    DDM ddm = new DDM();
+    ddm.prepareForUse();
+    checkAgainstSizeOf(DriftDetectorBank.create(ddm, 10));
+  }
+
+  protected void checkInvariants(MemoryAccountable obj, MemoryAccountable copy) {
+    long estimate = obj.estimateByteSize();
+    String name = obj.getClass().getSimpleName();
+    assertTrue(name + " estimate " + estimate, estimate > 0);
+    // every part of an estimate is aligned to 8 bytes
+    assertEquals(name + " alignment", 0, estimate % 8);
+    // estimates are computed from the structure without changing it
+    assertEquals(name, estimate, obj.estimateByteSize());
+    assertEquals(name + " copy", estimate, copy.estimateByteSize());
+  }
+
+  @Test
+  public void testStructuralInvariants() {
+    HoeffdingTree tree = new HoeffdingTree();
+    train(tree, 5000);
+    checkInvariants(tree, (MemoryAccountable) tree.copy());
+    HoeffdingAdaptiveTree adaptive = new HoeffdingAdaptiveTree();
+    train(adaptive, 5000);
+    checkInvariants(adaptive, (MemoryAccountable) adaptive.copy());
+    OzaBag bag = new OzaBag();
+    bag.ensembleSizeOption.setValue(3);
+    train(bag, 2000);
+    checkInvariants(bag, (MemoryAccountable) bag.copy());
+    AdaptiveRandomForest arf = new AdaptiveRandomForest();
+    arf.ensembleSizeOption.setValue(3);
+    train(arf, 2000);
+    checkInvariants(arf, (MemoryAccountable) arf.copy());
+    kNN knn = new kNN();
+    train(knn, 200);
+    checkInvariants(knn, (MemoryAccountable) knn.copy());
+
+    ADWIN adwin = new ADWIN();
+    Random random = new Random(1);
+    for (int i = 0; i < 10000; i++) {
+      adwin.setInput(random.nextDouble());
+    }
+    checkInvariants(adwin, (MemoryAccountable) adwin.copy());
+    DoubleVector vector = new DoubleVector(new double[100]);
+    checkInvariants(vector, (MemoryAccountable) vector.copy());
+
+    Clustream clustream = new Clustream();
+    RandomRBFGenerator stream = new RandomRBFGenerator();
+    stream.prepareForUse();
+    clustream.prepareForUse();
+    for (int i = 0; i < 2000; i++) {
+      clustream.trainOnInstance(stream.nextInstance().getData());
+    }
+    checkInvariants(clustream, (MemoryAccountable) clustream.copy());
+  }
+
+  @Test
+  public void testSizesAreMonotonic() {
+    assertTrue(new DoubleVector(new double[101]).estimateByteSize()
+        >= new DoubleVector(new double[100]).estimateByteSize());
+    HoeffdingTree tree = new HoeffdingTree();
+    tree.prepareForUse();
+    long empty = tree.estimateByteSize();
+    train(tree, 5000);
+    // the tree holds its root, which holds the nodes below it
+    long subtree = tree.getTreeRoot().calcByteSizeIncludingSubtree();
+    assertTrue(tree.estimateByteSize() > subtree);
+    assertTrue(subtree > tree.getTreeRoot().calcByteSize());
+    tree.resetLearning();
+    assertEquals(empty, tree.estimateByteSize());
+  }
+
+  @Test
+  public void testMemoryLimit() {
+    HoeffdingTree unbounded = new HoeffdingTree();
+    train(unbounded, 20000);
+    HoeffdingTree estimated = new HoeffdingTree();
+    estimated.maxByteSizeOption.setValue(20000);
+    estimated.memoryEstimatePeriodOption.setValue(1000);
+    estimated.estimateMemoryOption.set();
+    train(estimated, 20000);
+    assertTrue(estimated.getNodeCount() < unbounded.getNodeCount());
+    // by default the limit is only enforced with the SizeOf agent, as before
+    HoeffdingTree measured = new HoeffdingTree();
+    measured.maxByteSizeOption.setValue(20000);
+    measured.memoryEstimatePeriodOption.setValue(1000);
+    train(measured, 20000);
+    if (SizeOf.fullSizeOf(unbounded) > 20000) {
+      assertTrue(measured.getNodeCount() < unbounded.getNodeCount());
+    } else {
+      assertEquals(unbounded.getNodeCount(), measured.getNodeCount());
+    }
+  }
+}
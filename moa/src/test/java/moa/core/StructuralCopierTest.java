@@ -0,0 +1,204 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * StructuralCopierTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.AbstractMOAObject;
+import moa.classifiers.Classifier;
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.trees.HoeffdingAdaptiveTree;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.generators.RandomTreeGenerator;
+
+/**
+ * Checks that structural copies behave like copies made by serialization.
+ */
+public class StructuralCopierTest {
+
+  protected static class Graph extends AbstractMOAObject implements FastCopyable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected DoubleVector first = new DoubleVector(new double[]{1, 2});
+
+    protected DoubleVector second = this.first;
+
+    protected Graph self = this;
+
+    protected transient Object cached = new Object();
+
+    protected List<Object> list = new AutoExpandVector<Object>();
+
+    protected Map<String, double[]> map = new HashMap<String, double[]>();
+
+    protected Random random = new Random(1);
+
+    protected final int[] counts = {1, 2, 3};
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+  }
+
+  @Test
+  public void testGraph() {
+    Graph graph = new Graph();
+    graph.list.add(graph.first);
+    graph.map.put("a", new double[]{3, 4});
+    graph.random.nextDouble();
+
+    Graph copy = (Graph) graph.copy();
+    assertNotSame(graph, copy);
+    assertNotSame(graph.first, copy.first);
+    assertSame(copy.first, copy.second);
+    assertSame(copy, copy.self);
+    assertSame(copy.first, copy.list.get(0));
+    assertTrue(copy.list instanceof AutoExpandVector);
+    assertNull(copy.cached);
+    assertArrayEquals(graph.map.get("a"), copy.map.get("a"), 0.0);
+    assertArrayEquals(graph.counts, copy.counts);
+    assertNotSame(graph.counts, copy.counts);
+    assertEquals(graph.random.nextLong(), copy.random.nextLong());
+
+    copy.first.addToValue(0, 1.0);
+    assertEquals(1.0, graph.first.getValue(0), 0.0);
+  }
+
+  protected static class CustomSerialization implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected DoubleVector shared;
+
+    protected Owner owner;
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+      out.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+    }
+  }
+
+  protected static class Owner extends AbstractMOAObject implements FastCopyable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected DoubleVector shared = new DoubleVector(new double[]{1, 2});
+
+    protected CustomSerialization custom = new CustomSerialization();
+
+    protected Random random = new Random(1);
+
+    protected Random sameRandom = this.random;
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+  }
+
+  @Test
+  public void testSharedWithCustomSerialization() {
+    Owner owner = new Owner();
+    owner.custom.shared = owner.shared;
+    owner.custom.owner = owner;
+
+    Owner copy = (Owner) owner.copy();
+    assertNotSame(owner, copy);
+    assertNotSame(owner.custom, copy.custom);
+    assertNotSame(owner.shared, copy.shared);
+    assertSame(copy.shared, copy.custom.shared);
+    assertSame(copy, copy.custom.owner);
+    assertSame(copy.random, copy.sameRandom);
+  }
+
+  protected void checkSameAsSerialized(Classifier learner) throws Exception {
+    RandomTreeGenerator stream = new RandomTreeGenerator();
+    stream.prepareForUse();
+    learner.setModelContext(stream.getHeader());
+    learner.prepareForUse();
+    for (int i = 0; i < 5000; i++) {
+      learner.trainOnInstance(stream.nextInstance().getData());
+    }
+
+    Classifier serialized = (Classifier) SerializeUtils.copyObject(learner);
+    Classifier copied = learner.copy();
+    for (int i = 0; i < 5000; i++) {
+      Instance instance = stream.nextInstance().getData();
+      assertArrayEquals(serialized.getVotesForInstance(instance), copied.getVotesForInstance(instance), 0.0);
+      serialized.trainOnInstance(instance);
+      copied.trainOnInstance(instance);
+    }
+    assertEquals(serialized.getModelMeasurements().length, copied.getModelMeasurements().length);
+  }
+
+  @Test
+  public void testHoeffdingTree() throws Exception {
+    checkSameAsSerialized(new HoeffdingTree());
+  }
+
+  @Test
+  public void testHoeffdingAdaptiveTree() throws Exception {
+    checkSameAsSerialized(new HoeffdingAdaptiveTree());
+  }
+
+  @Test
+  public void testNaiveBayes() throws Exception {
+    checkSameAsSerialized(new NaiveBayes());
+  }
+
+  @Test
+  public void testADWIN() throws Exception {
+    ADWIN adwin = new ADWIN();
+    Random random = new Random(1);
+    for (int i = 0; i < 2000; i++) {
+      adwin.setInput(random.nextDouble() < (i < 1000 ? 0.2 : 0.8) ? 1 : 0);
+    }
+    ADWIN serialized = (ADWIN) SerializeUtils.copyObject(adwin);
+    ADWIN copied = (ADWIN) adwin.copy();
+    for (int i = 0; i < 2000; i++) {
+      double value = random.nextDouble() < 0.5 ? 1 : 0;
+      assertEquals(serialized.setInput(value), copied.setInput(value));
+      assertEquals(serialized.getEstimation(), copied.getEstimation(), 0.0);
+      assertEquals(serialized.getWidth(), copied.getWidth());
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BinaryFileStreamTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.streams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.streams.generators.RandomRBFGenerator;
+import moa.streams.generators.RandomTreeGenerator;
+import moa.tasks.WriteStreamToBinaryFile;
+
+/**
+ * Checks that BinaryFileStream reads back the instances written by
+ * WriteStreamToBinaryFile.
+ */
+public class BinaryFileStreamTest {
+
+  protected static final int NUM_INSTANCES = 2500;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  protected File write(String stream, boolean singlePrecision) throws IOException {
+    File file = folder.newFile();
+    WriteStreamToBinaryFile task = new WriteStreamToBinaryFile();
+    task.streamOption.setValueViaCLIString(stream);
+    task.binaryFileOption.setValue(file.getPath());
+    task.maxInstancesOption.setValue(NUM_INSTANCES);
+    task.blockSizeOption.setValue(1000);
+    if (singlePrecision) {
+      task.singlePrecisionOption.set();
+    }
+    task.prepareForUse();
+    task.doTask();
+    return file;
+  }
+
+  protected void checkSameInstances(InstanceStream expected, BinaryFileStream actual, double delta) {
+    assertEquals(expected.getHeader().numAttributes(), actual.getHeader().numAttributes());
+    assertEquals(expected.getHeader().classIndex(), actual.getHeader().classIndex());
+    assertEquals(NUM_INSTANCES, actual.estimatedRemainingInstances());
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      assertTrue(actual.hasMoreInstances());
+      Instance expectedInstance = expected.nextInstance().getData();
+      Instance actualInstance = actual.nextInstance().getData();
+      for (int j = 0; j < expectedInstance.numAttributes(); j++) {
+        assertEquals("instance " + i, expectedInstance.value(j), actualInstance.value(j), delta);
+      }
+      assertEquals(expectedInstance.weight(), actualInstance.weight(), 0.0);
+      assertEquals(expectedInstance.classValue(), actualInstance.classValue(), 0.0);
+    }
+    assertFalse(actual.hasMoreInstances());
+  }
+
+  @Test
+  public void testNominalAndNumeric() throws IOException {
+    File file = write("generators.RandomTreeGenerator", false);
+    RandomTreeGenerator expected = new RandomTreeGenerator();
+    expected.prepareForUse();
+    BinaryFileStream actual = new BinaryFileStream(file.getPath());
+    checkSameInstances(expected, actual, 0.0);
+
+    expected.restart();
+    actual.restart();
+    checkSameInstances(expected, actual, 0.0);
+  }
+
+  @Test
+  public void testSinglePrecision() throws IOException {
+    File file = write("generators.RandomRBFGenerator", true);
+    RandomRBFGenerator expected = new RandomRBFGenerator();
+    expected.prepareForUse();
+    BinaryFileStream actual = new BinaryFileStream();
+    actual.binaryFileOption.setValue(file.getPath());
+    actual.prepareForUse();
+    checkSameInstances(expected, actual, 1e-6);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PrefetchingStreamTest.java
+ * Copyright (C) 2024 University of Waikato, Hamilton, New Zealand
+ */
+package moa.streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import moa.streams.generators.RandomTreeGenerator;
+
+/**
+ * Checks that PrefetchingStream returns the examples of the wrapped stream in
+ * order, and restarts like it.
+ */
+public class PrefetchingStreamTest {
+
+  protected PrefetchingStream newStream(InstanceStream wrapped, int bufferSize) {
+    PrefetchingStream stream = new PrefetchingStream();
+    stream.streamOption.setCurrentObject(wrapped);
+    stream.bufferSizeOption.setValue(bufferSize);
+    stream.prepareForUse();
+    return stream;
+  }
+
+  protected void checkSameExamples(InstanceStream expected, InstanceStream actual, int numExamples) {
+    for (int i = 0; i < numExamples; i++) {
+      assertEquals(expected.hasMoreInstances(), actual.hasMoreInstances());
+      if (!expected.hasMoreInstances()) {
+        return;
+      }
+      assertArrayEquals("example " + i, expected.nextInstance().getData().toDoubleArray(),
+          actual.nextInstance().getData().toDoubleArray(), 0.0);
+    }
+  }
+
+  @Test
+  public void testSameOrder() {
+    RandomTreeGenerator expected = new RandomTreeGenerator();
+    expected.prepareForUse();
+    PrefetchingStream actual = newStream(new RandomTreeGenerator(), 4);
+    assertEquals(expected.getHeader().numAttributes(), actual.getHeader().numAttributes());
+    checkSameExamples(expected, actual, 5000);
+  }
+
+  @Test
+  public void testRestart() {
+    RandomTreeGenerator expected = new RandomTreeGenerator();
+    expected.prepareForUse();
+    PrefetchingStream actual = newStream(new RandomTreeGenerator(), 16);
+    checkSameExamples(expected, actual, 100);
+    expected.restart();
+    actual.restart();
+    checkSameExamples(expected, actual, 1000);
+  }
+
+  @Test
+  public void testEndOfStream() {
+    String file = ClassLoader.getSystemResource("moa/classifiers/data/small_classification.arff").getPath();
+    ArffFileStream expected = new ArffFileStream(file, -1);
+    PrefetchingStream actual = newStream(new ArffFileStream(file, -1), 2);
+    checkSameExamples(expected, actual, Integer.MAX_VALUE);
+    assertFalse(actual.hasMoreInstances());
+    assertEquals(null, actual.nextInstance());
+
+    expected.restart();
+    actual.restart();
+    assertTrue(actual.hasMoreInstances());
+    checkSameExamples(expected, actual, Integer.MAX_VALUE);
+  }
+}